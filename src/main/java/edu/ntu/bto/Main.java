@@ -1,45 +1,68 @@
 package edu.ntu.bto;
 
+import java.io.IOException;
 import java.util.Scanner;
 import edu.ntu.bto.service.BTOManagementSystem;
-import edu.ntu.bto.model.User;
+import edu.ntu.bto.service.Session;
+import edu.ntu.bto.service.SessionServer;
 
 /**
  * Main class for the BTO Management System CLI application. This class contains
- * the entry point and manages the high-level login loop for users of different
- * roles.
- * 
+ * the entry point and either runs a single session on the console or serves
+ * many concurrent sessions over a local TCP port.
+ *
  * @author SC2002 Assignment Group
  */
 public class Main {
 	/**
 	 * The entry point of the BTO Management System application. It initializes the
-	 * system, then continuously prompts for user login and directs the user to
-	 * their respective menu until the program is terminated.
-	 * 
-	 * @param args Command-line arguments (not used).
+	 * system, then either runs the login loop on the console until the input ends,
+	 * or, with {@code --server [port]}, serves terminal sessions on the loopback
+	 * interface until the program is terminated.
+	 *
+	 * @param args Command-line arguments: none for console mode, or
+	 *             {@code --server} optionally followed by a port (default
+	 *             {@value SessionServer#DEFAULT_PORT}).
 	 */
 	public static void main(String[] args) {
-		BTOManagementSystem system = new BTOManagementSystem();
-		Scanner scanner = new Scanner(System.in);
-		while (true) {
-			System.out.println("\n--- Welcome to the BTO Management System ---");
-			System.out.print("Enter NRIC: ");
-			String nric = scanner.nextLine().trim().toUpperCase();
-			while (!nric.matches("^[STFG]\\d{7}[A-Z]$")) {
-				System.out.println("Invalid NRIC. Please try again.");
-				System.out.print("Enter NRIC: ");
-				nric = scanner.nextLine().trim().toUpperCase();
+		int port = -1;
+		if (args.length > 0) {
+			if (!args[0].equals("--server") || args.length > 2) {
+				System.err.println("Usage: Main [--server [port]]");
+				System.exit(2);
 			}
-			System.out.print("Enter Password: ");
-			String password = scanner.nextLine();
-			User user = system.login(nric, password);
-			if (user != null) {
-				System.out.println("Login successful! Welcome, " + user.getNric());
-				user.displayMenu(scanner, system);
-			} else {
-				System.out.println("Invalid credentials. Please try again.");
+			try {
+				port = args.length == 2 ? Integer.parseInt(args[1]) : SessionServer.DEFAULT_PORT;
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid port: " + args[1]);
+				System.exit(2);
 			}
 		}
+
+		BTOManagementSystem system;
+		try {
+			system = new BTOManagementSystem();
+		} catch (IllegalStateException e) {
+			System.err.println("Unable to start: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(system::shutdown, "bto-shutdown"));
+		if (port < 0) {
+			try {
+				new Session(system, new Scanner(System.in)).run();
+			} catch (RuntimeException e) {
+				System.err.println("Session ended by error: " + e);
+				e.printStackTrace();
+				System.exit(1);
+			}
+			return;
+		}
+		try {
+			new SessionServer(system, port).serve();
+		} catch (IOException e) {
+			System.err.println("Unable to start server on port " + port + ": " + e.getMessage());
+			System.exit(1);
+		}
 	}
 }
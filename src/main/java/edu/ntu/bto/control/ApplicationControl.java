@@ -2,30 +2,84 @@ package edu.ntu.bto.control;
 
 import edu.ntu.bto.model.Applicant;
 import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
 import edu.ntu.bto.model.HDBOfficer;
 import edu.ntu.bto.model.Project;
 import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.UnitInventory;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.LongObjectHashMap;
+import edu.ntu.bto.util.NricCodec;
+import edu.ntu.bto.util.StripedLocks;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Control class for managing applications. ApplicationControl handles the logic
  * for applicants (and officers acting as applicants) applying for projects,
  * withdrawing applications, and booking flats after successful applications.
+ * <p>
+ * The control is safe for concurrent sessions. Updates lock the stripe of the
+ * applicant, flat units are taken from the project's lock-free
+ * {@link UnitInventory}, and reads never block.
+ * </p>
  * 
  * @author SC2002 Assignment Group
  */
 public class ApplicationControl {
-	/** The list of all applications in the system. */
-	private List<Application> applications;
+	/** All applications in the system, indexed. */
+	private final ApplicationStore applications;
+	/** Each applicant's current application, keyed by encoded NRIC. */
+	private final LongObjectHashMap<Application> applicationsByNric;
+	/** Journal that records each mutation, or {@code null} if disabled. */
+	private final Journal journal;
+	/** Per-applicant and per-project locks shared with the other controls. */
+	private final StripedLocks locks;
+	/** Unit holds of successful applications. */
+	private final HoldControl holds;
+	/** The flat eligibility rules. */
+	private final EligibilityRules rules;
+	/** The managers' queues of pending work, fed as applications are submitted and withdrawn. */
+	private final PendingWork pending;
 
 	/**
-	 * Constructs a new ApplicationControl with the given list of applications.
+	 * Constructs a new ApplicationControl with the given applications. Those of
+	 * applicants whose NRIC is malformed are reported and left out of the index
+	 * by NRIC.
 	 * 
-	 * @param applications The list of {@link Application} records to manage.
+	 * @param applications The {@link ApplicationStore} of the applications to
+	 *                     manage.
+	 * @param journal      The {@link Journal} that records each change, or
+	 *                     {@code null} to disable journaling.
+	 * @param locks        The {@link StripedLocks} shared by the controls.
+	 * @param holds        The {@link HoldControl} holding units for successful
+	 *                     applications.
+	 * @param rules        The {@link EligibilityRules} deciding who may apply for
+	 *                     which flat type.
+	 * @param pending      The {@link PendingWork} queues of the managers.
 	 */
-	public ApplicationControl(List<Application> applications) {
+	public ApplicationControl(ApplicationStore applications, Journal journal, StripedLocks locks,
+			HoldControl holds, EligibilityRules rules, PendingWork pending) {
 		this.applications = applications;
+		this.journal = journal;
+		this.locks = locks;
+		this.holds = holds;
+		this.rules = rules;
+		this.pending = pending;
+		this.applicationsByNric = new LongObjectHashMap<>(applications.size());
+		for (Application app : applications) {
+			if (app.getApplicant().getApplication() == app) {
+				long key = NricCodec.encode(app.getApplicant().getNric());
+				if (key == NricCodec.INVALID) {
+					System.err.println("Skipping application of " + app.getApplicant().getNric()
+							+ " in the NRIC index: malformed NRIC.");
+					continue;
+				}
+				applicationsByNric.put(key, app);
+			}
+		}
 	}
 
 	/**
@@ -40,32 +94,23 @@ public class ApplicationControl {
 	 *         {@code false} if the applicant does not meet the requirements or
 	 *         already has an active application.
 	 */
+	@SuppressWarnings("try")
 	public boolean apply(Applicant applicant, Project project, String flatType) {
-		// Check constraints
-		if (applicant.getApplication() != null
-				&& !applicant.getApplication().getStatus().equals(Application.Status.UNSUCCESSFUL)) {
-			System.out.println("You have already applied or booked a flat. Withdraw or wait for result.");
-			return false;
-		}
-
-		if (flatType.equalsIgnoreCase("2-Room")
-				&& !(applicant.getMaritalStatus().equals("Single") && applicant.getAge() >= 35)) {
-			System.out.println("Only single applicants aged 35+ can apply for 2-Room.");
-			return false;
-		} else if (flatType.equalsIgnoreCase("3-Room")
-				&& !(applicant.getMaritalStatus().equals("Married") && applicant.getAge() >= 21)) {
-			System.out.println("Only married applicants aged 21+ can apply for 3-Room.");
-			return false;
-		}
-
-		if (flatType.equalsIgnoreCase("2-Room") || flatType.equalsIgnoreCase("3-Room")) {
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant, project)) {
 			Application app = new Application(applicant, project, flatType);
-			applicant.setApplication(app);
-			applications.add(app);
-			return true;
+			String reason = submit(app);
+			if (reason != null) {
+				System.out.println(reason);
+				return false;
+			}
+			lsn = write(app);
+		} finally {
+			end();
 		}
-		System.out.println("Invalid flat type. Application failed.");
-		return false;
+		awaitDurable(lsn);
+		return true;
 	}
 
 	/**
@@ -81,114 +126,288 @@ public class ApplicationControl {
 	 *         project.
 	 */
 	public boolean apply(HDBOfficer officer, Project project, String flatType) {
-		// Check if officer is already handling the project
-		for (Registration reg : officer.getRegistrations()) {
-			if (reg.getProject().equals(project) && reg.getStatus() == Registration.Status.APPROVED) {
-				System.out.println("You cannot apply for a project you are handling as an officer.");
-				return false;
+		// The officer's own projects are excluded by checkEligibility.
+		return apply((Applicant) officer, project, flatType);
+	}
+
+	/**
+	 * Submits a batch of new applications, such as the accepted rows of a bulk
+	 * import. Each application is checked and added exactly as by
+	 * {@link #apply(Applicant, Project, String)}, but without printing; an
+	 * applicant listed twice gets only the first application.
+	 * <p>
+	 * Each application is added under its own mutation gate and locks, so a
+	 * checkpoint or another session never waits for the whole batch. The
+	 * journal records are written as the applications are added and the batch
+	 * waits once, at the end, for all of them to be durable.
+	 * </p>
+	 * 
+	 * @param requests New, still pending {@link Application}s naming the
+	 *                 applicant, project and flat type; the accepted ones are
+	 *                 added as they are.
+	 * @return The reason each request was turned down, or {@code null} for each
+	 *         one accepted, in the order of {@code requests}.
+	 */
+	@SuppressWarnings("try")
+	public List<String> applyAll(List<Application> requests) {
+		List<String> reasons = new ArrayList<>(requests.size());
+		long lsn = 0;
+		for (Application request : requests) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(request.getApplicant(), request.getProject())) {
+				String reason = submit(request);
+				if (reason == null) {
+					lsn = write(request);
+				}
+				reasons.add(reason);
+			} finally {
+				end();
 			}
 		}
-		// Proceed with normal application logic
-		return apply((Applicant) officer, project, flatType);
+		awaitDurable(lsn);
+		return reasons;
+	}
+
+	/**
+	 * Checks the rules that depend only on the applicant, project and flat type:
+	 * an officer cannot apply for a project they handle, and the applicant's
+	 * marital status and age must be eligible for the flat type under the current
+	 * {@link EligibilityRules}. Whether the applicant already has an active
+	 * application is checked when the application is submitted.
+	 * 
+	 * @param applicant The applicant.
+	 * @param project   The project applied for.
+	 * @param flatType  The flat type applied for.
+	 * @return The reason the applicant may not apply, or {@code null} if the rules
+	 *         are met.
+	 */
+	public String checkEligibility(Applicant applicant, Project project, String flatType) {
+		if (applicant instanceof HDBOfficer) {
+			for (Registration reg : ((HDBOfficer) applicant).getRegistrations()) {
+				if (reg.getProject().equals(project) && reg.getStatus() == Registration.Status.APPROVED) {
+					return "You cannot apply for a project you are handling as an officer.";
+				}
+			}
+		}
+		return rules.get().check(applicant, flatType);
+	}
+
+	/**
+	 * Adds a new application if the applicant's NRIC is well formed, and they
+	 * have no active application and are eligible. Nothing is changed unless the
+	 * application is accepted. The caller holds the locks of the applicant and of
+	 * the project, so the flat type cannot be renamed meanwhile, and journals the
+	 * application with {@link #write(Application)}.
+	 * 
+	 * @param app The new application.
+	 * @return The reason it was turned down, or {@code null} if it was added.
+	 */
+	private String submit(Application app) {
+		Applicant applicant = app.getApplicant();
+		long key = NricCodec.encode(applicant.getNric());
+		if (key == NricCodec.INVALID) {
+			return "Invalid NRIC " + applicant.getNric() + ". Application failed.";
+		}
+		if (applicant.getApplication() != null
+				&& !applicant.getApplication().getStatus().equals(Application.Status.UNSUCCESSFUL)) {
+			return "You have already applied or booked a flat. Withdraw or wait for result.";
+		}
+		String reason = checkEligibility(applicant, app.getProject(), app.getFlatType());
+		if (reason != null) {
+			return reason;
+		}
+		applicant.setApplication(app);
+		applications.add(app);
+		applicationsByNric.put(key, app);
+		pending.addApplication(app);
+		return null;
+	}
+
+	/**
+	 * Writes the journal record of a new application without waiting for it to
+	 * be durable.
+	 * 
+	 * @param app The application just added by {@link #submit(Application)}.
+	 * @return The record's LSN, or 0 if journaling is disabled.
+	 */
+	private long write(Application app) {
+		if (journal == null) {
+			return 0;
+		}
+		return journal.write(Journal.Type.APPLY, app.getApplicant().getNric(), app.getProject().getProjectName(),
+				app.getFlatType());
+	}
+
+	/**
+	 * Records a mutation in the journal without waiting for it to be durable, if
+	 * journaling is enabled. The caller waits with {@link #awaitDurable(long)}
+	 * once it has released its locks, before reporting the mutation as done.
+	 * 
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields.
+	 * @return The LSN of the record, or 0 if journaling is disabled.
+	 */
+	private long write(Journal.Type type, String... fields) {
+		return journal != null ? journal.write(type, fields) : 0;
+	}
+
+	/**
+	 * Waits until the journal records up to an LSN are durable, if journaling is
+	 * enabled.
+	 * 
+	 * @param lsn The LSN returned by {@link #write}, or 0 for none.
+	 */
+	private void awaitDurable(long lsn) {
+		if (journal != null && lsn > 0) {
+			journal.awaitDurable(lsn);
+		}
 	}
 
 	/**
 	 * Processes an applicant's request to withdraw their application. The
 	 * application status is marked as UNSUCCESSFUL (treated as canceled) so the
-	 * applicant can apply again in the future.
+	 * applicant can apply again in the future. A unit held for the application, or
+	 * the flat already booked, is released back to the project.
 	 * 
 	 * @param applicant The applicant who wishes to withdraw their application.
 	 */
+	@SuppressWarnings("try")
 	public void withdraw(Applicant applicant) {
-		Application app = applicant.getApplication();
-		if (app == null) {
-			System.out.println("No application found.");
-			return;
-		}
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant)) {
+			Application app = applicant.getApplication();
+			if (app == null) {
+				System.out.println("No application found.");
+				return;
+			} else if (app.getStatus() == Application.Status.UNSUCCESSFUL) {
+				System.out.println("Application is already unsuccessful.");
+				return;
+			}
 
-		applications.remove(app);
-		app.setStatus(Application.Status.UNSUCCESSFUL);
-		applications.add(app);
-		applicant.setApplication(app);
+			if (app.getStatus() == Application.Status.SUCCESSFUL) {
+				holds.release(app);
+			} else if (app.getStatus() == Application.Status.BOOKED) {
+				UnitInventory units = app.getProject().getInventory(app.getFlatType());
+				if (units != null) {
+					units.release();
+				}
+			}
+			applications.transition(app, Application.Status.UNSUCCESSFUL);
+			applicant.setApplication(app);
+			app.setWithdrawalPending(true);
+			pending.addWithdrawal(app);
+			lsn = write(Journal.Type.WITHDRAW, applicant.getNric());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Application withdrawn.");
 	}
 
 	/**
 	 * Allows an HDB Officer to book a flat for an applicant after the application
-	 * is successful. This method marks the applicant's application as BOOKED
-	 * (finalized) and updates the project's available unit count for the flat type.
+	 * is successful. This method books the unit held for the application in the
+	 * project's {@link UnitInventory}, or if the hold has lapsed, one of the units
+	 * still available, and marks the applicant's application as BOOKED (finalized).
+	 * Only the flat type applied for can be booked. If other officers take the
+	 * last unit first, the booking fails and the units are never oversold.
 	 * 
 	 * @param officer   The HDB Officer processing the flat booking.
 	 * @param applicant The applicant who will book the flat.
 	 * @param flatType  The flat type the applicant is booking.
 	 */
+	@SuppressWarnings("try")
 	public void bookFlat(HDBOfficer officer, Applicant applicant, String flatType) {
-		Application app = applicant.getApplication();
-		if (app == null) {
-			System.out.println("No application to consider.");
-			return;
-		} else if (app.getStatus() == Application.Status.BOOKED) {
-			System.out.println("Booking not allowed. Only one flat can be booked at a time.");
-			return;
-		} else if (app.getStatus() != Application.Status.SUCCESSFUL) {
-			System.out.println("Booking not allowed. Application must be successful.");
-			return;
-		}
+		Application app;
+		long lsn;
+		boolean booked = false;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant)) {
+			app = applicant.getApplication();
+			if (app == null) {
+				System.out.println("No application to consider.");
+				return;
+			} else if (app.getStatus() == Application.Status.BOOKED) {
+				System.out.println("Booking not allowed. Only one flat can be booked at a time.");
+				return;
+			} else if (app.getStatus() != Application.Status.SUCCESSFUL) {
+				System.out.println("Booking not allowed. Application must be successful.");
+				return;
+			}
 
-		Project project = app.getProject();
-		if (flatType.equalsIgnoreCase(project.getType1())) {
-			if (project.getUnitsType1() == 0) {
-				System.out.println("No units left for this flat type. Booking unsuccessful.");
-				app.setStatus(Application.Status.UNSUCCESSFUL);
+			if (!app.getFlatType().equalsIgnoreCase(flatType == null ? "" : flatType.trim())) {
+				System.out.println("Booking not allowed. The applicant applied for a " + app.getFlatType() + " flat.");
 				return;
 			}
-			project.decrementUnitsType1(); // decrement accordingly
-			app.setStatus(Application.Status.BOOKED);
-			System.out.println("Flat booked successfully. Generating receipt...");
-			System.out.println("===== BTO Flat Booking Receipt =====");
-			System.out.println("Applicant's NRIC: " + applicant.getNric());
-			System.out.println("Applicant's Age: " + applicant.getAge());
-			System.out.println("Applicant's Marital Status: " + applicant.getMaritalStatus());
-			System.out.println("Flat Type Chosen: " + app.getFlatType());
-			System.out.println("Project Details:");
-			System.out.println(app.getProject().toString());
-			System.out.println("Status: " + app.getStatus());
-			System.out.println("Booking Officer's NRIC: " + officer.getNric());
-			System.out.println("====================================\n");
-			return;
-		} else if (flatType.equalsIgnoreCase(project.getType2())) {
-			if (project.getUnitsType2() == 0) {
+			UnitInventory units = app.getProject().getInventory(app.getFlatType());
+			if (units == null) {
+				System.out.println("Invalid flat type. Booking unsuccessful.");
+				holds.release(app);
+				applications.transition(app, Application.Status.UNSUCCESSFUL);
+				lsn = write(Journal.Type.APPLICATION_STATUS, applicant.getNric(), Application.Status.UNSUCCESSFUL.name());
+			} else if (!holds.confirm(app)) {
 				System.out.println("No units left for this flat type. Booking unsuccessful.");
-				app.setStatus(Application.Status.UNSUCCESSFUL);
-				return;
+				applications.transition(app, Application.Status.UNSUCCESSFUL);
+				lsn = write(Journal.Type.APPLICATION_STATUS, applicant.getNric(), Application.Status.UNSUCCESSFUL.name());
+			} else {
+				applications.transition(app, Application.Status.BOOKED);
+				lsn = write(Journal.Type.BOOK, officer.getNric(), applicant.getNric(), app.getFlatType());
+				booked = true;
 			}
-			project.decrementUnitsType2(); // decrement accordingly
-			app.setStatus(Application.Status.BOOKED);
-			System.out.println("Flat booked successfully. Generating receipt...");
-			System.out.println("===== BTO Flat Booking Receipt =====");
-			System.out.println("Applicant's NRIC: " + applicant.getNric());
-			System.out.println("Applicant's Age: " + applicant.getAge());
-			System.out.println("Applicant's Marital Status: " + applicant.getMaritalStatus());
-			System.out.println("Flat Type Chosen: " + app.getFlatType());
-			System.out.println("Project Details:");
-			System.out.println(app.getProject().toString());
-			System.out.println("Status: " + app.getStatus());
-			System.out.println("Booking Officer's NRIC: " + officer.getNric());
-			System.out.println("====================================\n");
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
+		if (!booked) {
 			return;
 		}
-		System.out.println("Invalid flat type. Booking unsuccessful.");
-		app.setStatus(Application.Status.UNSUCCESSFUL);
-		return;
+		System.out.println("Flat booked successfully. Generating receipt...");
+		System.out.println("===== BTO Flat Booking Receipt =====");
+		System.out.println("Applicant's NRIC: " + applicant.getNric());
+		System.out.println("Applicant's Age: " + applicant.getAge());
+		System.out.println("Applicant's Marital Status: " + applicant.getMaritalStatus());
+		System.out.println("Flat Type Chosen: " + app.getFlatType());
+		System.out.println("Project Details:");
+		System.out.println(app.getProject().toString());
+		System.out.println("Status: " + Application.Status.BOOKED);
+		System.out.println("Booking Officer's NRIC: " + officer.getNric());
+		System.out.println("====================================\n");
 	}
 
 	/**
-	 * Returns the list of all applications being managed.
+	 * Returns the applications for a project.
 	 * 
-	 * @return A list of {@link Application} objects in the system.
+	 * @param project The project.
+	 * @return A live view of the project's {@link Application}s, which may be
+	 *         iterated while other sessions update it.
 	 */
-	public List<Application> getApplications() {
-		return applications;
+	public Collection<Application> getApplicationsByProject(Project project) {
+		return applications.getByProject(project);
+	}
+
+	/**
+	 * Returns the number of applications for a flat type of a project that have a
+	 * status, in constant time.
+	 * 
+	 * @param project  The project.
+	 * @param flatType The flat type, in any case.
+	 * @param status   The status.
+	 * @return The count.
+	 */
+	public long countApplications(Project project, String flatType, Application.Status status) {
+		return applications.count(project, flatType, status);
+	}
+
+	/**
+	 * Returns the applications for a manager's projects that have a status.
+	 * 
+	 * @param manager The manager's name, as stored in the projects.
+	 * @param status  The status.
+	 * @return The matching {@link Application}s.
+	 */
+	public List<Application> getApplicationsByManager(String manager, Application.Status status) {
+		return applications.getByManagerAndStatus(manager, status);
 	}
 
 	/**
@@ -201,4 +420,34 @@ public class ApplicationControl {
 	public Application getApplicationByApplicant(Applicant applicant) {
 		return applicant.getApplication();
 	}
+
+	/**
+	 * Retrieves the current application of the applicant with the given NRIC.
+	 * 
+	 * @param nric The applicant's NRIC, in any case.
+	 * @return The {@link Application}, or {@code null} if the NRIC is malformed or
+	 *         has no application.
+	 */
+	public Application getApplicationByNric(String nric) {
+		return applicationsByNric.get(NricCodec.encode(nric));
+	}
+
+	/**
+	 * Marks the start of a mutation so a checkpoint never captures it half done.
+	 */
+	private void begin() {
+		if (journal != null) {
+			journal.beginMutation();
+		}
+	}
+
+	/**
+	 * Marks the end of a mutation started with {@link #begin()}.
+	 */
+	private void end() {
+		if (journal != null) {
+			journal.endMutation();
+		}
+	}
+
 }
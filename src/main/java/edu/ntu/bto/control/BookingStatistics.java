@@ -0,0 +1,545 @@
+package edu.ntu.bto.control;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.Project;
+
+/**
+ * Control class keeping booking statistics as materialized views: the number
+ * of booked flats and their total price overall, per project, per flat type,
+ * per project and flat type, per marital status and per ten-year age band,
+ * plus the full breakdown over all four. The views are updated as each
+ * application is booked or leaves BOOKED, through the
+ * {@link ApplicationStore.StatusListener}, so reading them never scans the
+ * applications.
+ * <p>
+ * Updates take a short lock on this object. Reads go through
+ * {@link #snapshot()}, which returns an immutable {@link Snapshot} of every
+ * view at one instant; a new snapshot is copied from the views only on the
+ * first read after a booking changes, and published through a volatile field
+ * for the readers after it. A booking is counted at the price of its flat
+ * type when it was booked. Bookings are counted per {@link Project}, not per
+ * project name, and shown under the name the project has when the snapshot is
+ * taken, so renaming a project carries its bookings over; a rename also makes
+ * the next read take a new snapshot. The statistics must be created before
+ * sessions start, as they first count the bookings already in the store.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class BookingStatistics {
+	/**
+	 * A booking count and the total price of those bookings.
+	 */
+	public static final class Totals {
+		/** Nothing booked. */
+		private static final Totals NONE = new Totals(0, 0);
+
+		/** Number of flats booked. */
+		private final long count;
+		/** Total price of the flats booked. */
+		private final double value;
+
+		/**
+		 * Creates totals.
+		 *
+		 * @param count Number of flats booked.
+		 * @param value Total price of the flats booked.
+		 */
+		private Totals(long count, double value) {
+			this.count = count;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the number of flats booked.
+		 *
+		 * @return The count.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the total price of the flats booked.
+		 *
+		 * @return The total, in dollars.
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns the average price of the flats booked.
+		 *
+		 * @return The average, or {@code 0} if none were booked.
+		 */
+		public double getAverage() {
+			return count == 0 ? 0 : value / count;
+		}
+
+		/**
+		 * Returns the count and total as text.
+		 *
+		 * @return The totals, e.g. {@code 3 booked, $1050000}.
+		 */
+		@Override
+		public String toString() {
+			return String.format("%d booked, $%.0f", count, value);
+		}
+	}
+
+	/**
+	 * One cell of the full breakdown: a project, flat type, marital status and
+	 * age band.
+	 */
+	private static final class Cell {
+		/** The project. */
+		private final Project project;
+		/** The flat type. */
+		private final String flatType;
+		/** The marital status. */
+		private final String maritalStatus;
+		/** The age band, as the first age of the band. */
+		private final int band;
+
+		/**
+		 * Creates a cell.
+		 *
+		 * @param project       The project.
+		 * @param flatType      The flat type.
+		 * @param maritalStatus The marital status.
+		 * @param band          The first age of the age band.
+		 */
+		Cell(Project project, String flatType, String maritalStatus, int band) {
+			this.project = project;
+			this.flatType = flatType;
+			this.maritalStatus = maritalStatus;
+			this.band = band;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Cell)) {
+				return false;
+			}
+			Cell c = (Cell) o;
+			return band == c.band && project == c.project && flatType.equals(c.flatType)
+					&& maritalStatus.equals(c.maritalStatus);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(project, flatType, maritalStatus, band);
+		}
+	}
+
+	/**
+	 * A booking as counted, so it can be taken out again with the same cell and
+	 * price.
+	 */
+	private static final class Booking {
+		/** The cell it was counted in. */
+		private final Cell cell;
+		/** The price it was counted at. */
+		private final double price;
+
+		/**
+		 * Creates a booking.
+		 *
+		 * @param cell  The cell it is counted in.
+		 * @param price The price it is counted at.
+		 */
+		Booking(Cell cell, double price) {
+			this.cell = cell;
+			this.price = price;
+		}
+	}
+
+	/**
+	 * An immutable copy of every view at one instant.
+	 */
+	public static final class Snapshot {
+		/** The number of booking changes the copy includes. */
+		private final long version;
+		/** All bookings. */
+		private final Totals total;
+		/** By project name. */
+		private final Map<String, Totals> byProject;
+		/** By flat type. */
+		private final Map<String, Totals> byFlatType;
+		/** By project name, then flat type. */
+		private final Map<String, Map<String, Totals>> byProjectAndFlatType;
+		/** By marital status. */
+		private final Map<String, Totals> byMaritalStatus;
+		/** By age band label. */
+		private final Map<String, Totals> byAgeBand;
+		/** The full breakdown. */
+		private final Map<Cell, Totals> cells;
+		/** The details, and so the name, of each project counted, as of the copy. */
+		private final Map<Project, Project.Details> details = new IdentityHashMap<>();
+
+		/**
+		 * Copies the views of a statistics object; the caller holds its lock.
+		 *
+		 * @param s The statistics.
+		 */
+		private Snapshot(BookingStatistics s) {
+			this.version = s.version;
+			this.total = s.total.freeze();
+			s.byProject.keySet().forEach(p -> details.put(p, p.getDetails()));
+			this.byProject = freeze(new TreeMap<>(String.CASE_INSENSITIVE_ORDER), s.byProject, this::name);
+			this.byFlatType = freeze(new TreeMap<>(String.CASE_INSENSITIVE_ORDER), s.byFlatType);
+			this.byMaritalStatus = freeze(new TreeMap<>(String.CASE_INSENSITIVE_ORDER), s.byMaritalStatus);
+			Map<String, Totals> bands = new LinkedHashMap<>();
+			new TreeMap<>(s.byAgeBand).forEach((band, acc) -> bands.put(band + "-" + (band + BAND - 1), acc.freeze()));
+			this.byAgeBand = Collections.unmodifiableMap(bands);
+			Map<String, Map<String, Totals>> nested = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			s.byProjectAndFlatType.forEach((project, types) -> nested.put(name(project),
+					freeze(new TreeMap<>(String.CASE_INSENSITIVE_ORDER), types)));
+			this.byProjectAndFlatType = Collections.unmodifiableMap(nested);
+			Map<Cell, Totals> copy = new HashMap<>();
+			s.cells.forEach((cell, acc) -> copy.put(cell, acc.freeze()));
+			this.cells = Collections.unmodifiableMap(copy);
+		}
+
+		/**
+		 * Returns the name a counted project had when this snapshot was taken.
+		 *
+		 * @param project The project.
+		 * @return Its name.
+		 */
+		private String name(Project project) {
+			return details.get(project).getProjectName();
+		}
+
+		/**
+		 * Returns whether no counted project has been edited since this snapshot
+		 * was taken, so the names in it are still current.
+		 *
+		 * @return {@code true} if every project still has the details copied.
+		 */
+		private boolean isCurrent() {
+			for (Map.Entry<Project, Project.Details> e : details.entrySet()) {
+				if (e.getKey().getDetails() != e.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the number of booking changes this snapshot includes, which
+		 * grows with every booking or cancellation.
+		 *
+		 * @return The version.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Returns the totals of all bookings.
+		 *
+		 * @return The totals.
+		 */
+		public Totals getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns the totals per project.
+		 *
+		 * @return The totals by project name, in name order.
+		 */
+		public Map<String, Totals> getByProject() {
+			return byProject;
+		}
+
+		/**
+		 * Returns the totals per flat type.
+		 *
+		 * @return The totals by flat type, in name order.
+		 */
+		public Map<String, Totals> getByFlatType() {
+			return byFlatType;
+		}
+
+		/**
+		 * Returns the totals per flat type of each project.
+		 *
+		 * @return The totals by project name and then flat type.
+		 */
+		public Map<String, Map<String, Totals>> getByProjectAndFlatType() {
+			return byProjectAndFlatType;
+		}
+
+		/**
+		 * Returns the totals per marital status.
+		 *
+		 * @return The totals by marital status.
+		 */
+		public Map<String, Totals> getByMaritalStatus() {
+			return byMaritalStatus;
+		}
+
+		/**
+		 * Returns the totals per ten-year age band.
+		 *
+		 * @return The totals by band, such as {@code 30-39}, youngest first.
+		 */
+		public Map<String, Totals> getByAgeBand() {
+			return byAgeBand;
+		}
+
+		/**
+		 * Returns the totals of the bookings matching every given attribute.
+		 *
+		 * @param project       The project name, or {@code null} for any.
+		 * @param flatType      The flat type, or {@code null} for any.
+		 * @param maritalStatus The marital status, or {@code null} for any.
+		 * @param age           An age within the band, or {@code null} for any.
+		 * @return The totals.
+		 */
+		public Totals get(String project, String flatType, String maritalStatus, Integer age) {
+			long count = 0;
+			double value = 0;
+			for (Map.Entry<Cell, Totals> e : cells.entrySet()) {
+				Cell c = e.getKey();
+				if ((project == null || name(c.project).equalsIgnoreCase(project))
+						&& (flatType == null || c.flatType.equalsIgnoreCase(flatType))
+						&& (maritalStatus == null || c.maritalStatus.equalsIgnoreCase(maritalStatus))
+						&& (age == null || c.band == band(age))) {
+					count += e.getValue().count;
+					value += e.getValue().value;
+				}
+			}
+			return count == 0 ? Totals.NONE : new Totals(count, value);
+		}
+
+		/**
+		 * Copies a view into an unmodifiable map.
+		 *
+		 * @param target The map to fill.
+		 * @param view   The view.
+		 * @return The unmodifiable map.
+		 */
+		private static Map<String, Totals> freeze(Map<String, Totals> target, Map<String, Acc> view) {
+			return freeze(target, view, key -> key);
+		}
+
+		/**
+		 * Copies a view into an unmodifiable map, naming each entry. Entries that
+		 * end up with the same name are added together.
+		 *
+		 * @param <K>    The key type of the view.
+		 * @param target The map to fill.
+		 * @param view   The view.
+		 * @param name   The name of each key.
+		 * @return The unmodifiable map.
+		 */
+		private static <K> Map<String, Totals> freeze(Map<String, Totals> target, Map<K, Acc> view,
+				Function<K, String> name) {
+			view.forEach((key, acc) -> target.merge(name.apply(key), acc.freeze(),
+					(a, b) -> new Totals(a.count + b.count, a.value + b.value)));
+			return Collections.unmodifiableMap(target);
+		}
+	}
+
+	/**
+	 * A running count and total; guarded by the statistics' lock.
+	 */
+	private static final class Acc {
+		/** Number of flats booked. */
+		private long count;
+		/** Total price of the flats booked. */
+		private double value;
+
+		/**
+		 * Adds or takes out a booking.
+		 *
+		 * @param sign  {@code 1} to add, {@code -1} to take out.
+		 * @param price The price of the flat.
+		 */
+		void add(int sign, double price) {
+			count += sign;
+			value += sign * price;
+		}
+
+		/**
+		 * Returns whether nothing is counted.
+		 *
+		 * @return {@code true} if the count is zero.
+		 */
+		boolean isEmpty() {
+			return count == 0;
+		}
+
+		/**
+		 * Returns immutable totals of the current values.
+		 *
+		 * @return The totals.
+		 */
+		Totals freeze() {
+			return new Totals(count, value);
+		}
+	}
+
+	/** Width of an age band, in years. */
+	private static final int BAND = 10;
+
+	/** All bookings. */
+	private final Acc total = new Acc();
+	/** Bookings by project. */
+	private final Map<Project, Acc> byProject = new IdentityHashMap<>();
+	/** Bookings by flat type. */
+	private final Map<String, Acc> byFlatType = new HashMap<>();
+	/** Bookings by project, then flat type. */
+	private final Map<Project, Map<String, Acc>> byProjectAndFlatType = new IdentityHashMap<>();
+	/** Bookings by marital status. */
+	private final Map<String, Acc> byMaritalStatus = new HashMap<>();
+	/** Bookings by the first age of their age band. */
+	private final Map<Integer, Acc> byAgeBand = new HashMap<>();
+	/** Bookings by project, flat type, marital status and age band. */
+	private final Map<Cell, Acc> cells = new HashMap<>();
+	/** How each counted booking was counted. */
+	private final Map<Application, Booking> booked = new IdentityHashMap<>();
+	/** Flat type and marital status spellings, by lower-case value. */
+	private final Map<String, String> spellings = new HashMap<>();
+	/** Number of booking changes applied; written under the lock. */
+	private volatile long version;
+	/** The latest snapshot, or {@code null} before the first read. */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Constructs the statistics over a store's current bookings and registers
+	 * for its later changes.
+	 *
+	 * @param applications The applications.
+	 */
+	public BookingStatistics(ApplicationStore applications) {
+		synchronized (this) {
+			applications.setStatusListener(this::statusChanged);
+			for (Application app : applications.getByStatus(Application.Status.BOOKED)) {
+				if (!booked.containsKey(app)) {
+					update(app, 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a consistent copy of every view.
+	 *
+	 * @return The current snapshot.
+	 */
+	public Snapshot snapshot() {
+		Snapshot s = snapshot;
+		if (s != null && s.version == version && s.isCurrent()) {
+			return s;
+		}
+		synchronized (this) {
+			s = snapshot;
+			if (s == null || s.version != version || !s.isCurrent()) {
+				s = new Snapshot(this);
+				snapshot = s;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Applies an addition or status change to the views.
+	 *
+	 * @param app  The application.
+	 * @param from Its previous status, or {@code null} if it was just added.
+	 * @param to   Its new status.
+	 */
+	private synchronized void statusChanged(Application app, Application.Status from, Application.Status to) {
+		if (to == Application.Status.BOOKED && !booked.containsKey(app)) {
+			update(app, 1);
+		} else if (from == Application.Status.BOOKED && to != Application.Status.BOOKED && booked.containsKey(app)) {
+			update(app, -1);
+		}
+	}
+
+	/**
+	 * Adds a booking to, or takes it out of, every view.
+	 *
+	 * @param app  The booked application.
+	 * @param sign {@code 1} to add, {@code -1} to take out.
+	 */
+	private void update(Application app, int sign) {
+		Booking b;
+		if (sign > 0) {
+			Cell cell = new Cell(app.getProject(), spelling(app.getFlatType()),
+					spelling(app.getApplicant().getMaritalStatus()), band(app.getApplicant().getAge()));
+			b = new Booking(cell, app.getProject().getPrice(app.getFlatType()));
+			booked.put(app, b);
+		} else {
+			b = booked.remove(app);
+		}
+		Cell c = b.cell;
+		total.add(sign, b.price);
+		apply(byProject, c.project, sign, b.price);
+		apply(byFlatType, c.flatType, sign, b.price);
+		apply(byProjectAndFlatType.computeIfAbsent(c.project, k -> new HashMap<>()), c.flatType, sign, b.price);
+		if (byProjectAndFlatType.get(c.project).isEmpty()) {
+			byProjectAndFlatType.remove(c.project);
+		}
+		apply(byMaritalStatus, c.maritalStatus, sign, b.price);
+		apply(byAgeBand, c.band, sign, b.price);
+		apply(cells, c, sign, b.price);
+		version++;
+	}
+
+	/**
+	 * Adds a booking to, or takes it out of, one entry of a view, dropping the
+	 * entry when nothing is left in it.
+	 *
+	 * @param <K>   The key type.
+	 * @param view  The view.
+	 * @param key   The entry's key.
+	 * @param sign  {@code 1} to add, {@code -1} to take out.
+	 * @param price The price of the flat.
+	 */
+	private static <K> void apply(Map<K, Acc> view, K key, int sign, double price) {
+		Acc acc = view.computeIfAbsent(key, k -> new Acc());
+		acc.add(sign, price);
+		if (acc.isEmpty()) {
+			view.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the first spelling seen of a value, so values differing only in
+	 * case are counted together.
+	 *
+	 * @param value The value, or {@code null}.
+	 * @return The spelling.
+	 */
+	private String spelling(String value) {
+		String v = value == null ? "" : value;
+		return spellings.computeIfAbsent(v.toLowerCase(Locale.ROOT), k -> v);
+	}
+
+	/**
+	 * Returns the age band of an age.
+	 *
+	 * @param age The age.
+	 * @return The first age of its band.
+	 */
+	private static int band(int age) {
+		return Math.max(0, age) / BAND * BAND;
+	}
+}
@@ -0,0 +1,459 @@
+package edu.ntu.bto.control;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import edu.ntu.bto.model.User;
+
+/**
+ * Control class for the flat eligibility rules: which marital statuses and ages
+ * may apply for each flat type. The rules are read from a properties file with
+ * one entry per flat type, for example
+ *
+ * <pre>
+ * 2-Room = Single:35
+ * 3-Room = Married:21
+ * </pre>
+ *
+ * where each value is a comma-separated list of {@code status:minAge} or
+ * {@code status:minAge-maxAge} clauses, any one of which makes an applicant
+ * eligible. Without the file the rules above apply.
+ * <p>
+ * The rules are compiled into a {@link Compiled} table: marital statuses and
+ * flat types are numbered, ages are mapped to the bands between the ages the
+ * clauses mention, and each flat type gets a bitmask with one bit per status and
+ * age band. An applicant is thus reduced once to a small profile number, and
+ * every check is a single bit test. The file is looked at again at most every
+ * {@code bto.eligibility.checkMillis} ms (default 1000) and recompiled when it
+ * changes, so rules can be edited without a restart. A file that does not parse
+ * is reported and the previous rules stay in force.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class EligibilityRules {
+	/** The rules used when there is no rules file. */
+	private static final String DEFAULT_RULES = "2-Room=Single:35\n3-Room=Married:21\n";
+
+	/**
+	 * The highest age a clause may give; the ages up to the bounds are tabulated,
+	 * so larger ones would make the table needlessly big.
+	 */
+	private static final int MAX_AGE = 150;
+
+	/** The rules file. */
+	private final Path file;
+	/** Minimum time between two looks at the rules file, in nanoseconds. */
+	private final long checkNanos;
+	/** The rules in force. */
+	private volatile Compiled current;
+	/** Modification time of the file the current rules came from, or -1. */
+	private long loadedModified;
+	/** When the rules file was last looked at, from {@link System#nanoTime()}. */
+	private volatile long lastCheck;
+
+	/**
+	 * Constructs the rules and compiles the rules file, or the default rules if
+	 * there is none.
+	 *
+	 * @param file The rules file.
+	 * @throws IllegalStateException if the rules file exists but cannot be read
+	 *                               or parsed.
+	 */
+	public EligibilityRules(Path file) {
+		this.file = file;
+		this.checkNanos = Math.max(0, Long.getLong("bto.eligibility.checkMillis", 1000)) * 1_000_000;
+		this.lastCheck = System.nanoTime();
+		try {
+			load();
+		} catch (IOException | IllegalArgumentException e) {
+			throw new IllegalStateException("Unable to load eligibility rules " + file + ": " + e.getMessage(), e);
+		}
+		System.out.println("Bootstrap: " + current);
+	}
+
+	/**
+	 * Returns the rules in force, first recompiling the rules file if it has
+	 * changed since it was last looked at. Callers that check many applicants
+	 * should take the table once and use it throughout.
+	 *
+	 * @return The compiled rules.
+	 */
+	public Compiled get() {
+		long now = System.nanoTime();
+		if (now - lastCheck >= checkNanos) {
+			reloadIfChanged(now);
+		}
+		return current;
+	}
+
+	/**
+	 * Recompiles the rules file if its modification time has changed. Only one
+	 * caller looks at the file at a time; the others keep using the current
+	 * rules.
+	 *
+	 * @param now The current {@link System#nanoTime()}.
+	 */
+	private synchronized void reloadIfChanged(long now) {
+		if (now - lastCheck < checkNanos) {
+			return;
+		}
+		lastCheck = now;
+		try {
+			if (modified() != loadedModified) {
+				load();
+				System.out.println("Eligibility rules reloaded: " + current);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Unable to reload eligibility rules " + file + ", keeping the previous rules: "
+					+ e.getMessage());
+			try {
+				// Do not retry the same broken file on every check.
+				loadedModified = modified();
+			} catch (IOException ignored) {
+				// Retried at the next check.
+			}
+		}
+	}
+
+	/**
+	 * Reads and compiles the rules file, or the default rules if there is none,
+	 * and puts them in force.
+	 *
+	 * @throws IOException              if the file cannot be read.
+	 * @throws IllegalArgumentException if a rule does not parse.
+	 */
+	private void load() throws IOException {
+		long modified = modified();
+		Properties props = new Properties();
+		if (modified < 0) {
+			props.load(new StringReader(DEFAULT_RULES));
+		} else {
+			try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				props.load(in);
+			}
+		}
+		current = Compiled.parse(props, modified < 0 ? "default rules" : file.toString());
+		loadedModified = modified;
+	}
+
+	/**
+	 * Returns the modification time of the rules file.
+	 *
+	 * @return The time in milliseconds, or -1 if there is no file.
+	 * @throws IOException if the file cannot be examined.
+	 */
+	private long modified() throws IOException {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (NoSuchFileException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * An immutable, compiled set of eligibility rules.
+	 */
+	public static final class Compiled {
+		/** Profile of an applicant whose marital status no rule names. */
+		public static final int NO_PROFILE = -1;
+		/** Code of a flat type no rule names. */
+		public static final int NO_FLAT_TYPE = -1;
+
+		/** Where the rules came from. */
+		private final String source;
+		/** Marital status codes, by lower-case status. */
+		private final Map<String, Integer> statuses;
+		/** Marital status codes, by status as written in the rules. */
+		private final Map<String, Integer> statusesAsWritten;
+		/** Flat type codes, by lower-case flat type. */
+		private final Map<String, Integer> flatTypes;
+		/** Flat type names as written in the rules, by code. */
+		private final String[] flatTypeNames;
+		/** The lowest age of each age band after the first, ascending. */
+		private final int[] bandStarts;
+		/** Age band of every age below the last band start. */
+		private final byte[] bandOfAge;
+		/** Eligible profiles of each flat type: bit {@code profile} of mask {@code flatType}. */
+		private final long[][] masks;
+		/** The message shown to an applicant who is not eligible, by flat type code. */
+		private final String[] messages;
+		/** Number of clauses compiled. */
+		private final int clauses;
+
+		/**
+		 * Compiles parsed rules.
+		 *
+		 * @param source The place the rules came from.
+		 * @param rules  The clauses by flat type.
+		 */
+		private Compiled(String source, Map<String, List<Clause>> rules) {
+			this.source = source;
+			this.statuses = new HashMap<>();
+			this.statusesAsWritten = new HashMap<>();
+			this.flatTypes = new HashMap<>();
+			this.flatTypeNames = rules.keySet().toArray(new String[0]);
+			this.messages = new String[flatTypeNames.length];
+
+			// Number the statuses and cut the ages into bands at every clause boundary.
+			TreeSet<Integer> starts = new TreeSet<>();
+			int count = 0;
+			for (List<Clause> list : rules.values()) {
+				for (Clause c : list) {
+					statuses.putIfAbsent(c.status.toLowerCase(), statuses.size());
+					statusesAsWritten.putIfAbsent(c.status, statuses.get(c.status.toLowerCase()));
+					starts.add(c.minAge);
+					if (c.maxAge < Integer.MAX_VALUE) {
+						starts.add(c.maxAge + 1);
+					}
+					count++;
+				}
+			}
+			starts.remove(0);
+			this.clauses = count;
+			this.bandStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+			if (bandStarts.length > Byte.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many distinct ages in the rules");
+			}
+			int lastStart = bandStarts.length == 0 ? 0 : bandStarts[bandStarts.length - 1];
+			this.bandOfAge = new byte[lastStart];
+			for (int age = 0, band = 0; age < lastStart; age++) {
+				while (band < bandStarts.length && bandStarts[band] <= age) {
+					band++;
+				}
+				bandOfAge[age] = (byte) band;
+			}
+
+			// One bit per (status, band) for every flat type.
+			int bands = bandStarts.length + 1;
+			int words = (statuses.size() * bands + 63) >>> 6;
+			this.masks = new long[flatTypeNames.length][words];
+			for (int t = 0; t < flatTypeNames.length; t++) {
+				flatTypes.put(flatTypeNames[t].toLowerCase(), t);
+				List<String> who = new ArrayList<>();
+				for (Clause c : rules.get(flatTypeNames[t])) {
+					int base = statuses.get(c.status.toLowerCase()) * bands;
+					for (int band = band(c.minAge); band < bands && lowestAge(band) <= c.maxAge; band++) {
+						masks[t][(base + band) >>> 6] |= 1L << (base + band);
+					}
+					who.add(c.toString());
+				}
+				messages[t] = who.isEmpty() ? "No applicants can apply for " + flatTypeNames[t] + "."
+						: "Only " + String.join(" or ", who) + " can apply for " + flatTypeNames[t] + ".";
+			}
+		}
+
+		/**
+		 * Parses rules from properties, one flat type per key.
+		 *
+		 * @param props  The rules.
+		 * @param source The place the rules came from.
+		 * @return The compiled rules.
+		 * @throws IllegalArgumentException if a rule does not parse.
+		 */
+		static Compiled parse(Properties props, String source) {
+			Map<String, List<Clause>> rules = new LinkedHashMap<>();
+			for (String flatType : new TreeSet<>(props.stringPropertyNames())) {
+				List<Clause> list = new ArrayList<>();
+				for (String part : props.getProperty(flatType).split(",")) {
+					if (!part.isBlank()) {
+						list.add(Clause.parse(flatType, part.trim()));
+					}
+				}
+				rules.put(flatType.trim(), list);
+			}
+			return new Compiled(source, rules);
+		}
+
+		/**
+		 * Returns the profile of an applicant: their marital status and age band
+		 * in one number. Profiles are only valid for the rules that made them.
+		 *
+		 * @param user The applicant.
+		 * @return The profile, or {@link #NO_PROFILE} if no rule names the
+		 *         applicant's marital status.
+		 */
+		public int profile(User user) {
+			String status = user.getMaritalStatus();
+			if (status == null) {
+				return NO_PROFILE;
+			}
+			// Statuses are usually spelled as in the rules; skip the case folding then.
+			Integer code = statusesAsWritten.get(status);
+			if (code == null) {
+				code = statuses.get(status.toLowerCase());
+			}
+			return code == null ? NO_PROFILE : code * (bandStarts.length + 1) + band(user.getAge());
+		}
+
+		/**
+		 * Returns the number of distinct profiles; every profile lies between 0 and
+		 * this count.
+		 *
+		 * @return The profile count.
+		 */
+		public int getProfileCount() {
+			return statuses.size() * (bandStarts.length + 1);
+		}
+
+		/**
+		 * Returns the code of a flat type.
+		 *
+		 * @param flatType The flat type, in any case.
+		 * @return The code, or {@link #NO_FLAT_TYPE} if no rule names it.
+		 */
+		public int flatType(String flatType) {
+			Integer code = flatType == null ? null : flatTypes.get(flatType.toLowerCase());
+			return code == null ? NO_FLAT_TYPE : code;
+		}
+
+		/**
+		 * Returns whether an applicant profile may apply for a flat type.
+		 *
+		 * @param profile  The profile from {@link #profile(User)}.
+		 * @param flatType The code from {@link #flatType(String)}.
+		 * @return {@code true} if the profile is eligible.
+		 */
+		public boolean isEligible(int profile, int flatType) {
+			return profile >= 0 && flatType >= 0 && (masks[flatType][profile >>> 6] & 1L << profile) != 0;
+		}
+
+		/**
+		 * Returns whether an applicant may apply for a flat type.
+		 *
+		 * @param user     The applicant.
+		 * @param flatType The flat type, in any case.
+		 * @return {@code true} if the applicant is eligible.
+		 */
+		public boolean isEligible(User user, String flatType) {
+			return isEligible(profile(user), flatType(flatType));
+		}
+
+		/**
+		 * Returns the reason an applicant may not apply for a flat type.
+		 *
+		 * @param user     The applicant.
+		 * @param flatType The flat type, in any case.
+		 * @return The reason, or {@code null} if the applicant is eligible.
+		 */
+		public String check(User user, String flatType) {
+			int code = flatType(flatType);
+			if (code == NO_FLAT_TYPE) {
+				return "Invalid flat type. Application failed.";
+			}
+			return isEligible(profile(user), code) ? null : messages[code];
+		}
+
+		/**
+		 * Returns the age band of an age.
+		 *
+		 * @param age The age.
+		 * @return The band, from 0 for the youngest.
+		 */
+		private int band(int age) {
+			if (age < 0) {
+				return 0;
+			}
+			return age < bandOfAge.length ? bandOfAge[age] : bandStarts.length;
+		}
+
+		/**
+		 * Returns the lowest age of an age band.
+		 *
+		 * @param band The band.
+		 * @return The age.
+		 */
+		private int lowestAge(int band) {
+			return band == 0 ? 0 : bandStarts[band - 1];
+		}
+
+		/**
+		 * Returns a one-line summary of the rules.
+		 *
+		 * @return The summary.
+		 */
+		@Override
+		public String toString() {
+			return "eligibility rules from " + source + ": " + clauses + " clauses, " + flatTypeNames.length
+					+ " flat types, " + statuses.size() + " marital statuses, " + (bandStarts.length + 1)
+					+ " age bands";
+		}
+	}
+
+	/**
+	 * One clause of a rule: a marital status and an age range.
+	 */
+	private static final class Clause {
+		/** The marital status, as written. */
+		private final String status;
+		/** The lowest eligible age. */
+		private final int minAge;
+		/** The highest eligible age, or {@link Integer#MAX_VALUE}. */
+		private final int maxAge;
+
+		/**
+		 * Creates a clause.
+		 *
+		 * @param status The marital status.
+		 * @param minAge The lowest eligible age.
+		 * @param maxAge The highest eligible age.
+		 */
+		private Clause(String status, int minAge, int maxAge) {
+			this.status = status;
+			this.minAge = minAge;
+			this.maxAge = maxAge;
+		}
+
+		/**
+		 * Parses a clause such as {@code Single:35} or {@code Married:21-40}. Both
+		 * ages must lie between 0 and {@code MAX_AGE}.
+		 *
+		 * @param flatType The flat type the clause belongs to, for messages.
+		 * @param text     The clause.
+		 * @return The clause.
+		 * @throws IllegalArgumentException if the clause does not parse.
+		 */
+		private static Clause parse(String flatType, String text) {
+			int colon = text.indexOf(':');
+			if (colon <= 0) {
+				throw new IllegalArgumentException(flatType + ": expected status:minAge[-maxAge], got " + text);
+			}
+			String status = text.substring(0, colon).trim();
+			String ages = text.substring(colon + 1).trim();
+			int dash = ages.indexOf('-');
+			try {
+				int min = Integer.parseInt((dash < 0 ? ages : ages.substring(0, dash)).trim());
+				int max = dash < 0 ? Integer.MAX_VALUE : Integer.parseInt(ages.substring(dash + 1).trim());
+				if (min < 0 || max < min || min > MAX_AGE || (dash >= 0 && max > MAX_AGE)) {
+					throw new IllegalArgumentException(flatType + ": invalid age range in " + text);
+				}
+				return new Clause(status, min, max);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(flatType + ": invalid age in " + text);
+			}
+		}
+
+		/**
+		 * Describes who the clause admits, e.g. "single applicants aged 35+".
+		 *
+		 * @return The description.
+		 */
+		@Override
+		public String toString() {
+			return status.toLowerCase() + " applicants aged " + minAge
+					+ (maxAge == Integer.MAX_VALUE ? "+" : " to " + maxAge);
+		}
+	}
+}
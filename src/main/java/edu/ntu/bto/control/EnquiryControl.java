@@ -1,31 +1,84 @@
 package edu.ntu.bto.control;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import edu.ntu.bto.model.Applicant;
 import edu.ntu.bto.model.Enquiry;
 import edu.ntu.bto.model.Project;
-import java.util.List;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.StripedLocks;
 
 /**
  * Control class for managing enquiries. EnquiryControl handles submission of
  * new enquiries by applicants, retrieval of enquiries by applicant or project,
  * and operations to reply, edit, or delete enquiries.
+ * <p>
+ * Enquiries are indexed by ID, project and applicant. The per-project and
+ * per-applicant lists are copy-on-write, so lookups never block. Every change
+ * locks the stripe of the applicant who asked the enquiry.
+ * </p>
  * 
  * @author SC2002 Assignment Group
  */
 public class EnquiryControl {
-	/** The list of all enquiries in the system. */
-	private List<Enquiry> enquiries;
+	/** All enquiries in the system, in submission order. */
+	private final Collection<Enquiry> enquiries;
+	/** Enquiries keyed by ID. */
+	private final ConcurrentHashMap<String, Enquiry> byId = new ConcurrentHashMap<>();
+	/** Enquiries of each project, in submission order. */
+	private final ConcurrentHashMap<Project, List<Enquiry>> byProject = new ConcurrentHashMap<>();
+	/** Enquiries of each applicant, in submission order. */
+	private final ConcurrentHashMap<Applicant, List<Enquiry>> byApplicant = new ConcurrentHashMap<>();
+	/** Journal that records each mutation, or {@code null} if disabled. */
+	private final Journal journal;
+	/** Per-applicant locks shared with the other controls. */
+	private final StripedLocks locks;
 
 	/**
-	 * Constructs a new EnquiryControl with the given list of enquiries.
+	 * Constructs a new EnquiryControl with the given enquiries and indexes them.
 	 * 
-	 * @param enquiries The list of {@link Enquiry} records to manage.
+	 * @param enquiries The concurrent collection of {@link Enquiry} records to
+	 *                  manage.
+	 * @param journal   The {@link Journal} that records each change, or
+	 *                  {@code null} to disable journaling.
+	 * @param locks     The {@link StripedLocks} shared by the controls.
 	 */
-	public EnquiryControl(List<Enquiry> enquiries) {
+	public EnquiryControl(Collection<Enquiry> enquiries, Journal journal, StripedLocks locks) {
 		this.enquiries = enquiries;
+		this.journal = journal;
+		this.locks = locks;
+		for (Enquiry e : enquiries) {
+			index(e);
+		}
+	}
+
+	/**
+	 * Adds an enquiry to the indexes.
+	 * 
+	 * @param e The enquiry.
+	 */
+	private void index(Enquiry e) {
+		byId.put(e.getId(), e);
+		byProject.computeIfAbsent(e.getProject(), k -> new CopyOnWriteArrayList<>()).add(e);
+		byApplicant.computeIfAbsent(e.getApplicant(), k -> new CopyOnWriteArrayList<>()).add(e);
+	}
+
+	/**
+	 * Removes an enquiry from the master collection and the indexes.
+	 * 
+	 * @param e The enquiry.
+	 */
+	private void unindex(Enquiry e) {
+		byId.remove(e.getId(), e);
+		byProject.getOrDefault(e.getProject(), Collections.emptyList()).remove(e);
+		byApplicant.getOrDefault(e.getApplicant(), Collections.emptyList()).remove(e);
+		enquiries.remove(e);
 	}
 
 	/**
@@ -37,10 +90,20 @@ public class EnquiryControl {
 	 * @param project   The project the enquiry is about.
 	 * @param question  The question the applicant wants to ask.
 	 */
+	@SuppressWarnings("try")
 	public void submitEnquiry(Applicant applicant, Project project, String question) {
-		String id = UUID.randomUUID().toString().substring(0, 10);
-		Enquiry e = new Enquiry(id, applicant, project, question);
-		enquiries.add(e);
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant)) {
+			String id = UUID.randomUUID().toString().substring(0, 10);
+			Enquiry e = new Enquiry(id, applicant, project, question);
+			enquiries.add(e);
+			index(e);
+			lsn = write(Journal.Type.ENQUIRY_SUBMIT, id, applicant.getNric(), project.getProjectName(), question);
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Enquiry submitted.");
 	}
 
@@ -51,13 +114,7 @@ public class EnquiryControl {
 	 * @return A list of {@link Enquiry} submitted by the given applicant.
 	 */
 	public List<Enquiry> getEnquiriesByApplicant(Applicant applicant) {
-		List<Enquiry> result = new ArrayList<>();
-		for (Enquiry e : enquiries) {
-			if (e.getApplicant().equals(applicant)) {
-				result.add(e);
-			}
-		}
-		return result;
+		return new ArrayList<>(byApplicant.getOrDefault(applicant, Collections.emptyList()));
 	}
 
 	/**
@@ -67,13 +124,7 @@ public class EnquiryControl {
 	 * @return A list of {@link Enquiry} for the given project.
 	 */
 	public List<Enquiry> getEnquiriesByProject(Project project) {
-		List<Enquiry> result = new ArrayList<>();
-		for (Enquiry e : enquiries) {
-			if (e.getProject().equals(project)) {
-				result.add(e);
-			}
-		}
-		return result;
+		return new ArrayList<>(byProject.getOrDefault(project, Collections.emptyList()));
 	}
 
 	/**
@@ -84,15 +135,27 @@ public class EnquiryControl {
 	 * @param enquiryId The unique ID of the enquiry to respond to.
 	 * @param response  The response text to attach to the enquiry.
 	 */
+	@SuppressWarnings("try")
 	public void replyEnquiry(String enquiryId, String response) {
-		for (Enquiry e : enquiries) {
-			if (e.getId().equals(enquiryId)) {
-				e.setResponse(response);
-				System.out.println("Response recorded.");
+		Enquiry e = byId.get(enquiryId);
+		if (e == null) {
+			System.out.println("Enquiry not found.");
+			return;
+		}
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(e.getApplicant())) {
+			if (byId.get(enquiryId) != e) {
+				System.out.println("Enquiry not found.");
 				return;
 			}
+			e.setResponse(response);
+			lsn = write(Journal.Type.ENQUIRY_REPLY, enquiryId, response);
+		} finally {
+			end();
 		}
-		System.out.println("Enquiry not found.");
+		awaitDurable(lsn);
+		System.out.println("Response recorded.");
 	}
 
 	/**
@@ -104,15 +167,23 @@ public class EnquiryControl {
 	 * @param applicant The applicant who originally posted the enquiry (for
 	 *                  ownership verification).
 	 */
+	@SuppressWarnings("try")
 	public void deleteEnquiry(String enquiryId, Applicant applicant) {
-		for (Enquiry e : enquiries) {
-			if (e.getId().equals(enquiryId) && e.getApplicant().equals(applicant)) {
-				enquiries.remove(e);
-				System.out.println("Enquiry successfully deleted.");
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant)) {
+			Enquiry e = byId.get(enquiryId);
+			if (e == null || !e.getApplicant().equals(applicant)) {
+				System.out.println("Enquiry not found. Deletion not successful.");
 				return;
 			}
+			unindex(e);
+			lsn = write(Journal.Type.ENQUIRY_DELETE, enquiryId);
+		} finally {
+			end();
 		}
-		System.out.println("Enquiry not found. Deletion not successful.");
+		awaitDurable(lsn);
+		System.out.println("Enquiry successfully deleted.");
 	}
 
 	/**
@@ -125,23 +196,74 @@ public class EnquiryControl {
 	 * @param newQuestion The new question text.
 	 * @param applicant   The applicant who originally posted the enquiry.
 	 */
+	@SuppressWarnings("try")
 	public void editEnquiry(String enquiryId, String newQuestion, Applicant applicant) {
-		for (Enquiry e : enquiries) {
-			if (e.getId().equals(enquiryId) && e.getApplicant().equals(applicant)) {
-				e.setQuestion(newQuestion);
-				System.out.println("Enquiry updated.");
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(applicant)) {
+			Enquiry e = byId.get(enquiryId);
+			if (e == null || !e.getApplicant().equals(applicant)) {
+				System.out.println("Unable to edit enquiry.");
 				return;
 			}
+			e.setQuestion(newQuestion);
+			lsn = write(Journal.Type.ENQUIRY_EDIT, enquiryId, newQuestion);
+		} finally {
+			end();
 		}
-		System.out.println("Unable to edit enquiry.");
+		awaitDurable(lsn);
+		System.out.println("Enquiry updated.");
 	}
 
 	/**
-	 * Returns the list of all enquiries in the system.
+	 * Returns all enquiries in the system. The collection may be iterated while
+	 * other sessions update it.
 	 * 
-	 * @return A list of all {@link Enquiry} objects.
+	 * @return All {@link Enquiry} objects, in submission order.
 	 */
-	public List<Enquiry> getAllEnquiries() {
+	public Collection<Enquiry> getAllEnquiries() {
 		return enquiries;
 	}
+
+	/**
+	 * Marks the start of a mutation so a checkpoint never captures it half done.
+	 */
+	private void begin() {
+		if (journal != null) {
+			journal.beginMutation();
+		}
+	}
+
+	/**
+	 * Marks the end of a mutation started with {@link #begin()}.
+	 */
+	private void end() {
+		if (journal != null) {
+			journal.endMutation();
+		}
+	}
+
+	/**
+	 * Records a mutation in the journal without waiting for it to be durable, if
+	 * journaling is enabled. The caller waits with {@link #awaitDurable(long)}
+	 * once it has released its locks, before reporting the mutation as done.
+	 * 
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields.
+	 * @return The LSN of the record, or 0 if journaling is disabled.
+	 */
+	private long write(Journal.Type type, String... fields) {
+		return journal != null ? journal.write(type, fields) : 0;
+	}
+
+	/**
+	 * Waits until the journal records up to an LSN are durable.
+	 * 
+	 * @param lsn The LSN returned by {@link #write}, or 0 for none.
+	 */
+	private void awaitDurable(long lsn) {
+		if (journal != null && lsn > 0) {
+			journal.awaitDurable(lsn);
+		}
+	}
 }
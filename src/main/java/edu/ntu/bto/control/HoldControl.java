@@ -0,0 +1,231 @@
+package edu.ntu.bto.control;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.UnitInventory;
+import edu.ntu.bto.util.HashedTimingWheel;
+
+/**
+ * Control class for unit holds. Approving an application holds one unit of its
+ * flat type, so a project never approves more applicants than it has units, and
+ * booking the flat turns the hold into a sale. A hold lapses after
+ * {@code bto.hold.ttlSeconds} seconds (default 3 days); the unit then becomes
+ * available again, and the application, still successful, can only be booked
+ * while units remain.
+ * <p>
+ * Lapsed holds are released by a {@link HashedTimingWheel} ticking once a
+ * second. The time a hold lapses is kept on its {@link Application}, and saved
+ * with it in the journal and snapshot; when the system starts, holds are
+ * placed again for the time they had left, and holds that lapsed meanwhile
+ * stay lapsed.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class HoldControl implements AutoCloseable {
+	/** Open holds by application. */
+	private final Map<Application, HashedTimingWheel.Timeout> holds = new ConcurrentHashMap<>();
+	/** Releases lapsed holds. */
+	private final HashedTimingWheel wheel;
+	/** How long a hold lasts, in seconds. */
+	private final long ttlSeconds;
+
+	/**
+	 * Constructs a HoldControl and starts its timer thread.
+	 */
+	public HoldControl() {
+		this.ttlSeconds = Math.max(1, Long.getLong("bto.hold.ttlSeconds", TimeUnit.DAYS.toSeconds(3)));
+		this.wheel = new HashedTimingWheel("bto-hold-timer", 1, TimeUnit.SECONDS, 512);
+	}
+
+	/**
+	 * Rebuilds the unit counts after the applications have been loaded: the
+	 * booked count of every flat type of every project is checked against its
+	 * booked applications, zero where it has none, and a hold is placed again
+	 * for every successful application whose hold has not lapsed, for the time
+	 * it has left. A successful application whose lapse time is not known gets
+	 * a full time limit. Successful applications for which no unit is left are
+	 * reported and keep their status without a hold.
+	 *
+	 * @param projects     All loaded projects.
+	 * @param applications All loaded applications.
+	 */
+	public void restore(Collection<Project> projects, Collection<Application> applications) {
+		Map<UnitInventory, Integer> booked = new HashMap<>();
+		for (Application app : applications) {
+			UnitInventory units = app.getProject().getInventory(app.getFlatType());
+			if (units != null && app.getStatus() == Application.Status.BOOKED) {
+				booked.merge(units, 1, Integer::sum);
+			}
+		}
+		for (Project p : projects) {
+			p.getInventoryType1().recountBooked(booked.getOrDefault(p.getInventoryType1(), 0));
+			p.getInventoryType2().recountBooked(booked.getOrDefault(p.getInventoryType2(), 0));
+		}
+		int placed = 0;
+		int lapsed = 0;
+		long now = System.currentTimeMillis();
+		for (Application app : applications) {
+			UnitInventory units = app.getProject().getInventory(app.getFlatType());
+			if (units == null) {
+				continue;
+			}
+			if (app.getStatus() == Application.Status.SUCCESSFUL) {
+				long until = app.getHoldUntil();
+				if (until != 0 && until <= now) {
+					lapsed++;
+				} else if (until == 0 ? place(app) : place(app, until - now)) {
+					placed++;
+				} else {
+					System.err.println("No unit left to hold for " + app.getApplicant().getNric() + " ("
+							+ app.getProject().getProjectName() + ", " + app.getFlatType() + ")");
+				}
+			}
+		}
+		System.out.println("Bootstrap: placed " + placed + " unit holds (" + lapsed + " lapsed while stopped)");
+	}
+
+	/**
+	 * Holds one unit of the application's flat type until it is booked, released
+	 * or lapses.
+	 *
+	 * @param app The application being approved.
+	 * @return {@code true} if a unit is held, {@code false} if the project has no
+	 *         unit of that type left.
+	 */
+	public boolean place(Application app) {
+		return place(app, TimeUnit.SECONDS.toMillis(ttlSeconds));
+	}
+
+	/**
+	 * Holds one unit of the application's flat type for a given time, and
+	 * records on the application when the hold lapses.
+	 *
+	 * @param app    The application.
+	 * @param millis How long the hold lasts, in milliseconds.
+	 * @return {@code true} if a unit is held, {@code false} if the project has no
+	 *         unit of that type left.
+	 */
+	private boolean place(Application app, long millis) {
+		UnitInventory units = app.getProject().getInventory(app.getFlatType());
+		if (units == null || !units.tryHold()) {
+			return false;
+		}
+		app.setHoldUntil(System.currentTimeMillis() + millis);
+		HashedTimingWheel.Timeout timeout = wheel.schedule(() -> expire(app), millis, TimeUnit.MILLISECONDS);
+		HashedTimingWheel.Timeout previous = holds.put(app, timeout);
+		if (previous != null) {
+			previous.cancel();
+			units.releaseHold();
+		}
+		return true;
+	}
+
+	/**
+	 * Books the unit held for an application, of the flat type applied for. If
+	 * the hold has lapsed, a unit is taken from those still available instead.
+	 * An application is only ever booked for its own flat type, so the unit
+	 * released by a withdrawal, and the units counted at startup, are always of
+	 * the type actually booked.
+	 *
+	 * @param app The application being booked.
+	 * @return {@code true} if a unit was booked, {@code false} if the flat type is
+	 *         no longer offered or no unit is left.
+	 */
+	public boolean confirm(Application app) {
+		UnitInventory units = app.getProject().getInventory(app.getFlatType());
+		if (units == null) {
+			release(app);
+			return false;
+		}
+		if (take(app)) {
+			units.confirmHold();
+			return true;
+		}
+		return units.tryReserve();
+	}
+
+	/**
+	 * Releases the hold of an application, for example when it is withdrawn.
+	 *
+	 * @param app The application.
+	 * @return {@code true} if a hold was released, {@code false} if it had none.
+	 */
+	public boolean release(Application app) {
+		if (!take(app)) {
+			return false;
+		}
+		UnitInventory units = app.getProject().getInventory(app.getFlatType());
+		if (units != null) {
+			units.releaseHold();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether an application currently holds a unit.
+	 *
+	 * @param app The application.
+	 * @return {@code true} if it has an open hold.
+	 */
+	public boolean isHeld(Application app) {
+		return holds.containsKey(app);
+	}
+
+	/**
+	 * Returns the number of open holds.
+	 *
+	 * @return The open hold count.
+	 */
+	public int getHoldCount() {
+		return holds.size();
+	}
+
+	/**
+	 * Stops the timer; open holds no longer lapse.
+	 */
+	@Override
+	public void close() {
+		wheel.close();
+	}
+
+	/**
+	 * Removes the open hold of an application and cancels its timer. The caller
+	 * then owns the held unit.
+	 *
+	 * @param app The application.
+	 * @return {@code true} if a hold was removed.
+	 */
+	private boolean take(Application app) {
+		HashedTimingWheel.Timeout timeout = holds.remove(app);
+		if (timeout == null) {
+			return false;
+		}
+		timeout.cancel();
+		return true;
+	}
+
+	/**
+	 * Releases a hold whose time limit has passed, unless it was booked, released
+	 * or replaced first. Runs on the timer thread, where the lapsed hold's timer
+	 * is the only one marked as expired; it prints nothing, as that would break
+	 * into whatever menu is on screen. The flat type may have been removed since.
+	 *
+	 * @param app The application.
+	 */
+	private void expire(Application app) {
+		HashedTimingWheel.Timeout timeout = holds.get(app);
+		if (timeout != null && timeout.isExpired() && holds.remove(app, timeout)) {
+			UnitInventory units = app.getProject().getInventory(app.getFlatType());
+			if (units != null) {
+				units.releaseHold();
+			}
+		}
+	}
+}
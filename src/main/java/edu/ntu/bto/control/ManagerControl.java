@@ -1,42 +1,82 @@
 package edu.ntu.bto.control;
 
-import java.time.LocalDate;
-
 import edu.ntu.bto.model.Applicant;
 import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
 import edu.ntu.bto.model.Project;
 import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.StripedLocks;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Control class for HDB Manager operations. ManagerControl allows managers to
- * create/edit/delete projects, approve or reject applications and withdrawal
- * requests, approve or reject officer registrations, and generate summary
+ * create/edit/delete projects, approve or reject applications, acknowledge
+ * withdrawals, approve or reject officer registrations, and generate summary
  * reports.
+ * <p>
+ * The control is safe for concurrent sessions: project changes lock the
+ * project (or, when creating, the manager), application approvals lock the
+ * applicant and hold a unit through the {@link HoldControl}, and officer
+ * approvals lock the officer together with the project whose slot they use.
+ * </p>
  * 
  * @author SC2002 Assignment Group
  */
 public class ManagerControl {
 	/** The list of all projects in the system. */
 	private List<Project> projects;
-	/** The list of all applications in the system. */
-	private List<Application> applications;
+	/** All applications in the system, indexed. */
+	private ApplicationStore applications;
 	/** The list of all officer registration requests in the system. */
 	private List<Registration> registrations;
+	/** Journal that records each mutation, or {@code null} if disabled. */
+	private final Journal journal;
+	/** Per-project, per-applicant and per-officer locks shared with the other controls. */
+	private final StripedLocks locks;
+	/** Unit holds of successful applications. */
+	private final HoldControl holds;
+	/** Adds and removes projects, keeping its caches and indexes current. */
+	private final ProjectControl projectControl;
+	/** Application windows of the projects, by manager and by officer. */
+	private final WindowIndex windows;
+	/** Produces the application reports. */
+	private final ReportEngine reports;
 
 	/**
 	 * Constructs a new ManagerControl with references to the master lists of
 	 * projects, applications, and registrations.
 	 * 
-	 * @param projects      The list of {@link Project}s to manage.
-	 * @param applications  The list of {@link Application}s to manage.
-	 * @param registrations The list of {@link Registration}s to manage.
+	 * @param projects      The concurrent list of {@link Project}s to manage.
+	 * @param applications  The {@link ApplicationStore} of the applications to
+	 *                      manage.
+	 * @param registrations The concurrent list of {@link Registration}s to manage.
+	 * @param journal       The {@link Journal} that records each status change,
+	 *                      or {@code null} to disable journaling.
+	 * @param locks         The {@link StripedLocks} shared by the controls.
+	 * @param holds         The {@link HoldControl} holding units for approved
+	 *                      applications.
+	 * @param projectControl The {@link ProjectControl} through which projects
+	 *                      are added and removed.
+	 * @param windows       The {@link WindowIndex} of project windows, kept
+	 *                      current as projects and officers change.
+	 * @param reports       The {@link ReportEngine} producing the reports.
 	 */
-	public ManagerControl(List<Project> projects, List<Application> applications, List<Registration> registrations) {
+	public ManagerControl(List<Project> projects, ApplicationStore applications,
+			List<Registration> registrations, Journal journal, StripedLocks locks, HoldControl holds,
+			ProjectControl projectControl, WindowIndex windows, ReportEngine reports) {
 		this.projects = projects;
 		this.applications = applications;
 		this.registrations = registrations;
+		this.journal = journal;
+		this.locks = locks;
+		this.holds = holds;
+		this.projectControl = projectControl;
+		this.windows = windows;
+		this.reports = reports;
 	}
 
 	/**
@@ -54,53 +94,117 @@ public class ManagerControl {
 	 * @param closeDate    Application closing date.
 	 * @param manager      The manager identifier (name or NRIC) for this project.
 	 */
+	@SuppressWarnings("try")
 	public void createProject(String name, String neighborhood, String type1, int unitsType1, double priceType1,
 			String type2, int unitsType2, double priceType2, String openDate, String closeDate, String manager) {
-		// Check that manager is not handling another overlapping project
-		for (Project p : projects) {
-			if (p.getManager().equals(manager) && overlaps(p.getOpenDate(), p.getCloseDate(), openDate, closeDate)) {
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(manager)) {
+			// Check that manager is not handling another overlapping project
+			if (windows.isManagerBusy(manager, Project.epochDay(openDate, Long.MAX_VALUE),
+					Project.epochDay(closeDate, Long.MIN_VALUE))) {
 				System.out.println("You are already managing another project in this period.");
 				return;
 			}
-		}
 
-		Project newProject = new Project(name, neighborhood, type1, unitsType1, priceType1, type2, unitsType2,
-				priceType2, openDate, closeDate, manager);
-		projects.add(newProject);
+			Project newProject = new Project(name, neighborhood, type1, unitsType1, priceType1, type2, unitsType2,
+					priceType2, openDate, closeDate, manager);
+			projectControl.addProject(newProject);
+			windows.addProject(newProject);
+			lsn = write(Journal.Type.PROJECT_CREATE, name, neighborhood, type1, Integer.toString(unitsType1),
+					Double.toString(priceType1), type2, Integer.toString(unitsType2), Double.toString(priceType2),
+					openDate, closeDate, manager);
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Project created successfully.");
 	}
 
 	/**
-	 * Edits the details of an existing project. All provided new values will
-	 * replace the current attributes of the project.
+	 * Edits the details of an existing project in place. The project keeps its
+	 * identity, so the applications, registrations and enquiries that refer to
+	 * it stay valid; readers see either the old or the new version of its
+	 * details, never a mix. The officer slots and assigned officer are kept. As
+	 * when creating a project, the edit is refused if the manager already
+	 * manages another project in the new application period. It is also refused
+	 * if it renames a flat type that has applications, which name their flat
+	 * type; applications are submitted under the project's lock too, so none
+	 * can arrive while the edit is checked and made.
 	 * 
 	 * @param project      The {@link Project} to edit.
 	 * @param name         The new project name.
 	 * @param neighborhood The new neighborhood.
 	 * @param type1        The new flat type 1 name.
-	 * @param unitsType1   The new number of units for flat type 1.
+	 * @param unitsType1   The new total number of units for flat type 1.
 	 * @param priceType1   The new price for flat type 1.
 	 * @param type2        The new flat type 2 name.
-	 * @param unitsType2   The new number of units for flat type 2.
+	 * @param unitsType2   The new total number of units for flat type 2.
 	 * @param priceType2   The new price for flat type 2.
 	 * @param openDate     The new opening date.
 	 * @param closeDate    The new closing date.
-	 * @param manager      The manager identifier (likely unchanged).
-	 * @param officerSlot  The new officer slot count.
-	 * @param officer      The officer identifier (likely unchanged).
+	 * @param manager      The manager making the edit, who must manage the
+	 *                     project.
 	 */
+	@SuppressWarnings("try")
 	public void editProject(Project project, String name, String neighborhood, String type1, int unitsType1,
 			double priceType1, String type2, int unitsType2, double priceType2, String openDate, String closeDate,
-			String manager, int officerSlot, String officer) {
-		if (project.getManager().equalsIgnoreCase(manager)) { // Demonstrate new neighborhood for demo
-			projects.remove(project);
-			Project newProj = new Project(name, neighborhood, type1, unitsType1, priceType1, type2, unitsType2,
-					priceType2, openDate, closeDate, manager, officerSlot, officer);
-			projects.add(newProj);
-			System.out.println("Project updated.");
-			return;
+			String manager) {
+		Project.Details d;
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(project, project.getManager())) {
+			if (!project.getManager().equalsIgnoreCase(manager)) {
+				System.out.println("Failed to update project.");
+				return;
+			}
+			String inUse = renamedTypeInUse(project, type1, type2);
+			if (inUse != null) {
+				System.out.println("Cannot rename flat type " + inUse + ": it has applications.");
+				return;
+			}
+			String oldName = project.getProjectName();
+			d = windows.editProject(project, Project.epochDay(openDate, Long.MAX_VALUE),
+					Project.epochDay(closeDate, Long.MIN_VALUE), () -> project.edit(name, neighborhood, type1,
+							unitsType1, priceType1, type2, unitsType2, priceType2, openDate, closeDate));
+			if (d == null) {
+				System.out.println("You are already managing another project in this period.");
+				return;
+			}
+			lsn = write(Journal.Type.PROJECT_EDIT, oldName, name, neighborhood, type1, Integer.toString(unitsType1),
+					Double.toString(priceType1), type2, Integer.toString(unitsType2), Double.toString(priceType2),
+					openDate, closeDate);
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
+		System.out.println("Project updated (version " + d.getVersion() + ").");
+	}
+
+	/**
+	 * Returns a flat type of a project that an edit would rename although it has
+	 * applications. The caller holds the project's lock.
+	 * 
+	 * @param project The project.
+	 * @param type1   The new flat type 1 name.
+	 * @param type2   The new flat type 2 name.
+	 * @return The current name of the flat type, or {@code null} if the edit
+	 *         renames no flat type that has applications.
+	 */
+	private String renamedTypeInUse(Project project, String type1, String type2) {
+		String[][] renames = { { project.getType1(), type1 }, { project.getType2(), type2 } };
+		for (String[] rename : renames) {
+			String current = rename[0];
+			if (current == null || (rename[1] != null && current.equalsIgnoreCase(rename[1].trim()))) {
+				continue;
+			}
+			for (Application.Status status : Application.Status.values()) {
+				if (applications.count(project, current, status) > 0) {
+					return current;
+				}
+			}
 		}
-		System.out.println("Failed to update project.");
+		return null;
 	}
 
 	/**
@@ -109,38 +213,132 @@ public class ManagerControl {
 	 * 
 	 * @param project The {@link Project} to delete.
 	 */
+	@SuppressWarnings("try")
 	public void deleteProject(Project project) {
-		projects.remove(project);
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(project)) {
+			projectControl.removeProject(project);
+			windows.removeProject(project);
+			lsn = write(Journal.Type.PROJECT_DELETE, project.getProjectName());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Project deleted.");
 	}
 
 	/**
 	 * Approves an applicant's application for a flat. The application status is set
-	 * to SUCCESSFUL if there are flats available for the requested flat type, and
-	 * one unit is reserved (decremented from available count).
+	 * to SUCCESSFUL if a unit of the requested flat type can be held for it until
+	 * the flat is booked or the hold lapses.
 	 * 
 	 * @param app The {@link Application} to approve.
 	 */
+	@SuppressWarnings("try")
 	public void approveApplication(Application app) {
-		String flatType = app.getFlatType();
-		Project proj = app.getProject();
-		if (flatType.equalsIgnoreCase(proj.getType1())) { // Approve as long as there are flats available, decrement
-															// accordingly
-			if (proj.getUnitsType1() > 0) {
-				app.setStatus(Application.Status.SUCCESSFUL);
-				System.out.println("Application approved.");
+		long lsn;
+		boolean approved;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(app.getApplicant())) {
+			if (app.getStatus() != Application.Status.PENDING) {
+				System.out.println("Application is no longer pending.");
 				return;
 			}
-		} else if (flatType.equalsIgnoreCase(proj.getType2())) {
-			if (proj.getUnitsType2() > 0) {
-				app.setStatus(Application.Status.SUCCESSFUL);
-				System.out.println("Application approved.");
-				return;
+			lsn = approve(app);
+			approved = app.getStatus() == Application.Status.SUCCESSFUL;
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
+		if (approved) {
+			System.out.println("Application approved.");
+		} else {
+			System.out.println("Insufficient units. Application rejected.");
+		}
+	}
+
+	/**
+	 * Approves a batch of applications, such as the winners drawn by a ballot.
+	 * Each application is approved as by {@link #approveApplication(Application)},
+	 * but without printing, and applications that are no longer pending are
+	 * skipped.
+	 * 
+	 * @param apps The {@link Application}s to approve.
+	 * @return The number of applications approved; the others still pending were
+	 *         rejected for lack of units.
+	 */
+	public int approveApplications(Collection<Application> apps) {
+		return decideApplications(apps, Collections.emptyList())[0];
+	}
+
+	/**
+	 * Decides a batch of applications, such as the outcome of a ballot: the
+	 * applications in {@code approve} are approved as by
+	 * {@link #approveApplications(Collection)} and those in {@code reject} are
+	 * rejected as by {@link #rejectApplications(Collection)}. The decisions are
+	 * journaled together and the method waits once, for the last of them, to be
+	 * durable, rather than once per application.
+	 * 
+	 * @param approve The {@link Application}s to approve.
+	 * @param reject  The {@link Application}s to reject.
+	 * @return The number approved, then the number rejected; applications that
+	 *         are no longer pending are skipped, and those that could not be
+	 *         approved for lack of units are not counted as either.
+	 */
+	@SuppressWarnings("try")
+	public int[] decideApplications(Collection<Application> approve, Collection<Application> reject) {
+		int approved = 0;
+		int rejected = 0;
+		long lsn = 0;
+		for (Application app : approve) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(app.getApplicant())) {
+				if (app.getStatus() == Application.Status.PENDING) {
+					lsn = approve(app);
+					if (app.getStatus() == Application.Status.SUCCESSFUL) {
+						approved++;
+					}
+				}
+			} finally {
+				end();
+			}
+		}
+		for (Application app : reject) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(app.getApplicant())) {
+				if (app.getStatus() == Application.Status.PENDING) {
+					applications.transition(app, Application.Status.UNSUCCESSFUL);
+					lsn = write(Journal.Type.APPLICATION_STATUS, app.getApplicant().getNric(),
+							Application.Status.UNSUCCESSFUL.name());
+					rejected++;
+				}
+			} finally {
+				end();
 			}
 		}
+		awaitDurable(lsn);
+		return new int[] { approved, rejected };
+	}
+
+	/**
+	 * Sets an application to SUCCESSFUL if a unit can be held for it, or to
+	 * UNSUCCESSFUL otherwise, and journals the outcome without waiting for it to
+	 * be durable. The caller holds the applicant's lock.
+	 * 
+	 * @param app The {@link Application} to approve.
+	 * @return The LSN of the journal record, or 0 if journaling is disabled.
+	 */
+	private long approve(Application app) {
+		if (holds.place(app)) { // Approve as long as a flat can be held
+			applications.transition(app, Application.Status.SUCCESSFUL);
+			return write(Journal.Type.APPLICATION_STATUS, app.getApplicant().getNric(),
+					Application.Status.SUCCESSFUL.name(), Long.toString(app.getHoldUntil()));
+		}
 
-		app.setStatus(Application.Status.UNSUCCESSFUL);
-		System.out.println("Insufficient units. Application rejected.");
+		applications.transition(app, Application.Status.UNSUCCESSFUL);
+		return write(Journal.Type.APPLICATION_STATUS, app.getApplicant().getNric(),
+				Application.Status.UNSUCCESSFUL.name());
 	}
 
 	/**
@@ -150,11 +348,36 @@ public class ManagerControl {
 	 * @param app The {@link Application} to reject.
 	 */
 
+	@SuppressWarnings("try")
 	public void rejectApplication(Application app) {
-		app.setStatus(Application.Status.UNSUCCESSFUL);
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(app.getApplicant())) {
+			if (app.getStatus() != Application.Status.PENDING) {
+				System.out.println("Application is no longer pending.");
+				return;
+			}
+			applications.transition(app, Application.Status.UNSUCCESSFUL);
+			lsn = write(Journal.Type.APPLICATION_STATUS, app.getApplicant().getNric(),
+					Application.Status.UNSUCCESSFUL.name());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Application rejected.");
 	}
 
+	/**
+	 * Rejects a batch of applications, such as those not drawn by a ballot.
+	 * Applications that are no longer pending are skipped.
+	 * 
+	 * @param apps The {@link Application}s to reject.
+	 * @return The number of applications rejected.
+	 */
+	public int rejectApplications(Collection<Application> apps) {
+		return decideApplications(Collections.emptyList(), apps)[1];
+	}
+
 	/**
 	 * Approves an applicant's request to withdraw their application. The
 	 * application is marked as UNSUCCESSFUL (canceled). If the application was
@@ -177,6 +400,38 @@ public class ManagerControl {
 		System.out.println("Withdrawal request rejected.");
 	}
 
+	/**
+	 * Acknowledges a batch of withdrawals from a manager's queue of
+	 * {@link PendingWork}. Withdrawals take effect when the applicant makes them,
+	 * so there is nothing to approve or reject: acknowledging one records that
+	 * the manager has seen it, and the queue drops it. The acknowledgements are
+	 * journaled together and the method waits once for them to be durable.
+	 * 
+	 * @param apps The withdrawn {@link Application}s.
+	 * @return The number of withdrawals acknowledged; those already acknowledged
+	 *         by another session are skipped.
+	 */
+	@SuppressWarnings("try")
+	public int acknowledgeWithdrawals(Collection<Application> apps) {
+		int acknowledged = 0;
+		long lsn = 0;
+		for (Application app : apps) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(app.getApplicant())) {
+				if (app.isWithdrawalPending()) {
+					app.setWithdrawalPending(false);
+					lsn = write(Journal.Type.WITHDRAWAL_ACK, app.getApplicant().getNric(),
+							app.getProject().getProjectName());
+					acknowledged++;
+				}
+			} finally {
+				end();
+			}
+		}
+		awaitDurable(lsn);
+		return acknowledged;
+	}
+
 	/**
 	 * Approves an HDB Officer's registration request to handle a project. The
 	 * registration status is updated to APPROVED, the project is updated to assign
@@ -184,9 +439,20 @@ public class ManagerControl {
 	 * 
 	 * @param reg The {@link Registration} to approve.
 	 */
+	@SuppressWarnings("try")
 	public void approveOfficer(Registration reg) {
-		reg.setStatus(Registration.Status.APPROVED);
-		reg.getProject().decrementOfficerSlot();
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer(), reg.getProject())) {
+			reg.setStatus(Registration.Status.APPROVED);
+			reg.getProject().decrementOfficerSlot();
+			windows.addOfficer(reg.getOfficer(), reg.getProject());
+			lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(), reg.getProject().getProjectName(),
+					Registration.Status.APPROVED.name());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Officer registration approved.");
 	}
 
@@ -196,53 +462,166 @@ public class ManagerControl {
 	 * 
 	 * @param reg The {@link Registration} to reject.
 	 */
+	@SuppressWarnings("try")
 	public void rejectOfficer(Registration reg) {
-		reg.setStatus(Registration.Status.REJECTED);
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer())) {
+			reg.setStatus(Registration.Status.REJECTED);
+			windows.removeOfficer(reg.getOfficer(), reg.getProject());
+			lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(), reg.getProject().getProjectName(),
+					Registration.Status.REJECTED.name());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Officer registration rejected.");
 	}
 
 	/**
-	 * Generates a report of applicants with booked flats. Currently, this method
-	 * prints out a list of all applications that have status BOOKED. The filterBy
-	 * parameter is not dynamically used in this implementation.
+	 * Approves a batch of officer registrations, such as a manager's queue of
+	 * {@link PendingWork}. Each registration is approved as by
+	 * {@link #approveOfficer(Registration)}, but without printing, while its
+	 * project has an officer slot left; once the slots run out the rest are
+	 * rejected. Registrations that are no longer pending are skipped. The
+	 * decisions are journaled together and the method waits once for them to be
+	 * durable.
 	 * 
-	 * @param filterBy A filter criteria for the report (e.g., "BOOKED" to filter
-	 *                 applications that are booked).
+	 * @param regs The {@link Registration}s to approve.
+	 * @return The number of registrations approved; the others still pending were
+	 *         rejected for lack of slots.
 	 */
-	public void generateReport(String filterBy) {
-		System.out.println("-- Report: Applicants with Booked Flats --");
-		for (Application app : applications) {
-			if (app.getStatus() == Application.Status.BOOKED) {
-				Applicant a = app.getApplicant();
-				if (filterBy.equalsIgnoreCase("Married") && !a.getMaritalStatus().equalsIgnoreCase("Married"))
+	@SuppressWarnings("try")
+	public int approveOfficers(Collection<Registration> regs) {
+		int approved = 0;
+		long lsn = 0;
+		for (Registration reg : regs) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer(), reg.getProject())) {
+				if (reg.getStatus() != Registration.Status.PENDING) {
 					continue;
-				System.out.printf("NRIC: %s, Age: %d, Marital Status: %s, Project: %s, Flat Booked: %s\n", a.getNric(),
-						a.getAge(), a.getMaritalStatus(), app.getProject().getProjectName(), app.getFlatType());
+				}
+				Registration.Status status = reg.getProject().getOfficerSlot() > 0 ? Registration.Status.APPROVED
+						: Registration.Status.REJECTED;
+				reg.setStatus(status);
+				if (status == Registration.Status.APPROVED) {
+					reg.getProject().decrementOfficerSlot();
+					windows.addOfficer(reg.getOfficer(), reg.getProject());
+					approved++;
+				}
+				lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(),
+						reg.getProject().getProjectName(), status.name());
+			} finally {
+				end();
+			}
+		}
+		awaitDurable(lsn);
+		return approved;
+	}
+
+	/**
+	 * Rejects a batch of officer registrations, such as a manager's queue of
+	 * {@link PendingWork}. Registrations that are no longer pending are skipped.
+	 * The rejections are journaled together and the method waits once for them
+	 * to be durable.
+	 * 
+	 * @param regs The {@link Registration}s to reject.
+	 * @return The number of registrations rejected.
+	 */
+	@SuppressWarnings("try")
+	public int rejectOfficers(Collection<Registration> regs) {
+		int rejected = 0;
+		long lsn = 0;
+		for (Registration reg : regs) {
+			begin();
+			try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer())) {
+				if (reg.getStatus() == Registration.Status.PENDING) {
+					reg.setStatus(Registration.Status.REJECTED);
+					lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(),
+							reg.getProject().getProjectName(), Registration.Status.REJECTED.name());
+					rejected++;
+				}
+			} finally {
+				end();
 			}
 		}
+		awaitDurable(lsn);
+		return rejected;
+	}
+
+	/**
+	 * Generates a report of applications and prints it. Without a
+	 * {@code status:} term the report lists applicants with booked flats.
+	 * 
+	 * @param filterBy The report query (e.g., "Married" for married applicants
+	 *                 with booked flats); see {@link ReportEngine}.
+	 */
+	public void generateReport(String filterBy) {
+		generateReport(filterBy, ReportSink.printing(System.out));
 	}
 
 	/**
-	 * Determines whether two date ranges overlap.
-	 * <p>
-	 * Each date string must be in ISO-8601 format (YYYY-MM-DD). The method parses
-	 * the strings into {@link LocalDate} instances and checks if the ranges
-	 * [start1, end1] and [start2, end2] have any intersection.
-	 * </p>
+	 * Generates a report of applications, sending its rows to a sink. The filter
+	 * is a {@link ReportEngine.Query}, such as {@code Married},
+	 * {@code age:21-35 type:3-Room} or {@code status:any by:project,type}; with no
+	 * {@code status:} term only booked applications are included.
 	 *
-	 * @param s1 the start date of the first range, in ISO-8601 format (YYYY-MM-DD)
-	 * @param e1 the end date of the first range, in ISO-8601 format (YYYY-MM-DD)
-	 * @param s2 the start date of the second range, in ISO-8601 format (YYYY-MM-DD)
-	 * @param e2 the end date of the second range, in ISO-8601 format (YYYY-MM-DD)
-	 * @return {@code true} if the two date ranges overlap; {@code false} otherwise
-	 * @throws DateTimeParseException if any of the date strings cannot be parsed
+	 * @param filterBy The report query.
+	 * @param sink     The {@link ReportSink} receiving the rows.
+	 * @return The number of rows sent, or -1 if the query is invalid.
 	 */
-	private boolean overlaps(String s1, String e1, String s2, String e2) {
-		LocalDate start1 = LocalDate.parse(s1);
-		LocalDate end1 = LocalDate.parse(e1);
-		LocalDate start2 = LocalDate.parse(s2);
-		LocalDate end2 = LocalDate.parse(e2);
+	public int generateReport(String filterBy, ReportSink sink) {
+		ReportEngine.Query query;
+		try {
+			query = ReportEngine.Query.parse(filterBy);
+		} catch (IllegalArgumentException e) {
+			System.out.println("Invalid report filter: " + e.getMessage());
+			return -1;
+		}
+		return reports.run(query, sink);
+	}
+
+
+	/**
+	 * Marks the start of a mutation so a checkpoint never captures it half done.
+	 */
+	private void begin() {
+		if (journal != null) {
+			journal.beginMutation();
+		}
+	}
 
-		return !(end1.isBefore(start2) || start1.isAfter(end2));
+	/**
+	 * Marks the end of a mutation started with {@link #begin()}.
+	 */
+	private void end() {
+		if (journal != null) {
+			journal.endMutation();
+		}
 	}
+
+	/**
+	 * Records a mutation in the journal without waiting for it to be durable, if
+	 * journaling is enabled. The caller waits with {@link #awaitDurable(long)}
+	 * before reporting the mutation as done.
+	 * 
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields.
+	 * @return The LSN of the record, or 0 if journaling is disabled.
+	 */
+	private long write(Journal.Type type, String... fields) {
+		return journal != null ? journal.write(type, fields) : 0;
+	}
+
+	/**
+	 * Waits until the journal records up to an LSN are durable.
+	 * 
+	 * @param lsn The LSN returned by {@link #write}, or 0 for none.
+	 */
+	private void awaitDurable(long lsn) {
+		if (journal != null && lsn > 0) {
+			journal.awaitDurable(lsn);
+		}
+	}
+
 }
@@ -1,12 +1,16 @@
 package edu.ntu.bto.control;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import edu.ntu.bto.model.HDBOfficer;
 import edu.ntu.bto.model.Project;
 import edu.ntu.bto.model.Application;
 import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.StripedLocks;
 
 import java.util.List;
 
@@ -14,20 +18,53 @@ import java.util.List;
  * Control class for HDB Officer operations related to project registrations.
  * OfficerControl allows an officer to register interest in handling a project
  * and provides access to registration records for viewing and approval.
+ * Registrations lock the officer's stripe, and approvals also lock the
+ * project whose officer slots they use. Registrations are indexed by project
+ * and by officer in copy-on-write lists, whose read-only views are created
+ * once and returned without copying.
  * 
  * @author SC2002 Assignment Group
  */
 public class OfficerControl {
 	/** The list of all officer registration requests in the system. */
 	private List<Registration> registrations;
+	/** Journal that records each mutation, or {@code null} if disabled. */
+	private final Journal journal;
+	/** Per-officer and per-project locks shared with the other controls. */
+	private final StripedLocks locks;
+	/** Application windows of the projects each officer handles. */
+	private final WindowIndex windows;
+	/** The managers' queues of pending work, fed as officers register. */
+	private final PendingWork pending;
+	/** Registrations by project. */
+	private final Map<Project, List<Registration>> byProject = new ConcurrentHashMap<>();
+	/** Unmodifiable views of the lists in {@link #byProject}, created once. */
+	private final Map<Project, List<Registration>> byProjectView = new ConcurrentHashMap<>();
+	/** Unmodifiable views of each officer's own registration list. */
+	private final Map<HDBOfficer, List<Registration>> byOfficerView = new ConcurrentHashMap<>();
 
 	/**
 	 * Constructs a new OfficerControl with the given list of registrations.
 	 * 
-	 * @param registrations The list of {@link Registration} records to manage.
+	 * @param registrations The concurrent list of {@link Registration} records to
+	 *                      manage.
+	 * @param journal       The {@link Journal} that records each change, or
+	 *                      {@code null} to disable journaling.
+	 * @param locks         The {@link StripedLocks} shared by the controls.
+	 * @param windows       The {@link WindowIndex} of the projects officers
+	 *                      handle, kept current as registrations are approved.
+	 * @param pending       The {@link PendingWork} queues of the managers.
 	 */
-	public OfficerControl(List<Registration> registrations) {
+	public OfficerControl(List<Registration> registrations, Journal journal, StripedLocks locks,
+			WindowIndex windows, PendingWork pending) {
 		this.registrations = registrations;
+		this.journal = journal;
+		this.locks = locks;
+		this.windows = windows;
+		this.pending = pending;
+		for (Registration r : registrations) {
+			projectRegistrations(r.getProject()).add(r);
+		}
 	}
 
 	/**
@@ -42,54 +79,41 @@ public class OfficerControl {
 	 *         {@code false} if the officer is ineligible (already registered or
 	 *         time conflict).
 	 */
+	@SuppressWarnings("try")
 	public boolean registerToProject(HDBOfficer officer, Project project) {
-		// Ensure officer isn't already handling another project during this period
-		for (Registration reg : officer.getRegistrations()) {
-			if (reg.getProject().equals(project)) {
-				System.out.println("You have already registered for this project.");
-				return false;
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(officer)) {
+			for (Registration reg : officer.getRegistrations()) {
+				if (reg.getProject().equals(project)) {
+					System.out.println("You have already registered for this project.");
+					return false;
+				}
 			}
-			if (overlaps(reg.getProject(), project) && reg.getStatus() == Registration.Status.APPROVED) {
+			// Ensure officer isn't already handling another project during this period
+			if (windows.isOfficerBusy(officer, project)) {
 				System.out.println("Cannot register for multiple projects within same application period.");
 				return false;
 			}
-		}
-		if (officer.getApplication() != null && officer.getApplication().getProject().equals(project)
-				&& officer.getApplication().getStatus() != Application.Status.UNSUCCESSFUL) {
-			System.out.println("Cannot register for project if you are an applicant.");
-			return false;
-		}
+			if (officer.getApplication() != null && officer.getApplication().getProject().equals(project)
+					&& officer.getApplication().getStatus() != Application.Status.UNSUCCESSFUL) {
+				System.out.println("Cannot register for project if you are an applicant.");
+				return false;
+			}
 
-		Registration registration = new Registration(officer, project);
-		officer.getRegistrations().add(registration);
-		registrations.add(registration);
+			Registration registration = new Registration(officer, project);
+			officer.getRegistrations().add(registration);
+			registrations.add(registration);
+			projectRegistrations(project).add(registration);
+			pending.addRegistration(registration);
+			lsn = write(Journal.Type.REGISTER, officer.getNric(), project.getProjectName());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		return true;
 	}
 
-	/**
-	 * Determines whether the application windows of two projects overlap.
-	 * <p>
-	 * Parses the open and close date strings of {@code p1} and {@code p2} (in
-	 * ISO-8601 format, "YYYY-MM-DD") into {@link LocalDate} instances and checks if
-	 * the intervals [open1, close1] and [open2, close2] intersect.
-	 * </p>
-	 *
-	 * @param p1 the first {@code Project} whose open and close dates will be parsed
-	 * @param p2 the second {@code Project} whose open and close dates will be
-	 *           parsed
-	 * @return {@code true} if the two projects’ application windows overlap;
-	 *         {@code false} otherwise
-	 * @throws DateTimeParseException if any of the date strings cannot be parsed
-	 */
-	private boolean overlaps(Project p1, Project p2) {
-		LocalDate open1 = LocalDate.parse(p1.getOpenDate());
-		LocalDate close1 = LocalDate.parse(p1.getCloseDate());
-		LocalDate open2 = LocalDate.parse(p2.getOpenDate());
-		LocalDate close2 = LocalDate.parse(p2.getCloseDate());
-
-		return !(close1.isBefore(open2) || open1.isAfter(close2));
-	}
-
 	/**
 	 * Returns the list of all officer registrations.
 	 * 
@@ -103,15 +127,37 @@ public class OfficerControl {
 	 * Retrieves all registration requests made by a specific officer.
 	 * 
 	 * @param officer The officer whose registration requests to retrieve.
-	 * @return A list of {@link Registration} associated with the given officer.
+	 * @return A live, read-only list of {@link Registration} associated with the
+	 *         given officer.
 	 */
 	public List<Registration> getRegistrationsByOfficer(HDBOfficer officer) {
-		List<Registration> result = new ArrayList<>();
-		for (Registration r : registrations) {
-			if (r.getOfficer().equals(officer))
-				result.add(r);
-		}
-		return result;
+		return byOfficerView.computeIfAbsent(officer, o -> Collections.unmodifiableList(o.getRegistrations()));
+	}
+
+	/**
+	 * Retrieves all registration requests to handle a specific project.
+	 * 
+	 * @param project The project whose registration requests to retrieve.
+	 * @return A live, read-only list of {@link Registration} for the project.
+	 */
+	public List<Registration> getRegistrationsByProject(Project project) {
+		List<Registration> view = byProjectView.get(project);
+		return view == null ? Collections.emptyList() : view;
+	}
+
+	/**
+	 * Returns the modifiable registration list of a project, creating it if
+	 * needed.
+	 * 
+	 * @param project The project.
+	 * @return The project's copy-on-write registration list.
+	 */
+	private List<Registration> projectRegistrations(Project project) {
+		return byProject.computeIfAbsent(project, k -> {
+			List<Registration> list = new CopyOnWriteArrayList<>();
+			byProjectView.put(k, Collections.unmodifiableList(list));
+			return list;
+		});
 	}
 
 	/**
@@ -120,9 +166,20 @@ public class OfficerControl {
 	 * 
 	 * @param reg The {@link Registration} to approve.
 	 */
+	@SuppressWarnings("try")
 	public void approveRegistration(Registration reg) {
-		reg.setStatus(Registration.Status.APPROVED);
-		reg.getProject().decrementOfficerSlot();
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer(), reg.getProject())) {
+			reg.setStatus(Registration.Status.APPROVED);
+			reg.getProject().decrementOfficerSlot();
+			windows.addOfficer(reg.getOfficer(), reg.getProject());
+			lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(), reg.getProject().getProjectName(),
+					Registration.Status.APPROVED.name());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Officer registration approved.");
 	}
 
@@ -132,8 +189,61 @@ public class OfficerControl {
 	 * 
 	 * @param reg The {@link Registration} to reject.
 	 */
+	@SuppressWarnings("try")
 	public void rejectRegistration(Registration reg) {
-		reg.setStatus(Registration.Status.REJECTED);
+		long lsn;
+		begin();
+		try (StripedLocks.Guard ignored = locks.lock(reg.getOfficer())) {
+			reg.setStatus(Registration.Status.REJECTED);
+			windows.removeOfficer(reg.getOfficer(), reg.getProject());
+			lsn = write(Journal.Type.REGISTRATION_STATUS, reg.getOfficer().getNric(), reg.getProject().getProjectName(),
+					Registration.Status.REJECTED.name());
+		} finally {
+			end();
+		}
+		awaitDurable(lsn);
 		System.out.println("Officer registration rejected.");
 	}
+
+	/**
+	 * Marks the start of a mutation so a checkpoint never captures it half done.
+	 */
+	private void begin() {
+		if (journal != null) {
+			journal.beginMutation();
+		}
+	}
+
+	/**
+	 * Marks the end of a mutation started with {@link #begin()}.
+	 */
+	private void end() {
+		if (journal != null) {
+			journal.endMutation();
+		}
+	}
+
+	/**
+	 * Records a mutation in the journal without waiting for it to be durable, if
+	 * journaling is enabled. The caller waits with {@link #awaitDurable(long)}
+	 * once it has released its locks, before reporting the mutation as done.
+	 * 
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields.
+	 * @return The LSN of the record, or 0 if journaling is disabled.
+	 */
+	private long write(Journal.Type type, String... fields) {
+		return journal != null ? journal.write(type, fields) : 0;
+	}
+
+	/**
+	 * Waits until the journal records up to an LSN are durable.
+	 * 
+	 * @param lsn The LSN returned by {@link #write}, or 0 for none.
+	 */
+	private void awaitDurable(long lsn) {
+		if (journal != null && lsn > 0) {
+			journal.awaitDurable(lsn);
+		}
+	}
 }
@@ -0,0 +1,159 @@
+package edu.ntu.bto.control;
+
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Registration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * The work waiting for each manager: officer registrations and applications
+ * still pending, and withdrawals not yet acknowledged, for the projects the
+ * manager is in charge of. Items are queued in the order they were submitted,
+ * by {@link OfficerControl#registerToProject} and by
+ * {@link ApplicationControl#apply} and {@link ApplicationControl#withdraw}, so
+ * an approval screen costs time in proportion to the work outstanding rather
+ * than to every registration and application ever made.
+ * <p>
+ * A registration or application leaves its queue once it is no longer
+ * pending, whichever session decided it, and a withdrawal once the manager has
+ * acknowledged it through {@link ManagerControl#acknowledgeWithdrawals}:
+ * decided items are dropped the next time the queue is read. The queues are
+ * safe for concurrent sessions.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class PendingWork {
+	/** Pending officer registrations, by manager name. */
+	private final ConcurrentHashMap<String, Queue<Registration>> registrations = new ConcurrentHashMap<>();
+	/** Pending applications, by manager name. */
+	private final ConcurrentHashMap<String, Queue<Application>> applications = new ConcurrentHashMap<>();
+	/** Withdrawn applications awaiting the manager, by manager name. */
+	private final ConcurrentHashMap<String, Queue<Application>> withdrawals = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs the queues, filling them with the registrations and
+	 * applications that are already pending and the withdrawals not yet
+	 * acknowledged.
+	 *
+	 * @param registrations The existing {@link Registration}s.
+	 * @param applications  The existing {@link Application}s.
+	 */
+	public PendingWork(Collection<Registration> registrations, Iterable<Application> applications) {
+		for (Registration reg : registrations) {
+			if (reg.getStatus() == Registration.Status.PENDING) {
+				addRegistration(reg);
+			}
+		}
+		for (Application app : applications) {
+			if (app.getStatus() == Application.Status.PENDING) {
+				addApplication(app);
+			} else if (app.isWithdrawalPending()) {
+				addWithdrawal(app);
+			}
+		}
+	}
+
+	/**
+	 * Queues a new officer registration for the manager of its project.
+	 *
+	 * @param reg The pending {@link Registration}.
+	 */
+	public void addRegistration(Registration reg) {
+		queue(registrations, reg.getProject().getManager()).add(reg);
+	}
+
+	/**
+	 * Queues a new application for the manager of its project.
+	 *
+	 * @param app The pending {@link Application}.
+	 */
+	public void addApplication(Application app) {
+		queue(applications, app.getProject().getManager()).add(app);
+	}
+
+	/**
+	 * Queues a withdrawn application for the manager of its project.
+	 *
+	 * @param app The withdrawn {@link Application}.
+	 */
+	public void addWithdrawal(Application app) {
+		queue(withdrawals, app.getProject().getManager()).add(app);
+	}
+
+	/**
+	 * Returns the officer registrations still pending for a manager's projects,
+	 * oldest first.
+	 *
+	 * @param manager The manager's name, as stored in the projects.
+	 * @return A snapshot list of the pending {@link Registration}s.
+	 */
+	public List<Registration> getRegistrations(String manager) {
+		return live(registrations.get(manager), r -> r.getStatus() == Registration.Status.PENDING);
+	}
+
+	/**
+	 * Returns the applications still pending for a manager's projects, oldest
+	 * first.
+	 *
+	 * @param manager The manager's name, as stored in the projects.
+	 * @return A snapshot list of the pending {@link Application}s.
+	 */
+	public List<Application> getApplications(String manager) {
+		return live(applications.get(manager), a -> a.getStatus() == Application.Status.PENDING);
+	}
+
+	/**
+	 * Returns the withdrawals a manager has yet to acknowledge, oldest first.
+	 *
+	 * @param manager The manager's name, as stored in the projects.
+	 * @return A snapshot list of the withdrawn {@link Application}s.
+	 */
+	public List<Application> getWithdrawals(String manager) {
+		return live(withdrawals.get(manager), Application::isWithdrawalPending);
+	}
+
+	/**
+	 * Returns the queue of a manager, creating it if needed.
+	 *
+	 * @param <T>     The item type.
+	 * @param queues  The queues, by manager name.
+	 * @param manager The manager's name.
+	 * @return The manager's queue.
+	 */
+	private static <T> Queue<T> queue(ConcurrentHashMap<String, Queue<T>> queues, String manager) {
+		return queues.computeIfAbsent(manager, k -> new ConcurrentLinkedQueue<>());
+	}
+
+	/**
+	 * Returns the items of a queue that are still outstanding, dropping the
+	 * others from the queue.
+	 *
+	 * @param <T>         The item type.
+	 * @param queue       The queue, or {@code null} if the manager has none.
+	 * @param outstanding Whether an item is still outstanding.
+	 * @return A snapshot list of the outstanding items, oldest first.
+	 */
+	private static <T> List<T> live(Queue<T> queue, Predicate<T> outstanding) {
+		List<T> result = new ArrayList<>();
+		if (queue == null) {
+			return result;
+		}
+		for (Iterator<T> it = queue.iterator(); it.hasNext();) {
+			T item = it.next();
+			if (outstanding.test(item)) {
+				result.add(item);
+			} else {
+				it.remove();
+			}
+		}
+		return result;
+	}
+}
@@ -4,50 +4,216 @@ import java.util.ArrayList;
 
 import edu.ntu.bto.model.Applicant;
 import edu.ntu.bto.model.Project;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.StripedLocks;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Control class for managing projects. ProjectControl provides functionalities
  * to filter projects by applicant eligibility or criteria, toggle project
- * visibility, and retrieve projects lists for various purposes.
+ * visibility, and retrieve projects lists for various purposes. The project
+ * list is a copy-on-write list, so the queries never block.
+ * <p>
+ * The projects visible to applicants are cached per cohort, that is per
+ * marital status and age band of the {@link EligibilityRules}, under a version
+ * stamp. The stamp moves on whenever a project's visibility changes, a flat
+ * type sells out or has units again, or projects are added, edited or removed,
+ * and a cache with an old stamp is dropped at the next lookup.
+ * </p>
+ * Each manager's projects are also kept in their own copy-on-write list, so
+ * the manager menus read them without scanning or copying the project list.
  * 
  * @author SC2002 Assignment Group
  */
 public class ProjectControl {
 	/** The list of all projects in the system. */
 	private List<Project> projects;
+	/** Per-project locks shared with the other controls. */
+	private final StripedLocks locks;
+	/** Journal that records each visibility change, or {@code null} if disabled. */
+	private final Journal journal;
+	/** The flat eligibility rules. */
+	private final EligibilityRules rules;
+	/** Version stamp of the project list; moves on at every relevant change. */
+	private final AtomicLong version = new AtomicLong();
+	/** Moves the version stamp on; set as the change listener of every project. */
+	private final Runnable invalidator = this::invalidate;
+	/** Each manager's projects, by manager name. */
+	private final Map<String, List<Project>> byManager = new ConcurrentHashMap<>();
+	/** Unmodifiable views of the lists in {@link #byManager}, created once. */
+	private final Map<String, List<Project>> byManagerView = new ConcurrentHashMap<>();
+	/** The version stamp at which every project last had the listener set. */
+	private long trackedVersion = -1;
+	/** The visible projects of each cohort seen since the last change. */
+	private volatile CohortCache cache = new CohortCache(null, -1);
+
+	/**
+	 * The visible-project lists of one version of the rules and projects.
+	 */
+	private static final class CohortCache {
+		/** The rules the lists were computed with. */
+		private final EligibilityRules.Compiled rules;
+		/** The version stamp the lists were computed at. */
+		private final long version;
+		/** Unmodifiable visible-project lists, by applicant profile. */
+		private final AtomicReferenceArray<List<Project>> byProfile;
+
+		/**
+		 * Creates an empty cache.
+		 *
+		 * @param rules   The rules the lists are computed with.
+		 * @param version The version stamp the lists are computed at.
+		 */
+		CohortCache(EligibilityRules.Compiled rules, long version) {
+			this.rules = rules;
+			this.version = version;
+			this.byProfile = new AtomicReferenceArray<>(rules == null ? 0 : rules.getProfileCount());
+		}
+	}
 
 	/**
 	 * Constructs a new ProjectControl with the given list of projects.
 	 * 
-	 * @param projects The list of {@link Project}s to manage.
+	 * @param projects The concurrent list of {@link Project}s to manage.
+	 * @param locks    The {@link StripedLocks} shared by the controls.
+	 * @param rules    The {@link EligibilityRules} deciding who may apply for
+	 *                 which flat type.
+	 * @param journal  The {@link Journal} that records each visibility change,
+	 *                 or {@code null} to disable journaling.
 	 */
-	public ProjectControl(List<Project> projects) {
+	public ProjectControl(List<Project> projects, StripedLocks locks, EligibilityRules rules, Journal journal) {
 		this.projects = projects;
+		this.locks = locks;
+		this.journal = journal;
+		this.rules = rules;
+		for (Project p : projects) {
+			managerProjects(p.getManager()).add(p);
+		}
+		getVersion();
+	}
+
+	/**
+	 * Adds a project to the system.
+	 * 
+	 * @param project The new {@link Project}.
+	 */
+	public void addProject(Project project) {
+		projects.add(project);
+		managerProjects(project.getManager()).add(project);
+		invalidate();
+	}
+
+	/**
+	 * Removes a project from the system.
+	 * 
+	 * @param project The {@link Project} to remove.
+	 */
+	public void removeProject(Project project) {
+		projects.remove(project);
+		managerProjects(project.getManager()).remove(project);
+		invalidate();
+	}
+
+	/**
+	 * Returns the modifiable project list of a manager, creating it if needed.
+	 * 
+	 * @param manager The manager's name.
+	 * @return The manager's copy-on-write project list.
+	 */
+	private List<Project> managerProjects(String manager) {
+		return byManager.computeIfAbsent(manager, k -> {
+			List<Project> list = new CopyOnWriteArrayList<>();
+			byManagerView.put(k, Collections.unmodifiableList(list));
+			return list;
+		});
 	}
 
 	/**
 	 * Retrieves the list of projects visible to a given applicant. Only projects
-	 * that are marked visible and open to the applicant's demographic (based on
-	 * marital status and age requirements) are included.
+	 * that are marked visible and still have units of a flat type the applicant
+	 * is eligible for, under the current {@link EligibilityRules}, are included.
+	 * The list is computed once per cohort and version stamp and then looked up.
 	 * 
 	 * @param applicant The applicant for whom to fetch visible projects.
-	 * @return A list of visible {@link Project}s that the applicant is eligible to
-	 *         view/apply for.
+	 * @return An unmodifiable list of visible {@link Project}s that the applicant
+	 *         is eligible to view/apply for.
 	 */
 	public List<Project> getVisibleProjectsForApplicant(Applicant applicant) {
+		EligibilityRules.Compiled compiled = rules.get();
+		int profile = compiled.profile(applicant);
+		if (profile == EligibilityRules.Compiled.NO_PROFILE)
+			return Collections.emptyList();
+		CohortCache c = cache;
+		long v = getVersion();
+		if (c.rules != compiled || c.version != v) {
+			c = new CohortCache(compiled, v);
+			cache = c;
+		}
+		List<Project> result = c.byProfile.get(profile);
+		if (result == null) {
+			// Racing sessions may both compute the list; either copy will do.
+			result = computeVisibleProjects(compiled, profile);
+			c.byProfile.set(profile, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Scans the projects for those visible to a cohort.
+	 * 
+	 * @param compiled The eligibility rules.
+	 * @param profile  The cohort's applicant profile.
+	 * @return An unmodifiable list of the visible projects.
+	 */
+	private List<Project> computeVisibleProjects(EligibilityRules.Compiled compiled, int profile) {
 		List<Project> result = new ArrayList<>();
 		for (Project p : projects) {
 			if (!p.isVisible())
 				continue;
-			if (applicant.getMaritalStatus().equalsIgnoreCase("Single") && applicant.getAge() >= 35) {
-				if (p.getUnitsType1() != 0)
-					result.add(p);
-			} else if (applicant.getMaritalStatus().equalsIgnoreCase("Married") && applicant.getAge() >= 21) {
+			Project.Details d = p.getDetails();
+			if ((p.getUnitsType1() != 0 && compiled.isEligible(profile, compiled.flatType(d.getType1())))
+					|| (p.getUnitsType2() != 0 && compiled.isEligible(profile, compiled.flatType(d.getType2()))))
 				result.add(p);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns the version stamp of the projects, which moves on whenever a
+	 * project is added, edited or removed, its visibility changes, or one of its
+	 * flat types sells out or has units again. Every project is first made to
+	 * report its changes to this control.
+	 * 
+	 * @return The version stamp.
+	 */
+	public long getVersion() {
+		long v = version.get();
+		if (v != trackedVersion) {
+			synchronized (this) {
+				for (Project p : projects) {
+					if (p.getOnChange() != invalidator)
+						p.setOnChange(invalidator);
+				}
+				trackedVersion = v;
 			}
 		}
-		return result;
+		return v;
+	}
+
+	/**
+	 * Drops the cached visible-project lists. Projects report visibility and
+	 * stock changes themselves; callers that add, edit or remove projects must
+	 * call this afterwards.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
 	}
 
 	/**
@@ -96,9 +262,29 @@ public class ProjectControl {
 	 * 
 	 * @param project The {@link Project} whose visibility is to be toggled.
 	 */
+	@SuppressWarnings("try")
 	public void toggleProjectVisibility(Project project) {
-		project.toggleVisibility();
-		System.out.println("Project visibility successfully toggled to " + project.isVisible());
+		boolean visible;
+		long lsn = 0;
+		if (journal != null) {
+			journal.beginMutation();
+		}
+		try (StripedLocks.Guard ignored = locks.lock(project)) {
+			project.toggleVisibility();
+			visible = project.isVisible();
+			if (journal != null) {
+				lsn = journal.write(Journal.Type.PROJECT_VISIBILITY, project.getProjectName(),
+						Boolean.toString(visible));
+			}
+		} finally {
+			if (journal != null) {
+				journal.endMutation();
+			}
+		}
+		if (journal != null) {
+			journal.awaitDurable(lsn);
+		}
+		System.out.println("Project visibility successfully toggled to " + visible);
 	}
 
 	/**
@@ -111,19 +297,16 @@ public class ProjectControl {
 	}
 
 	/**
-	 * Retrieves all projects managed by a specific manager.
+	 * Retrieves all projects managed by a specific manager. The list is a live,
+	 * read-only view kept for the manager; it is not copied on each call and can
+	 * be iterated while projects change.
 	 * 
 	 * @param manager The identifier (name or NRIC) of the manager.
 	 * @return A list of {@link Project}s where the manager field matches the given
 	 *         identifier.
 	 */
 	public List<Project> getProjectsByManager(String manager) {
-		List<Project> result = new ArrayList<>();
-		for (Project p : projects) {
-			if (p.getManager().equals(manager)) {
-				result.add(p);
-			}
-		}
-		return result;
+		List<Project> view = byManagerView.get(manager);
+		return view == null ? Collections.emptyList() : view;
 	}
 }
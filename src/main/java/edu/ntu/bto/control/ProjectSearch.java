@@ -0,0 +1,683 @@
+package edu.ntu.bto.control;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.util.IntervalTree;
+
+/**
+ * Control class for searching projects on several criteria at once. Queries
+ * combine {@code field:value} terms with {@code AND}, {@code OR}, {@code NOT}
+ * and parentheses; adjacent terms are ANDed. The fields are:
+ * <ul>
+ * <li>{@code town:} or {@code neighborhood:} the neighborhood, exactly;</li>
+ * <li>{@code type:} a flat type the project offers;</li>
+ * <li>{@code available:} a flat type with units left, or {@code any};</li>
+ * <li>{@code price:} a price range such as {@code 300000-450000},
+ * {@code -400000} or {@code 500000-}, met by any offered flat type;</li>
+ * <li>{@code open:} a date (YYYY-MM-DD) or {@code today} within the
+ * application window;</li>
+ * <li>{@code manager:} the manager's name;</li>
+ * <li>{@code visible:} {@code true} or {@code false}.</li>
+ * </ul>
+ * Values containing spaces are quoted, e.g. {@code town:"Jurong West"}, and
+ * are matched ignoring case. An example query is
+ * {@code type:3-Room AND price:-400000 AND NOT town:Yishun}.
+ * <p>
+ * Every attribute is indexed with one {@link BitSet} per value over the
+ * project list, so a query is evaluated with bitwise operations instead of
+ * passes over the projects. Prices are binned into buckets of
+ * {@code bto.search.priceBucket} dollars (default 50000), and only the
+ * projects in the two edge buckets of a range are checked one by one;
+ * application windows are kept in an {@link IntervalTree}. Results are ordered with a bounded heap holding only the projects up
+ * to the requested page. The index is rebuilt on the first search after the
+ * {@link ProjectControl} version stamp moves on.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class ProjectSearch {
+	/**
+	 * The orders results can be sorted in.
+	 */
+	public enum SortKey {
+		/** By project name. */
+		NAME,
+		/** By neighborhood, then name. */
+		NEIGHBORHOOD,
+		/** By lowest price of an offered flat type. */
+		PRICE,
+		/** By opening date. */
+		OPEN,
+		/** By closing date. */
+		CLOSE,
+		/** By total units left. */
+		UNITS
+	}
+
+	/**
+	 * One page of search results.
+	 */
+	public static final class Page {
+		/** The projects on this page. */
+		private final List<Project> projects;
+		/** The page number, from 1. */
+		private final int number;
+		/** The number of pages. */
+		private final int pageCount;
+		/** The number of matching projects. */
+		private final int total;
+		/** Time taken by the search, in microseconds. */
+		private final long micros;
+
+		/**
+		 * Creates a page.
+		 *
+		 * @param projects  The projects on the page.
+		 * @param number    The page number, from 1.
+		 * @param pageCount The number of pages.
+		 * @param total     The number of matching projects.
+		 * @param micros    Time taken, in microseconds.
+		 */
+		private Page(List<Project> projects, int number, int pageCount, int total, long micros) {
+			this.projects = projects;
+			this.number = number;
+			this.pageCount = pageCount;
+			this.total = total;
+			this.micros = micros;
+		}
+
+		/**
+		 * Returns the projects on this page.
+		 *
+		 * @return An unmodifiable list of {@link Project}s.
+		 */
+		public List<Project> getProjects() {
+			return projects;
+		}
+
+		/**
+		 * Returns the page number.
+		 *
+		 * @return The page number, from 1.
+		 */
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * Returns the number of pages.
+		 *
+		 * @return The page count; at least 1.
+		 */
+		public int getPageCount() {
+			return pageCount;
+		}
+
+		/**
+		 * Returns the number of matching projects.
+		 *
+		 * @return The match count.
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns a one-line summary of the page.
+		 *
+		 * @return The summary.
+		 */
+		@Override
+		public String toString() {
+			return "Page " + number + " of " + pageCount + " (" + total + " matching projects, " + micros + " us)";
+		}
+	}
+
+	/** Supplies the projects and the version stamp. */
+	private final ProjectControl pc;
+	/** Width of a price bucket, in dollars. */
+	private final long priceBucket;
+	/** The index of the current projects. */
+	private volatile Index index;
+
+	/**
+	 * Constructs a ProjectSearch over the projects of a ProjectControl.
+	 *
+	 * @param pc The {@link ProjectControl} whose projects are searched.
+	 */
+	public ProjectSearch(ProjectControl pc) {
+		this.pc = pc;
+		this.priceBucket = Math.max(1, Long.getLong("bto.search.priceBucket", 50_000));
+	}
+
+	/**
+	 * Searches the projects.
+	 *
+	 * @param query      The query; blank matches every project.
+	 * @param within     The projects results are restricted to, such as those
+	 *                   visible to an applicant, or {@code null} for all.
+	 * @param sort       The order of the results.
+	 * @param descending {@code true} to reverse the order.
+	 * @param page       The page to return, from 1; pages past the last return
+	 *                   the last page.
+	 * @param pageSize   The number of projects per page.
+	 * @return The {@link Page} of results.
+	 * @throws IllegalArgumentException if the query does not parse.
+	 */
+	public Page search(String query, Collection<Project> within, SortKey sort, boolean descending, int page,
+			int pageSize) {
+		long t0 = System.nanoTime();
+		Index idx = index();
+		BitSet hits = new Parser(idx, query).parse();
+		if (within != null) {
+			BitSet allowed = new BitSet(idx.projects.length);
+			for (Project p : within) {
+				Integer id = idx.ids.get(p);
+				if (id != null) {
+					allowed.set(id);
+				}
+			}
+			hits.and(allowed);
+		}
+		int total = hits.cardinality();
+		int size = Math.max(1, pageSize);
+		int pageCount = Math.max(1, (total + size - 1) / size);
+		int number = Math.min(Math.max(1, page), pageCount);
+		Comparator<Integer> order = descending ? idx.comparator(sort).reversed() : idx.comparator(sort);
+		// Only the pages up to the requested one need ordering: keep the best ones in a heap.
+		int wanted = Math.min(total, number * size);
+		PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, wanted), order.reversed());
+		for (int id = hits.nextSetBit(0); id >= 0; id = hits.nextSetBit(id + 1)) {
+			if (best.size() < wanted) {
+				best.add(id);
+			} else if (wanted > 0 && order.compare(id, best.peek()) < 0) {
+				best.poll();
+				best.add(id);
+			}
+		}
+		Integer[] sorted = best.toArray(new Integer[0]);
+		Arrays.sort(sorted, order);
+		List<Project> result = new ArrayList<>(size);
+		for (int i = (number - 1) * size; i < wanted; i++) {
+			result.add(idx.projects[sorted[i]]);
+		}
+		return new Page(Collections.unmodifiableList(result), number, pageCount, total,
+				(System.nanoTime() - t0) / 1_000);
+	}
+
+	/**
+	 * Returns the index of the current projects, rebuilding it if the project
+	 * list has changed since it was built.
+	 *
+	 * @return The index.
+	 */
+	private Index index() {
+		Index idx = index;
+		long version = pc.getVersion();
+		if (idx == null || idx.version != version) {
+			idx = new Index(pc.getAllProjects().toArray(new Project[0]), version, priceBucket);
+			index = idx;
+		}
+		return idx;
+	}
+
+	/**
+	 * Bitmap indexes over a fixed array of projects; a project's id is its
+	 * position in the array.
+	 */
+	private static final class Index {
+		/** The indexed projects, by id. */
+		private final Project[] projects;
+		/** The version of each project's details that was indexed, by id. */
+		private final Project.Details[] details;
+		/** The version stamp the index was built at. */
+		private final long version;
+		/** Ids by project. */
+		private final Map<Project, Integer> ids = new IdentityHashMap<>();
+		/** Every id. */
+		private final BitSet all;
+		/** Projects by lower-case neighborhood. */
+		private final Map<String, BitSet> neighborhoods = new HashMap<>();
+		/** Projects by lower-case offered flat type. */
+		private final Map<String, BitSet> flatTypes = new HashMap<>();
+		/** Projects by lower-case flat type with units left. */
+		private final Map<String, BitSet> available = new HashMap<>();
+		/** Projects with units left of any flat type. */
+		private final BitSet anyAvailable;
+		/** Projects by lower-case manager name. */
+		private final Map<String, BitSet> managers = new HashMap<>();
+		/** Visible projects. */
+		private final BitSet visible;
+		/** Projects by price bucket of any offered flat type. */
+		private final TreeMap<Long, BitSet> priceBuckets = new TreeMap<>();
+		/** Width of a price bucket. */
+		private final long priceBucket;
+		/** Prices of the offered flat types, by id. */
+		private final double[][] prices;
+		/** Lowest offered price, by id, for sorting. */
+		private final double[] minPrice;
+		/** Total units left, by id, for sorting. */
+		private final int[] units;
+		/** Opening epoch day, by id; {@link Long#MAX_VALUE} if unknown. */
+		private final long[] openDay;
+		/** Closing epoch day, by id; {@link Long#MIN_VALUE} if unknown. */
+		private final long[] closeDay;
+		/** Ids by application window. */
+		private final IntervalTree<Integer> windows = new IntervalTree<>();
+
+		/**
+		 * Builds the indexes.
+		 *
+		 * @param projects    The projects.
+		 * @param version     The version stamp of the project list.
+		 * @param priceBucket Width of a price bucket.
+		 */
+		Index(Project[] projects, long version, long priceBucket) {
+			int n = projects.length;
+			this.projects = projects;
+			this.details = new Project.Details[n];
+			this.version = version;
+			this.priceBucket = priceBucket;
+			this.all = new BitSet(n);
+			all.set(0, n);
+			this.anyAvailable = new BitSet(n);
+			this.visible = new BitSet(n);
+			this.prices = new double[n][];
+			this.minPrice = new double[n];
+			this.units = new int[n];
+			this.openDay = new long[n];
+			this.closeDay = new long[n];
+			for (int id = 0; id < n; id++) {
+				Project p = projects[id];
+				Project.Details d = p.getDetails();
+				details[id] = d;
+				ids.putIfAbsent(p, id);
+				set(neighborhoods, d.getNeighborhood(), id);
+				set(managers, d.getManager(), id);
+				if (p.isVisible()) {
+					visible.set(id);
+				}
+				List<Double> offered = new ArrayList<>(2);
+				offer(d.getType1(), p.getUnitsType1(), d.getPriceType1(), id, offered);
+				offer(d.getType2(), p.getUnitsType2(), d.getPriceType2(), id, offered);
+				prices[id] = offered.stream().mapToDouble(Double::doubleValue).toArray();
+				minPrice[id] = offered.isEmpty() ? Double.MAX_VALUE : Collections.min(offered);
+				units[id] = p.getUnitsType1() + p.getUnitsType2();
+				openDay[id] = d.getOpenDay();
+				closeDay[id] = d.getCloseDay();
+				if (openDay[id] <= closeDay[id]) {
+					windows.add(openDay[id], closeDay[id], id);
+				}
+			}
+		}
+
+		/**
+		 * Indexes one flat type of a project, unless it is not offered.
+		 *
+		 * @param type    The flat type name.
+		 * @param left    The units left.
+		 * @param price   The price.
+		 * @param id      The project id.
+		 * @param offered Collects the prices of offered flat types.
+		 */
+		private void offer(String type, int left, double price, int id, List<Double> offered) {
+			if (type == null || type.isBlank() || type.equalsIgnoreCase("N/A")) {
+				return;
+			}
+			set(flatTypes, type, id);
+			if (left > 0) {
+				set(available, type, id);
+				anyAvailable.set(id);
+			}
+			offered.add(price);
+			priceBuckets.computeIfAbsent((long) Math.floor(price / priceBucket), k -> new BitSet()).set(id);
+		}
+
+		/**
+		 * Returns the projects with a price of an offered flat type in a range.
+		 * Buckets wholly inside the range are ORed; projects in the edge buckets
+		 * are checked against their prices.
+		 *
+		 * @param min The lowest price.
+		 * @param max The highest price.
+		 * @return The matching projects.
+		 */
+		BitSet priceBetween(double min, double max) {
+			BitSet result = new BitSet(projects.length);
+			if (min > max) {
+				return result;
+			}
+			long lo = (long) Math.floor(Math.max(min, -Long.MAX_VALUE / 2.0) / priceBucket);
+			long hi = (long) Math.floor(Math.min(max, Long.MAX_VALUE / 2.0) / priceBucket);
+			for (Map.Entry<Long, BitSet> e : priceBuckets.subMap(lo, true, hi, true).entrySet()) {
+				if (e.getKey() > lo && e.getKey() < hi) {
+					result.or(e.getValue());
+					continue;
+				}
+				BitSet edge = e.getValue();
+				for (int id = edge.nextSetBit(0); id >= 0; id = edge.nextSetBit(id + 1)) {
+					for (double price : prices[id]) {
+						if (price >= min && price <= max) {
+							result.set(id);
+							break;
+						}
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Returns the projects whose application window includes a day.
+		 *
+		 * @param day The epoch day.
+		 * @return The matching projects.
+		 */
+		BitSet openOn(long day) {
+			BitSet result = new BitSet(projects.length);
+			for (int id : windows.overlapping(day, day)) {
+				result.set(id);
+			}
+			return result;
+		}
+
+		/**
+		 * Returns the order of project ids for a sort key; ties are broken by name.
+		 *
+		 * @param sort The sort key.
+		 * @return The comparator.
+		 */
+		Comparator<Integer> comparator(SortKey sort) {
+			Comparator<Integer> byName = Comparator.comparing(id -> details[id].getProjectName(),
+					String.CASE_INSENSITIVE_ORDER);
+			switch (sort) {
+			case NEIGHBORHOOD:
+				return Comparator.<Integer, String>comparing(id -> details[id].getNeighborhood(),
+						String.CASE_INSENSITIVE_ORDER).thenComparing(byName);
+			case PRICE:
+				return Comparator.<Integer>comparingDouble(id -> minPrice[id]).thenComparing(byName);
+			case OPEN:
+				return Comparator.<Integer>comparingLong(id -> openDay[id]).thenComparing(byName);
+			case CLOSE:
+				return Comparator.<Integer>comparingLong(id -> closeDay[id]).thenComparing(byName);
+			case UNITS:
+				return Comparator.<Integer>comparingInt(id -> units[id]).thenComparing(byName);
+			default:
+				return byName;
+			}
+		}
+
+		/**
+		 * Returns the bitmap of a value, or an empty one.
+		 *
+		 * @param index The index.
+		 * @param value The value, in any case.
+		 * @return A copy of the bitmap.
+		 */
+		BitSet get(Map<String, BitSet> index, String value) {
+			BitSet bits = index.get(value.toLowerCase());
+			return bits == null ? new BitSet(projects.length) : (BitSet) bits.clone();
+		}
+
+		/**
+		 * Sets a project's bit under a value.
+		 *
+		 * @param index The index.
+		 * @param value The value, in any case; {@code null} is not indexed.
+		 * @param id    The project id.
+		 */
+		private static void set(Map<String, BitSet> index, String value, int id) {
+			if (value != null) {
+				index.computeIfAbsent(value.trim().toLowerCase(), k -> new BitSet()).set(id);
+			}
+		}
+	}
+
+	/**
+	 * Recursive-descent parser that evaluates a query against an index as it
+	 * parses.
+	 * <pre>
+	 * query  := or
+	 * or     := and ("OR" and)*
+	 * and    := not (["AND"] not)*
+	 * not    := "NOT" not | "(" or ")" | field ":" value
+	 * </pre>
+	 */
+	private static final class Parser {
+		/** The index queried. */
+		private final Index idx;
+		/** The tokens of the query. */
+		private final List<String> tokens;
+		/** Position of the next token. */
+		private int pos;
+
+		/**
+		 * Creates a parser.
+		 *
+		 * @param idx   The index queried.
+		 * @param query The query.
+		 */
+		Parser(Index idx, String query) {
+			this.idx = idx;
+			this.tokens = tokenize(query == null ? "" : query);
+		}
+
+		/**
+		 * Parses and evaluates the whole query.
+		 *
+		 * @return The matching projects.
+		 * @throws IllegalArgumentException if the query does not parse.
+		 */
+		BitSet parse() {
+			if (tokens.isEmpty()) {
+				return (BitSet) idx.all.clone();
+			}
+			BitSet result = or();
+			if (pos < tokens.size()) {
+				throw new IllegalArgumentException("Unexpected '" + tokens.get(pos) + "'");
+			}
+			return result;
+		}
+
+		/**
+		 * Parses terms joined by OR.
+		 *
+		 * @return The matching projects.
+		 */
+		private BitSet or() {
+			BitSet result = and();
+			while (accept("OR")) {
+				result.or(and());
+			}
+			return result;
+		}
+
+		/**
+		 * Parses terms joined by AND, written or implied.
+		 *
+		 * @return The matching projects.
+		 */
+		private BitSet and() {
+			BitSet result = not();
+			while (pos < tokens.size() && !peek("OR") && !peek(")")) {
+				accept("AND");
+				result.and(not());
+			}
+			return result;
+		}
+
+		/**
+		 * Parses a negation, a parenthesized query or a single term.
+		 *
+		 * @return The matching projects.
+		 */
+		private BitSet not() {
+			if (pos >= tokens.size()) {
+				throw new IllegalArgumentException("Query ends too early");
+			}
+			if (accept("NOT")) {
+				BitSet result = (BitSet) idx.all.clone();
+				result.andNot(not());
+				return result;
+			}
+			if (accept("(")) {
+				BitSet result = or();
+				if (!accept(")")) {
+					throw new IllegalArgumentException("Missing ')'");
+				}
+				return result;
+			}
+			return term(tokens.get(pos++));
+		}
+
+		/**
+		 * Evaluates one {@code field:value} term.
+		 *
+		 * @param token The term.
+		 * @return The matching projects.
+		 */
+		private BitSet term(String token) {
+			int colon = token.indexOf(':');
+			if (colon <= 0 || colon == token.length() - 1) {
+				throw new IllegalArgumentException("Expected field:value, got '" + token + "'");
+			}
+			String field = token.substring(0, colon).toLowerCase();
+			String value = token.substring(colon + 1).trim();
+			switch (field) {
+			case "town":
+			case "neighborhood":
+			case "neighbourhood":
+				return idx.get(idx.neighborhoods, value);
+			case "type":
+				return idx.get(idx.flatTypes, value);
+			case "available":
+				return value.equalsIgnoreCase("any") ? (BitSet) idx.anyAvailable.clone()
+						: idx.get(idx.available, value);
+			case "manager":
+				return idx.get(idx.managers, value);
+			case "visible":
+				if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+					throw new IllegalArgumentException("visible: expects true or false");
+				}
+				BitSet visible = (BitSet) idx.visible.clone();
+				if (value.equalsIgnoreCase("false")) {
+					visible.flip(0, idx.projects.length);
+				}
+				return visible;
+			case "price":
+				return price(value);
+			case "open":
+				try {
+					LocalDate day = value.equalsIgnoreCase("today") ? LocalDate.now() : LocalDate.parse(value);
+					return idx.openOn(day.toEpochDay());
+				} catch (DateTimeParseException e) {
+					throw new IllegalArgumentException("open: expects YYYY-MM-DD or today");
+				}
+			default:
+				throw new IllegalArgumentException("Unknown field '" + field + "'");
+			}
+		}
+
+		/**
+		 * Evaluates a price range such as {@code 300000-450000}, {@code -400000}
+		 * or {@code 500000-}; a single price matches exactly.
+		 *
+		 * @param value The range.
+		 * @return The matching projects.
+		 */
+		private BitSet price(String value) {
+			int dash = value.indexOf('-');
+			try {
+				if (dash < 0) {
+					double price = Double.parseDouble(value);
+					return idx.priceBetween(price, price);
+				}
+				String lo = value.substring(0, dash).trim();
+				String hi = value.substring(dash + 1).trim();
+				return idx.priceBetween(lo.isEmpty() ? Double.NEGATIVE_INFINITY : Double.parseDouble(lo),
+						hi.isEmpty() ? Double.POSITIVE_INFINITY : Double.parseDouble(hi));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("price: expects min-max, -max or min-");
+			}
+		}
+
+		/**
+		 * Returns whether the next token is a keyword or symbol.
+		 *
+		 * @param word The keyword or symbol.
+		 * @return {@code true} if it comes next.
+		 */
+		private boolean peek(String word) {
+			return pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(word);
+		}
+
+		/**
+		 * Consumes the next token if it is a keyword or symbol.
+		 *
+		 * @param word The keyword or symbol.
+		 * @return {@code true} if it was consumed.
+		 */
+		private boolean accept(String word) {
+			if (peek(word)) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Splits a query into parentheses and words; double quotes group spaces
+	 * into a word and are removed. Also used for report queries.
+	 *
+	 * @param query The query.
+	 * @return The tokens.
+	 */
+	static List<String> tokenize(String query) {
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < query.length()) {
+			char c = query.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '(' || c == ')') {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else {
+				StringBuilder word = new StringBuilder();
+				while (i < query.length()) {
+					c = query.charAt(i);
+					if (c == '"') {
+						int end = query.indexOf('"', i + 1);
+						if (end < 0) {
+							throw new IllegalArgumentException("Missing closing quote");
+						}
+						word.append(query, i + 1, end);
+						i = end + 1;
+					} else if (Character.isWhitespace(c) || c == '(' || c == ')') {
+						break;
+					} else {
+						word.append(c);
+						i++;
+					}
+				}
+				tokens.add(word.toString());
+			}
+		}
+		return tokens;
+	}
+}
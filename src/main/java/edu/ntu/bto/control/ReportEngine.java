@@ -0,0 +1,916 @@
+package edu.ntu.bto.control;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.util.LongObjectHashMap;
+
+/**
+ * Control class producing application reports. A report is described by a
+ * {@link Query} of {@code field:value} terms, all of which must hold; a term
+ * may list several values separated by commas, any of which may match. The
+ * fields are:
+ * <ul>
+ * <li>{@code age:} an age range such as {@code 21-35}, {@code 35-} or
+ * {@code -40}, or a single age;</li>
+ * <li>{@code marital:} the applicant's marital status;</li>
+ * <li>{@code type:} the flat type applied for;</li>
+ * <li>{@code project:} the project name;</li>
+ * <li>{@code town:} or {@code neighborhood:} the project's neighborhood;</li>
+ * <li>{@code status:} the application status, or {@code any}; BOOKED if
+ * omitted;</li>
+ * <li>{@code by:} dimensions to group by instead of listing applications:
+ * {@code project}, {@code town}, {@code type}, {@code marital},
+ * {@code status} and {@code age} (in ten-year bands).</li>
+ * </ul>
+ * Values are matched ignoring case and may be quoted, e.g.
+ * {@code project:"Acacia Breeze" status:any by:type}. For the old report
+ * filters, {@code All} adds nothing and any other bare word is taken as a
+ * marital status.
+ * <p>
+ * Reports run over a columnar copy of the applications: one array per
+ * attribute, with strings replaced by dictionary codes, so a filter is a few
+ * array reads per row. The copy is taken without locks and kept until the
+ * {@link ApplicationStore} modification count or the {@link ProjectControl}
+ * version stamp moves on, so reports never hold up bookings. The rows are cut
+ * into chunks of {@code bto.report.chunkSize} (default 8192) that are filtered
+ * or aggregated on a pool of low-priority threads, and the results are handed
+ * to the {@link ReportSink} in order, on the calling thread, as each chunk
+ * completes.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class ReportEngine {
+	/**
+	 * The dimensions a report can group by.
+	 */
+	public enum Dimension {
+		/** The project name. */
+		PROJECT("Project"),
+		/** The project's neighborhood. */
+		NEIGHBORHOOD("Neighborhood"),
+		/** The flat type applied for. */
+		FLAT_TYPE("Flat Type"),
+		/** The applicant's marital status. */
+		MARITAL_STATUS("Marital Status"),
+		/** The application status. */
+		STATUS("Status"),
+		/** The applicant's age, in ten-year bands. */
+		AGE("Age");
+
+		/** The column name. */
+		private final String label;
+
+		/**
+		 * Creates a dimension.
+		 *
+		 * @param label The column name.
+		 */
+		Dimension(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * Returns the column name.
+		 *
+		 * @return The label.
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * A parsed report query.
+	 */
+	public static final class Query {
+		/** The youngest age included. */
+		private int minAge = 0;
+		/** The oldest age included. */
+		private int maxAge = Integer.MAX_VALUE;
+		/** Lower-case marital statuses included, or {@code null} for all. */
+		private Set<String> maritalStatuses;
+		/** Lower-case flat types included, or {@code null} for all. */
+		private Set<String> flatTypes;
+		/** Lower-case project names included, or {@code null} for all. */
+		private Set<String> projects;
+		/** Lower-case neighborhoods included, or {@code null} for all. */
+		private Set<String> neighborhoods;
+		/** The application statuses included. */
+		private Set<Application.Status> statuses = EnumSet.of(Application.Status.BOOKED);
+		/** Whether a {@code status:} term has been seen. */
+		private boolean statusGiven;
+		/** The dimensions to group by; empty to list applications. */
+		private final List<Dimension> groupBy = new ArrayList<>();
+
+		/**
+		 * Creates a query; use {@link #parse(String)}.
+		 */
+		private Query() {
+		}
+
+		/**
+		 * Parses a query.
+		 *
+		 * @param query The query, or {@code null} or blank for every booked
+		 *              application.
+		 * @return The query.
+		 * @throws IllegalArgumentException if the query does not parse.
+		 */
+		public static Query parse(String query) {
+			Query q = new Query();
+			for (String token : ProjectSearch.tokenize(query == null ? "" : query)) {
+				int colon = token.indexOf(':');
+				if (colon < 0) {
+					if (token.equals("(") || token.equals(")")) {
+						throw new IllegalArgumentException("Unexpected '" + token + "'");
+					}
+					if (!token.equalsIgnoreCase("all")) {
+						q.maritalStatuses = add(q.maritalStatuses, token);
+					}
+					continue;
+				}
+				if (colon == 0 || colon == token.length() - 1) {
+					throw new IllegalArgumentException("Expected field:value, got '" + token + "'");
+				}
+				String field = token.substring(0, colon).toLowerCase(Locale.ROOT);
+				for (String value : token.substring(colon + 1).split(",")) {
+					value = value.trim();
+					if (value.isEmpty()) {
+						continue;
+					}
+					switch (field) {
+					case "age":
+						q.age(value);
+						break;
+					case "marital":
+						q.maritalStatuses = add(q.maritalStatuses, value);
+						break;
+					case "type":
+						q.flatTypes = add(q.flatTypes, value);
+						break;
+					case "project":
+						q.projects = add(q.projects, value);
+						break;
+					case "town":
+					case "neighborhood":
+					case "neighbourhood":
+						q.neighborhoods = add(q.neighborhoods, value);
+						break;
+					case "status":
+						q.status(value);
+						break;
+					case "by":
+						q.groupBy(value);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown field '" + field + "'");
+					}
+				}
+			}
+			return q;
+		}
+
+		/**
+		 * Returns the dimensions the report groups by.
+		 *
+		 * @return The dimensions; empty if the report lists applications.
+		 */
+		public List<Dimension> getGroupBy() {
+			return Collections.unmodifiableList(groupBy);
+		}
+
+		/**
+		 * Describes the query, for report titles.
+		 *
+		 * @return The description.
+		 */
+		@Override
+		public String toString() {
+			StringJoiner text = new StringJoiner("; ");
+			if (statuses.size() == Application.Status.values().length) {
+				text.add("All applications");
+			} else {
+				StringJoiner names = new StringJoiner("/");
+				statuses.forEach(s -> names.add(s.name()));
+				text.add(names + " applications");
+			}
+			if (minAge > 0 || maxAge < Integer.MAX_VALUE) {
+				text.add("age " + (minAge > 0 ? minAge : "") + "-" + (maxAge < Integer.MAX_VALUE ? maxAge : ""));
+			}
+			describe(text, "marital", maritalStatuses);
+			describe(text, "type", flatTypes);
+			describe(text, "project", projects);
+			describe(text, "town", neighborhoods);
+			if (!groupBy.isEmpty()) {
+				StringJoiner by = new StringJoiner(", ", "by ", "");
+				groupBy.forEach(d -> by.add(d.getLabel()));
+				text.add(by.toString());
+			}
+			return text.toString();
+		}
+
+		/**
+		 * Narrows the age range to a range such as {@code 21-35}, {@code 35-},
+		 * {@code -40} or a single age.
+		 *
+		 * @param value The range.
+		 */
+		private void age(String value) {
+			int dash = value.indexOf('-');
+			try {
+				if (dash < 0) {
+					minAge = Math.max(minAge, Integer.parseInt(value));
+					maxAge = Math.min(maxAge, Integer.parseInt(value));
+				} else {
+					String lo = value.substring(0, dash).trim();
+					String hi = value.substring(dash + 1).trim();
+					if (!lo.isEmpty()) {
+						minAge = Math.max(minAge, Integer.parseInt(lo));
+					}
+					if (!hi.isEmpty()) {
+						maxAge = Math.min(maxAge, Integer.parseInt(hi));
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("age: expects min-max, -max, min- or an age");
+			}
+		}
+
+		/**
+		 * Adds an application status, or every status for {@code any}. The first
+		 * status given replaces the BOOKED default.
+		 *
+		 * @param value The status name.
+		 */
+		private void status(String value) {
+			if (!statusGiven) {
+				statuses = EnumSet.noneOf(Application.Status.class);
+				statusGiven = true;
+			}
+			if (value.equalsIgnoreCase("any") || value.equalsIgnoreCase("all")) {
+				statuses = EnumSet.allOf(Application.Status.class);
+				return;
+			}
+			try {
+				statuses.add(Application.Status.valueOf(value.toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("status: expects pending, successful, unsuccessful, booked or any");
+			}
+		}
+
+		/**
+		 * Adds a dimension to group by.
+		 *
+		 * @param value The dimension name.
+		 */
+		private void groupBy(String value) {
+			Dimension d;
+			switch (value.toLowerCase(Locale.ROOT)) {
+			case "project":
+				d = Dimension.PROJECT;
+				break;
+			case "town":
+			case "neighborhood":
+			case "neighbourhood":
+				d = Dimension.NEIGHBORHOOD;
+				break;
+			case "type":
+				d = Dimension.FLAT_TYPE;
+				break;
+			case "marital":
+				d = Dimension.MARITAL_STATUS;
+				break;
+			case "status":
+				d = Dimension.STATUS;
+				break;
+			case "age":
+				d = Dimension.AGE;
+				break;
+			default:
+				throw new IllegalArgumentException("by: expects project, town, type, marital, status or age");
+			}
+			if (!groupBy.contains(d)) {
+				groupBy.add(d);
+			}
+		}
+
+		/**
+		 * Adds a lower-case value to a filter set, creating it if needed.
+		 *
+		 * @param set   The set, or {@code null}.
+		 * @param value The value.
+		 * @return The set.
+		 */
+		private static Set<String> add(Set<String> set, String value) {
+			Set<String> result = set == null ? new HashSet<>() : set;
+			result.add(value.toLowerCase(Locale.ROOT));
+			return result;
+		}
+
+		/**
+		 * Adds a filter set to a description.
+		 *
+		 * @param text   The description.
+		 * @param field  The field name.
+		 * @param values The set, or {@code null}.
+		 */
+		private static void describe(StringJoiner text, String field, Set<String> values) {
+			if (values != null) {
+				text.add(field + " " + String.join("/", values));
+			}
+		}
+	}
+
+	/**
+	 * Codes for the distinct values of a string attribute, in order of first
+	 * appearance, compared ignoring case.
+	 */
+	private static final class Dictionary {
+		/** Codes by value as written, to skip lower-casing repeated values. */
+		private final Map<String, Integer> exact = new HashMap<>();
+		/** Codes by lower-case value. */
+		private final Map<String, Integer> codes = new HashMap<>();
+		/** The value of each code, as first written. */
+		private final List<String> names = new ArrayList<>();
+
+		/**
+		 * Returns the code of a value, assigning one if it is new.
+		 *
+		 * @param value The value, or {@code null}.
+		 * @return The code.
+		 */
+		int code(String value) {
+			String v = value == null ? "" : value;
+			Integer code = exact.get(v);
+			if (code == null) {
+				code = codes.computeIfAbsent(v.toLowerCase(Locale.ROOT), k -> {
+					names.add(v);
+					return names.size() - 1;
+				});
+				exact.put(v, code);
+			}
+			return code;
+		}
+
+		/**
+		 * Returns which codes a filter set includes.
+		 *
+		 * @param values Lower-case values, or {@code null} for all.
+		 * @return One flag per code.
+		 */
+		boolean[] matching(Set<String> values) {
+			boolean[] match = new boolean[names.size()];
+			if (values == null) {
+				Arrays.fill(match, true);
+			} else {
+				for (String v : values) {
+					Integer code = codes.get(v);
+					if (code != null) {
+						match[code] = true;
+					}
+				}
+			}
+			return match;
+		}
+
+		/**
+		 * Returns the rank of each code when the values are sorted ignoring
+		 * case.
+		 *
+		 * @return One rank per code.
+		 */
+		int[] ranks() {
+			Integer[] order = new Integer[names.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, Comparator.comparing(names::get, String.CASE_INSENSITIVE_ORDER));
+			int[] rank = new int[order.length];
+			for (int i = 0; i < order.length; i++) {
+				rank[order[i]] = i;
+			}
+			return rank;
+		}
+	}
+
+	/**
+	 * A columnar copy of the applications, one array per attribute.
+	 */
+	private static final class Columns {
+		/** The store modification count read before copying. */
+		private final long stamp;
+		/** The project version stamp read before copying. */
+		private final long projectVersion;
+		/** Number of rows. */
+		private int size;
+		/** The applications, for the columns not copied. */
+		private Application[] rows;
+		/** Applicant ages. */
+		private int[] age;
+		/** Application status ordinals. */
+		private byte[] status;
+		/** Marital status codes. */
+		private int[] marital;
+		/** Flat type codes. */
+		private int[] flatType;
+		/** Project name codes. */
+		private int[] project;
+		/** Neighborhood codes. */
+		private int[] neighborhood;
+		/** Marital status dictionary. */
+		private final Dictionary maritals = new Dictionary();
+		/** Flat type dictionary. */
+		private final Dictionary flatTypes = new Dictionary();
+		/** Project name dictionary. */
+		private final Dictionary projects = new Dictionary();
+		/** Neighborhood dictionary. */
+		private final Dictionary neighborhoods = new Dictionary();
+
+		/**
+		 * Copies the applications of a store.
+		 *
+		 * @param store          The store.
+		 * @param stamp          The store modification count read beforehand.
+		 * @param projectVersion The project version stamp read beforehand.
+		 */
+		Columns(ApplicationStore store, long stamp, long projectVersion) {
+			this.stamp = stamp;
+			this.projectVersion = projectVersion;
+			int capacity = Math.max(16, store.size());
+			rows = new Application[capacity];
+			age = new int[capacity];
+			status = new byte[capacity];
+			marital = new int[capacity];
+			flatType = new int[capacity];
+			project = new int[capacity];
+			neighborhood = new int[capacity];
+			Map<Project, int[]> projectCodes = new IdentityHashMap<>();
+			for (Application app : store) {
+				if (size == rows.length) {
+					grow();
+				}
+				Applicant a = app.getApplicant();
+				int[] codes = projectCodes.computeIfAbsent(app.getProject(), p -> {
+					Project.Details d = p.getDetails();
+					return new int[] { projects.code(d.getProjectName()), neighborhoods.code(d.getNeighborhood()) };
+				});
+				rows[size] = app;
+				age[size] = a.getAge();
+				status[size] = (byte) app.getStatus().ordinal();
+				marital[size] = maritals.code(a.getMaritalStatus());
+				flatType[size] = flatTypes.code(app.getFlatType());
+				project[size] = codes[0];
+				neighborhood[size] = codes[1];
+				size++;
+			}
+		}
+
+		/**
+		 * Doubles the capacity of every column.
+		 */
+		private void grow() {
+			int capacity = rows.length * 2;
+			rows = Arrays.copyOf(rows, capacity);
+			age = Arrays.copyOf(age, capacity);
+			status = Arrays.copyOf(status, capacity);
+			marital = Arrays.copyOf(marital, capacity);
+			flatType = Arrays.copyOf(flatType, capacity);
+			project = Arrays.copyOf(project, capacity);
+			neighborhood = Arrays.copyOf(neighborhood, capacity);
+		}
+
+		/**
+		 * Returns the code of a row in a dimension.
+		 *
+		 * @param d The dimension.
+		 * @param i The row.
+		 * @return The code.
+		 */
+		int code(Dimension d, int i) {
+			switch (d) {
+			case PROJECT:
+				return project[i];
+			case NEIGHBORHOOD:
+				return neighborhood[i];
+			case FLAT_TYPE:
+				return flatType[i];
+			case MARITAL_STATUS:
+				return marital[i];
+			case STATUS:
+				return status[i];
+			default:
+				return Math.min(age[i], AGE_LIMIT) / 10;
+			}
+		}
+
+		/**
+		 * Returns the number of codes of a dimension.
+		 *
+		 * @param d The dimension.
+		 * @return The code count.
+		 */
+		int cardinality(Dimension d) {
+			switch (d) {
+			case PROJECT:
+				return Math.max(1, projects.names.size());
+			case NEIGHBORHOOD:
+				return Math.max(1, neighborhoods.names.size());
+			case FLAT_TYPE:
+				return Math.max(1, flatTypes.names.size());
+			case MARITAL_STATUS:
+				return Math.max(1, maritals.names.size());
+			case STATUS:
+				return Application.Status.values().length;
+			default:
+				return AGE_LIMIT / 10 + 1;
+			}
+		}
+
+		/**
+		 * Returns the label of a code of a dimension.
+		 *
+		 * @param d    The dimension.
+		 * @param code The code.
+		 * @return The label.
+		 */
+		String label(Dimension d, int code) {
+			switch (d) {
+			case PROJECT:
+				return projects.names.get(code);
+			case NEIGHBORHOOD:
+				return neighborhoods.names.get(code);
+			case FLAT_TYPE:
+				return flatTypes.names.get(code);
+			case MARITAL_STATUS:
+				return maritals.names.get(code);
+			case STATUS:
+				return Application.Status.values()[code].name();
+			default:
+				return code * 10 + "-" + (code * 10 + 9);
+			}
+		}
+
+		/**
+		 * Returns the sort rank of each code of a dimension.
+		 *
+		 * @param d The dimension.
+		 * @return One rank per code.
+		 */
+		int[] ranks(Dimension d) {
+			switch (d) {
+			case PROJECT:
+				return projects.ranks();
+			case NEIGHBORHOOD:
+				return neighborhoods.ranks();
+			case FLAT_TYPE:
+				return flatTypes.ranks();
+			case MARITAL_STATUS:
+				return maritals.ranks();
+			default:
+				int[] rank = new int[cardinality(d)];
+				Arrays.setAll(rank, i -> i);
+				return rank;
+			}
+		}
+	}
+
+	/**
+	 * A query resolved against the dictionaries of a columnar copy.
+	 */
+	private static final class Filter {
+		/** The copy filtered. */
+		private final Columns c;
+		/** The youngest age included. */
+		private final int minAge;
+		/** The oldest age included. */
+		private final int maxAge;
+		/** Included status ordinals. */
+		private final boolean[] status;
+		/** Included marital status codes. */
+		private final boolean[] marital;
+		/** Included flat type codes. */
+		private final boolean[] flatType;
+		/** Included project codes. */
+		private final boolean[] project;
+		/** Included neighborhood codes. */
+		private final boolean[] neighborhood;
+
+		/**
+		 * Resolves a query.
+		 *
+		 * @param q The query.
+		 * @param c The columnar copy.
+		 */
+		Filter(Query q, Columns c) {
+			this.c = c;
+			this.minAge = q.minAge;
+			this.maxAge = q.maxAge;
+			this.status = new boolean[Application.Status.values().length];
+			q.statuses.forEach(s -> status[s.ordinal()] = true);
+			this.marital = c.maritals.matching(q.maritalStatuses);
+			this.flatType = c.flatTypes.matching(q.flatTypes);
+			this.project = c.projects.matching(q.projects);
+			this.neighborhood = c.neighborhoods.matching(q.neighborhoods);
+		}
+
+		/**
+		 * Returns whether a row passes the filter.
+		 *
+		 * @param i The row.
+		 * @return {@code true} if it does.
+		 */
+		boolean test(int i) {
+			int a = c.age[i];
+			return status[c.status[i]] && a >= minAge && a <= maxAge && marital[c.marital[i]]
+					&& flatType[c.flatType[i]] && project[c.project[i]] && neighborhood[c.neighborhood[i]];
+		}
+
+		/**
+		 * Returns the rows of a chunk that pass the filter.
+		 *
+		 * @param from The first row.
+		 * @param to   The row after the last.
+		 * @return The matching rows, in order.
+		 */
+		int[] select(int from, int to) {
+			int[] match = new int[to - from];
+			int n = 0;
+			for (int i = from; i < to; i++) {
+				if (test(i)) {
+					match[n++] = i;
+				}
+			}
+			return Arrays.copyOf(match, n);
+		}
+
+		/**
+		 * Aggregates the rows of a chunk that pass the filter.
+		 *
+		 * @param dims  The dimensions grouped by.
+		 * @param radix The cardinality of each dimension.
+		 * @param from  The first row.
+		 * @param to    The row after the last.
+		 * @return The aggregates of each group key.
+		 */
+		LongObjectHashMap<long[]> aggregate(Dimension[] dims, int[] radix, int from, int to) {
+			LongObjectHashMap<long[]> groups = new LongObjectHashMap<>();
+			for (int i = from; i < to; i++) {
+				if (test(i)) {
+					long key = 0;
+					for (int d = 0; d < dims.length; d++) {
+						key = key * radix[d] + c.code(dims[d], i);
+					}
+					long[] agg = groups.get(key);
+					if (agg == null) {
+						agg = new long[] { key, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE };
+						groups.put(key, agg);
+					}
+					int a = c.age[i];
+					agg[COUNT]++;
+					agg[AGE_SUM] += a;
+					agg[MIN_AGE] = Math.min(agg[MIN_AGE], a);
+					agg[MAX_AGE] = Math.max(agg[MAX_AGE], a);
+				}
+			}
+			return groups;
+		}
+	}
+
+	/** Columns of a listing report. */
+	private static final List<String> DETAIL_COLUMNS = Collections.unmodifiableList(
+			Arrays.asList("NRIC", "Age", "Marital Status", "Project", "Neighborhood", "Flat Type", "Status"));
+	/** Ages above this are grouped into the last age band. */
+	private static final int AGE_LIMIT = 150;
+	/** Index of the group key in an aggregate. */
+	private static final int KEY = 0;
+	/** Index of the row count in an aggregate. */
+	private static final int COUNT = 1;
+	/** Index of the age total in an aggregate. */
+	private static final int AGE_SUM = 2;
+	/** Index of the youngest age in an aggregate. */
+	private static final int MIN_AGE = 3;
+	/** Index of the oldest age in an aggregate. */
+	private static final int MAX_AGE = 4;
+
+	/** The applications reported on. */
+	private final ApplicationStore applications;
+	/** Source of the project version stamp. */
+	private final ProjectControl projectControl;
+	/** Rows per chunk. */
+	private final int chunkSize;
+	/** Number of worker threads. */
+	private final int threads;
+	/** The worker threads. */
+	private final ExecutorService pool;
+	/** The latest columnar copy, or {@code null} before the first report. */
+	private volatile Columns columns;
+
+	/**
+	 * Constructs a ReportEngine.
+	 *
+	 * @param applications   The applications reported on.
+	 * @param projectControl The {@link ProjectControl} whose version stamp tells
+	 *                       when project names or neighborhoods may have changed.
+	 */
+	public ReportEngine(ApplicationStore applications, ProjectControl projectControl) {
+		this.applications = applications;
+		this.projectControl = projectControl;
+		this.chunkSize = Math.max(1, Integer.getInteger("bto.report.chunkSize", 8192));
+		this.threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		AtomicInteger threadId = new AtomicInteger();
+		this.pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "bto-report-" + threadId.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	/**
+	 * Runs a report, sending its rows to a sink.
+	 *
+	 * @param query The query.
+	 * @param sink  The sink, called on this thread.
+	 * @return The number of rows sent.
+	 */
+	public int run(Query query, ReportSink sink) {
+		long t0 = System.nanoTime();
+		Columns c = columns();
+		Filter filter = new Filter(query, c);
+		int chunks = (c.size + chunkSize - 1) / chunkSize;
+		int rows = 0;
+		if (query.groupBy.isEmpty()) {
+			sink.begin(query.toString(), DETAIL_COLUMNS);
+			Deque<Future<int[]>> inFlight = new ArrayDeque<>();
+			for (int k = 0; k < chunks || !inFlight.isEmpty();) {
+				// Keep a few chunks ahead of the sink, but no more.
+				while (k < chunks && inFlight.size() < 2 * threads) {
+					int from = k++ * chunkSize;
+					int to = Math.min(c.size, from + chunkSize);
+					inFlight.add(pool.submit(() -> filter.select(from, to)));
+				}
+				for (int i : await(inFlight.poll())) {
+					sink.row(detail(c, i));
+					rows++;
+				}
+			}
+		} else {
+			Dimension[] dims = query.groupBy.toArray(new Dimension[0]);
+			int[] radix = new int[dims.length];
+			for (int d = 0; d < dims.length; d++) {
+				radix[d] = c.cardinality(dims[d]);
+			}
+			List<Future<LongObjectHashMap<long[]>>> parts = new ArrayList<>(chunks);
+			for (int k = 0; k < chunks; k++) {
+				int from = k * chunkSize;
+				int to = Math.min(c.size, from + chunkSize);
+				parts.add(pool.submit(() -> filter.aggregate(dims, radix, from, to)));
+			}
+			LongObjectHashMap<long[]> groups = new LongObjectHashMap<>();
+			for (Future<LongObjectHashMap<long[]>> part : parts) {
+				for (long[] agg : await(part).values()) {
+					long[] total = groups.putIfAbsent(agg[KEY], agg);
+					if (total != null) {
+						total[COUNT] += agg[COUNT];
+						total[AGE_SUM] += agg[AGE_SUM];
+						total[MIN_AGE] = Math.min(total[MIN_AGE], agg[MIN_AGE]);
+						total[MAX_AGE] = Math.max(total[MAX_AGE], agg[MAX_AGE]);
+					}
+				}
+			}
+			List<String> header = new ArrayList<>();
+			for (Dimension d : dims) {
+				header.add(d.getLabel());
+			}
+			header.addAll(Arrays.asList("Applications", "Average Age", "Youngest", "Oldest"));
+			sink.begin(query.toString(), Collections.unmodifiableList(header));
+			for (long[] agg : sorted(groups.values(), c, dims, radix)) {
+				String[] values = new String[dims.length + 4];
+				long key = agg[KEY];
+				for (int d = dims.length - 1; d >= 0; d--) {
+					values[d] = c.label(dims[d], (int) (key % radix[d]));
+					key /= radix[d];
+				}
+				values[dims.length] = String.valueOf(agg[COUNT]);
+				values[dims.length + 1] = String.format("%.1f", (double) agg[AGE_SUM] / agg[COUNT]);
+				values[dims.length + 2] = String.valueOf(agg[MIN_AGE]);
+				values[dims.length + 3] = String.valueOf(agg[MAX_AGE]);
+				sink.row(values);
+				rows++;
+			}
+		}
+		sink.end(rows, (System.nanoTime() - t0) / 1000);
+		return rows;
+	}
+
+	/**
+	 * Returns a current columnar copy of the applications, taking a new one if
+	 * the applications or projects have changed since the last.
+	 *
+	 * @return The copy.
+	 */
+	private Columns columns() {
+		long stamp = applications.getModificationCount();
+		long version = projectControl.getVersion();
+		Columns c = columns;
+		if (c != null && c.stamp == stamp && c.projectVersion == version) {
+			return c;
+		}
+		synchronized (this) {
+			c = columns;
+			if (c == null || c.stamp != stamp || c.projectVersion != version) {
+				c = new Columns(applications, stamp, version);
+				columns = c;
+			}
+			return c;
+		}
+	}
+
+	/**
+	 * Returns the values of a row of a listing report.
+	 *
+	 * @param c The columnar copy.
+	 * @param i The row.
+	 * @return The values, one per {@link #DETAIL_COLUMNS} entry.
+	 */
+	private static String[] detail(Columns c, int i) {
+		Application app = c.rows[i];
+		return new String[] { app.getApplicant().getNric(), String.valueOf(c.age[i]),
+				c.maritals.names.get(c.marital[i]), c.projects.names.get(c.project[i]),
+				c.neighborhoods.names.get(c.neighborhood[i]), app.getFlatType(),
+				Application.Status.values()[c.status[i]].name() };
+	}
+
+	/**
+	 * Sorts group aggregates by their labels, dimension by dimension.
+	 *
+	 * @param groups The aggregates.
+	 * @param c      The columnar copy.
+	 * @param dims   The dimensions grouped by.
+	 * @param radix  The cardinality of each dimension.
+	 * @return The sorted aggregates.
+	 */
+	private static List<long[]> sorted(List<long[]> groups, Columns c, Dimension[] dims, int[] radix) {
+		int[][] ranks = new int[dims.length][];
+		for (int d = 0; d < dims.length; d++) {
+			ranks[d] = c.ranks(dims[d]);
+		}
+		Map<long[], Long> order = new IdentityHashMap<>();
+		for (long[] agg : groups) {
+			long key = agg[KEY];
+			long rank = 0;
+			long scale = 1;
+			for (int d = dims.length - 1; d >= 0; d--) {
+				rank += ranks[d][(int) (key % radix[d])] * scale;
+				scale *= radix[d];
+				key /= radix[d];
+			}
+			order.put(agg, rank);
+		}
+		List<long[]> result = new ArrayList<>(groups);
+		result.sort(Comparator.comparing(order::get));
+		return result;
+	}
+
+	/**
+	 * Waits for a chunk to be processed.
+	 *
+	 * @param <T>    The chunk result type.
+	 * @param future The pending chunk.
+	 * @return The chunk result.
+	 */
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Report interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Report failed: " + e.getCause(), e.getCause());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package edu.ntu.bto.control;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Receives the rows of a report from the {@link ReportEngine} as they are
+ * produced, so a report can be printed, written to a file or collected without
+ * the engine knowing where it goes. The engine calls {@link #begin}, then
+ * {@link #row} once per row, then {@link #end}, all on the thread that asked
+ * for the report.
+ *
+ * @author SC2002 Assignment Group
+ */
+public interface ReportSink {
+	/**
+	 * Starts the report.
+	 *
+	 * @param title   A description of the report and its filters.
+	 * @param columns The column names.
+	 */
+	void begin(String title, List<String> columns);
+
+	/**
+	 * Receives one row.
+	 *
+	 * @param values The values, one per column.
+	 */
+	void row(String[] values);
+
+	/**
+	 * Ends the report.
+	 *
+	 * @param rows   The number of rows sent.
+	 * @param micros The time taken, in microseconds.
+	 */
+	void end(int rows, long micros);
+
+	/**
+	 * Returns a sink that prints each row as {@code Column: value} pairs.
+	 *
+	 * @param out The stream to print to, such as {@code System.out}.
+	 * @return The sink.
+	 */
+	static ReportSink printing(PrintStream out) {
+		return new ReportSink() {
+			/** The column names of the report. */
+			private List<String> columns;
+
+			@Override
+			public void begin(String title, List<String> columns) {
+				this.columns = columns;
+				out.println("-- Report: " + title + " --");
+			}
+
+			@Override
+			public void row(String[] values) {
+				StringBuilder line = new StringBuilder();
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) {
+						line.append(", ");
+					}
+					line.append(columns.get(i)).append(": ").append(values[i]);
+				}
+				out.println(line);
+			}
+
+			@Override
+			public void end(int rows, long micros) {
+				out.println("-- " + rows + (rows == 1 ? " row" : " rows") + " in " + micros + " us --");
+			}
+		};
+	}
+}
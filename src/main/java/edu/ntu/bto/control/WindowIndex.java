@@ -0,0 +1,259 @@
+package edu.ntu.bto.control;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.User;
+import edu.ntu.bto.util.IntervalTree;
+
+/**
+ * Control class indexing application windows, in epoch days, with
+ * {@link IntervalTree}s: one over every project, one per manager over the
+ * projects they manage, and one per officer over the projects they have been
+ * approved to handle. A manager or officer clash with a new window is then
+ * found in O(log n) time instead of by comparing dates with every project or
+ * registration, and the projects open on a day or the officers free during a
+ * window are found without a full scan.
+ * <p>
+ * The controls keep the index current when projects are created, edited or
+ * deleted and when registrations are approved or rejected. The trees are keyed
+ * by opening day, so an edit re-keys the project's window together with the
+ * windows of the officers handling it, and a deletion removes them all.
+ * Projects whose dates are malformed are left out. All methods synchronize on
+ * the index.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class WindowIndex {
+	/** Every project's window. */
+	private final IntervalTree<Project> all = new IntervalTree<>();
+	/** Windows of the projects of each manager, by manager name. */
+	private final Map<String, IntervalTree<Project>> byManager = new HashMap<>();
+	/** Windows of the projects each officer has been approved to handle. */
+	private final Map<HDBOfficer, IntervalTree<Project>> byOfficer = new IdentityHashMap<>();
+	/** The officers approved to handle each project. */
+	private final Map<Project, List<HDBOfficer>> officers = new IdentityHashMap<>();
+
+	/**
+	 * Constructs the index over the loaded projects and approved registrations.
+	 *
+	 * @param projects      The projects.
+	 * @param registrations The officer registrations.
+	 */
+	public WindowIndex(Collection<Project> projects, Collection<Registration> registrations) {
+		for (Project p : projects) {
+			addProject(p);
+		}
+		for (Registration r : registrations) {
+			if (r.getStatus() == Registration.Status.APPROVED) {
+				addOfficer(r.getOfficer(), r.getProject());
+			}
+		}
+	}
+
+	/**
+	 * Adds a project's window.
+	 *
+	 * @param project The project.
+	 */
+	public synchronized void addProject(Project project) {
+		if (project.hasWindow()) {
+			all.add(project.getOpenDay(), project.getCloseDay(), project);
+			byManager.computeIfAbsent(project.getManager(), k -> new IntervalTree<>()).add(project.getOpenDay(),
+					project.getCloseDay(), project);
+		}
+	}
+
+	/**
+	 * Removes a deleted project's window and the windows of the officers who
+	 * handled it.
+	 *
+	 * @param project The project.
+	 */
+	public synchronized void removeProject(Project project) {
+		unindex(project);
+		officers.remove(project);
+	}
+
+	/**
+	 * Edits a project's dates, moving its window and those of the officers
+	 * handling it to the new dates. The edit is refused, and the windows left as
+	 * they were, if the project's manager already manages another project whose
+	 * window overlaps the new one.
+	 *
+	 * @param <T>      The edit's result.
+	 * @param project  The project.
+	 * @param openDay  The new first day of the window.
+	 * @param closeDay The new last day of the window.
+	 * @param edit     Applies the edit to the project.
+	 * @return The edit's result, or {@code null} if the manager is busy.
+	 */
+	public synchronized <T> T editProject(Project project, long openDay, long closeDay, Supplier<T> edit) {
+		unindex(project);
+		try {
+			if (isManagerBusy(project.getManager(), openDay, closeDay)) {
+				return null;
+			}
+			return edit.get();
+		} finally {
+			index(project);
+		}
+	}
+
+	/**
+	 * Records that an officer has been approved to handle a project; does
+	 * nothing if they already were.
+	 *
+	 * @param officer The officer.
+	 * @param project The project.
+	 */
+	public synchronized void addOfficer(HDBOfficer officer, Project project) {
+		List<HDBOfficer> handling = officers.computeIfAbsent(project, k -> new ArrayList<>());
+		if (handling.contains(officer)) {
+			return;
+		}
+		handling.add(officer);
+		if (project.hasWindow()) {
+			byOfficer.computeIfAbsent(officer, k -> new IntervalTree<>()).add(project.getOpenDay(),
+					project.getCloseDay(), project);
+		}
+	}
+
+	/**
+	 * Records that an officer no longer handles a project; does nothing if they
+	 * were not approved for it.
+	 *
+	 * @param officer The officer.
+	 * @param project The project.
+	 */
+	public synchronized void removeOfficer(HDBOfficer officer, Project project) {
+		List<HDBOfficer> handling = officers.get(project);
+		if (handling == null || !handling.remove(officer)) {
+			return;
+		}
+		IntervalTree<Project> tree = byOfficer.get(officer);
+		if (tree != null && project.hasWindow()) {
+			tree.remove(project.getOpenDay(), project);
+		}
+	}
+
+	/**
+	 * Returns whether a manager manages a project whose window overlaps
+	 * {@code [openDay, closeDay]}.
+	 *
+	 * @param manager  The manager's name.
+	 * @param openDay  The first day of the window.
+	 * @param closeDay The last day of the window.
+	 * @return {@code true} if one does.
+	 */
+	public synchronized boolean isManagerBusy(String manager, long openDay, long closeDay) {
+		IntervalTree<Project> tree = byManager.get(manager);
+		return tree != null && tree.overlaps(openDay, closeDay);
+	}
+
+	/**
+	 * Returns whether an officer handles a project whose window overlaps a
+	 * project's window.
+	 *
+	 * @param officer The officer.
+	 * @param project The project.
+	 * @return {@code true} if one does.
+	 */
+	public synchronized boolean isOfficerBusy(HDBOfficer officer, Project project) {
+		IntervalTree<Project> tree = byOfficer.get(officer);
+		return tree != null && project.hasWindow() && tree.overlaps(project.getOpenDay(), project.getCloseDay());
+	}
+
+	/**
+	 * Returns the projects whose application window includes a day.
+	 *
+	 * @param day The day.
+	 * @return The projects, in order of opening date.
+	 */
+	public synchronized List<Project> getProjectsOpenOn(LocalDate day) {
+		return getProjectsOpenDuring(day, day);
+	}
+
+	/**
+	 * Returns the projects whose application window overlaps a period.
+	 *
+	 * @param from The first day of the period.
+	 * @param to   The last day of the period.
+	 * @return The projects, in order of opening date.
+	 */
+	public synchronized List<Project> getProjectsOpenDuring(LocalDate from, LocalDate to) {
+		return all.overlapping(from.toEpochDay(), to.toEpochDay());
+	}
+
+	/**
+	 * Returns the officers who handle no project open during a period, for
+	 * example to find officers for a new project.
+	 *
+	 * @param users All users; only officers are considered.
+	 * @param from  The first day of the period.
+	 * @param to    The last day of the period.
+	 * @return The free officers, in the order of {@code users}.
+	 */
+	public synchronized List<HDBOfficer> getOfficersFreeDuring(Collection<? extends User> users, LocalDate from,
+			LocalDate to) {
+		List<HDBOfficer> result = new ArrayList<>();
+		for (User u : users) {
+			if (u instanceof HDBOfficer) {
+				IntervalTree<Project> tree = byOfficer.get(u);
+				if (tree == null || !tree.overlaps(from.toEpochDay(), to.toEpochDay())) {
+					result.add((HDBOfficer) u);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the windows of a project and of the officers handling it, keyed by
+	 * its current opening day.
+	 *
+	 * @param project The project.
+	 */
+	private void index(Project project) {
+		addProject(project);
+		if (project.hasWindow()) {
+			for (HDBOfficer officer : officers.getOrDefault(project, List.of())) {
+				byOfficer.computeIfAbsent(officer, k -> new IntervalTree<>()).add(project.getOpenDay(),
+						project.getCloseDay(), project);
+			}
+		}
+	}
+
+	/**
+	 * Removes the windows of a project and of the officers handling it, keyed
+	 * by its current opening day. The officers stay recorded as handling it.
+	 *
+	 * @param project The project.
+	 */
+	private void unindex(Project project) {
+		if (!project.hasWindow()) {
+			return;
+		}
+		all.remove(project.getOpenDay(), project);
+		IntervalTree<Project> tree = byManager.get(project.getManager());
+		if (tree != null) {
+			tree.remove(project.getOpenDay(), project);
+		}
+		for (HDBOfficer officer : officers.getOrDefault(project, List.of())) {
+			IntervalTree<Project> windows = byOfficer.get(officer);
+			if (windows != null) {
+				windows.remove(project.getOpenDay(), project);
+			}
+		}
+	}
+}
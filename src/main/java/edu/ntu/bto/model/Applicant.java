@@ -3,6 +3,7 @@ package edu.ntu.bto.model;
 import java.util.List;
 import java.util.Scanner;
 
+import edu.ntu.bto.control.ProjectSearch;
 import edu.ntu.bto.service.BTOManagementSystem;
 
 /**
@@ -15,7 +16,7 @@ import edu.ntu.bto.service.BTOManagementSystem;
  */
 public class Applicant extends User {
 	/** The application submitted by this applicant, or {@code null} if none. */
-	private Application application;
+	private volatile Application application;
 
 	/**
 	 * Constructs a new Applicant with the given NRIC, age, and marital status. The
@@ -97,7 +98,7 @@ public class Applicant extends User {
 			switch (choice) {
 			case 1:
 				// View projects visible to this applicant
-				System.out.print("Choose filter option (All/Flat type/Neighbourhood): ");
+				System.out.print("Choose filter option (All/Flat type/Neighbourhood/Search): ");
 				String option = scanner.nextLine();
 				List<Project> projToPrint = system.getProjectControl().getVisibleProjectsForApplicant(this);
 				if (option.equalsIgnoreCase("All")) {
@@ -141,6 +142,10 @@ public class Applicant extends User {
 						});
 					break;
 				}
+				else if (option.equalsIgnoreCase("Search")) {
+					searchProjects(scanner, system, projToPrint);
+					break;
+				}
 				System.out.println("Invalid filter option.");
 				break;
 			case 2:
@@ -234,7 +239,7 @@ public class Applicant extends User {
 				// Change password
 				System.out.print("Enter new password: ");
 				String newPw = scanner.nextLine();
-				changePassword(newPw);
+				system.changePassword(this, newPw);
 				System.out.println("Password changed.");
 				break;
 			case 10:
@@ -246,4 +251,56 @@ public class Applicant extends User {
 			}
 		}
 	}
+
+	/**
+	 * Runs a project search for this applicant: reads a query and a sort order,
+	 * then shows the matching projects among those the applicant may view, one
+	 * page at a time.
+	 * 
+	 * @param scanner The {@link Scanner} for reading user input.
+	 * @param system  The {@link BTOManagementSystem} to search.
+	 * @param within  The projects the applicant may view.
+	 */
+	protected void searchProjects(Scanner scanner, BTOManagementSystem system, List<Project> within) {
+		System.out.println("Fields: town, type, available, price, open, manager; combine with AND/OR/NOT.");
+		System.out.println("Example: type:3-Room AND price:-400000 AND NOT town:Yishun");
+		System.out.print("Search: ");
+		String query = scanner.nextLine();
+		System.out.print("Sort by (name/neighborhood/price/open/close/units, add ' desc' to reverse) [name]: ");
+		String[] sortBy = scanner.nextLine().trim().split("\\s+");
+		ProjectSearch.SortKey sort;
+		try {
+			sort = sortBy[0].isEmpty() ? ProjectSearch.SortKey.NAME
+					: ProjectSearch.SortKey.valueOf(sortBy[0].toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.out.println("Unknown sort order, sorting by name.");
+			sort = ProjectSearch.SortKey.NAME;
+		}
+		boolean descending = sortBy.length > 1 && sortBy[1].equalsIgnoreCase("desc");
+		int page = 1;
+		while (true) {
+			ProjectSearch.Page result;
+			try {
+				result = system.getProjectSearch().search(query, within, sort, descending, page, 5);
+			} catch (IllegalArgumentException e) {
+				System.out.println("Invalid search: " + e.getMessage());
+				return;
+			}
+			result.getProjects().forEach(p -> {
+				if (this.maritalStatus.equalsIgnoreCase("Single"))
+					System.out.println(p.toStringSingle());
+				else
+					System.out.println(p.toString());
+			});
+			System.out.println(result);
+			if (result.getNumber() >= result.getPageCount()) {
+				return;
+			}
+			System.out.print("Next page? (y/n): ");
+			if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+				return;
+			}
+			page++;
+		}
+	}
 }
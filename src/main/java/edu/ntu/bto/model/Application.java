@@ -1,15 +1,26 @@
 package edu.ntu.bto.model;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Represents an application by an applicant for a BTO project. An Application
  * ties an {@link Applicant} to a chosen {@link Project} and flat type, and
- * tracks the application {@link Status}.
+ * tracks the application {@link Status}. The status only moves along the
+ * transitions allowed by {@link Status#canTransitionTo(Status)}.
  * 
  * @author SC2002 Assignment Group
  */
 public class Application {
 	/**
-	 * Enumeration of possible statuses for an application.
+	 * Enumeration of possible statuses for an application. An application starts
+	 * PENDING, is decided SUCCESSFUL or UNSUCCESSFUL, and a successful one is
+	 * BOOKED. Withdrawal or a failed booking makes a SUCCESSFUL or BOOKED
+	 * application UNSUCCESSFUL, which is final: the applicant applies again with a
+	 * new application.
 	 */
 	public enum Status {
 		/** Entry status upon application – outcome not yet decided. */
@@ -24,7 +35,38 @@ public class Application {
 		 */
 		UNSUCCESSFUL,
 		/** Applicant has booked a flat after a successful application. */
-		BOOKED
+		BOOKED;
+
+		/**
+		 * Returns whether an application may move from this status to another.
+		 * Staying in the same status is not a transition.
+		 * 
+		 * @param next The status to move to.
+		 * @return {@code true} if the transition is allowed.
+		 */
+		public boolean canTransitionTo(Status next) {
+			return TRANSITIONS.get(this).contains(next);
+		}
+
+		/**
+		 * Returns the statuses an application may move to from this status.
+		 * 
+		 * @return An unmodifiable set of the next statuses; empty for a final
+		 *         status.
+		 */
+		public Set<Status> next() {
+			return TRANSITIONS.get(this);
+		}
+	}
+
+	/** The allowed transitions of {@link Status}, by current status. */
+	private static final Map<Status, Set<Status>> TRANSITIONS = new EnumMap<>(Status.class);
+
+	static {
+		TRANSITIONS.put(Status.PENDING, Collections.unmodifiableSet(EnumSet.of(Status.SUCCESSFUL, Status.UNSUCCESSFUL)));
+		TRANSITIONS.put(Status.SUCCESSFUL, Collections.unmodifiableSet(EnumSet.of(Status.BOOKED, Status.UNSUCCESSFUL)));
+		TRANSITIONS.put(Status.BOOKED, Collections.unmodifiableSet(EnumSet.of(Status.UNSUCCESSFUL)));
+		TRANSITIONS.put(Status.UNSUCCESSFUL, Collections.unmodifiableSet(EnumSet.noneOf(Status.class)));
 	}
 
 	/** The applicant who submitted this application. */
@@ -32,11 +74,21 @@ public class Application {
 	/** The project that the applicant applied to. */
 	private Project project;
 	/** The current status of this application. */
-	private Status status;
+	private volatile Status status;
 	/**
 	 * The flat type (e.g., "2-Room" or "3-Room") that the applicant applied for.
 	 */
 	private String flatType;
+	/**
+	 * When the unit hold of a successful application lapses, in epoch
+	 * milliseconds, or 0 if not known.
+	 */
+	private volatile long holdUntil;
+	/**
+	 * Whether the applicant withdrew this application and the project's manager
+	 * has yet to acknowledge it.
+	 */
+	private volatile boolean withdrawalPending;
 
 	/**
 	 * Constructs a new Application for a given applicant and project with a chosen
@@ -65,7 +117,9 @@ public class Application {
 	/**
 	 * Sets the status of this application. This is used when the application
 	 * outcome is decided or updated (e.g., approved, rejected, or marked as
-	 * booked).
+	 * booked). Once the application is in an {@link ApplicationStore}, its status
+	 * is changed through {@link ApplicationStore#transition(Application, Status)}
+	 * so the store's status index stays current.
 	 * 
 	 * @param status The new {@link Status} for this application.
 	 */
@@ -73,6 +127,46 @@ public class Application {
 		this.status = status;
 	}
 
+	/**
+	 * Returns when the unit hold placed on approval lapses. The time stays set
+	 * after the hold has lapsed, so a restart can tell a lapsed hold from an
+	 * open one.
+	 * 
+	 * @return The time in epoch milliseconds, or 0 if not known.
+	 */
+	public long getHoldUntil() {
+		return holdUntil;
+	}
+
+	/**
+	 * Sets when the unit hold placed on approval lapses.
+	 * 
+	 * @param holdUntil The time in epoch milliseconds, or 0 if not known.
+	 */
+	public void setHoldUntil(long holdUntil) {
+		this.holdUntil = holdUntil;
+	}
+
+	/**
+	 * Returns whether the applicant withdrew this application and the project's
+	 * manager has yet to acknowledge the withdrawal.
+	 * 
+	 * @return {@code true} if the withdrawal awaits the manager.
+	 */
+	public boolean isWithdrawalPending() {
+		return withdrawalPending;
+	}
+
+	/**
+	 * Sets whether the withdrawal of this application awaits the manager.
+	 * 
+	 * @param withdrawalPending {@code true} when the applicant withdraws,
+	 *                          {@code false} once the manager acknowledges it.
+	 */
+	public void setWithdrawalPending(boolean withdrawalPending) {
+		this.withdrawalPending = withdrawalPending;
+	}
+
 	/**
 	 * Returns the flat type that was applied for in this application.
 	 * 
@@ -0,0 +1,356 @@
+package edu.ntu.bto.model;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * All applications in the system, indexed by project, by status, by project
+ * manager and by applicant so that the menus and reports look up only the
+ * applications they show instead of scanning every one.
+ * <p>
+ * Applications are never removed; a withdrawn or rejected application stays
+ * with status UNSUCCESSFUL. Status changes must go through
+ * {@link #transition(Application, Application.Status)}, which rejects
+ * transitions the status table does not allow and keeps the status index and
+ * the per-project, per-flat-type status counters current, so counts are read
+ * in constant time. The store is safe for concurrent use: the indexes are
+ * concurrent sets, and the returned views may be iterated while other sessions
+ * update them. Transitions of one application must be serialized by the
+ * caller, which the controls do by locking the applicant.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class ApplicationStore extends AbstractCollection<Application> {
+	/**
+	 * Receives every addition and status change, for aggregates kept up to date
+	 * as events instead of by scanning.
+	 */
+	public interface StatusListener {
+		/**
+		 * Called after an application is added or changes status, on the thread
+		 * that made the change, which holds the applicant's lock for a change.
+		 *
+		 * @param app  The application.
+		 * @param from Its previous status, or {@code null} if it was just added.
+		 * @param to   Its new status.
+		 */
+		void statusChanged(Application app, Application.Status from, Application.Status to);
+	}
+
+	/** Every application, in the order added. */
+	private final Queue<Application> all = new ConcurrentLinkedQueue<>();
+	/** Number of applications. */
+	private final AtomicInteger size = new AtomicInteger();
+	/** Applications by project. */
+	private final Map<Project, Set<Application>> byProject = new ConcurrentHashMap<>();
+	/** Applications by the manager of their project. */
+	private final Map<String, Set<Application>> byManager = new ConcurrentHashMap<>();
+	/** Applications by applicant, including earlier unsuccessful ones. */
+	private final Map<Applicant, Set<Application>> byApplicant = new ConcurrentHashMap<>();
+	/** Applications by current status; filled for every status up front. */
+	private final Map<Application.Status, Set<Application>> byStatus = new EnumMap<>(Application.Status.class);
+	/**
+	 * Application counts by project and lower-case flat type, one adder per
+	 * status ordinal.
+	 */
+	private final Map<Project, Map<String, LongAdder[]>> counters = new ConcurrentHashMap<>();
+	/** Number of additions and status changes, used as a change stamp. */
+	private final LongAdder modifications = new LongAdder();
+	/** Told of every addition and status change, or {@code null}. */
+	private volatile StatusListener listener;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public ApplicationStore() {
+		for (Application.Status status : Application.Status.values()) {
+			byStatus.put(status, ConcurrentHashMap.newKeySet());
+		}
+	}
+
+	/**
+	 * Adds an application with its current status.
+	 *
+	 * @param app The application.
+	 * @return Always {@code true}.
+	 */
+	@Override
+	public boolean add(Application app) {
+		all.add(app);
+		size.incrementAndGet();
+		index(byProject, app.getProject(), app);
+		index(byManager, app.getProject().getManager(), app);
+		index(byApplicant, app.getApplicant(), app);
+		byStatus.get(app.getStatus()).add(app);
+		counters(app)[app.getStatus().ordinal()].increment();
+		modifications.increment();
+		StatusListener l = listener;
+		if (l != null) {
+			l.statusChanged(app, null, app.getStatus());
+		}
+		return true;
+	}
+
+	/**
+	 * Changes the status of an application, moving it in the status index and
+	 * counters. Setting the current status again does nothing. The caller must
+	 * keep other transitions of the same application out, for example by holding
+	 * the applicant's lock.
+	 *
+	 * @param app    The application, which must be in this store.
+	 * @param status The new status.
+	 * @throws IllegalStateException if the application may not move from its
+	 *                               current status to {@code status}.
+	 */
+	public void transition(Application app, Application.Status status) {
+		Application.Status from = app.getStatus();
+		if (from == status) {
+			return;
+		}
+		if (!from.canTransitionTo(status)) {
+			throw new IllegalStateException("Application of " + app.getApplicant().getNric()
+					+ " cannot move from " + from + " to " + status);
+		}
+		// Add before removing so a concurrent query sees the application at least once.
+		byStatus.get(status).add(app);
+		app.setStatus(status);
+		byStatus.get(from).remove(app);
+		LongAdder[] counts = counters(app);
+		counts[status.ordinal()].increment();
+		counts[from.ordinal()].decrement();
+		modifications.increment();
+		StatusListener l = listener;
+		if (l != null) {
+			l.statusChanged(app, from, status);
+		}
+	}
+
+	/**
+	 * Sets the listener told of every addition and status change.
+	 *
+	 * @param listener The listener, or {@code null} for none.
+	 */
+	public void setStatusListener(StatusListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the number of additions and status changes so far. A reader that
+	 * copies the store can compare it with the count it read before copying to
+	 * tell whether its copy is still current.
+	 *
+	 * @return The modification count.
+	 */
+	public long getModificationCount() {
+		return modifications.sum();
+	}
+
+	/**
+	 * Returns the number of applications for a flat type of a project that have
+	 * a status.
+	 *
+	 * @param project  The project.
+	 * @param flatType The flat type, in any case.
+	 * @param status   The status.
+	 * @return The count.
+	 */
+	public long count(Project project, String flatType, Application.Status status) {
+		Map<String, LongAdder[]> byType = counters.get(project);
+		LongAdder[] counts = byType == null ? null : byType.get(flatType.toLowerCase());
+		return counts == null ? 0 : counts[status.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of applications for a project that have a status.
+	 *
+	 * @param project The project.
+	 * @param status  The status.
+	 * @return The count.
+	 */
+	public long count(Project project, Application.Status status) {
+		Map<String, LongAdder[]> byType = counters.get(project);
+		long count = 0;
+		if (byType != null) {
+			for (LongAdder[] counts : byType.values()) {
+				count += counts[status.ordinal()].sum();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of applications that have a status.
+	 *
+	 * @param status The status.
+	 * @return The count.
+	 */
+	public long count(Application.Status status) {
+		return byStatus.get(status).size();
+	}
+
+	/**
+	 * Returns the applications for a project.
+	 *
+	 * @param project The project.
+	 * @return A live, unmodifiable view of its applications.
+	 */
+	public Collection<Application> getByProject(Project project) {
+		return view(byProject.get(project));
+	}
+
+	/**
+	 * Returns the applications with a status.
+	 *
+	 * @param status The status.
+	 * @return A live, unmodifiable view of the applications with that status.
+	 */
+	public Collection<Application> getByStatus(Application.Status status) {
+		return Collections.unmodifiableSet(byStatus.get(status));
+	}
+
+	/**
+	 * Returns the applications for the projects of a manager.
+	 *
+	 * @param manager The manager's name, as stored in the projects.
+	 * @return A live, unmodifiable view of the applications.
+	 */
+	public Collection<Application> getByManager(String manager) {
+		return view(byManager.get(manager));
+	}
+
+	/**
+	 * Returns the applications an applicant has made.
+	 *
+	 * @param applicant The applicant.
+	 * @return A live, unmodifiable view of the applicant's applications.
+	 */
+	public Collection<Application> getByApplicant(Applicant applicant) {
+		return view(byApplicant.get(applicant));
+	}
+
+	/**
+	 * Returns the applications for a project that have a status.
+	 *
+	 * @param project The project.
+	 * @param status  The status.
+	 * @return A snapshot list of the matching applications.
+	 */
+	public List<Application> getByProjectAndStatus(Project project, Application.Status status) {
+		return intersect(byProject.get(project), status);
+	}
+
+	/**
+	 * Returns the applications for the projects of a manager that have a status.
+	 *
+	 * @param manager The manager's name, as stored in the projects.
+	 * @param status  The status.
+	 * @return A snapshot list of the matching applications.
+	 */
+	public List<Application> getByManagerAndStatus(String manager, Application.Status status) {
+		return intersect(byManager.get(manager), status);
+	}
+
+	/**
+	 * Returns the applications in the order they were added. The iterator does
+	 * not support removal.
+	 *
+	 * @return An iterator over all applications.
+	 */
+	@Override
+	public Iterator<Application> iterator() {
+		return Collections.unmodifiableCollection(all).iterator();
+	}
+
+	/**
+	 * Returns the number of applications.
+	 *
+	 * @return The application count.
+	 */
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Adds an application to the set under a key, creating the set if needed.
+	 *
+	 * @param <K>   The key type.
+	 * @param index The index.
+	 * @param key   The key.
+	 * @param app   The application.
+	 */
+	private static <K> void index(Map<K, Set<Application>> index, K key, Application app) {
+		index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(app);
+	}
+
+	/**
+	 * Returns the status counters for the project and flat type of an
+	 * application, creating them if needed.
+	 *
+	 * @param app The application.
+	 * @return One adder per status ordinal.
+	 */
+	private LongAdder[] counters(Application app) {
+		return counters.computeIfAbsent(app.getProject(), k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(app.getFlatType().toLowerCase(), k -> {
+					LongAdder[] counts = new LongAdder[Application.Status.values().length];
+					for (int i = 0; i < counts.length; i++) {
+						counts[i] = new LongAdder();
+					}
+					return counts;
+				});
+	}
+
+	/**
+	 * Returns an unmodifiable view of an index entry.
+	 *
+	 * @param set The entry, or {@code null} if there is none.
+	 * @return The view, empty if there is no entry.
+	 */
+	private static Collection<Application> view(Set<Application> set) {
+		return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * Returns the applications of an index entry that have a status, scanning
+	 * whichever of the two sets is smaller.
+	 *
+	 * @param set    The entry, or {@code null} if there is none.
+	 * @param status The status.
+	 * @return The matching applications.
+	 */
+	private List<Application> intersect(Set<Application> set, Application.Status status) {
+		List<Application> result = new ArrayList<>();
+		if (set == null) {
+			return result;
+		}
+		Set<Application> withStatus = byStatus.get(status);
+		if (withStatus.size() < set.size()) {
+			for (Application app : withStatus) {
+				if (set.contains(app) && app.getStatus() == status) {
+					result.add(app);
+				}
+			}
+		} else {
+			for (Application app : set) {
+				if (app.getStatus() == status) {
+					result.add(app);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -15,11 +15,11 @@ public class Enquiry {
 	/** The project that this enquiry is about. */
 	private Project project;
 	/** The question content of the enquiry. */
-	private String question;
+	private volatile String question;
 	/**
 	 * The response content provided by an HDB Officer (null if not answered yet).
 	 */
-	private String response;
+	private volatile String response;
 
 	/**
 	 * Constructs a new Enquiry.
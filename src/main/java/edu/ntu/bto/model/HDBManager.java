@@ -1,9 +1,17 @@
 package edu.ntu.bto.model;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.function.Function;
+import edu.ntu.bto.control.BookingStatistics;
 import edu.ntu.bto.service.BTOManagementSystem;
+import edu.ntu.bto.service.BallotEngine;
+import edu.ntu.bto.service.BulkImporter;
+import edu.ntu.bto.service.ReportExporter;
 
 /**
  * Represents an HDB Manager user. An HDB Manager can manage BTO projects
@@ -62,9 +70,12 @@ public class HDBManager extends User {
 	 * menu provides options to view all projects or only those created by the
 	 * manager, create/edit/delete projects, toggle project visibility, manage
 	 * officer registrations (view and approve/reject), manage applicant
-	 * applications and withdrawals, view all enquiries, reply to enquiries for the
-	 * manager's projects, generate a report, and logout. This method uses the
-	 * {@link BTOManagementSystem} controls to perform the selected operations.
+	 * applications and withdrawals, ballot the pending applications of closed
+	 * projects, import applications from a file, view all enquiries, reply to
+	 * enquiries for the manager's projects, generate a report, export reports to
+	 * workbooks, view booking statistics, and logout. This
+	 * method uses the {@link BTOManagementSystem} controls to perform the selected
+	 * operations.
 	 * 
 	 * @param scanner A {@link Scanner} for reading user input.
 	 * @param system  The {@link BTOManagementSystem} to interact with for
@@ -84,12 +95,17 @@ public class HDBManager extends User {
 			System.out.println("7. View All Officer Registrations");
 			System.out.println("8. Approve/Reject Officer Registrations");
 			System.out.println("9. Approve/Reject Applicant Applications");
-			System.out.println("10. Approve/Reject Applicant Withdrawal");
+			System.out.println("10. Acknowledge Applicant Withdrawals");
 			System.out.println("11. View All Enquiries");
 			System.out.println("12. Reply to Your Project Enquiries");
 			System.out.println("13. Generate Report");
 			System.out.println("14. Change Password");
 			System.out.println("15. Logout");
+			System.out.println("16. Run Ballot for Your Closed Projects");
+			System.out.println("17. Import Applications from File");
+			System.out.println("18. View Booking Statistics");
+			System.out.println("19. Export Report to Excel");
+			System.out.println("20. View Your Report Exports");
 			System.out.print("Select option: ");
 			int choice = Integer.parseInt(scanner.nextLine());
 
@@ -100,8 +116,22 @@ public class HDBManager extends User {
 				break;
 			case 2:
 				// View projects created by this manager
-				system.getProjectControl().getProjectsByManager(this.getName())
-						.forEach(p -> System.out.println(p.toString()));
+				system.getProjectControl().getProjectsByManager(this.getName()).forEach(p -> {
+					System.out.println(p.toString());
+					System.out.println("  Unit Inventory:");
+					System.out.println("    • " + p.getType1() + " – " + p.getInventoryType1());
+					System.out.println("    • " + p.getType2() + " – " + p.getInventoryType2());
+					System.out.println("  Applications:");
+					for (String type : new String[] { p.getType1(), p.getType2() }) {
+						StringBuilder counts = new StringBuilder();
+						for (Application.Status status : Application.Status.values()) {
+							counts.append(counts.length() == 0 ? "" : ", ")
+									.append(system.getApplicationControl().countApplications(p, type, status))
+									.append(' ').append(status.name().toLowerCase());
+						}
+						System.out.println("    • " + type + " – " + counts);
+					}
+				});
 				break;
 			case 3:
 				// Create a new project (collect details and use ManagerControl)
@@ -177,11 +207,11 @@ public class HDBManager extends User {
 				}
 				System.out.print("Enter new neighborhood: ");
 				String newNeighborhood = scanner.nextLine();
-				// For simplicity, create a new project instance with updated neighborhood.
-				system.getManagerControl().editProject(project, project.getProjectName(), newNeighborhood,
-						project.getType1(), project.getUnitsType1(), project.getPriceType1(), project.getType2(),
-						project.getUnitsType2(), project.getPriceType2(), project.getOpenDate(), project.getCloseDate(),
-						this.getName(), project.getOfficerSlot(), project.getOfficer());
+				Project.Details current = project.getDetails();
+				system.getManagerControl().editProject(project, current.getProjectName(), newNeighborhood,
+						current.getType1(), project.getInventoryType1().getTotal(), current.getPriceType1(),
+						current.getType2(), project.getInventoryType2().getTotal(), current.getPriceType2(),
+						current.getOpenDate(), current.getCloseDate(), this.getName());
 				break;
 			case 5:
 				// Delete a project
@@ -222,57 +252,56 @@ public class HDBManager extends User {
 						.forEach(r -> System.out.println("Officer NRIC " + r.getOfficer().getNric() + " FOR Project "
 								+ r.getProject().getProjectName() + " - Status: " + r.getStatus()));
 				break;
-			case 8:
-				// Approve or reject officer registrations (we assume one at a time for
-				// simplicity)
-				system.getOfficerControl().getRegistrations().stream()
-						.filter(r -> r.getProject().getManager().equals(this.getName())
-								&& r.getStatus() == Registration.Status.PENDING)
-						.forEach(r -> {
-							if (r.getProject().getOfficerSlot() != 0) {
-								System.out.println("Officer NRIC " + r.getOfficer().getNric()
-										+ " wants to handle Project " + r.getProject().getProjectName());
-								System.out.print("Approve? (y/n): ");
-								String ans = scanner.nextLine();
-								if (ans.equalsIgnoreCase("y"))
-									system.getManagerControl().approveOfficer(r);
-								else
-									system.getManagerControl().rejectOfficer(r);
-							} else {
-								System.out.print("No more officer slots available. Auto-rejecting registration");
-								system.getManagerControl().rejectOfficer(r);
-							}
-						});
+			case 8: {
+				// Approve or reject the officer registrations in this manager's queue
+				List<Registration> regs = system.getPendingWork().getRegistrations(this.getName());
+				List<Registration> approve = new ArrayList<>();
+				List<Registration> reject = new ArrayList<>();
+				decide(scanner, regs, r -> "Officer NRIC " + r.getOfficer().getNric() + " wants to handle Project "
+						+ r.getProject().getProjectName(), approve, reject);
+				int approved = system.getManagerControl().approveOfficers(approve);
+				int rejected = system.getManagerControl().rejectOfficers(reject);
+				if (!regs.isEmpty()) {
+					System.out.println(approved + " registration(s) approved, " + rejected + " rejected"
+							+ (approved < approve.size() ? "; no officer slots left for the rest." : "."));
+				}
 				break;
-			case 9:
-				// Approve or reject applicant applications
-				for (Application a : system.getApplicationControl().getApplications()) {
-					if (a.getProject().getManager().equals(this.getName())
-							&& a.getStatus() == Application.Status.PENDING) {
-						System.out.println("Applicant " + a.getApplicant().getNric() + " applying for flat type: "
-								+ a.getFlatType());
-						System.out.print("Approve (y/n)? ");
-						if (scanner.nextLine().equalsIgnoreCase("y"))
-							system.getManagerControl().approveApplication(a);
-						else
-							system.getManagerControl().rejectApplication(a);
-					}
+			}
+			case 9: {
+				// Approve or reject the applications in this manager's queue
+				List<Application> apps = system.getPendingWork().getApplications(this.getName());
+				List<Application> approve = new ArrayList<>();
+				List<Application> reject = new ArrayList<>();
+				decide(scanner, apps, a -> "Applicant " + a.getApplicant().getNric() + " applying for flat type: "
+						+ a.getFlatType() + " in " + a.getProject().getProjectName(), approve, reject);
+				int approved = system.getManagerControl().approveApplications(approve);
+				int rejected = system.getManagerControl().rejectApplications(reject);
+				if (!apps.isEmpty()) {
+					System.out.println(approved + " application(s) approved, " + rejected + " rejected"
+							+ (approved < approve.size() ? "; insufficient units for the rest." : "."));
 				}
 				break;
-			case 10:
-				// Approve or reject applicant withdrawal (if we maintained withdrawal requests;
-				// here assume withdraw is immediate, so nothing to do)
-				for (Application a : system.getApplicationControl().getApplications()) {
-					if (a.getProject().getManager().equals(this.getName())
-							&& a.getStatus() == Application.Status.UNSUCCESSFUL) {
-						System.out.print("Approve withdrawal for " + a.getApplicant().getNric() + " (y/n)? ");
-						if (scanner.nextLine().equalsIgnoreCase("y"))
-							system.getManagerControl().approveWithdrawal(a.getApplicant());
-						else
-							system.getManagerControl().rejectWithdrawal(a.getApplicant());
-					}
+			}
+			case 10: {
+				// Acknowledge the withdrawals in this manager's queue; withdrawals take
+				// effect immediately, so there is nothing to approve or reject
+				List<Application> withdrawn = system.getPendingWork().getWithdrawals(this.getName());
+				if (withdrawn.isEmpty()) {
+					System.out.println("Nothing waiting for you.");
+					break;
+				}
+				for (int i = 0; i < withdrawn.size(); i++) {
+					Application a = withdrawn.get(i);
+					System.out.println((i + 1) + ". Applicant " + a.getApplicant().getNric() + " withdrew from "
+							+ a.getProject().getProjectName());
+				}
+				System.out.print("Acknowledge all (y/n)? ");
+				if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+					int acknowledged = system.getManagerControl().acknowledgeWithdrawals(withdrawn);
+					System.out.println(acknowledged + " withdrawal(s) acknowledged.");
 				}
 				break;
+			}
 			case 11:
 				// View all enquiries
 				system.getEnquiryControl().getAllEnquiries().forEach(e -> {
@@ -297,24 +326,112 @@ public class HDBManager extends User {
 				break;
 			case 13:
 				// Generate report
-				System.out.print("Filter (All/Married): ");
+				System.out.print("Filter (All/Married, or e.g. age:21-35 type:3-Room status:any by:project): ");
 				system.getManagerControl().generateReport(scanner.nextLine());
 				break;
 			case 14:
 				// Change password
 				System.out.print("Enter new password: ");
 				String newPw = scanner.nextLine();
-				changePassword(newPw);
+				system.changePassword(this, newPw);
 				System.out.println("Password changed.");
 				break;
 			case 15:
 				// Logout
 				logout = true;
 				break;
+			case 16:
+				// Ballot the pending applications of this manager's closed projects
+				List<BallotEngine.Result> results = system.getBallotEngine()
+						.run(system.getProjectControl().getProjectsByManager(this.getName()), LocalDate.now());
+				if (results.isEmpty()) {
+					System.out.println("No pending applications in closed projects.");
+				}
+				results.forEach(r -> System.out.println("Ballot " + r));
+				break;
+			case 17:
+				// Import applications in bulk from a workbook
+				System.out.print("File name (in data/): ");
+				String file = scanner.nextLine().trim();
+				try {
+					System.out.println(new BulkImporter(system).importFile(file));
+				} catch (IOException | IllegalArgumentException e) {
+					System.out.println("Import failed: " + e.getMessage());
+				}
+				break;
+			case 18:
+				// Booking statistics, read from one consistent snapshot
+				BookingStatistics.Snapshot stats = system.getBookingStatistics().snapshot();
+				System.out.println("-- Booking Statistics: " + stats.getTotal() + " --");
+				System.out.println("By project and flat type:");
+				stats.getByProjectAndFlatType().forEach((proj, types) -> types
+						.forEach((type, t) -> System.out.println("  " + proj + ", " + type + ": " + t)));
+				System.out.println("By marital status:");
+				stats.getByMaritalStatus().forEach((status, t) -> System.out.println("  " + status + ": " + t));
+				System.out.println("By age:");
+				stats.getByAgeBand().forEach((band, t) -> System.out.println("  " + band + ": " + t));
+				break;
+			case 19:
+				// Export a report to a workbook in the background
+				System.out.print("Filter (All/Married, or e.g. age:21-35 type:3-Room status:any by:project): ");
+				String query = scanner.nextLine();
+				System.out.print("File name (in data/): ");
+				try {
+					ReportExporter.Export export = system.getReportExporter().submit(this.getName(), query,
+							scanner.nextLine());
+					System.out.println("Export queued: " + export.getFile() + ". Progress is shown as it runs.");
+				} catch (IllegalArgumentException e) {
+					System.out.println("Export not started: " + e.getMessage());
+				}
+				break;
+			case 20:
+				// Show the state of this manager's exports
+				List<ReportExporter.Export> exports = system.getReportExporter().getExports(this.getName());
+				if (exports.isEmpty()) {
+					System.out.println("No report exports.");
+				}
+				exports.forEach(System.out::println);
+				break;
 			default:
 				System.out.println("Invalid option.");
 			}
 		}
 	}
 
+	/**
+	 * Lists the items waiting for a decision and asks whether to approve them
+	 * all, reject them all or decide each one, sorting them into the approved and
+	 * rejected lists.
+	 *
+	 * @param <T>      The item type.
+	 * @param scanner  The scanner reading the manager's input.
+	 * @param items    The items waiting, oldest first.
+	 * @param describe Describes an item in one line.
+	 * @param approve  Receives the items to approve.
+	 * @param reject   Receives the items to reject.
+	 */
+	private static <T> void decide(Scanner scanner, List<T> items, Function<T, String> describe, List<T> approve,
+			List<T> reject) {
+		if (items.isEmpty()) {
+			System.out.println("Nothing waiting for you.");
+			return;
+		}
+		for (int i = 0; i < items.size(); i++) {
+			System.out.println((i + 1) + ". " + describe.apply(items.get(i)));
+		}
+		System.out.print("Approve all (a), reject all (r) or decide each (d)? ");
+		String choice = scanner.nextLine().trim();
+		if (choice.equalsIgnoreCase("a")) {
+			approve.addAll(items);
+		} else if (choice.equalsIgnoreCase("r")) {
+			reject.addAll(items);
+		} else if (choice.equalsIgnoreCase("d")) {
+			for (T item : items) {
+				System.out.print(describe.apply(item) + ". Approve (y/n)? ");
+				(scanner.nextLine().trim().equalsIgnoreCase("y") ? approve : reject).add(item);
+			}
+		} else {
+			System.out.println("No decision made.");
+		}
+	}
 }
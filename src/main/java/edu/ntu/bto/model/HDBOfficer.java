@@ -1,8 +1,8 @@
 package edu.ntu.bto.model;
 
-import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import edu.ntu.bto.service.BTOManagementSystem;
 
 /**
@@ -16,7 +16,7 @@ import edu.ntu.bto.service.BTOManagementSystem;
  */
 public class HDBOfficer extends Applicant {
 	/** The list of registrations this officer has submitted to handle projects. */
-	private List<Registration> Registrations = new ArrayList<>();
+	private List<Registration> Registrations = new CopyOnWriteArrayList<>();
 
 	/**
 	 * Constructs a new HDBOfficer with the given NRIC, age, and marital status.
@@ -93,7 +93,7 @@ public class HDBOfficer extends Applicant {
 			switch (choice) {
 			case 1:
 				// View projects (same as applicant)
-				System.out.print("Choose filter option (All/Flat type/Neighbourhood): ");
+				System.out.print("Choose filter option (All/Flat type/Neighbourhood/Search): ");
 				    String option = scanner.nextLine();
 				    List<Project> projToPrint = system.getProjectControl().getVisibleProjectsForApplicant(this);
 				    if (option.equalsIgnoreCase("All")) {
@@ -137,6 +137,10 @@ public class HDBOfficer extends Applicant {
 					    });
 					break;
 				    }
+				    else if (option.equalsIgnoreCase("Search")) {
+					searchProjects(scanner, system, projToPrint);
+					break;
+				    }
 				    System.out.println("Invalid filter option.");
 				    break;
 			case 2:
@@ -260,12 +264,9 @@ public class HDBOfficer extends Applicant {
 						.map(Registration::getProject).forEach(p -> {
 							System.out.println(p.toString());
 							System.out.println("All applications for this project:");
-							for (Application a : system.getApplicationControl().getApplications()) {
-								if (a.getProject().equals(p)) {
-									System.out.println(
-											"Applicant " + a.getApplicant().getNric() + " applying for flat type: "
-													+ a.getFlatType() + " - Status: " + a.getStatus());
-								}
+							for (Application a : system.getApplicationControl().getApplicationsByProject(p)) {
+								System.out.println("Applicant " + a.getApplicant().getNric() + " applying for flat type: "
+										+ a.getFlatType() + " - Status: " + a.getStatus());
 							}
 						});
 				break;
@@ -298,14 +299,12 @@ public class HDBOfficer extends Applicant {
 				String nric = scanner.nextLine();
 				System.out.print("Flat type: ");
 				String flat = scanner.nextLine();
-				boolean uFound = false;
-				for (User u : system.getUsers()) {
-					if ((u instanceof Applicant || u instanceof HDBOfficer) && u.getNric().equalsIgnoreCase(nric)) {
-						uFound = true;
-						system.getApplicationControl().bookFlat(this, (Applicant) u, flat);
-					}
-				}
-				if (!uFound) {
+				Application toBook = system.getApplicationControl().getApplicationByNric(nric.trim());
+				if (toBook != null) {
+					system.getApplicationControl().bookFlat(this, toBook.getApplicant(), flat);
+				} else if (system.getUserByNric(nric.trim()) instanceof Applicant) {
+					System.out.println("No application to consider.");
+				} else {
 					System.out.println("No such user. Booking attempt voided.");
 				}
 				break;
@@ -313,7 +312,7 @@ public class HDBOfficer extends Applicant {
 				// Change Password
 				System.out.print("Enter new password: ");
 				String newPw = scanner.nextLine();
-				changePassword(newPw);
+				system.changePassword(this, newPw);
 				System.out.println("Password changed.");
 				break;
 			case 16:
@@ -1,55 +1,228 @@
 package edu.ntu.bto.model;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
 /**
  * Represents a BTO project with housing units for application. A Project
  * contains details such as the project name, location (neighborhood), two flat
  * types with their unit counts and prices, application open/close dates, the
  * manager in charge, information about HDB officer assignment, and whether the
  * project is visible to applicants.
+ * <p>
+ * The details a manager can edit are kept in an immutable {@link Details}
+ * object. An edit publishes a new version through a volatile field instead of
+ * replacing the project, so the applications, registrations and enquiries
+ * that refer to the project stay valid. A reader that needs several details
+ * to agree, such as a listing or a report, takes {@link #getDetails()} once
+ * and reads that version without locking. Fields that change outside edits
+ * are volatile so every session sees the latest value. Unit counts are kept in
+ * lock-free {@link UnitInventory} objects; the officer slot count is only
+ * decremented while the controls hold the project's lock stripe. The opening
+ * and closing dates are also kept as epoch days, parsed once, for window
+ * comparisons.
+ * </p>
  * 
  * @author SC2002 Assignment Group
  */
 public class Project {
-	/** The name of the BTO project. */
-	private String projectName;
-	/** The neighborhood or location of the project. */
-	private String neighborhood;
-	/** The name of the first flat type available (e.g., "2-Room"). */
-	private String type1;
-	/** The number of units available for the first flat type. */
-	private int unitsType1;
-	/** The selling price for each unit of the first flat type. */
-	private double priceType1;
-	/** The name of the second flat type available (e.g., "3-Room"). */
-	private String type2;
-	/** The number of units available for the second flat type. */
-	private int unitsType2;
-	/** The selling price for each unit of the second flat type. */
-	private double priceType2;
-	/** The application opening date for this project (inclusive). */
-	private String openDate;
-	/** The application closing date for this project (inclusive). */
-	private String closeDate;
-	/**
-	 * The identifier of the HDB Manager in charge of this project (e.g., manager's
-	 * name or NRIC).
-	 */
-	private String manager;
+	/**
+	 * One version of the editable details of a project. Instances are immutable;
+	 * an edit creates a new one with the next version number.
+	 */
+	public static final class Details {
+		/** The version number, from 1 when the project is created. */
+		private final long version;
+		/** The name of the BTO project. */
+		private final String projectName;
+		/** The neighborhood or location of the project. */
+		private final String neighborhood;
+		/** The name of the first flat type available (e.g., "2-Room"). */
+		private final String type1;
+		/** The selling price for each unit of the first flat type. */
+		private final double priceType1;
+		/** The name of the second flat type available (e.g., "3-Room"). */
+		private final String type2;
+		/** The selling price for each unit of the second flat type. */
+		private final double priceType2;
+		/** The application opening date for this project (inclusive). */
+		private final String openDate;
+		/** The application closing date for this project (inclusive). */
+		private final String closeDate;
+		/** The opening date as an epoch day; {@link Long#MAX_VALUE} if malformed. */
+		private final long openDay;
+		/** The closing date as an epoch day; {@link Long#MIN_VALUE} if malformed. */
+		private final long closeDay;
+		/**
+		 * The identifier of the HDB Manager in charge of this project (e.g.,
+		 * manager's name or NRIC).
+		 */
+		private final String manager;
+
+		/**
+		 * Creates a version of the details.
+		 * 
+		 * @param version      The version number.
+		 * @param projectName  The project name.
+		 * @param neighborhood The neighborhood of the project.
+		 * @param type1        The first flat type name.
+		 * @param priceType1   Selling price for the first flat type.
+		 * @param type2        The second flat type name.
+		 * @param priceType2   Selling price for the second flat type.
+		 * @param openDate     Application opening date (YYYY-MM-DD).
+		 * @param closeDate    Application closing date (YYYY-MM-DD).
+		 * @param manager      The manager identifier for this project.
+		 */
+		private Details(long version, String projectName, String neighborhood, String type1, double priceType1,
+				String type2, double priceType2, String openDate, String closeDate, String manager) {
+			this.version = version;
+			this.projectName = projectName;
+			this.neighborhood = neighborhood;
+			this.type1 = type1;
+			this.priceType1 = priceType1;
+			this.type2 = type2;
+			this.priceType2 = priceType2;
+			this.openDate = openDate;
+			this.closeDate = closeDate;
+			this.openDay = epochDay(openDate, Long.MAX_VALUE);
+			this.closeDay = epochDay(closeDate, Long.MIN_VALUE);
+			this.manager = manager;
+		}
+
+		/**
+		 * Gets the version number, which grows by one with every edit.
+		 * 
+		 * @return The version.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Gets the project name.
+		 * 
+		 * @return The name of the project.
+		 */
+		public String getProjectName() {
+			return projectName;
+		}
+
+		/**
+		 * Gets the neighborhood of the project.
+		 * 
+		 * @return The neighborhood/location of this project.
+		 */
+		public String getNeighborhood() {
+			return neighborhood;
+		}
+
+		/**
+		 * Gets the name of the first flat type.
+		 * 
+		 * @return The first flat type name.
+		 */
+		public String getType1() {
+			return type1;
+		}
+
+		/**
+		 * Gets the selling price for the first flat type.
+		 * 
+		 * @return The price of each unit of flat type 1.
+		 */
+		public double getPriceType1() {
+			return priceType1;
+		}
+
+		/**
+		 * Gets the name of the second flat type.
+		 * 
+		 * @return The second flat type name.
+		 */
+		public String getType2() {
+			return type2;
+		}
+
+		/**
+		 * Gets the selling price for the second flat type.
+		 * 
+		 * @return The price of each unit of flat type 2.
+		 */
+		public double getPriceType2() {
+			return priceType2;
+		}
+
+		/**
+		 * Gets the application opening date.
+		 * 
+		 * @return The opening date (YYYY-MM-DD).
+		 */
+		public String getOpenDate() {
+			return openDate;
+		}
+
+		/**
+		 * Gets the application closing date.
+		 * 
+		 * @return The closing date (YYYY-MM-DD).
+		 */
+		public String getCloseDate() {
+			return closeDate;
+		}
+
+		/**
+		 * Gets the application opening date as an epoch day.
+		 * 
+		 * @return The opening day, or {@link Long#MAX_VALUE} if the date is
+		 *         malformed.
+		 */
+		public long getOpenDay() {
+			return openDay;
+		}
+
+		/**
+		 * Gets the application closing date as an epoch day.
+		 * 
+		 * @return The closing day, or {@link Long#MIN_VALUE} if the date is
+		 *         malformed.
+		 */
+		public long getCloseDay() {
+			return closeDay;
+		}
+
+		/**
+		 * Gets the identifier of the manager for this project.
+		 * 
+		 * @return The manager's identifier (e.g., name or NRIC).
+		 */
+		public String getManager() {
+			return manager;
+		}
+	}
+
+	/** The current version of the editable details. */
+	private volatile Details details;
+	/** The units available for the first flat type. */
+	private final UnitInventory unitsType1;
+	/** The units available for the second flat type. */
+	private final UnitInventory unitsType2;
 	/**
 	 * The number of HDB officer slots available for this project (how many officers
 	 * can handle it).
 	 */
-	private int officerSlot;
+	private volatile int officerSlot;
 	/**
 	 * The identifier of the HDB Officer assigned to this project, or "None" if no
 	 * officer assigned yet.
 	 */
-	private String officer;
+	private volatile String officer;
 	/**
 	 * Visibility flag indicating if this project is visible to applicants (true =
 	 * visible, false = hidden).
 	 */
-	private boolean visible;
+	private volatile boolean visible;
+	/** Told when the details, the visibility or the stock of a flat type change, or {@code null}. */
+	private volatile Runnable onChange;
 
 	/**
 	 * Constructs a new Project with full details.
@@ -68,17 +241,10 @@ public class Project {
 	 */
 	public Project(String projectName, String neighborhood, String type1, int unitsType1, double priceType1,
 			String type2, int unitsType2, double priceType2, String openDate, String closeDate, String manager) {
-		this.projectName = projectName;
-		this.neighborhood = neighborhood;
-		this.type1 = type1;
-		this.unitsType1 = unitsType1;
-		this.priceType1 = priceType1;
-		this.type2 = type2;
-		this.unitsType2 = unitsType2;
-		this.priceType2 = priceType2;
-		this.openDate = openDate;
-		this.closeDate = closeDate;
-		this.manager = manager;
+		this.details = new Details(1, projectName, neighborhood, type1, priceType1, type2, priceType2, openDate,
+				closeDate, manager);
+		this.unitsType1 = new UnitInventory(unitsType1);
+		this.unitsType2 = new UnitInventory(unitsType2);
 		this.officerSlot = 10; // assume 10
 		this.officer = "";
 		this.visible = true; // default
@@ -111,29 +277,64 @@ public class Project {
 	public Project(String projectName, String neighborhood, String type1, int unitsType1, double priceType1,
 			String type2, int unitsType2, double priceType2, String openDate, String closeDate, String manager,
 			int officerSlot, String officer) {
-		this.projectName = projectName;
-		this.neighborhood = neighborhood;
-		this.type1 = type1;
-		this.unitsType1 = unitsType1;
-		this.priceType1 = priceType1;
-		this.type2 = type2;
-		this.unitsType2 = unitsType2;
-		this.priceType2 = priceType2;
-		this.openDate = openDate;
-		this.closeDate = closeDate;
-		this.manager = manager;
+		this.details = new Details(1, projectName, neighborhood, type1, priceType1, type2, priceType2, openDate,
+				closeDate, manager);
+		this.unitsType1 = new UnitInventory(unitsType1);
+		this.unitsType2 = new UnitInventory(unitsType2);
 		this.officerSlot = officerSlot;
 		this.officer = officer;
 		this.visible = true; // default
 	}
 
+	/**
+	 * Returns the current version of the editable details. The details in it
+	 * always belong to the same version, unlike successive getter calls on the
+	 * project, which may straddle an edit.
+	 * 
+	 * @return The current {@link Details}.
+	 */
+	public Details getDetails() {
+		return details;
+	}
+
+	/**
+	 * Edits the project in place, publishing the new details as the next version
+	 * and resizing the inventory of each flat type with
+	 * {@link UnitInventory#resize(int)}, which leaves it alone when the total is
+	 * unchanged. The manager is kept. The caller must hold the project's lock so
+	 * edits do not interleave.
+	 * 
+	 * @param projectName  The project name.
+	 * @param neighborhood The neighborhood of the project.
+	 * @param type1        The first flat type name.
+	 * @param unitsType1   Total number of units for the first flat type.
+	 * @param priceType1   Selling price for the first flat type.
+	 * @param type2        The second flat type name.
+	 * @param unitsType2   Total number of units for the second flat type.
+	 * @param priceType2   Selling price for the second flat type.
+	 * @param openDate     Application opening date (YYYY-MM-DD).
+	 * @param closeDate    Application closing date (YYYY-MM-DD).
+	 * @return The details of the new version.
+	 */
+	public Details edit(String projectName, String neighborhood, String type1, int unitsType1, double priceType1,
+			String type2, int unitsType2, double priceType2, String openDate, String closeDate) {
+		Details d = details;
+		Details next = new Details(d.version + 1, projectName, neighborhood, type1, priceType1, type2, priceType2,
+				openDate, closeDate, d.manager);
+		details = next;
+		this.unitsType1.resize(unitsType1);
+		this.unitsType2.resize(unitsType2);
+		changed();
+		return next;
+	}
+
 	/**
 	 * Gets the project name.
 	 * 
 	 * @return The name of the project.
 	 */
 	public String getProjectName() {
-		return projectName;
+		return details.projectName;
 	}
 
 	/**
@@ -142,7 +343,7 @@ public class Project {
 	 * @return The neighborhood/location of this project.
 	 */
 	public String getNeighborhood() {
-		return neighborhood;
+		return details.neighborhood;
 	}
 
 	/**
@@ -151,7 +352,7 @@ public class Project {
 	 * @return The first flat type name.
 	 */
 	public String getType1() {
-		return type1;
+		return details.type1;
 	}
 
 	/**
@@ -160,7 +361,7 @@ public class Project {
 	 * @return The number of units for flat type 1.
 	 */
 	public int getUnitsType1() {
-		return unitsType1;
+		return unitsType1.getAvailable();
 	}
 
 	/**
@@ -169,7 +370,7 @@ public class Project {
 	 * @return The price of each unit of flat type 1.
 	 */
 	public double getPriceType1() {
-		return priceType1;
+		return details.priceType1;
 	}
 
 	/**
@@ -178,7 +379,7 @@ public class Project {
 	 * @return The second flat type name.
 	 */
 	public String getType2() {
-		return type2;
+		return details.type2;
 	}
 
 	/**
@@ -187,7 +388,7 @@ public class Project {
 	 * @return The number of units for flat type 2.
 	 */
 	public int getUnitsType2() {
-		return unitsType2;
+		return unitsType2.getAvailable();
 	}
 
 	/**
@@ -196,7 +397,7 @@ public class Project {
 	 * @return The price of each unit of flat type 2.
 	 */
 	public double getPriceType2() {
-		return priceType2;
+		return details.priceType2;
 	}
 
 	/**
@@ -205,7 +406,7 @@ public class Project {
 	 * @return The opening date (YYYY-MM-DD).
 	 */
 	public String getOpenDate() {
-		return openDate;
+		return details.openDate;
 	}
 
 	/**
@@ -214,7 +415,50 @@ public class Project {
 	 * @return The closing date (YYYY-MM-DD).
 	 */
 	public String getCloseDate() {
-		return closeDate;
+		return details.closeDate;
+	}
+
+	/**
+	 * Gets the application opening date as an epoch day.
+	 * 
+	 * @return The opening day, or {@link Long#MAX_VALUE} if the date is malformed.
+	 */
+	public long getOpenDay() {
+		return details.openDay;
+	}
+
+	/**
+	 * Gets the application closing date as an epoch day.
+	 * 
+	 * @return The closing day, or {@link Long#MIN_VALUE} if the date is malformed.
+	 */
+	public long getCloseDay() {
+		return details.closeDay;
+	}
+
+	/**
+	 * Returns whether the application window has valid dates in order.
+	 * 
+	 * @return {@code true} if the opening day is no later than the closing day.
+	 */
+	public boolean hasWindow() {
+		Details d = details;
+		return d.openDay <= d.closeDay;
+	}
+
+	/**
+	 * Parses a date (YYYY-MM-DD) into an epoch day.
+	 * 
+	 * @param date     The date.
+	 * @param fallback The value returned for a missing or malformed date.
+	 * @return The epoch day.
+	 */
+	public static long epochDay(String date, long fallback) {
+		try {
+			return date == null ? fallback : LocalDate.parse(date.trim()).toEpochDay();
+		} catch (DateTimeParseException e) {
+			return fallback;
+		}
 	}
 
 	/**
@@ -223,7 +467,7 @@ public class Project {
 	 * @return The manager's identifier (e.g., name or NRIC).
 	 */
 	public String getManager() {
-		return manager;
+		return details.manager;
 	}
 
 	/**
@@ -270,6 +514,50 @@ public class Project {
 	 */
 	public void toggleVisibility() {
 		visible = !visible;
+		changed();
+	}
+
+	/**
+	 * Sets whether the project is visible to applicants. Used when restoring a
+	 * saved project.
+	 * 
+	 * @param visible {@code true} to show the project, {@code false} to hide it.
+	 */
+	public void setVisible(boolean visible) {
+		this.visible = visible;
+		changed();
+	}
+
+	/**
+	 * Sets the listener told when the project is edited, its visibility changes
+	 * or one of its flat types sells out or has units again, replacing any
+	 * previous one. Used to invalidate cached project lists.
+	 * 
+	 * @param listener The listener, or {@code null} for none.
+	 */
+	public void setOnChange(Runnable listener) {
+		this.onChange = listener;
+		unitsType1.setOnStockChange(listener);
+		unitsType2.setOnStockChange(listener);
+	}
+
+	/**
+	 * Returns the listener set with {@link #setOnChange(Runnable)}.
+	 * 
+	 * @return The listener, or {@code null} if none is set.
+	 */
+	public Runnable getOnChange() {
+		return onChange;
+	}
+
+	/**
+	 * Tells the listener, if any, that the project changed.
+	 */
+	private void changed() {
+		Runnable listener = onChange;
+		if (listener != null) {
+			listener.run();
+		}
 	}
 
 	/**
@@ -281,27 +569,55 @@ public class Project {
 	}
 
 	/**
-	 * Decrements the count of units of type 1 by one.
-	 * <p>
-	 * This method reduces the {@code unitsType1} field by 1. It does not perform
-	 * any checks for negative values; if {@code unitsType1} is already zero or
-	 * negative, the resulting value may be less than zero.
-	 * </p>
+	 * Returns the unit inventory of a flat type offered by this project.
+	 * 
+	 * @param flatType The flat type name, in any case.
+	 * @return The {@link UnitInventory} of that flat type, or {@code null} if the
+	 *         project does not offer it.
+	 */
+	public UnitInventory getInventory(String flatType) {
+		Details d = details;
+		if (flatType.equalsIgnoreCase(d.type1)) {
+			return unitsType1;
+		} else if (flatType.equalsIgnoreCase(d.type2)) {
+			return unitsType2;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the selling price of a flat type offered by this project.
+	 * 
+	 * @param flatType The flat type name, in any case.
+	 * @return The price of each unit, or {@code 0} if the project does not offer
+	 *         the flat type.
 	 */
-	public void decrementUnitsType1() {
-		unitsType1--;
+	public double getPrice(String flatType) {
+		Details d = details;
+		if (flatType.equalsIgnoreCase(d.type1)) {
+			return d.priceType1;
+		} else if (flatType.equalsIgnoreCase(d.type2)) {
+			return d.priceType2;
+		}
+		return 0;
 	}
 
 	/**
-	 * Decrements the count of units of type 2 by one.
-	 * <p>
-	 * This method reduces the {@code unitsType2} field by 1. It does not perform
-	 * any checks for negative values; if {@code unitsType2} is already zero or
-	 * negative, the resulting value may be less than zero.
-	 * </p>
+	 * Returns the unit inventory of the first flat type.
+	 * 
+	 * @return The {@link UnitInventory} of flat type 1.
 	 */
-	public void decrementUnitsType2() {
-		unitsType2--;
+	public UnitInventory getInventoryType1() {
+		return unitsType1;
+	}
+
+	/**
+	 * Returns the unit inventory of the second flat type.
+	 * 
+	 * @return The {@link UnitInventory} of flat type 2.
+	 */
+	public UnitInventory getInventoryType2() {
+		return unitsType2;
 	}
 
 	/**
@@ -313,12 +629,13 @@ public class Project {
 	 */
 	@Override
 	public String toString() {
+		Details d = details;
 		return String.format(
 				"Project: %s%n" + "  Neighborhood: %s%n" + "  Flat Types:%n" + "    • %s – %d units @ $%.2f%n"
 						+ "    • %s – %d units @ $%.2f%n" + "  Application Window: %s to %s%n" + "  Manager: %s%n"
 						+ "  Officer Slot: %d – %s%n" + "  Visible: %b",
-				projectName, neighborhood, type1, unitsType1, priceType1, type2, unitsType2, priceType2, openDate,
-				closeDate, manager, officerSlot, officer, visible);
+				d.projectName, d.neighborhood, d.type1, getUnitsType1(), d.priceType1, d.type2, getUnitsType2(),
+				d.priceType2, d.openDate, d.closeDate, d.manager, officerSlot, officer, visible);
 	}
 
 	/**
@@ -341,11 +658,12 @@ public class Project {
 	 *         </pre>
 	 */
 	public String toStringSingle() {
+		Details d = details;
 		return String.format(
 				"Project: %s%n" + "  Neighborhood: %s%n" + "  Flat Types:%n" + "    • %s – %d units @ $%.2f%n"
 						+ "  Application Window: %s to %s%n" + "  Manager: %s%n" + "  Officer Slot: %d – %s%n"
 						+ "  Visible: %b",
-				projectName, neighborhood, type1, unitsType1, priceType1, openDate, closeDate, manager, officerSlot,
-				officer, visible);
+				d.projectName, d.neighborhood, d.type1, getUnitsType1(), d.priceType1, d.openDate, d.closeDate, d.manager,
+				officerSlot, officer, visible);
 	}
 }
@@ -26,7 +26,7 @@ public class Registration {
 	/** The project that the officer wants to handle. */
 	private Project project;
 	/** The current status of this registration request. */
-	private Status status;
+	private volatile Status status;
 
 	/**
 	 * Constructs a new Registration for an officer and a project. The status is
@@ -0,0 +1,261 @@
+package edu.ntu.bto.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Units of one flat type in a project, counted as available, held or booked.
+ * An approved application places a hold with {@link #tryHold()}, which booking
+ * later turns into a sale with {@link #confirmHold()}; a lapsed or withdrawn
+ * hold is returned with {@link #releaseHold()}. Units can also be booked
+ * directly with {@link #tryReserve()} and given back with {@link #release()}.
+ * <p>
+ * Units only ever leave the available count through a lock-free
+ * compare-and-set that never drops below zero, so any number of officers and
+ * managers can work at the same time without overselling. When two requests
+ * race for the last unit, exactly one of them wins. The three counts are
+ * updated one after another, so a reader may briefly see a unit in neither or
+ * both of two counts. A listener set with {@link #setOnStockChange(Runnable)}
+ * is told whenever the last available unit is taken or the first one returns.
+ * </p>
+ * <p>
+ * The total number of units only changes through {@link #resize(int)}, which
+ * adds the difference to the available count with the same compare-and-set, so
+ * a resize racing with holds and bookings neither loses nor invents units.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class UnitInventory {
+	/** Units neither held nor booked. */
+	private final AtomicInteger available;
+	/** Units held for approved applications. */
+	private final AtomicInteger held = new AtomicInteger();
+	/** Units booked. */
+	private final AtomicInteger booked = new AtomicInteger();
+	/** Units in all, whether available, held or booked. */
+	private volatile int total;
+	/** Told when the type sells out or units become available again, or {@code null}. */
+	private volatile Runnable onStockChange;
+
+	/**
+	 * Creates an inventory.
+	 *
+	 * @param units The initial number of available units; negative values are
+	 *              treated as zero.
+	 */
+	public UnitInventory(int units) {
+		this.available = new AtomicInteger(Math.max(0, units));
+		this.total = available.get();
+	}
+
+	/**
+	 * Takes one available unit if any is left.
+	 *
+	 * @return {@code true} if a unit was taken, {@code false} if none was left.
+	 */
+	private boolean take() {
+		while (true) {
+			int units = available.get();
+			if (units <= 0) {
+				return false;
+			}
+			if (available.compareAndSet(units, units - 1)) {
+				if (units == 1) {
+					stockChanged();
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Books one available unit directly, without a hold.
+	 *
+	 * @return {@code true} if a unit was booked, {@code false} if none was left.
+	 */
+	public boolean tryReserve() {
+		if (!take()) {
+			return false;
+		}
+		booked.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Gives back one unit booked with {@link #tryReserve()} or
+	 * {@link #confirmHold()}.
+	 */
+	public void release() {
+		booked.decrementAndGet();
+		if (available.incrementAndGet() == 1) {
+			stockChanged();
+		}
+	}
+
+	/**
+	 * Holds one available unit for an approved application.
+	 *
+	 * @return {@code true} if a unit was held, {@code false} if none was left.
+	 */
+	public boolean tryHold() {
+		if (!take()) {
+			return false;
+		}
+		held.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Returns one unit held with {@link #tryHold()} to the available count.
+	 */
+	public void releaseHold() {
+		held.decrementAndGet();
+		if (available.incrementAndGet() == 1) {
+			stockChanged();
+		}
+	}
+
+	/**
+	 * Books one unit held with {@link #tryHold()}.
+	 */
+	public void confirmHold() {
+		held.decrementAndGet();
+		booked.incrementAndGet();
+	}
+
+	/**
+	 * Changes the total number of units, for example when a manager edits the
+	 * project. The difference from the current total is added to or taken from
+	 * the available units; held and booked units are never removed, so the
+	 * total stays above the one asked for if too few units are available.
+	 * Resizes must not run concurrently with each other; the project's lock
+	 * serializes them.
+	 *
+	 * @param units The new total number of units; negative values are treated
+	 *              as zero.
+	 * @return The total number of units afterwards.
+	 */
+	public int resize(int units) {
+		int delta = Math.max(0, units) - total;
+		if (delta == 0) {
+			return total;
+		}
+		while (true) {
+			int before = available.get();
+			int after = Math.max(0, before + delta);
+			if (available.compareAndSet(before, after)) {
+				total += after - before;
+				if ((before == 0) != (after == 0)) {
+					stockChanged();
+				}
+				return total;
+			}
+		}
+	}
+
+	/**
+	 * Sets the listener told when the available count drops to zero or rises
+	 * from zero, replacing any previous one.
+	 *
+	 * @param listener The listener, or {@code null} for none.
+	 */
+	public void setOnStockChange(Runnable listener) {
+		this.onStockChange = listener;
+	}
+
+	/**
+	 * Tells the listener, if any, that the type sold out or has units again.
+	 */
+	private void stockChanged() {
+		Runnable listener = onStockChange;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Sets the booked count of an inventory just restored from a saved state,
+	 * which stores the booked units apart from the unbooked ones used to create
+	 * it; the total becomes the sum of the two.
+	 *
+	 * @param units The number of booked units.
+	 */
+	public void restoreBooked(int units) {
+		booked.set(units);
+		total = available.get() + held.get() + units;
+	}
+
+	/**
+	 * Corrects the booked count to the number of booked applications once the
+	 * state has been restored and the journal replayed, keeping the total: any
+	 * difference is taken from or given back to the available units. Should more
+	 * units be booked than the type has, the total grows to cover them so the
+	 * counts stay consistent.
+	 *
+	 * @param units The number of booked applications of the type.
+	 */
+	public void recountBooked(int units) {
+		int before = booked.getAndSet(units);
+		int after = available.addAndGet(before - units);
+		if (after < 0) {
+			available.set(0);
+			total -= after;
+		}
+	}
+
+	/**
+	 * Returns the number of units available right now.
+	 *
+	 * @return The available unit count.
+	 */
+	public int getAvailable() {
+		return available.get();
+	}
+
+	/**
+	 * Returns the number of units held right now.
+	 *
+	 * @return The held unit count.
+	 */
+	public int getHeld() {
+		return held.get();
+	}
+
+	/**
+	 * Returns the number of units booked.
+	 *
+	 * @return The booked unit count.
+	 */
+	public int getBooked() {
+		return booked.get();
+	}
+
+	/**
+	 * Returns the number of units in all, whether available, held or booked.
+	 *
+	 * @return The total unit count.
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of units not booked, whether available or held. This is
+	 * the count saved with the project, since holds are placed again on restore.
+	 *
+	 * @return The unbooked unit count.
+	 */
+	public int getUnbooked() {
+		return available.get() + held.get();
+	}
+
+	/**
+	 * Returns the three counts as text.
+	 *
+	 * @return The available, held and booked counts.
+	 */
+	@Override
+	public String toString() {
+		return available.get() + " available, " + held.get() + " held, " + booked.get() + " booked";
+	}
+}
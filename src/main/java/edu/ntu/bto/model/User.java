@@ -18,7 +18,7 @@ public abstract class User {
 	/** Marital status of this user (e.g., "Single" or "Married"). */
 	protected String maritalStatus;
 	/** Password for this user's account (default is "password"). */
-	protected String password;
+	protected volatile String password;
 
 	/**
 	 * Constructs a new User with the given NRIC, age, and marital status. The
@@ -89,6 +89,16 @@ public abstract class User {
 		return password.equals(pw);
 	}
 
+	/**
+	 * Returns this user's password so the account can be persisted in a snapshot.
+	 * Use {@link #checkPassword(String)} to verify a login attempt.
+	 * 
+	 * @return The current password.
+	 */
+	public String getPassword() {
+		return password;
+	}
+
 	/**
 	 * Sets a new password for this user.
 	 * 
@@ -1,21 +1,47 @@
 package edu.ntu.bto.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import edu.ntu.bto.control.ProjectControl;
+import edu.ntu.bto.control.ProjectSearch;
+import edu.ntu.bto.control.ReportEngine;
 import edu.ntu.bto.control.ApplicationControl;
+import edu.ntu.bto.control.BookingStatistics;
 import edu.ntu.bto.control.OfficerControl;
 import edu.ntu.bto.control.ManagerControl;
 import edu.ntu.bto.control.EnquiryControl;
+import edu.ntu.bto.control.PendingWork;
+import edu.ntu.bto.control.EligibilityRules;
+import edu.ntu.bto.control.HoldControl;
+import edu.ntu.bto.control.WindowIndex;
 import edu.ntu.bto.model.*;
-import edu.ntu.bto.util.DataLoader;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.LongObjectHashMap;
+import edu.ntu.bto.util.NricCodec;
+import edu.ntu.bto.util.Snapshot;
+import edu.ntu.bto.util.StripedLocks;
 
 /**
  * Main system class that initializes and ties together users, projects, and
  * control classes. The BTOManagementSystem loads data for users and projects
  * from files, maintains central lists of these objects, and provides methods
  * for user login and access to control components.
+ * <p>
+ * One system is shared by every session. The central collections are
+ * concurrent (copy-on-write lists for the rarely changed users, projects and
+ * registrations, lock-free queues for applications and enquiries), and the
+ * controls serialize conflicting updates through a shared {@link StripedLocks}.
+ * </p>
  * 
  * @author SC2002 Assignment Group
  */
@@ -25,16 +51,45 @@ public class BTOManagementSystem {
 	 * system.
 	 */
 	private List<User> users;
+	/**
+	 * Users keyed by encoded NRIC, for constant-time login. When an NRIC appears
+	 * more than once, the first user loaded owns it.
+	 */
+	private final LongObjectHashMap<User> usersByNric = new LongObjectHashMap<>();
 	/** Master list of all projects in the system. */
 	private List<Project> projects;
-	/** Master list of all applications made in the system. */
-	private List<Application> applications;
+	/** All applications made in the system, indexed. */
+	private ApplicationStore applications;
 	/** Master list of all officer registration requests in the system. */
 	private List<Registration> registrations;
-	/** Master list of all enquiries submitted in the system. */
-	private List<Enquiry> enquiries;
+	/** All enquiries submitted in the system. */
+	private Collection<Enquiry> enquiries;
+	/** Locks shared by the controls to serialize updates per applicant, project and officer. */
+	private final StripedLocks locks = new StripedLocks();
+	/** Directory holding the data files and the snapshot. */
+	private static final Path DATA_DIR = Paths.get("data");
+	/** Binary snapshot of the full system state, written on shutdown. */
+	private static final Path SNAPSHOT_FILE = DATA_DIR.resolve("bto.snapshot");
+	/** Directory of write-ahead journal segments for mutations since the snapshot. */
+	private static final Path JOURNAL_DIR = DATA_DIR.resolve("journal");
+	/** Flat eligibility rules, reloaded when edited. */
+	private static final Path RULES_FILE = DATA_DIR.resolve("eligibility.properties");
+	/** Journal LSN reflected in the restored snapshot, or 0 if none. */
+	private long snapshotLsn;
+	/** Journal recording every mutation made through the controls. */
+	private final Journal journal;
+	/** Background checkpointing of the journal into the snapshot. */
+	private final Checkpointer checkpointer;
+	/** Unit holds of successful applications. */
+	private final HoldControl hc;
+	/** Who may apply for which flat type. */
+	private final EligibilityRules rules;
+	/** Application windows by manager and officer. */
+	private final WindowIndex windows;
 	/** Control component for project-related operations. */
 	private final ProjectControl pc;
+	/** Multi-criteria search over the projects. */
+	private final ProjectSearch search;
 	/** Control component for application-related operations. */
 	private final ApplicationControl ac;
 	/** Control component for officer registration operations. */
@@ -43,45 +98,266 @@ public class BTOManagementSystem {
 	private final ManagerControl mc;
 	/** Control component for enquiry-related operations. */
 	private final EnquiryControl ec;
+	/** The managers' queues of registrations, applications and withdrawals to decide. */
+	private final PendingWork pending;
+	/** Decides pending applications by ballot once a project closes. */
+	private final BallotEngine ballot;
+	/** Booking counts and values, kept current as flats are booked. */
+	private final BookingStatistics stats;
+	/** Writes reports to workbooks in the background. */
+	private final ReportExporter exporter;
 
 	/**
 	 * Constructs the BTOManagementSystem, loading initial data and initializing
-	 * control classes. User data (applicants, officers, managers) and project data
-	 * are loaded from predefined files. The system then creates control objects for
-	 * managing projects, applications, officer registrations, manager actions, and
-	 * enquiries.
+	 * control classes. If a snapshot exists, the full system state is restored
+	 * from it. Otherwise user data (applicants, officers, managers) and project
+	 * data are imported in parallel from the predefined files by a
+	 * {@link DataBootstrap}. Mutations recorded in the journal after the loaded
+	 * state are then replayed and the journal is opened for new mutations. Data
+	 * files changed since the snapshot was written only add the users and
+	 * projects the snapshot does not have; see
+	 * {@link #mergeMasterData(List, List, List, List)}. Finally background
+	 * checkpointing is started, the control objects for managing projects,
+	 * applications, officer registrations, manager actions, and enquiries are
+	 * created, and units are held again for successful applications.
+	 *
+	 * @throws IllegalStateException if a required data file cannot be loaded, the
+	 *                               snapshot exists but cannot be read, or the
+	 *                               journal cannot be opened.
 	 */
 	public BTOManagementSystem() {
-		users = new ArrayList<>();
-		projects = new ArrayList<>();
-		applications = new ArrayList<>();
-		registrations = new ArrayList<>();
-		enquiries = new ArrayList<>();
-
-		// File names – DataLoader expects these in the "data" folder.
-		String applicantFile = "ApplicantList.xlsx";
-		String managerFile = "ManagerList.xlsx";
-		String officerFile = "OfficerList.xlsx";
-		String projectFile = "ProjectList.xlsx";
-
-		// Load users.
-		users.addAll(DataLoader.loadApplicants(applicantFile));
-		users.addAll(DataLoader.loadManagers(managerFile));
-		users.addAll(DataLoader.loadOfficers(officerFile));
-
-		// Load projects.
-		projects.addAll(DataLoader.loadProjects(projectFile));
+		users = new CopyOnWriteArrayList<>();
+		projects = new CopyOnWriteArrayList<>();
+		applications = new ApplicationStore();
+		registrations = new CopyOnWriteArrayList<>();
+		enquiries = new ConcurrentLinkedQueue<>();
+
+		boolean restored = restoreSnapshot();
+		if (!restored) {
+			// Load users and projects.
+			DataBootstrap bootstrap = new DataBootstrap();
+			bootstrap.run();
+			users.addAll(bootstrap.getUsers());
+			projects.addAll(bootstrap.getProjects());
+		}
+
+		// Replay mutations made since the loaded state, then reopen for appends.
+		long t0 = System.nanoTime();
+		JournalReplayer replayer = new JournalReplayer(users, projects, applications, registrations, enquiries,
+				snapshotLsn);
+		try {
+			Journal.replay(JOURNAL_DIR, replayer::apply);
+			journal = new Journal(JOURNAL_DIR, snapshotLsn);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to open journal " + JOURNAL_DIR + ": " + e.getMessage(), e);
+		}
+		long replayMillis = (System.nanoTime() - t0) / 1_000_000;
+		System.out.println("Bootstrap: replayed " + replayer.getApplied() + " journal records ("
+				+ replayer.getSkipped() + " skipped) from " + journal.getSegmentCount() + " segment(s) in "
+				+ replayMillis + " ms");
+		if (restored) {
+			mergeNewerDataFiles();
+		}
+		indexUsers();
+		checkpointer = new Checkpointer(journal, SNAPSHOT_FILE, () -> Snapshot.freeze(users, projects,
+				applications, registrations, enquiries, journal.getLastLsn()), snapshotLsn);
+		checkpointer.recordReplay(replayer.getApplied(), replayMillis);
 
 		// Setup control
-		pc = new ProjectControl(projects);
-		ac = new ApplicationControl(applications);
-		oc = new OfficerControl(registrations);
-		mc = new ManagerControl(projects, applications, registrations);
-		ec = new EnquiryControl(enquiries);
+		t0 = System.nanoTime();
+		hc = new HoldControl();
+		hc.restore(projects, applications);
+		rules = new EligibilityRules(RULES_FILE);
+		pc = new ProjectControl(projects, locks, rules, journal);
+		search = new ProjectSearch(pc);
+		pending = new PendingWork(registrations, applications);
+		ac = new ApplicationControl(applications, journal, locks, hc, rules, pending);
+		windows = new WindowIndex(projects, registrations);
+		oc = new OfficerControl(registrations, journal, locks, windows, pending);
+		mc = new ManagerControl(projects, applications, registrations, journal, locks, hc, pc, windows,
+				new ReportEngine(applications, pc));
+		ec = new EnquiryControl(enquiries, journal, locks);
+		ballot = new BallotEngine(mc, applications);
+		stats = new BookingStatistics(applications);
+		exporter = new ReportExporter(this);
+		System.out.println("Bootstrap: controls " + (System.nanoTime() - t0) / 1_000_000 + " ms");
 
 		System.out.println("Data loaded: " + users.size() + " users, " + projects.size() + " projects.");
 	}
 
+	/**
+	 * Builds the NRIC index over the loaded users. Duplicate NRICs, for example
+	 * the same person listed as both applicant and officer, are reported; the user
+	 * loaded first keeps the NRIC and the others cannot log in.
+	 */
+	private void indexUsers() {
+		int duplicates = 0;
+		for (User u : users) {
+			long key = NricCodec.encode(u.getNric());
+			if (key == NricCodec.INVALID) {
+				System.err.println("Malformed NRIC " + u.getNric() + ": user cannot log in");
+				continue;
+			}
+			User existing = usersByNric.putIfAbsent(key, u);
+			if (existing != null) {
+				duplicates++;
+				System.err.println("Duplicate NRIC " + u.getNric() + ": " + u.getClass().getSimpleName()
+						+ " ignored, already loaded as " + existing.getClass().getSimpleName());
+			}
+		}
+		System.out.println("Bootstrap: indexed " + usersByNric.size() + " users (" + duplicates
+				+ " duplicate NRICs)");
+	}
+
+	/**
+	 * Restores all lists from the snapshot file if it is present. Every section
+	 * is decoded here, since the controls index the whole state. A snapshot that
+	 * exists but cannot be read stops the start: it holds applications,
+	 * registrations, enquiries and passwords that the data files do not, and the
+	 * journal only covers the changes made after it, so starting over from the
+	 * data files would silently lose them, and the next checkpoint would
+	 * overwrite the snapshot.
+	 *
+	 * @return {@code true} if the state was restored from the snapshot,
+	 *         {@code false} if there is no snapshot.
+	 * @throws IllegalStateException if the snapshot cannot be read.
+	 */
+	private boolean restoreSnapshot() {
+		long t0 = System.nanoTime();
+		try (Snapshot snapshot = Snapshot.openIfPresent(SNAPSHOT_FILE)) {
+			if (snapshot == null) {
+				return false;
+			}
+			List<User> u = snapshot.readUsers();
+			List<Project> p = snapshot.readProjects();
+			List<Application> a = snapshot.readApplications();
+			List<Registration> r = snapshot.readRegistrations();
+			List<Enquiry> e = snapshot.readEnquiries();
+			users.addAll(u);
+			projects.addAll(p);
+			applications.addAll(a);
+			registrations.addAll(r);
+			enquiries.addAll(e);
+			snapshotLsn = snapshot.getJournalLsn();
+			System.out.println("Bootstrap: restored snapshot in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+			return true;
+		} catch (IOException | RuntimeException e) {
+			throw new IllegalStateException("Unable to restore snapshot " + SNAPSHOT_FILE + ": " + e.getMessage()
+					+ ". It holds state the data files do not; repair it, or move it aside to start over from the"
+					+ " data files.", e);
+		}
+	}
+
+	/**
+	 * Adds the users and projects of data files changed since the snapshot was
+	 * written. The restored state stays authoritative: users and projects it
+	 * already has keep their saved passwords, units, visibility and so on, and
+	 * their applications, registrations and enquiries are untouched.
+	 *
+	 * @throws IllegalStateException if a changed data file cannot be loaded.
+	 */
+	private void mergeNewerDataFiles() {
+		List<Path> sources = new ArrayList<>();
+		for (DataBootstrap.DataFile file : DataBootstrap.DataFile.values()) {
+			sources.add(DATA_DIR.resolve(file.getFileName()));
+		}
+		List<Path> newer;
+		try {
+			newer = Snapshot.newerSources(SNAPSHOT_FILE, sources);
+		} catch (IOException e) {
+			System.err.println("Unable to compare data files with the snapshot: " + e.getMessage());
+			return;
+		}
+		if (newer.isEmpty()) {
+			return;
+		}
+		System.out.println("Data files newer than the snapshot: " + newer + "; adding their new users and projects.");
+		DataBootstrap bootstrap = new DataBootstrap();
+		bootstrap.run();
+		int[] added = mergeMasterData(users, projects, bootstrap.getUsers(), bootstrap.getProjects());
+		System.out.println("Bootstrap: merged " + added[0] + " new users and " + added[1]
+				+ " new projects; existing ones keep their saved state");
+	}
+
+	/**
+	 * Adds imported users and projects that are not in the restored state yet.
+	 * Users are matched by NRIC and projects by name, both ignoring case; the
+	 * restored ones win.
+	 *
+	 * @param users            The restored users, to add to.
+	 * @param projects         The restored projects, to add to.
+	 * @param importedUsers    The users imported from the data files.
+	 * @param importedProjects The projects imported from the data files.
+	 * @return The number of users added, then the number of projects added.
+	 */
+	static int[] mergeMasterData(List<User> users, List<Project> projects, List<User> importedUsers,
+			List<Project> importedProjects) {
+		Set<String> nrics = new HashSet<>();
+		for (User u : users) {
+			nrics.add(u.getNric().toUpperCase(Locale.ROOT));
+		}
+		Set<String> names = new HashSet<>();
+		for (Project p : projects) {
+			names.add(p.getProjectName().toLowerCase(Locale.ROOT));
+		}
+		int addedUsers = 0;
+		for (User u : importedUsers) {
+			if (nrics.add(u.getNric().toUpperCase(Locale.ROOT))) {
+				users.add(u);
+				addedUsers++;
+			}
+		}
+		int addedProjects = 0;
+		for (Project p : importedProjects) {
+			if (names.add(p.getProjectName().toLowerCase(Locale.ROOT))) {
+				projects.add(p);
+				addedProjects++;
+			}
+		}
+		return new int[] { addedUsers, addedProjects };
+	}
+
+	/**
+	 * Writes the current state of the system to the snapshot file so the next
+	 * start can skip the spreadsheet import, and discards the journal segments it
+	 * covers. Mutations may continue while the snapshot is written.
+	 *
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	public void saveSnapshot() throws IOException {
+		long t0 = System.nanoTime();
+		checkpointer.checkpoint();
+		System.out.println("Snapshot saved in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+	}
+
+	/**
+	 * Shuts the system down: queued report exports are finished, the hold timer
+	 * and background checkpointing are stopped, a final snapshot of the state is saved, the journal is closed and
+	 * the segments the snapshot covers are discarded. If the snapshot cannot be written the journal
+	 * is kept so no work is lost. Errors are reported rather than thrown since this
+	 * runs from a shutdown hook.
+	 */
+	public void shutdown() {
+		exporter.close();
+		hc.close();
+		try {
+			checkpointer.shutdown();
+			System.out.println(checkpointer);
+		} catch (IOException e) {
+			System.err.println("Unable to save snapshot: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the background checkpointer, which also exposes the persistence
+	 * metrics.
+	 *
+	 * @return The {@link Checkpointer} for this system.
+	 */
+	public Checkpointer getCheckpointer() {
+		return checkpointer;
+	}
+
 	/**
 	 * Returns the list of all projects.
 	 * 
@@ -101,6 +377,24 @@ public class BTOManagementSystem {
 		return users;
 	}
 
+	/**
+	 * Returns the HoldControl instance.
+	 * 
+	 * @return The {@link HoldControl} for this system.
+	 */
+	public HoldControl getHoldControl() {
+		return hc;
+	}
+
+	/**
+	 * Returns the eligibility rules.
+	 * 
+	 * @return The {@link EligibilityRules} for this system.
+	 */
+	public EligibilityRules getEligibilityRules() {
+		return rules;
+	}
+
 	/**
 	 * Returns the ProjectControl instance.
 	 * 
@@ -110,6 +404,51 @@ public class BTOManagementSystem {
 		return pc;
 	}
 
+	/**
+	 * Returns the index of application windows.
+	 * 
+	 * @return The {@link WindowIndex} for this system.
+	 */
+	public WindowIndex getWindowIndex() {
+		return windows;
+	}
+
+	/**
+	 * Returns the PendingWork instance.
+	 * 
+	 * @return The {@link PendingWork} for this system.
+	 */
+	public PendingWork getPendingWork() {
+		return pending;
+	}
+
+	/**
+	 * Returns the BookingStatistics instance.
+	 * 
+	 * @return The {@link BookingStatistics} for this system.
+	 */
+	public BookingStatistics getBookingStatistics() {
+		return stats;
+	}
+
+	/**
+	 * Returns the ReportExporter instance.
+	 * 
+	 * @return The {@link ReportExporter} for this system.
+	 */
+	public ReportExporter getReportExporter() {
+		return exporter;
+	}
+
+	/**
+	 * Returns the ProjectSearch instance.
+	 * 
+	 * @return The {@link ProjectSearch} for this system.
+	 */
+	public ProjectSearch getProjectSearch() {
+		return search;
+	}
+
 	/**
 	 * Returns the ApplicationControl instance.
 	 * 
@@ -147,8 +486,64 @@ public class BTOManagementSystem {
 	}
 
 	/**
-	 * Authenticates a user given an NRIC and password. This method searches through
-	 * all users and returns the matching user if the credentials are correct.
+	 * Returns the BallotEngine instance.
+	 * 
+	 * @return The {@link BallotEngine} for this system.
+	 */
+	public BallotEngine getBallotEngine() {
+		return ballot;
+	}
+
+	/**
+	 * Returns the user with the given NRIC.
+	 *
+	 * @param nric The NRIC, in any case.
+	 * @return The {@link User}, or {@code null} if there is none or the NRIC is
+	 *         malformed.
+	 */
+	public User getUserByNric(String nric) {
+		return usersByNric.get(NricCodec.encode(nric));
+	}
+
+	/**
+	 * Adds a user to the system and the NRIC index.
+	 *
+	 * @param user The user to add.
+	 * @return {@code true} if the user was added, or {@code false} if the NRIC is
+	 *         malformed or another user already has it.
+	 */
+	public boolean addUser(User user) {
+		long key = NricCodec.encode(user.getNric());
+		if (key == NricCodec.INVALID || usersByNric.putIfAbsent(key, user) != null) {
+			return false;
+		}
+		users.add(user);
+		return true;
+	}
+
+	/**
+	 * Changes a user's password and records the change in the journal, so the
+	 * new password survives a restart.
+	 *
+	 * @param user  The user.
+	 * @param newPw The new password.
+	 */
+	@SuppressWarnings("try")
+	public void changePassword(User user, String newPw) {
+		long lsn;
+		journal.beginMutation();
+		try (StripedLocks.Guard ignored = locks.lock(user)) {
+			user.changePassword(newPw);
+			lsn = journal.write(Journal.Type.PASSWORD, user.getNric(), newPw);
+		} finally {
+			journal.endMutation();
+		}
+		journal.awaitDurable(lsn);
+	}
+
+	/**
+	 * Authenticates a user given an NRIC and password. The user is looked up in
+	 * the NRIC index and returned if the password matches.
 	 * 
 	 * @param nric     The NRIC entered by the user.
 	 * @param password The password entered by the user.
@@ -156,11 +551,7 @@ public class BTOManagementSystem {
 	 *         matching user is found or password is incorrect.
 	 */
 	public User login(String nric, String password) {
-		for (User u : users) {
-			if (u.getNric().equalsIgnoreCase(nric) && u.checkPassword(password)) {
-				return u;
-			}
-		}
-		return null;
+		User u = getUserByNric(nric);
+		return u != null && u.checkPassword(password) ? u : null;
 	}
 }
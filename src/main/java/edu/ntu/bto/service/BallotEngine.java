@@ -0,0 +1,275 @@
+package edu.ntu.bto.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import edu.ntu.bto.control.ManagerControl;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.UnitInventory;
+
+/**
+ * Decides the pending applications of projects whose application window has
+ * closed by ballot, instead of one y/n prompt per application.
+ * <p>
+ * For each flat type of a project, the pending applications are ordered by
+ * NRIC and shuffled with a partial Fisher-Yates permutation that stops once as
+ * many applicants have been drawn as there are units available. The random
+ * generator is seeded from {@code bto.ballot.seed} (default 2002), the project
+ * name and the flat type, so the same entries always give the same draw. The
+ * drawn applications are approved and the rest rejected in one batch through
+ * {@link ManagerControl#decideApplications}, which journals the outcome
+ * together and waits once for it to be durable. Projects are balloted in
+ * parallel on the common fork/join pool; the journal's durability wait is a
+ * {@link ForkJoinPool.ManagedBlocker}, so the pool makes up for workers blocked
+ * on it.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class BallotEngine {
+	/**
+	 * The outcome of the ballot for one flat type of a project.
+	 */
+	public static final class Result {
+		/** The project balloted. */
+		private final Project project;
+		/** The flat type balloted. */
+		private final String flatType;
+		/** Number of pending applications entered in the ballot. */
+		private final int entries;
+		/** Number of units available when the ballot was drawn. */
+		private final int units;
+		/** Number of applications approved. */
+		private final int successful;
+		/** Number of applications rejected. */
+		private final int unsuccessful;
+		/** Time taken to draw and apply the ballot, in milliseconds. */
+		private final long millis;
+
+		/**
+		 * Creates a result.
+		 *
+		 * @param project      The project balloted.
+		 * @param flatType     The flat type balloted.
+		 * @param entries      Number of applications entered.
+		 * @param units        Number of units available.
+		 * @param successful   Number of applications approved.
+		 * @param unsuccessful Number of applications rejected.
+		 * @param millis       Time taken, in milliseconds.
+		 */
+		private Result(Project project, String flatType, int entries, int units, int successful, int unsuccessful,
+				long millis) {
+			this.project = project;
+			this.flatType = flatType;
+			this.entries = entries;
+			this.units = units;
+			this.successful = successful;
+			this.unsuccessful = unsuccessful;
+			this.millis = millis;
+		}
+
+		/**
+		 * Returns the project balloted.
+		 *
+		 * @return The {@link Project}.
+		 */
+		public Project getProject() {
+			return project;
+		}
+
+		/**
+		 * Returns the flat type balloted.
+		 *
+		 * @return The flat type name.
+		 */
+		public String getFlatType() {
+			return flatType;
+		}
+
+		/**
+		 * Returns the number of applications approved.
+		 *
+		 * @return The successful count.
+		 */
+		public int getSuccessful() {
+			return successful;
+		}
+
+		/**
+		 * Returns the number of applications rejected.
+		 *
+		 * @return The unsuccessful count.
+		 */
+		public int getUnsuccessful() {
+			return unsuccessful;
+		}
+
+		/**
+		 * Returns the time taken to draw and apply the ballot.
+		 *
+		 * @return The time in milliseconds.
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * Returns a one-line summary of the ballot.
+		 *
+		 * @return The summary.
+		 */
+		@Override
+		public String toString() {
+			return String.format("%s, %s: %d entries for %d units, %d successful, %d unsuccessful (%d ms)",
+					project.getProjectName(), flatType, entries, units, successful, unsuccessful, millis);
+		}
+	}
+
+	/** Applies the outcomes. */
+	private final ManagerControl mc;
+	/** All applications, indexed. */
+	private final ApplicationStore applications;
+	/** Seed shared by every ballot. */
+	private final long seed;
+
+	/**
+	 * Constructs a BallotEngine seeded from {@code bto.ballot.seed}.
+	 *
+	 * @param mc           The {@link ManagerControl} that approves and rejects
+	 *                     applications.
+	 * @param applications The {@link ApplicationStore} of all applications.
+	 */
+	public BallotEngine(ManagerControl mc, ApplicationStore applications) {
+		this(mc, applications, Long.getLong("bto.ballot.seed", 2002));
+	}
+
+	/**
+	 * Constructs a BallotEngine.
+	 *
+	 * @param mc           The {@link ManagerControl} that approves and rejects
+	 *                     applications.
+	 * @param applications The {@link ApplicationStore} of all applications.
+	 * @param seed         The seed shared by every ballot.
+	 */
+	public BallotEngine(ManagerControl mc, ApplicationStore applications, long seed) {
+		this.mc = mc;
+		this.applications = applications;
+		this.seed = seed;
+	}
+
+	/**
+	 * Ballots the pending applications of every given project whose closing date
+	 * is before {@code today}.
+	 *
+	 * @param projects The projects to consider.
+	 * @param today    The current date.
+	 * @return One {@link Result} per project and flat type with pending
+	 *         applications, in the order of {@code projects}.
+	 */
+	public List<Result> run(Collection<Project> projects, LocalDate today) {
+		List<ProjectBallot> tasks = new ArrayList<>();
+		for (Project p : projects) {
+			if (p.hasWindow() && p.getCloseDay() < today.toEpochDay()) {
+				List<Application> entries = applications.getByProjectAndStatus(p, Application.Status.PENDING);
+				if (!entries.isEmpty()) {
+					tasks.add(new ProjectBallot(p, entries));
+				}
+			}
+		}
+		return ForkJoinPool.commonPool().invoke(new RecursiveTask<List<Result>>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected List<Result> compute() {
+				List<Result> results = new ArrayList<>();
+				for (ProjectBallot task : ForkJoinTask.invokeAll(tasks)) {
+					results.addAll(task.join());
+				}
+				return results;
+			}
+		});
+	}
+
+	/**
+	 * Ballots the pending applications of one project, one flat type after
+	 * another.
+	 */
+	private final class ProjectBallot extends RecursiveTask<List<Result>> {
+		/** Serialization version. */
+		private static final long serialVersionUID = 1L;
+		/** The project. */
+		private final Project project;
+		/** Its pending applications. */
+		private final List<Application> entries;
+
+		/**
+		 * Creates the task.
+		 *
+		 * @param project The project.
+		 * @param entries Its pending applications.
+		 */
+		ProjectBallot(Project project, List<Application> entries) {
+			this.project = project;
+			this.entries = entries;
+		}
+
+		/**
+		 * Groups the applications by flat type and draws each group.
+		 *
+		 * @return The results, one per flat type.
+		 */
+		@Override
+		protected List<Result> compute() {
+			Map<String, List<Application>> byType = new HashMap<>();
+			for (Application app : entries) {
+				UnitInventory units = project.getInventory(app.getFlatType());
+				String type = units == project.getInventoryType1() ? project.getType1()
+						: units == project.getInventoryType2() ? project.getType2() : app.getFlatType();
+				byType.computeIfAbsent(type, k -> new ArrayList<>()).add(app);
+			}
+			List<Result> results = new ArrayList<>();
+			byType.keySet().stream().sorted().forEach(type -> results.add(draw(type, byType.get(type))));
+			return results;
+		}
+
+		/**
+		 * Draws the ballot for one flat type and applies the outcome.
+		 *
+		 * @param flatType The flat type.
+		 * @param group    Its pending applications.
+		 * @return The result.
+		 */
+		private Result draw(String flatType, List<Application> group) {
+			long t0 = System.nanoTime();
+			group.sort(Comparator.comparing(a -> a.getApplicant().getNric()));
+			UnitInventory inventory = project.getInventory(flatType);
+			int units = inventory == null ? 0 : inventory.getAvailable();
+			int n = group.size();
+			int k = Math.min(n, units);
+			SplittableRandom random = new SplittableRandom(
+					seed ^ (project.getProjectName() + "/" + flatType).hashCode() * 0x9E3779B97F4A7C15L);
+			for (int i = 0; i < k; i++) {
+				int j = i + random.nextInt(n - i);
+				Application swap = group.get(i);
+				group.set(i, group.get(j));
+				group.set(j, swap);
+			}
+			int[] decided = mc.decideApplications(group.subList(0, k), group.subList(k, n));
+			int successful = decided[0];
+			int unsuccessful = decided[1] + (k - successful);
+			return new Result(project, flatType, n, units, successful, unsuccessful,
+					(System.nanoTime() - t0) / 1_000_000);
+		}
+	}
+}
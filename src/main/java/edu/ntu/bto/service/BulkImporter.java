@@ -0,0 +1,363 @@
+package edu.ntu.bto.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.ntu.bto.control.ApplicationControl;
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.User;
+import edu.ntu.bto.util.DataLoader;
+import edu.ntu.bto.util.NricCodec;
+
+/**
+ * Imports applications in bulk from a workbook in the "data" directory, such as
+ * walk-in or partner-channel applications collected in a spreadsheet. Columns:
+ * 0: NRIC, 1: Project Name, 2: Flat Type.
+ * <p>
+ * The workbook is streamed row by row and cut into batches of
+ * {@code bto.import.batchSize} rows (default 2000). Each batch is validated on
+ * a small thread pool: the NRIC must be well formed and belong to an applicant,
+ * the project must exist, be visible and offer the flat type, the applicant must
+ * be eligible, and must not already have an active application. Validated
+ * batches are then committed in file order through
+ * {@link ApplicationControl#applyAll(List)}, which repeats the checks that
+ * depend on the current state under the applicant's lock and waits once per
+ * batch for its journal records to be durable. Only a few batches
+ * are in flight at a time, so memory stays bounded for any file size.
+ * </p>
+ * Rejected rows are written, with the reason, to a CSV file next to the
+ * workbook named {@code <file>.rejected.csv}.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class BulkImporter {
+	/**
+	 * The outcome of an import.
+	 */
+	public static final class Report {
+		/** Number of data rows read. */
+		private final int rows;
+		/** Number of applications added. */
+		private final int accepted;
+		/** Number of rows rejected. */
+		private final int rejected;
+		/** Time taken, in milliseconds. */
+		private final long millis;
+		/** The rejection report file. */
+		private final Path rejections;
+
+		/**
+		 * Creates a report.
+		 *
+		 * @param rows       Number of data rows read.
+		 * @param accepted   Number of applications added.
+		 * @param rejected   Number of rows rejected.
+		 * @param millis     Time taken, in milliseconds.
+		 * @param rejections The rejection report file.
+		 */
+		private Report(int rows, int accepted, int rejected, long millis, Path rejections) {
+			this.rows = rows;
+			this.accepted = accepted;
+			this.rejected = rejected;
+			this.millis = millis;
+			this.rejections = rejections;
+		}
+
+		/**
+		 * Returns the number of applications added.
+		 *
+		 * @return The accepted count.
+		 */
+		public int getAccepted() {
+			return accepted;
+		}
+
+		/**
+		 * Returns the number of rows rejected.
+		 *
+		 * @return The rejected count.
+		 */
+		public int getRejected() {
+			return rejected;
+		}
+
+		/**
+		 * Returns the rejection report file.
+		 *
+		 * @return The path of the CSV file.
+		 */
+		public Path getRejections() {
+			return rejections;
+		}
+
+		/**
+		 * Returns a one-line summary of the import.
+		 *
+		 * @return The summary.
+		 */
+		@Override
+		public String toString() {
+			return "Imported " + accepted + " of " + rows + " applications in " + millis + " ms; " + rejected
+					+ " rejected (see " + rejections + ")";
+		}
+	}
+
+	/**
+	 * One data row of the workbook.
+	 */
+	private static final class Row {
+		/** The row number in the sheet. */
+		private final int rowNum;
+		/** The NRIC cell, or {@code null} if blank. */
+		private final String nric;
+		/** The project name cell, or {@code null} if blank. */
+		private final String projectName;
+		/** The flat type cell, or {@code null} if blank. */
+		private final String flatType;
+		/** The application to submit, once validated. */
+		private Application request;
+		/** The reason the row is rejected, or {@code null}. */
+		private String reason;
+
+		/**
+		 * Creates a row.
+		 *
+		 * @param rowNum The row number in the sheet.
+		 * @param cells  The cell values.
+		 */
+		private Row(int rowNum, String[] cells) {
+			this.rowNum = rowNum;
+			this.nric = cells.length > 0 ? cells[0] : null;
+			this.projectName = cells.length > 1 ? cells[1] : null;
+			this.flatType = cells.length > 2 ? cells[2] : null;
+		}
+	}
+
+	/** Maps a data row; rows with every column blank are skipped. */
+	private static final DataLoader.RowMapper<Row> ROW_MAPPER = (rowNum, cells) -> {
+		Row row = new Row(rowNum, cells);
+		return row.nric == null && row.projectName == null && row.flatType == null ? null : row;
+	};
+
+	/** The system applications are imported into. */
+	private final BTOManagementSystem system;
+	/** Number of rows validated and committed together. */
+	private final int batchSize;
+	/** Number of validation threads. */
+	private final int threads;
+
+	/**
+	 * Constructs a BulkImporter.
+	 *
+	 * @param system The system applications are imported into.
+	 */
+	public BulkImporter(BTOManagementSystem system) {
+		this.system = system;
+		this.batchSize = Math.max(1, Integer.getInteger("bto.import.batchSize", 2000));
+		this.threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Imports the applications of a workbook and writes the rejection report.
+	 *
+	 * @param fileName The workbook's file name in the "data" directory.
+	 * @return The {@link Report} of the import.
+	 * @throws IOException              if the workbook cannot be read or the
+	 *                                  rejection report cannot be written.
+	 * @throws IllegalArgumentException if the file name is blank or names a
+	 *                                  path rather than a file in "data".
+	 */
+	public Report importFile(String fileName) throws IOException {
+		String name = fileName == null ? "" : fileName.trim();
+		if (name.isEmpty() || name.contains("/") || name.contains("\\")) {
+			throw new IllegalArgumentException("Expected a file name in data/, got '" + name + "'");
+		}
+		long t0 = System.nanoTime();
+		Map<String, Project> projects = new HashMap<>();
+		for (Project p : system.getProjects()) {
+			projects.putIfAbsent(p.getProjectName().toLowerCase(), p);
+		}
+		Path rejections = Paths.get("data", name + ".rejected.csv");
+		AtomicInteger threadId = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "bto-import-" + threadId.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		Deque<Future<List<Row>>> inFlight = new ArrayDeque<>();
+		int[] counts = new int[3]; // rows, accepted, rejected
+		try (BufferedWriter out = Files.newBufferedWriter(rejections, StandardCharsets.UTF_8)) {
+			out.write("Row,NRIC,Project,Flat Type,Reason");
+			out.newLine();
+			List<List<Row>> current = new ArrayList<>(1);
+			current.add(new ArrayList<>(batchSize));
+			DataLoader.stream(name, ROW_MAPPER, row -> {
+				List<Row> batch = current.get(0);
+				batch.add(row);
+				if (batch.size() == batchSize) {
+					inFlight.add(pool.submit(() -> validate(batch, projects)));
+					current.set(0, new ArrayList<>(batchSize));
+					// Keep a few batches ahead of the committer, but no more.
+					while (inFlight.size() > 2 * threads) {
+						commit(await(inFlight.poll()), out, counts);
+					}
+				}
+			});
+			List<Row> last = current.get(0);
+			if (!last.isEmpty()) {
+				inFlight.add(pool.submit(() -> validate(last, projects)));
+			}
+			while (!inFlight.isEmpty()) {
+				commit(await(inFlight.poll()), out, counts);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdownNow();
+		}
+		return new Report(counts[0], counts[1], counts[2], (System.nanoTime() - t0) / 1_000_000, rejections);
+	}
+
+	/**
+	 * Validates a batch of rows against the state that does not need locks,
+	 * filling in each row's request or rejection reason.
+	 *
+	 * @param batch    The rows.
+	 * @param projects The projects by lower-case name.
+	 * @return The same rows.
+	 */
+	private List<Row> validate(List<Row> batch, Map<String, Project> projects) {
+		for (Row row : batch) {
+			row.reason = check(row, projects);
+		}
+		return batch;
+	}
+
+	/**
+	 * Validates one row.
+	 *
+	 * @param row      The row.
+	 * @param projects The projects by lower-case name.
+	 * @return The reason the row is rejected, or {@code null} if its request was
+	 *         created.
+	 */
+	private String check(Row row, Map<String, Project> projects) {
+		if (row.nric == null || row.projectName == null || row.flatType == null) {
+			return "Missing NRIC, project or flat type.";
+		}
+		if (NricCodec.encode(row.nric) == NricCodec.INVALID) {
+			return "Malformed NRIC.";
+		}
+		User user = system.getUserByNric(row.nric);
+		if (!(user instanceof Applicant)) {
+			return user == null ? "No such applicant." : "User is not an applicant.";
+		}
+		Applicant applicant = (Applicant) user;
+		Project project = projects.get(row.projectName.toLowerCase());
+		if (project == null) {
+			return "No such project.";
+		} else if (!project.isVisible()) {
+			return "Project is not visible.";
+		} else if (project.getInventory(row.flatType) == null) {
+			return "Project does not offer this flat type.";
+		}
+		String reason = system.getApplicationControl().checkEligibility(applicant, project, row.flatType);
+		if (reason != null) {
+			return reason;
+		}
+		Application current = applicant.getApplication();
+		if (current != null && current.getStatus() != Application.Status.UNSUCCESSFUL) {
+			return "You have already applied or booked a flat. Withdraw or wait for result.";
+		}
+		row.request = new Application(applicant, project, row.flatType);
+		return null;
+	}
+
+	/**
+	 * Submits the validated requests of a batch and records the rejected rows.
+	 *
+	 * @param batch  The validated rows.
+	 * @param out    The rejection report.
+	 * @param counts The row, accepted and rejected counts to update.
+	 */
+	private void commit(List<Row> batch, BufferedWriter out, int[] counts) {
+		List<Application> requests = new ArrayList<>(batch.size());
+		List<Row> submitted = new ArrayList<>(batch.size());
+		for (Row row : batch) {
+			if (row.request != null) {
+				requests.add(row.request);
+				submitted.add(row);
+			}
+		}
+		List<String> reasons = system.getApplicationControl().applyAll(requests);
+		for (int i = 0; i < submitted.size(); i++) {
+			submitted.get(i).reason = reasons.get(i);
+		}
+		try {
+			for (Row row : batch) {
+				counts[0]++;
+				if (row.reason == null) {
+					counts[1]++;
+				} else {
+					counts[2]++;
+					out.write(row.rowNum + "," + csv(row.nric) + "," + csv(row.projectName) + "," + csv(row.flatType)
+							+ "," + csv(row.reason));
+					out.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Waits for a batch to be validated.
+	 *
+	 * @param future The pending validation.
+	 * @return The validated rows.
+	 */
+	private static List<Row> await(Future<List<Row>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Import interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Validation failed: " + e.getCause(), e.getCause());
+		}
+	}
+
+	/**
+	 * Quotes a value for the CSV report if needed.
+	 *
+	 * @param value The value, or {@code null}.
+	 * @return The CSV field.
+	 */
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
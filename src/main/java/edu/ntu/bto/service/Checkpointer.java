@@ -0,0 +1,239 @@
+package edu.ntu.bto.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.Snapshot;
+
+/**
+ * Periodically folds the journal into the snapshot so that restart replay and
+ * journal size stay bounded.
+ * <p>
+ * A background thread checks every {@code bto.checkpoint.checkSeconds} seconds
+ * (default 5) whether a checkpoint is due: there must be new journal records,
+ * and either {@code bto.checkpoint.intervalSeconds} seconds (default 60) have
+ * passed since the last checkpoint or the current journal segment has grown to
+ * {@code bto.checkpoint.segmentBytes} bytes (default 16 MiB). A checkpoint
+ * copies the state through {@link Journal#checkpoint(Supplier)}, which holds
+ * writers back only while a new journal segment is started and the mutable
+ * fields of the model are copied (see {@link Snapshot.State}); the copy is
+ * then encoded, the snapshot written and the journal segments it covers
+ * deleted while writers carry on.
+ * </p>
+ * The checkpointer also keeps the persistence metrics: replay time at startup,
+ * segment count and checkpoint timings.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class Checkpointer {
+	/** The journal being checkpointed. */
+	private final Journal journal;
+	/** The snapshot file written by each checkpoint. */
+	private final Path snapshotFile;
+	/** Copies the current state; called while writers are held back. */
+	private final Supplier<Snapshot.State> capture;
+	/** Minimum time between checkpoints, in milliseconds. */
+	private final long intervalMillis;
+	/** Segment size that makes a checkpoint due early, in bytes. */
+	private final long segmentBytes;
+	/** Thread running the periodic checks. */
+	private final ScheduledExecutorService scheduler;
+
+	/** LSN covered by the last snapshot. */
+	private volatile long checkpointLsn;
+	/** Time of the last checkpoint (or of startup), in {@link System#nanoTime()}. */
+	private volatile long checkpointNanos = System.nanoTime();
+	/** Number of checkpoints taken since startup. */
+	private volatile int checkpoints;
+	/** Time writers were held back by the last checkpoint, in milliseconds. */
+	private volatile long lastPauseMillis;
+	/** Time spent encoding and writing the last snapshot, in milliseconds. */
+	private volatile long lastWriteMillis;
+	/** Number of journal records replayed at startup. */
+	private volatile int replayedRecords;
+	/** Time spent replaying the journal at startup, in milliseconds. */
+	private volatile long replayMillis;
+
+	/**
+	 * Creates a checkpointer and starts its background thread.
+	 *
+	 * @param journal       The journal to checkpoint.
+	 * @param snapshotFile  The snapshot file to write.
+	 * @param capture       Copies the current state with
+	 *                      {@link Journal#getLastLsn()} as its LSN.
+	 * @param checkpointLsn The LSN covered by the snapshot loaded at startup.
+	 */
+	public Checkpointer(Journal journal, Path snapshotFile, Supplier<Snapshot.State> capture, long checkpointLsn) {
+		this.journal = journal;
+		this.snapshotFile = snapshotFile;
+		this.capture = capture;
+		this.checkpointLsn = checkpointLsn;
+		this.intervalMillis = TimeUnit.SECONDS.toMillis(Long.getLong("bto.checkpoint.intervalSeconds", 60));
+		this.segmentBytes = Long.getLong("bto.checkpoint.segmentBytes", 16L * 1024 * 1024);
+		long checkSeconds = Math.max(1, Long.getLong("bto.checkpoint.checkSeconds", 5));
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "bto-checkpoint");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::checkpointIfDue, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Takes a checkpoint if one is due. Failures are reported and retried on the
+	 * next check.
+	 */
+	private void checkpointIfDue() {
+		if (journal.getLastLsn() <= checkpointLsn) {
+			return;
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - checkpointNanos);
+		if (elapsed < intervalMillis && journal.getCurrentSegmentBytes() < segmentBytes) {
+			return;
+		}
+		try {
+			checkpoint();
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Checkpoint failed, journal kept: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Takes a checkpoint now: copies the state, encodes and writes the snapshot
+	 * and deletes the journal segments it covers. Writers are held back only
+	 * while the state is copied.
+	 *
+	 * @return The LSN covered by the new snapshot.
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	public synchronized long checkpoint() throws IOException {
+		long t0 = System.nanoTime();
+		Snapshot.State state = journal.checkpoint(capture);
+		long t1 = System.nanoTime();
+		Snapshot.Image image = state.encode();
+		image.writeTo(snapshotFile);
+		long t2 = System.nanoTime();
+		journal.discardThrough(image.getJournalLsn());
+		checkpointLsn = image.getJournalLsn();
+		checkpointNanos = t2;
+		lastPauseMillis = (t1 - t0) / 1_000_000;
+		lastWriteMillis = (t2 - t1) / 1_000_000;
+		checkpoints++;
+		return checkpointLsn;
+	}
+
+	/**
+	 * Stops the background thread, takes a final checkpoint and closes the
+	 * journal. If the final checkpoint fails, the journal segments are kept so
+	 * they are replayed on the next start.
+	 *
+	 * @throws IOException if the final checkpoint or closing the journal fails.
+	 */
+	public void shutdown() throws IOException {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		long lsn;
+		try {
+			lsn = checkpoint();
+		} finally {
+			journal.close();
+		}
+		journal.discardThrough(lsn);
+	}
+
+	/**
+	 * Records the result of the journal replay done at startup.
+	 *
+	 * @param records The number of records replayed.
+	 * @param millis  The time the replay took, in milliseconds.
+	 */
+	public void recordReplay(int records, long millis) {
+		this.replayedRecords = records;
+		this.replayMillis = millis;
+	}
+
+	/**
+	 * Returns the time the journal replay took at startup.
+	 *
+	 * @return The replay time in milliseconds.
+	 */
+	public long getReplayMillis() {
+		return replayMillis;
+	}
+
+	/**
+	 * Returns the number of journal records replayed at startup.
+	 *
+	 * @return The replayed record count.
+	 */
+	public int getReplayedRecords() {
+		return replayedRecords;
+	}
+
+	/**
+	 * Returns the number of journal segments on disk.
+	 *
+	 * @return The segment count.
+	 */
+	public int getSegmentCount() {
+		return journal.getSegmentCount();
+	}
+
+	/**
+	 * Returns the number of checkpoints taken since startup.
+	 *
+	 * @return The checkpoint count.
+	 */
+	public int getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Returns the LSN covered by the latest snapshot.
+	 *
+	 * @return The checkpoint LSN.
+	 */
+	public long getCheckpointLsn() {
+		return checkpointLsn;
+	}
+
+	/**
+	 * Returns how long the last checkpoint held writers back.
+	 *
+	 * @return The pause in milliseconds.
+	 */
+	public long getLastPauseMillis() {
+		return lastPauseMillis;
+	}
+
+	/**
+	 * Returns how long writing the last snapshot took.
+	 *
+	 * @return The write time in milliseconds.
+	 */
+	public long getLastWriteMillis() {
+		return lastWriteMillis;
+	}
+
+	/**
+	 * Returns a one-line summary of the persistence metrics.
+	 *
+	 * @return The summary.
+	 */
+	@Override
+	public String toString() {
+		return "Journal: " + getSegmentCount() + " segment(s), last LSN " + journal.getLastLsn() + "; replay "
+				+ replayedRecords + " records in " + replayMillis + " ms; " + checkpoints
+				+ " checkpoint(s), last at LSN " + checkpointLsn + " (pause " + lastPauseMillis + " ms, write "
+				+ lastWriteMillis + " ms)";
+	}
+}
@@ -0,0 +1,232 @@
+package edu.ntu.bto.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.User;
+import edu.ntu.bto.util.DataLoader;
+
+/**
+ * Loads the applicant, manager, officer and project workbooks in parallel and
+ * merges them into the user and project stores. The files do not depend on
+ * each other, so each one is parsed on its own thread of a small bounded
+ * executor. Every file carries a {@link FailurePolicy} that decides whether a
+ * failure to read it aborts startup or is reported and skipped.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class DataBootstrap {
+	/**
+	 * What to do when a data file cannot be read.
+	 */
+	public enum FailurePolicy {
+		/** Startup fails; the system cannot run without this file. */
+		ABORT,
+		/** A warning is printed and the file contributes no records. */
+		CONTINUE
+	}
+
+	/**
+	 * The data files read at startup, with their file names and failure policies.
+	 */
+	public enum DataFile {
+		/** Applicant accounts. */
+		APPLICANTS("ApplicantList.xlsx", FailurePolicy.CONTINUE),
+		/** Manager accounts; projects cannot be administered without them. */
+		MANAGERS("ManagerList.xlsx", FailurePolicy.ABORT),
+		/** Officer accounts. */
+		OFFICERS("OfficerList.xlsx", FailurePolicy.CONTINUE),
+		/** BTO projects; nothing can be applied for without them. */
+		PROJECTS("ProjectList.xlsx", FailurePolicy.ABORT);
+
+		/** The file name inside the "data" directory. */
+		private final String fileName;
+		/** The policy applied when the file cannot be read. */
+		private final FailurePolicy policy;
+
+		/**
+		 * Creates a data file entry.
+		 *
+		 * @param fileName The file name inside the "data" directory.
+		 * @param policy   The policy applied when the file cannot be read.
+		 */
+		DataFile(String fileName, FailurePolicy policy) {
+			this.fileName = fileName;
+			this.policy = policy;
+		}
+
+		/**
+		 * Returns the file name inside the "data" directory.
+		 *
+		 * @return The file name.
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * Returns the policy applied when the file cannot be read.
+		 *
+		 * @return The {@link FailurePolicy} of this file.
+		 */
+		public FailurePolicy getPolicy() {
+			return policy;
+		}
+	}
+
+	/** Maximum number of files parsed at the same time. */
+	private final int parallelism;
+	/** All users, in applicant, manager, officer order. */
+	private final List<User> users = new ArrayList<>();
+	/** All projects. */
+	private final List<Project> projects = new ArrayList<>();
+	/** Time spent parsing each file, in milliseconds. */
+	private final Map<DataFile, Long> parseMillis = Collections.synchronizedMap(new EnumMap<>(DataFile.class));
+
+	/**
+	 * Creates a bootstrap that parses every file on its own thread. Parsing mixes
+	 * file I/O with XML work, so one thread per file pays off even on hosts with
+	 * fewer cores than files.
+	 */
+	public DataBootstrap() {
+		this(DataFile.values().length);
+	}
+
+	/**
+	 * Creates a bootstrap that parses at most {@code parallelism} files at once.
+	 *
+	 * @param parallelism The maximum number of loader threads.
+	 */
+	public DataBootstrap(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Parses all data files and merges the results. Users are merged in the order
+	 * applicants, managers, officers so login resolution is the same as a serial
+	 * load.
+	 *
+	 * @throws IllegalStateException if a file with policy {@link FailurePolicy#ABORT}
+	 *                               cannot be read.
+	 */
+	public void run() {
+		DataLoader.resetPeakHeap();
+		long start = System.nanoTime();
+		AtomicInteger threadId = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "bto-loader-" + threadId.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		Map<DataFile, Future<List<? extends Object>>> futures = new EnumMap<>(DataFile.class);
+		try {
+			futures.put(DataFile.APPLICANTS, pool.submit(timed(DataFile.APPLICANTS, DataLoader.APPLICANT_MAPPER)));
+			futures.put(DataFile.MANAGERS, pool.submit(timed(DataFile.MANAGERS, DataLoader.MANAGER_MAPPER)));
+			futures.put(DataFile.OFFICERS, pool.submit(timed(DataFile.OFFICERS, DataLoader.OFFICER_MAPPER)));
+			futures.put(DataFile.PROJECTS, pool.submit(timed(DataFile.PROJECTS, DataLoader.PROJECT_MAPPER)));
+
+			Map<DataFile, List<? extends Object>> loaded = new EnumMap<>(DataFile.class);
+			for (Map.Entry<DataFile, Future<List<? extends Object>>> entry : futures.entrySet()) {
+				loaded.put(entry.getKey(), await(entry.getKey(), entry.getValue()));
+			}
+			long parsed = System.nanoTime();
+
+			for (DataFile file : new DataFile[] { DataFile.APPLICANTS, DataFile.MANAGERS, DataFile.OFFICERS }) {
+				for (Object o : loaded.get(file)) {
+					users.add((User) o);
+				}
+			}
+			for (Object o : loaded.get(DataFile.PROJECTS)) {
+				projects.add((Project) o);
+			}
+			long merged = System.nanoTime();
+
+			StringBuilder sb = new StringBuilder("Bootstrap: parse ").append((parsed - start) / 1_000_000)
+					.append(" ms (");
+			for (DataFile file : DataFile.values()) {
+				if (file.ordinal() > 0)
+					sb.append(", ");
+				sb.append(file.getFileName()).append(' ').append(parseMillis.getOrDefault(file, 0L)).append(" ms");
+			}
+			sb.append("), merge ").append((merged - parsed) / 1_000_000).append(" ms, peak heap ")
+					.append(String.format("%.1f MB", DataLoader.peakHeap() / (1024.0 * 1024.0)));
+			System.out.println(sb);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Wraps the load of one file so its parse time is recorded.
+	 *
+	 * @param file   The file to load.
+	 * @param mapper The row mapper for the file.
+	 * @return A task that loads and returns the file's records.
+	 */
+	private Callable<List<? extends Object>> timed(DataFile file, DataLoader.RowMapper<?> mapper) {
+		return () -> {
+			long t0 = System.nanoTime();
+			try {
+				return DataLoader.load(file.getFileName(), mapper);
+			} finally {
+				parseMillis.put(file, (System.nanoTime() - t0) / 1_000_000);
+			}
+		};
+	}
+
+	/**
+	 * Waits for a file to finish loading and applies its failure policy.
+	 *
+	 * @param file   The file being loaded.
+	 * @param future The pending load.
+	 * @return The loaded records, or an empty list if the load failed and the
+	 *         policy is {@link FailurePolicy#CONTINUE}.
+	 */
+	private List<? extends Object> await(DataFile file, Future<List<? extends Object>> future) {
+		Throwable cause;
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cause = e;
+		} catch (ExecutionException e) {
+			cause = e.getCause();
+		}
+		String reason = cause instanceof IOException ? cause.getMessage() : String.valueOf(cause);
+		if (file.getPolicy() == FailurePolicy.ABORT) {
+			throw new IllegalStateException("Unable to load required file " + file.getFileName() + ": " + reason,
+					cause);
+		}
+		System.err.println("Error loading " + file.getFileName() + ", continuing without it: " + reason);
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the merged users.
+	 *
+	 * @return All loaded users, in applicant, manager, officer order.
+	 */
+	public List<User> getUsers() {
+		return users;
+	}
+
+	/**
+	 * Returns the loaded projects.
+	 *
+	 * @return All loaded projects.
+	 */
+	public List<Project> getProjects() {
+		return projects;
+	}
+}
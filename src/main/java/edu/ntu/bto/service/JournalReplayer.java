@@ -0,0 +1,312 @@
+package edu.ntu.bto.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.Enquiry;
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.UnitInventory;
+import edu.ntu.bto.model.User;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.LongObjectHashMap;
+import edu.ntu.bto.util.NricCodec;
+
+/**
+ * Re-applies journaled mutations to the in-memory lists after the base data
+ * has been loaded. Records are applied directly to the model objects, without
+ * going through the controls, so replay neither prints menu messages nor writes
+ * the records to the journal again. Records that refer to users, projects or
+ * enquiries that no longer exist, or that would make a status transition the
+ * application state machine does not allow, are counted and skipped.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class JournalReplayer {
+	/** Users keyed by encoded NRIC. */
+	private final LongObjectHashMap<User> users;
+	/** Projects keyed by name. */
+	private final Map<String, Project> projects = new HashMap<>();
+	/** The master list of projects. */
+	private final List<Project> projectList;
+	/** Enquiries keyed by ID. */
+	private final Map<String, Enquiry> enquiriesById = new HashMap<>();
+	/** All applications, indexed. */
+	private final ApplicationStore applications;
+	/** The master list of registrations. */
+	private final List<Registration> registrations;
+	/** All enquiries. */
+	private final Collection<Enquiry> enquiries;
+	/** Skip records up to and including this LSN. */
+	private final long afterLsn;
+	/** Number of records applied. */
+	private int applied;
+	/** Number of records that could not be applied. */
+	private int skipped;
+
+	/**
+	 * Creates a replayer over the system's lists.
+	 *
+	 * @param users         All users.
+	 * @param projects      All projects.
+	 * @param applications  All applications.
+	 * @param registrations The master list of registrations.
+	 * @param enquiries     All enquiries.
+	 * @param afterLsn      The LSN already reflected in the lists; older records
+	 *                      are ignored.
+	 */
+	public JournalReplayer(List<User> users, List<Project> projects, ApplicationStore applications,
+			List<Registration> registrations, Collection<Enquiry> enquiries, long afterLsn) {
+		this.users = new LongObjectHashMap<>(users.size());
+		for (User u : users) {
+			long key = NricCodec.encode(u.getNric());
+			if (key != NricCodec.INVALID) {
+				this.users.putIfAbsent(key, u);
+			}
+		}
+		for (Project p : projects) {
+			this.projects.put(p.getProjectName(), p);
+		}
+		for (Enquiry e : enquiries) {
+			enquiriesById.put(e.getId(), e);
+		}
+		this.projectList = projects;
+		this.applications = applications;
+		this.registrations = registrations;
+		this.enquiries = enquiries;
+		this.afterLsn = afterLsn;
+	}
+
+	/**
+	 * Applies one journal record.
+	 *
+	 * @param r The record to apply.
+	 */
+	public void apply(Journal.Record r) {
+		if (r.getLsn() <= afterLsn) {
+			return;
+		}
+		if (applyRecord(r)) {
+			applied++;
+		} else {
+			skipped++;
+		}
+	}
+
+	/**
+	 * Applies one record to the model objects.
+	 *
+	 * @param r The record to apply.
+	 * @return {@code true} if the record was applied, {@code false} if it refers
+	 *         to missing data.
+	 */
+	private boolean applyRecord(Journal.Record r) {
+		switch (r.getType()) {
+		case APPLY: {
+			Applicant a = applicant(r.get(0));
+			Project p = projects.get(r.get(1));
+			if (a == null || p == null)
+				return false;
+			Application app = new Application(a, p, r.get(2));
+			a.setApplication(app);
+			applications.add(app);
+			return true;
+		}
+		case WITHDRAW: {
+			Applicant a = applicant(r.get(0));
+			if (a == null || a.getApplication() == null)
+				return false;
+			Application app = a.getApplication();
+			if (!app.getStatus().canTransitionTo(Application.Status.UNSUCCESSFUL))
+				return false;
+			if (app.getStatus() == Application.Status.BOOKED) {
+				UnitInventory units = app.getProject().getInventory(app.getFlatType());
+				if (units != null)
+					units.release();
+			}
+			applications.transition(app, Application.Status.UNSUCCESSFUL);
+			app.setWithdrawalPending(true);
+			return true;
+		}
+		case APPLICATION_STATUS: {
+			Applicant a = applicant(r.get(0));
+			if (a == null || a.getApplication() == null)
+				return false;
+			Application.Status status = Application.Status.valueOf(r.get(1));
+			if (!a.getApplication().getStatus().canTransitionTo(status))
+				return false;
+			if (status == Application.Status.SUCCESSFUL && r.size() > 2)
+				a.getApplication().setHoldUntil(Long.parseLong(r.get(2)));
+			applications.transition(a.getApplication(), status);
+			return true;
+		}
+		case BOOK: {
+			Applicant a = applicant(r.get(1));
+			if (a == null || a.getApplication() == null)
+				return false;
+			Application app = a.getApplication();
+			if (!app.getStatus().canTransitionTo(Application.Status.BOOKED))
+				return false;
+			// Bookings are always of the flat type applied for.
+			UnitInventory units = app.getProject().getInventory(app.getFlatType());
+			if (units == null || !units.tryReserve())
+				return false;
+			applications.transition(app, Application.Status.BOOKED);
+			return true;
+		}
+		case REGISTER: {
+			User u = users.get(NricCodec.encode(r.get(0)));
+			Project p = projects.get(r.get(1));
+			if (!(u instanceof HDBOfficer) || p == null)
+				return false;
+			Registration reg = new Registration((HDBOfficer) u, p);
+			((HDBOfficer) u).getRegistrations().add(reg);
+			registrations.add(reg);
+			return true;
+		}
+		case REGISTRATION_STATUS: {
+			User u = users.get(NricCodec.encode(r.get(0)));
+			if (!(u instanceof HDBOfficer))
+				return false;
+			for (Registration reg : ((HDBOfficer) u).getRegistrations()) {
+				if (reg.getProject().getProjectName().equals(r.get(1))) {
+					Registration.Status status = Registration.Status.valueOf(r.get(2));
+					reg.setStatus(status);
+					if (status == Registration.Status.APPROVED)
+						reg.getProject().decrementOfficerSlot();
+					return true;
+				}
+			}
+			return false;
+		}
+		case ENQUIRY_SUBMIT: {
+			Applicant a = applicant(r.get(1));
+			Project p = projects.get(r.get(2));
+			if (a == null || p == null)
+				return false;
+			Enquiry e = new Enquiry(r.get(0), a, p, r.get(3));
+			enquiries.add(e);
+			enquiriesById.put(e.getId(), e);
+			return true;
+		}
+		case ENQUIRY_REPLY: {
+			Enquiry e = enquiriesById.get(r.get(0));
+			if (e == null)
+				return false;
+			e.setResponse(r.get(1));
+			return true;
+		}
+		case ENQUIRY_EDIT: {
+			Enquiry e = enquiriesById.get(r.get(0));
+			if (e == null)
+				return false;
+			e.setQuestion(r.get(1));
+			return true;
+		}
+		case ENQUIRY_DELETE: {
+			Enquiry e = enquiriesById.remove(r.get(0));
+			if (e == null)
+				return false;
+			for (Iterator<Enquiry> it = enquiries.iterator(); it.hasNext();) {
+				if (it.next() == e) {
+					it.remove();
+					break;
+				}
+			}
+			return true;
+		}
+		case PROJECT_CREATE: {
+			if (projects.containsKey(r.get(0)))
+				return false;
+			Project p = new Project(r.get(0), r.get(1), r.get(2), Integer.parseInt(r.get(3)),
+					Double.parseDouble(r.get(4)), r.get(5), Integer.parseInt(r.get(6)), Double.parseDouble(r.get(7)),
+					r.get(8), r.get(9), r.get(10));
+			projectList.add(p);
+			projects.put(p.getProjectName(), p);
+			return true;
+		}
+		case PROJECT_EDIT: {
+			Project p = projects.get(r.get(0));
+			if (p == null)
+				return false;
+			p.edit(r.get(1), r.get(2), r.get(3), Integer.parseInt(r.get(4)), Double.parseDouble(r.get(5)), r.get(6),
+					Integer.parseInt(r.get(7)), Double.parseDouble(r.get(8)), r.get(9), r.get(10));
+			projects.remove(r.get(0));
+			projects.put(p.getProjectName(), p);
+			return true;
+		}
+		case PROJECT_DELETE: {
+			Project p = projects.remove(r.get(0));
+			if (p == null)
+				return false;
+			projectList.remove(p);
+			return true;
+		}
+		case PROJECT_VISIBILITY: {
+			Project p = projects.get(r.get(0));
+			if (p == null)
+				return false;
+			p.setVisible(Boolean.parseBoolean(r.get(1)));
+			return true;
+		}
+		case WITHDRAWAL_ACK: {
+			Applicant a = applicant(r.get(0));
+			if (a == null)
+				return false;
+			for (Application app : applications.getByApplicant(a)) {
+				if (app.isWithdrawalPending() && app.getProject().getProjectName().equals(r.get(1))) {
+					app.setWithdrawalPending(false);
+					return true;
+				}
+			}
+			return false;
+		}
+		case PASSWORD: {
+			User u = users.get(NricCodec.encode(r.get(0)));
+			if (u == null)
+				return false;
+			u.changePassword(r.get(1));
+			return true;
+		}
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Looks up an applicant (or officer acting as applicant) by NRIC.
+	 *
+	 * @param nric The NRIC.
+	 * @return The applicant, or {@code null} if there is none.
+	 */
+	private Applicant applicant(String nric) {
+		User u = users.get(NricCodec.encode(nric));
+		return u instanceof Applicant ? (Applicant) u : null;
+	}
+
+	/**
+	 * Returns the number of records applied.
+	 *
+	 * @return The applied record count.
+	 */
+	public int getApplied() {
+		return applied;
+	}
+
+	/**
+	 * Returns the number of records skipped because they refer to missing data or
+	 * make a transition that is not allowed.
+	 *
+	 * @return The skipped record count.
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+}
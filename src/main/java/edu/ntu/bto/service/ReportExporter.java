@@ -0,0 +1,341 @@
+package edu.ntu.bto.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import edu.ntu.bto.control.ReportEngine;
+import edu.ntu.bto.control.ReportSink;
+import edu.ntu.bto.util.SessionPrintStream;
+
+/**
+ * Exports reports to workbooks in the "data" directory. Reports take the same
+ * queries as "Generate Report" (see {@link ReportEngine}) and are written with
+ * POI's streaming {@link SXSSFWorkbook}, which keeps only the last
+ * {@code bto.export.rowWindow} rows (default 100) in memory and spills the
+ * rest to a compressed temporary file, so heap use stays flat however long the
+ * report is.
+ * <p>
+ * Exports run one at a time on a low-priority background thread, so the
+ * session that asked for one goes straight back to its menu. The export
+ * prints its progress every {@code bto.export.progressRows} rows (default
+ * 100000) to that session, and every {@link Export} can be polled for its
+ * state and row count. The workbook is written to a temporary file and moved
+ * into place when complete, so a reader never sees half a workbook.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class ReportExporter {
+	/**
+	 * The states of an export.
+	 */
+	public enum State {
+		/** Waiting for an earlier export to finish. */
+		QUEUED,
+		/** Writing rows. */
+		RUNNING,
+		/** Written and moved into place. */
+		DONE,
+		/** Stopped by an error. */
+		FAILED
+	}
+
+	/**
+	 * One export and its progress.
+	 */
+	public static final class Export {
+		/** Who asked for the export. */
+		private final String requester;
+		/** The report query. */
+		private final String query;
+		/** The workbook written. */
+		private final Path file;
+		/** The current state. */
+		private volatile State state = State.QUEUED;
+		/** Number of rows written so far. */
+		private volatile long rows;
+		/** Time taken, in milliseconds, once finished. */
+		private volatile long millis;
+		/** The reason it failed, or {@code null}. */
+		private volatile String error;
+
+		/**
+		 * Creates an export.
+		 *
+		 * @param requester Who asked for the export.
+		 * @param query     The report query.
+		 * @param file      The workbook to write.
+		 */
+		private Export(String requester, String query, Path file) {
+			this.requester = requester;
+			this.query = query;
+			this.file = file;
+		}
+
+		/**
+		 * Returns who asked for the export.
+		 *
+		 * @return The requester's name.
+		 */
+		public String getRequester() {
+			return requester;
+		}
+
+		/**
+		 * Returns the workbook written.
+		 *
+		 * @return The path of the workbook.
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		/**
+		 * Returns the current state.
+		 *
+		 * @return The state.
+		 */
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * Returns the number of rows written so far.
+		 *
+		 * @return The row count.
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * Returns a one-line summary of the export.
+		 *
+		 * @return The summary.
+		 */
+		@Override
+		public String toString() {
+			String text = file.getFileName() + " [" + query + "]: " + state + ", " + rows + " rows";
+			if (state == State.DONE) {
+				text += " in " + millis + " ms";
+			} else if (state == State.FAILED) {
+				text += " (" + error + ")";
+			}
+			return text;
+		}
+	}
+
+	/** Columns written as numbers when their values are numeric. */
+	private static final Set<String> NUMERIC_COLUMNS = new HashSet<>(
+			Arrays.asList("Age", "Applications", "Average Age", "Youngest", "Oldest"));
+	/** A plain decimal number. */
+	private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+	/** The system whose reports are exported. */
+	private final BTOManagementSystem system;
+	/** Number of rows SXSSF keeps in memory. */
+	private final int rowWindow;
+	/** Number of rows between progress messages. */
+	private final long progressRows;
+	/** Runs the exports, one at a time. */
+	private final ExecutorService executor;
+	/** Every export requested, oldest first. */
+	private final List<Export> exports = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Constructs a ReportExporter.
+	 *
+	 * @param system The system whose reports are exported.
+	 */
+	public ReportExporter(BTOManagementSystem system) {
+		this.system = system;
+		this.rowWindow = Math.max(1, Integer.getInteger("bto.export.rowWindow", 100));
+		this.progressRows = Math.max(1, Long.getLong("bto.export.progressRows", 100_000L));
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "bto-export");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	/**
+	 * Queues an export of a report. Progress is printed to the calling session.
+	 *
+	 * @param requester Who asks for the export.
+	 * @param query     The report query.
+	 * @param fileName  The workbook's file name in the "data" directory; ".xlsx"
+	 *                  is added if missing.
+	 * @return The queued {@link Export}.
+	 * @throws IllegalArgumentException if the query does not parse, or the file
+	 *                                  name is blank, names a directory or names
+	 *                                  an existing file not written by an export.
+	 */
+	public Export submit(String requester, String query, String fileName) {
+		ReportEngine.Query.parse(query);
+		String name = fileName == null ? "" : fileName.trim();
+		if (name.isEmpty() || name.contains("/") || name.contains("\\")) {
+			throw new IllegalArgumentException("Expected a file name in data/, got '" + name + "'");
+		}
+		if (!name.toLowerCase().endsWith(".xlsx")) {
+			name += ".xlsx";
+		}
+		Path file = Paths.get("data", name);
+		if (Files.exists(file) && exports.stream().noneMatch(e -> e.file.equals(file))) {
+			// Never overwrite the data files or anything else not exported here.
+			throw new IllegalArgumentException("data/" + name + " already exists");
+		}
+		Export export = new Export(requester, query, file);
+		exports.add(export);
+		PrintStream out = SessionPrintStream.current();
+		executor.execute(() -> {
+			SessionPrintStream.bind(out);
+			try {
+				run(export);
+			} finally {
+				SessionPrintStream.unbind();
+			}
+		});
+		return export;
+	}
+
+	/**
+	 * Returns the exports a user has asked for.
+	 *
+	 * @param requester The user's name.
+	 * @return The exports, oldest first.
+	 */
+	public List<Export> getExports(String requester) {
+		List<Export> result = new ArrayList<>();
+		for (Export e : exports) {
+			if (e.requester.equals(requester)) {
+				result.add(e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stops taking exports and waits up to a minute for the queued ones to
+	 * finish, so shutting down does not cut a workbook short.
+	 */
+	public void close() {
+		executor.shutdown();
+		long pending = exports.stream().filter(e -> e.state == State.QUEUED || e.state == State.RUNNING).count();
+		if (pending > 0) {
+			System.out.println("Waiting for " + pending + " report export(s) to finish...");
+		}
+		try {
+			if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+				System.err.println("Report exports still running at shutdown were abandoned.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the workbook of an export, recording its progress and outcome.
+	 *
+	 * @param export The export.
+	 */
+	private void run(Export export) {
+		long t0 = System.nanoTime();
+		export.state = State.RUNNING;
+		Path tmp = export.file.resolveSibling(export.file.getFileName() + ".tmp");
+		SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+		workbook.setCompressTempFiles(true);
+		try {
+			SXSSFSheet sheet = workbook.createSheet("Report");
+			CellStyle bold = workbook.createCellStyle();
+			Font font = workbook.createFont();
+			font.setBold(true);
+			bold.setFont(font);
+			int written = system.getManagerControl().generateReport(export.query, new ReportSink() {
+				/** Whether each column is written as numbers. */
+				private boolean[] numeric;
+				/** The next sheet row. */
+				private int next;
+
+				@Override
+				public void begin(String title, List<String> columns) {
+					Row header = sheet.createRow(next++);
+					numeric = new boolean[columns.size()];
+					for (int i = 0; i < columns.size(); i++) {
+						header.createCell(i).setCellValue(columns.get(i));
+						header.getCell(i).setCellStyle(bold);
+						numeric[i] = NUMERIC_COLUMNS.contains(columns.get(i));
+					}
+				}
+
+				@Override
+				public void row(String[] values) {
+					Row row = sheet.createRow(next++);
+					for (int i = 0; i < values.length; i++) {
+						if (numeric[i] && NUMBER.matcher(values[i]).matches()) {
+							row.createCell(i).setCellValue(Double.parseDouble(values[i]));
+						} else {
+							row.createCell(i).setCellValue(values[i]);
+						}
+					}
+					export.rows = next - 1;
+					if (export.rows % progressRows == 0) {
+						System.out.println("Export " + export.file.getFileName() + ": " + export.rows + " rows written");
+					}
+				}
+
+				@Override
+				public void end(int rows, long micros) {
+				}
+			});
+			if (written < 0) {
+				throw new IllegalArgumentException("invalid report query");
+			}
+			try (OutputStream os = Files.newOutputStream(tmp)) {
+				workbook.write(os);
+			}
+			Files.move(tmp, export.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			export.millis = (System.nanoTime() - t0) / 1_000_000;
+			export.state = State.DONE;
+			System.out.println("Export finished: " + export);
+		} catch (IOException | UncheckedIOException | IllegalArgumentException | IllegalStateException e) {
+			export.error = e.getMessage();
+			export.state = State.FAILED;
+			System.out.println("Export failed: " + export);
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) {
+				// Left for the next export of the same name to replace.
+			}
+		} finally {
+			try {
+				// Also deletes the temporary files rows were spilled to.
+				workbook.close();
+			} catch (IOException ignored) {
+				// Nothing left to release.
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package edu.ntu.bto.service;
+
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import edu.ntu.bto.model.User;
+
+/**
+ * One terminal session: repeatedly prompts for a login and runs the logged-in
+ * user's menu until the input ends. The console and every server connection
+ * each run their own session against the shared {@link BTOManagementSystem}.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class Session implements Runnable {
+	/** The shared system. */
+	private final BTOManagementSystem system;
+	/** Reads the session's input. */
+	private final Scanner scanner;
+
+	/**
+	 * Creates a session.
+	 *
+	 * @param system  The shared system.
+	 * @param scanner Reads the session's input; printed output goes to
+	 *                {@code System.out}.
+	 */
+	public Session(BTOManagementSystem system, Scanner scanner) {
+		this.system = system;
+		this.scanner = scanner;
+	}
+
+	/**
+	 * Runs the login loop until the input is exhausted. Any other failure is
+	 * left to the caller to report.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				System.out.println("\n--- Welcome to the BTO Management System ---");
+				System.out.print("Enter NRIC: ");
+				String nric = scanner.nextLine().trim().toUpperCase();
+				while (!nric.matches("^[STFG]\\d{7}[A-Z]$")) {
+					System.out.println("Invalid NRIC. Please try again.");
+					System.out.print("Enter NRIC: ");
+					nric = scanner.nextLine().trim().toUpperCase();
+				}
+				System.out.print("Enter Password: ");
+				String password = scanner.nextLine();
+				User user = system.login(nric, password);
+				if (user != null) {
+					System.out.println("Login successful! Welcome, " + user.getNric());
+					user.displayMenu(scanner, system);
+				} else {
+					System.out.println("Invalid credentials. Please try again.");
+				}
+			}
+		} catch (NoSuchElementException e) {
+			// Input closed: the user disconnected or the console reached end of file.
+		}
+	}
+}
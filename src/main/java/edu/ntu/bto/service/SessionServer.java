@@ -0,0 +1,133 @@
+package edu.ntu.bto.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.ntu.bto.util.SessionPrintStream;
+
+/**
+ * Serves terminal sessions over TCP on the loopback interface, so that several
+ * counter staff and applicants can use one running system at the same time
+ * (for example with {@code telnet localhost 5050} or {@code nc localhost 5050}).
+ * <p>
+ * Every connection runs a {@link Session} on its own thread. The menus print to
+ * {@code System.out}, which is replaced by a {@link SessionPrintStream} that
+ * sends each thread's output to its own connection.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class SessionServer implements Closeable {
+	/** Port used when none is given. */
+	public static final int DEFAULT_PORT = 5050;
+
+	/** The shared system. */
+	private final BTOManagementSystem system;
+	/** The listening socket. */
+	private final ServerSocket serverSocket;
+	/** Runs one session per thread. */
+	private final ExecutorService sessions;
+	/** Number of sessions currently connected. */
+	private final AtomicInteger active = new AtomicInteger();
+
+	/**
+	 * Opens the listening socket on the loopback interface.
+	 *
+	 * @param system The shared system.
+	 * @param port   The TCP port, or 0 for any free port.
+	 * @throws IOException if the port cannot be bound.
+	 */
+	public SessionServer(BTOManagementSystem system, int port) throws IOException {
+		this.system = system;
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		AtomicInteger threadId = new AtomicInteger();
+		this.sessions = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "bto-session-" + threadId.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 *
+	 * @return The local port.
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the number of sessions currently connected.
+	 *
+	 * @return The active session count.
+	 */
+	public int getActiveSessions() {
+		return active.get();
+	}
+
+	/**
+	 * Accepts connections until the server is closed, starting a session for
+	 * each one.
+	 */
+	public void serve() {
+		SessionPrintStream.install();
+		System.out.println("Serving sessions on " + serverSocket.getInetAddress().getHostAddress() + ":" + getPort());
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Unable to accept connection: " + e.getMessage());
+				}
+				continue;
+			}
+			sessions.execute(() -> handle(socket));
+		}
+	}
+
+	/**
+	 * Runs a session over a connection and closes it when the session ends.
+	 *
+	 * @param socket The client connection.
+	 */
+	private void handle(Socket socket) {
+		String client = socket.getRemoteSocketAddress().toString();
+		System.out.println("Session opened: " + client + " (" + active.incrementAndGet() + " active)");
+		Charset charset = Charset.defaultCharset();
+		try (Socket s = socket;
+				Scanner scanner = new Scanner(s.getInputStream(), charset);
+				PrintStream out = new PrintStream(s.getOutputStream(), true, charset)) {
+			SessionPrintStream.bind(out);
+			new Session(system, scanner).run();
+		} catch (IOException e) {
+			System.err.println("Session " + client + " failed: " + e.getMessage());
+		} catch (RuntimeException e) {
+			System.err.println("Session " + client + " ended by error: " + e);
+		} finally {
+			SessionPrintStream.unbind();
+			System.out.println("Session closed: " + client + " (" + active.decrementAndGet() + " active)");
+		}
+	}
+
+	/**
+	 * Stops accepting connections and disconnects every session.
+	 *
+	 * @throws IOException if the listening socket cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		sessions.shutdownNow();
+	}
+}
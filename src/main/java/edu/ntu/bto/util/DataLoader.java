@@ -1,14 +1,37 @@
 package edu.ntu.bto.util;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 import edu.ntu.bto.model.Applicant;
 import edu.ntu.bto.model.HDBManager;
 import edu.ntu.bto.model.HDBOfficer;
@@ -16,20 +39,132 @@ import edu.ntu.bto.model.Project;
 
 /**
  * Utility class to load Excel data files using Apache POI.
- * 
+ *
  * For user files: Columns: 0: Name (ignored), 1: NRIC, 2: Age, 3: Marital
  * Status, 4: Password (ignored)
- * 
+ *
  * For project files: Columns: 0: Project Name, 1: Neighborhood, 2: Type 1, 3:
  * #units for Type 1, 4: Selling price for Type 1, 5: Type 2, 6: #units for Type
  * 2, 7: Selling price for Type 2, 8: Application opening date, 9: Application
  * closing date, 10: Manager, 11: Officer Slot, 12: Officer
+ * <p>
+ * Two load modes are supported. {@link Mode#DOM} builds a full
+ * {@link XSSFWorkbook} in memory, while {@link Mode#STREAMING} reads the sheet
+ * XML through POI's SAX event API so memory stays constant regardless of the
+ * number of rows. Both modes turn each row into a {@code String[]} of cell
+ * values and hand it to the same {@link RowMapper}, so the resulting objects
+ * are identical. The mode defaults to streaming and can be changed with the
+ * {@code bto.loader.mode} system property or {@link #setMode(Mode)}.
+ * </p>
  */
 public class DataLoader {
 
+	/**
+	 * The available strategies for reading a workbook.
+	 */
+	public enum Mode {
+		/** Load the whole workbook into memory with {@link XSSFWorkbook}. */
+		DOM,
+		/** Stream rows one at a time through the XSSF SAX event reader. */
+		STREAMING
+	}
+
+	/**
+	 * Maps a single spreadsheet row to a domain object.
+	 *
+	 * @param <T> The type of object produced for each row.
+	 */
+	@FunctionalInterface
+	public interface RowMapper<T> {
+		/**
+		 * Converts the cell values of one row into an object.
+		 *
+		 * @param rowNum The zero-based row number within the sheet.
+		 * @param cells  The trimmed cell values indexed by column; missing or blank
+		 *               cells are {@code null}.
+		 * @return The mapped object, or {@code null} to skip the row.
+		 */
+		T map(int rowNum, String[] cells);
+	}
+
+	/** The load mode used by all loaders. */
+	private static volatile Mode mode = parseMode(System.getProperty("bto.loader.mode"));
+
+	/** Maps an applicant row (NRIC, age, marital status). */
+	public static final RowMapper<Applicant> APPLICANT_MAPPER = (rowNum, cells) -> {
+		if (cell(cells, 1) == null || cell(cells, 2) == null || cell(cells, 3) == null)
+			return null;
+		return new Applicant(cells[1], parseInt(cells[2]), cells[3]);
+	};
+
+	/** Maps a manager row (name, NRIC, age, marital status). */
+	public static final RowMapper<HDBManager> MANAGER_MAPPER = (rowNum, cells) -> {
+		if (cell(cells, 1) == null || cell(cells, 2) == null || cell(cells, 3) == null)
+			return null;
+		String name = cell(cells, 0) == null ? "" : cells[0];
+		return new HDBManager(name, cells[1], parseInt(cells[2]), cells[3]);
+	};
+
+	/** Maps an officer row (NRIC, age, marital status). */
+	public static final RowMapper<HDBOfficer> OFFICER_MAPPER = (rowNum, cells) -> {
+		if (cell(cells, 1) == null || cell(cells, 2) == null || cell(cells, 3) == null)
+			return null;
+		return new HDBOfficer(cells[1], parseInt(cells[2]), cells[3]);
+	};
+
+	/** Maps a project row; all 13 columns are required. */
+	public static final RowMapper<Project> PROJECT_MAPPER = (rowNum, cells) -> {
+		for (int i = 0; i < 13; i++) {
+			if (cell(cells, i) == null) {
+				System.err.println("Skipping row " + rowNum + " due to missing cells.");
+				return null;
+			}
+		}
+		return new Project(cells[0], cells[1], cells[2], parseInt(cells[3]), parseDouble(cells[4]), cells[5],
+				parseInt(cells[6]), parseDouble(cells[7]), cells[8], cells[9], cells[10], parseInt(cells[11]),
+				cells[12]);
+	};
+
+	/**
+	 * Parses the {@code bto.loader.mode} setting. A missing value selects
+	 * {@link Mode#STREAMING}, as does an unknown one, with a warning.
+	 *
+	 * @param value The setting, or {@code null} if unset.
+	 * @return The {@link Mode} named, in any case.
+	 */
+	static Mode parseMode(String value) {
+		if (value == null || value.isBlank()) {
+			return Mode.STREAMING;
+		}
+		try {
+			return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			System.err.println("Warning: Unknown bto.loader.mode '" + value + "', using " + Mode.STREAMING);
+			return Mode.STREAMING;
+		}
+	}
+
+	/**
+	 * Returns the load mode currently in use.
+	 *
+	 * @return The current {@link Mode}.
+	 */
+	public static Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the load mode used by subsequent loads.
+	 *
+	 * @param newMode The {@link Mode} to use.
+	 */
+	public static void setMode(Mode newMode) {
+		mode = newMode;
+	}
+
 	/**
 	 * Loads an Excel workbook from a file in the data directory.
-	 * 
+	 *
 	 * @param relativePath The filename of the Excel file located in the "data"
 	 *                     directory.
 	 * @return The loaded {@link Workbook}.
@@ -37,52 +172,55 @@ public class DataLoader {
 	 */
 	private static Workbook loadWorkbook(String relativePath) throws IOException {
 		String filePath = Paths.get("data", relativePath).toString();
-		return new XSSFWorkbook(new FileInputStream(filePath));
+		try (InputStream in = new FileInputStream(filePath)) {
+			return new XSSFWorkbook(in);
+		}
 	}
 
 	/**
-	 * Safely retrieves an integer value from a cell. This handles numeric cells or
-	 * numeric strings; other types will cause an IllegalStateException.
-	 * 
-	 * @param cell The Excel {@link Cell} containing an integer.
-	 * @return The integer value of the cell.
+	 * Returns the cell at the given column, or {@code null} if the row is shorter.
+	 *
+	 * @param cells  The row values.
+	 * @param column The column index.
+	 * @return The cell value, or {@code null} if absent.
 	 */
-	private static int getIntCellValue(Cell cell) {
-		if (cell.getCellType() == CellType.NUMERIC) {
-			return (int) cell.getNumericCellValue();
-		} else if (cell.getCellType() == CellType.STRING) {
-			String value = cell.getStringCellValue().trim();
+	private static String cell(String[] cells, int column) {
+		return column < cells.length ? cells[column] : null;
+	}
+
+	/**
+	 * Parses an integer from a cell value. Numeric cells arrive as decimal strings
+	 * (e.g. "35.0"), so a decimal value is truncated the same way a numeric cell
+	 * would be.
+	 *
+	 * @param value The cell value.
+	 * @return The integer value, or 0 if it cannot be parsed.
+	 */
+	private static int parseInt(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
 			try {
-				return Integer.parseInt(value);
-			} catch (NumberFormatException e) {
+				return (int) Double.parseDouble(value);
+			} catch (NumberFormatException e2) {
 				System.err.println("Warning: Expected int but got: " + value);
 				return 0;
 			}
-		} else {
-			throw new IllegalStateException("Unexpected cell type for integer: " + cell.getCellType());
 		}
 	}
 
 	/**
-	 * Safely retrieves a double value from a cell. This handles numeric cells or
-	 * numeric strings; other types will cause an IllegalStateException.
-	 * 
-	 * @param cell The Excel {@link Cell} containing a double.
-	 * @return The double value of the cell.
+	 * Parses a double from a cell value.
+	 *
+	 * @param value The cell value.
+	 * @return The double value, or 0.0 if it cannot be parsed.
 	 */
-	private static double getDoubleCellValue(Cell cell) {
-		if (cell.getCellType() == CellType.NUMERIC) {
-			return cell.getNumericCellValue();
-		} else if (cell.getCellType() == CellType.STRING) {
-			String value = cell.getStringCellValue().trim();
-			try {
-				return Double.parseDouble(value);
-			} catch (NumberFormatException e) {
-				System.err.println("Warning: Expected double but got: " + value);
-				return 0.0;
-			}
-		} else {
-			throw new IllegalStateException("Unexpected cell type for double: " + cell.getCellType());
+	private static double parseDouble(String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			System.err.println("Warning: Expected double but got: " + value);
+			return 0.0;
 		}
 	}
 
@@ -120,169 +258,307 @@ public class DataLoader {
 		}
 	}
 
+	/**
+	 * Loads every data row of the first sheet of a workbook and maps it to an
+	 * object, using the current {@link Mode}. The header row is skipped.
+	 *
+	 * @param <T>      The type of object produced for each row.
+	 * @param fileName The filename of the Excel file in the "data" directory.
+	 * @param mapper   The {@link RowMapper} that converts each row.
+	 * @return A list of the mapped objects, in row order.
+	 * @throws IOException if the file cannot be found or read.
+	 */
+	public static <T> List<T> load(String fileName, RowMapper<T> mapper) throws IOException {
+		List<T> result = new ArrayList<>();
+		stream(fileName, mapper, result::add);
+		return result;
+	}
+
+	/**
+	 * Streams every data row of the first sheet of a workbook through a mapper and
+	 * hands each resulting object to a consumer. The header row is skipped and rows
+	 * for which the mapper returns {@code null} are dropped. In
+	 * {@link Mode#STREAMING} only one row is held in memory at a time. The elapsed
+	 * time of the load, and the memory allocated by the thread that ran it, are
+	 * printed once it completes. Allocation is counted per thread so that loads
+	 * running in parallel do not count each other's garbage.
+	 *
+	 * @param <T>      The type of object produced for each row.
+	 * @param fileName The filename of the Excel file in the "data" directory.
+	 * @param mapper   The {@link RowMapper} that converts each row.
+	 * @param sink     Receives each mapped object in row order.
+	 * @throws IOException if the file cannot be found or read.
+	 */
+	public static <T> void stream(String fileName, RowMapper<T> mapper, Consumer<? super T> sink)
+			throws IOException {
+		Mode current = mode;
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		int[] count = new int[1];
+		Consumer<String[]> rows = new Consumer<>() {
+			private int rowNum = 0;
+
+			@Override
+			public void accept(String[] cells) {
+				int num = rowNum++;
+				if (num == 0) {
+					return; // header
+				}
+				T value = mapper.map(num, cells);
+				if (value != null) {
+					count[0]++;
+					sink.accept(value);
+				}
+			}
+		};
+		if (current == Mode.STREAMING) {
+			readStreaming(fileName, rows);
+		} else {
+			readDom(fileName, rows);
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+		if (allocated < 0) {
+			System.out.printf("Loaded %d rows from %s in %d ms [%s]%n", count[0], fileName, elapsedMs, current);
+		} else {
+			System.out.printf("Loaded %d rows from %s in %d ms [%s, allocated %.1f MB]%n", count[0], fileName,
+					elapsedMs, current, (allocatedBytes() - allocated) / (1024.0 * 1024.0));
+		}
+	}
+
+	/**
+	 * Reads the first sheet with the in-memory {@link XSSFWorkbook} model.
+	 *
+	 * @param fileName The filename of the Excel file in the "data" directory.
+	 * @param rows     Receives the cell values of every row.
+	 * @throws IOException if the file cannot be found or read.
+	 */
+	private static void readDom(String fileName, Consumer<String[]> rows) throws IOException {
+		try (Workbook workbook = loadWorkbook(fileName)) {
+			Sheet sheet = workbook.getSheetAt(0);
+			for (Row row : sheet) {
+				int width = Math.max(row.getLastCellNum(), 0);
+				String[] cells = new String[width];
+				for (int i = 0; i < width; i++) {
+					Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+					if (cell != null) {
+						cells[i] = getStringValue(cell);
+					}
+				}
+				rows.accept(cells);
+			}
+		}
+	}
+
+	/**
+	 * Reads the first sheet through the XSSF SAX event API without building a
+	 * workbook model.
+	 *
+	 * @param fileName The filename of the Excel file in the "data" directory.
+	 * @param rows     Receives the cell values of every row.
+	 * @throws IOException if the file cannot be found, read or parsed.
+	 */
+	private static void readStreaming(String fileName, Consumer<String[]> rows) throws IOException {
+		File file = Paths.get("data", fileName).toFile();
+		if (!file.isFile()) {
+			throw new IOException(file.getPath() + " (No such file or directory)");
+		}
+		try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			StylesTable styles = reader.getStylesTable();
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			if (!sheets.hasNext()) {
+				return;
+			}
+			try (InputStream sheet = sheets.next()) {
+				XMLReader parser = XMLHelper.newXMLReader();
+				parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new RowCollector(rows),
+						new IsoDateFormatter(), false));
+				parser.parse(new InputSource(sheet));
+			}
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IOException("Unable to stream " + fileName + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Collects the SAX cell callbacks of one row into a {@code String[]}.
+	 */
+	private static class RowCollector implements SheetContentsHandler {
+		/** Receives each completed row. */
+		private final Consumer<String[]> rows;
+		/** Cell values of the row being read. */
+		private String[] cells = new String[16];
+		/** Number of columns seen in the row being read. */
+		private int width;
+		/** Column of the previous cell, used when a cell has no reference. */
+		private int lastColumn;
+		/** Row number expected next, used to emit empty rows the XML omits. */
+		private int nextRow;
+
+		/**
+		 * Creates a collector that forwards rows to the given consumer.
+		 *
+		 * @param rows Receives each completed row.
+		 */
+		RowCollector(Consumer<String[]> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+			while (nextRow < rowNum) {
+				rows.accept(new String[0]);
+				nextRow++;
+			}
+			Arrays.fill(cells, 0, width, null);
+			width = 0;
+			lastColumn = -1;
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+			rows.accept(Arrays.copyOf(cells, width));
+			nextRow = rowNum + 1;
+		}
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			int column = cellReference == null ? lastColumn + 1 : new CellReference(cellReference).getCol();
+			lastColumn = column;
+			if (formattedValue == null) {
+				return;
+			}
+			if (column >= cells.length) {
+				cells = Arrays.copyOf(cells, Math.max(column + 1, cells.length * 2));
+			}
+			cells[column] = formattedValue.trim();
+			width = Math.max(width, column + 1);
+		}
+	}
+
+	/**
+	 * Formats numeric cells the same way {@link #getStringValue(Cell)} does: dates
+	 * as {@code yyyy-MM-dd} and other numbers as their {@code double} string.
+	 */
+	private static class IsoDateFormatter extends DataFormatter {
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString,
+				boolean use1904Windowing) {
+			if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+				Date date = DateUtil.getJavaDate(value, use1904Windowing);
+				return new SimpleDateFormat("yyyy-MM-dd").format(date);
+			}
+			return String.valueOf(value);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has allocated so far.
+	 *
+	 * @return The allocated bytes, or -1 if the JVM does not measure them.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getCurrentThreadAllocatedBytes();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Resets the recorded peak usage of every heap memory pool. The peaks are
+	 * JVM-wide, so they describe a whole loading stage rather than one file.
+	 */
+	public static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Returns the sum of the peak usage of every heap memory pool since the last
+	 * reset.
+	 *
+	 * @return The peak heap usage in bytes.
+	 */
+	public static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
 	/**
 	 * Loads all applicants from an Excel file. Each row in the Excel should contain
 	 * applicant details. Name and password columns are ignored (default password is
 	 * used).
-	 * 
+	 *
 	 * @param fileName The filename of the Excel file containing applicant data.
 	 * @return A list of {@link Applicant} objects loaded from the file.
 	 */
 	public static List<Applicant> loadApplicants(String fileName) {
-		List<Applicant> applicants = new ArrayList<>();
-		try (Workbook workbook = loadWorkbook(fileName)) {
-			Sheet sheet = workbook.getSheetAt(0);
-			boolean firstRow = true;
-			for (Row row : sheet) {
-				if (firstRow) {
-					firstRow = false;
-					continue;
-				}
-				Cell nricCell = row.getCell(1, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell ageCell = row.getCell(2, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell maritalCell = row.getCell(3, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				if (nricCell != null && ageCell != null && maritalCell != null) {
-					String nric = getStringValue(nricCell);
-					int age = getIntCellValue(ageCell);
-					String maritalStatus = getStringValue(maritalCell);
-					applicants.add(new Applicant(nric, age, maritalStatus));
-				}
-			}
+		try {
+			return load(fileName, APPLICANT_MAPPER);
 		} catch (IOException e) {
 			System.err.println("Error loading Applicants from " + fileName + ": " + e.getMessage());
+			return new ArrayList<>();
 		}
-		return applicants;
 	}
 
 	/**
 	 * Loads all HDB Managers from an Excel file. Each row should contain manager
 	 * details including name. Password column is ignored (default used).
-	 * 
+	 *
 	 * @param fileName The filename of the Excel file containing manager data.
 	 * @return A list of {@link HDBManager} objects loaded from the file.
 	 */
 	public static List<HDBManager> loadManagers(String fileName) {
-		List<HDBManager> managers = new ArrayList<>();
-		try (Workbook workbook = loadWorkbook(fileName)) {
-			Sheet sheet = workbook.getSheetAt(0);
-			boolean firstRow = true;
-			for (Row row : sheet) {
-				if (firstRow) {
-					firstRow = false;
-					continue;
-				}
-				Cell nameCell = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell nricCell = row.getCell(1, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell ageCell = row.getCell(2, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell maritalCell = row.getCell(3, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				if (nricCell != null && ageCell != null && maritalCell != null) {
-					String name = getStringValue(nameCell);
-					String nric = getStringValue(nricCell);
-					int age = getIntCellValue(ageCell);
-					String maritalStatus = getStringValue(maritalCell);
-					managers.add(new HDBManager(name, nric, age, maritalStatus));
-				}
-			}
+		try {
+			return load(fileName, MANAGER_MAPPER);
 		} catch (IOException e) {
 			System.err.println("Error loading Managers from " + fileName + ": " + e.getMessage());
+			return new ArrayList<>();
 		}
-		return managers;
 	}
 
 	/**
 	 * Loads all HDB Officers from an Excel file. Each row should contain officer
 	 * details. Name and password are ignored (treated like applicants).
-	 * 
+	 *
 	 * @param fileName The filename of the Excel file containing officer data.
 	 * @return A list of {@link HDBOfficer} objects loaded from the file.
 	 */
 	public static List<HDBOfficer> loadOfficers(String fileName) {
-		List<HDBOfficer> officers = new ArrayList<>();
-		try (Workbook workbook = loadWorkbook(fileName)) {
-			Sheet sheet = workbook.getSheetAt(0);
-			boolean firstRow = true;
-			for (Row row : sheet) {
-				if (firstRow) {
-					firstRow = false;
-					continue;
-				}
-				Cell nricCell = row.getCell(1, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell ageCell = row.getCell(2, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell maritalCell = row.getCell(3, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				if (nricCell != null && ageCell != null && maritalCell != null) {
-					String nric = getStringValue(nricCell);
-					int age = getIntCellValue(ageCell);
-					String maritalStatus = getStringValue(maritalCell);
-					officers.add(new HDBOfficer(nric, age, maritalStatus));
-				}
-			}
+		try {
+			return load(fileName, OFFICER_MAPPER);
 		} catch (IOException e) {
 			System.err.println("Error loading Officers from " + fileName + ": " + e.getMessage());
+			return new ArrayList<>();
 		}
-		return officers;
 	}
 
 	/**
 	 * Loads all projects from an Excel file. Each row should contain project
 	 * details as per the specified column format.
-	 * 
+	 *
 	 * @param fileName The filename of the Excel file containing project data.
 	 * @return A list of {@link Project} objects loaded from the file.
 	 */
 	public static List<Project> loadProjects(String fileName) {
-		List<Project> projects = new ArrayList<>();
-		try (Workbook workbook = loadWorkbook(fileName)) {
-			Sheet sheet = workbook.getSheetAt(0);
-			boolean firstRow = true;
-			for (Row row : sheet) {
-				if (firstRow) {
-					firstRow = false;
-					continue;
-				}
-				// Expected 13 columns.
-				Cell projectNameCell = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell neighborhoodCell = row.getCell(1, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell type1Cell = row.getCell(2, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell unitsType1Cell = row.getCell(3, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell priceType1Cell = row.getCell(4, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell type2Cell = row.getCell(5, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell unitsType2Cell = row.getCell(6, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell priceType2Cell = row.getCell(7, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell openDateCell = row.getCell(8, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell closeDateCell = row.getCell(9, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell managerCell = row.getCell(10, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell officerSlotCell = row.getCell(11, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-				Cell officerCell = row.getCell(12, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-
-				if (projectNameCell == null || neighborhoodCell == null || type1Cell == null || unitsType1Cell == null
-						|| priceType1Cell == null || type2Cell == null || unitsType2Cell == null
-						|| priceType2Cell == null || openDateCell == null || closeDateCell == null
-						|| managerCell == null || officerSlotCell == null || officerCell == null) {
-					System.err.println("Skipping row " + row.getRowNum() + " due to missing cells.");
-					continue;
-				}
-
-				String projectName = getStringValue(projectNameCell);
-				String neighborhood = getStringValue(neighborhoodCell);
-				String type1 = getStringValue(type1Cell);
-				int unitsType1 = getIntCellValue(unitsType1Cell);
-				double priceType1 = getDoubleCellValue(priceType1Cell);
-				String type2 = getStringValue(type2Cell);
-				int unitsType2 = getIntCellValue(unitsType2Cell);
-				double priceType2 = getDoubleCellValue(priceType2Cell);
-				String openDate = getStringValue(openDateCell);
-				String closeDate = getStringValue(closeDateCell);
-				String manager = getStringValue(managerCell);
-				int officerSlot = getIntCellValue(officerSlotCell);
-				String officer = getStringValue(officerCell);
-
-				Project proj = new Project(projectName, neighborhood, type1, unitsType1, priceType1, type2, unitsType2,
-						priceType2, openDate, closeDate, manager, officerSlot, officer);
-				projects.add(proj);
-			}
+		try {
+			return load(fileName, PROJECT_MAPPER);
 		} catch (IOException e) {
 			System.err.println("Error loading Projects from " + fileName + ": " + e.getMessage());
+			return new ArrayList<>();
 		}
-		return projects;
 	}
 }
@@ -0,0 +1,258 @@
+package edu.ntu.bto.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Runs tasks after a delay, for large numbers of timers that are mostly
+ * cancelled before they fire. Timers are hashed into a ring of buckets by their
+ * deadline tick; one background thread advances around the ring once per tick
+ * and only looks at the bucket under it, so scheduling and cancelling cost
+ * constant time and nothing ever scans every pending timer.
+ * <p>
+ * Deadlines further away than one turn of the ring wait for the required
+ * number of turns in their bucket. Tasks fire on the wheel's thread up to one
+ * tick late, and must be short; a task that throws is reported and does not
+ * stop the wheel.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class HashedTimingWheel implements AutoCloseable {
+	/**
+	 * A scheduled task, which can be cancelled until it fires.
+	 */
+	public static final class Timeout {
+		/** State while the task is waiting. */
+		private static final int PENDING = 0;
+		/** State once the task has been cancelled. */
+		private static final int CANCELLED = 1;
+		/** State once the task has fired. */
+		private static final int EXPIRED = 2;
+		/** Updates {@link #state} atomically. */
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater
+				.newUpdater(Timeout.class, "state");
+
+		/** The task to run. */
+		private final Runnable task;
+		/** Tick at which the task is due, counted from the wheel's start. */
+		private final long deadlineTick;
+		/** Full turns of the ring left before the task is due; wheel thread only. */
+		private long remainingRounds;
+		/** One of {@link #PENDING}, {@link #CANCELLED} or {@link #EXPIRED}. */
+		private volatile int state;
+
+		/**
+		 * Creates a timeout.
+		 *
+		 * @param task         The task to run.
+		 * @param deadlineTick The tick at which it is due.
+		 */
+		private Timeout(Runnable task, long deadlineTick) {
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		/**
+		 * Cancels the task if it has not fired yet.
+		 *
+		 * @return {@code true} if this call cancelled the task, {@code false} if it
+		 *         had already fired or been cancelled.
+		 */
+		public boolean cancel() {
+			return STATE.compareAndSet(this, PENDING, CANCELLED);
+		}
+
+		/**
+		 * Returns whether the task has been cancelled.
+		 *
+		 * @return {@code true} if cancelled.
+		 */
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		/**
+		 * Returns whether the task has fired.
+		 *
+		 * @return {@code true} if fired.
+		 */
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+
+		/**
+		 * Marks the task as fired unless it was cancelled.
+		 *
+		 * @return {@code true} if the task should run.
+		 */
+		private boolean expire() {
+			return STATE.compareAndSet(this, PENDING, EXPIRED);
+		}
+	}
+
+	/** Length of one tick, in nanoseconds. */
+	private final long tickNanos;
+	/** The ring of buckets; only touched by the wheel thread. */
+	private final ArrayDeque<Timeout>[] buckets;
+	/** Mask mapping a tick to its bucket; the ring size is a power of two. */
+	private final int mask;
+	/** Timeouts scheduled since the last tick, waiting to be hashed into buckets. */
+	private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+	/** Number of timeouts scheduled and neither fired nor removed after cancelling. */
+	private final AtomicInteger pending = new AtomicInteger();
+	/** Start of tick 0, in {@link System#nanoTime()}. */
+	private final long startNanos;
+	/** The thread advancing the wheel. */
+	private final Thread worker;
+	/** Set once the wheel is closed. */
+	private volatile boolean closed;
+
+	/**
+	 * Creates a wheel and starts its thread.
+	 *
+	 * @param name     The name of the wheel's thread.
+	 * @param tick     The length of one tick; tasks fire up to one tick late.
+	 * @param unit     The unit of {@code tick}.
+	 * @param ringSize The minimum number of buckets; rounded up to a power of two.
+	 */
+	public HashedTimingWheel(String name, long tick, TimeUnit unit, int ringSize) {
+		this.tickNanos = Math.max(1, unit.toNanos(tick));
+		int n = Integer.highestOneBit(Math.max(1, ringSize - 1)) << 1;
+		this.buckets = newBuckets(n);
+		for (int i = 0; i < n; i++) {
+			buckets[i] = new ArrayDeque<>();
+		}
+		this.mask = n - 1;
+		this.startNanos = System.nanoTime();
+		this.worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Creates the ring of buckets. Java cannot create an array of a generic type
+	 * directly, so an array of wildcard deques is cast; it only ever holds
+	 * {@code ArrayDeque<Timeout>}s.
+	 *
+	 * @param n The number of buckets.
+	 * @return The empty array.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ArrayDeque<Timeout>[] newBuckets(int n) {
+		return (ArrayDeque<Timeout>[]) new ArrayDeque<?>[n];
+	}
+
+	/**
+	 * Schedules a task to run once after a delay.
+	 *
+	 * @param task  The task to run on the wheel's thread.
+	 * @param delay The delay.
+	 * @param unit  The unit of {@code delay}.
+	 * @return The {@link Timeout}, which can be used to cancel the task.
+	 * @throws IllegalStateException if the wheel is closed.
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (closed) {
+			throw new IllegalStateException("Timing wheel is closed");
+		}
+		long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+		// Round up so a task never fires before its delay has passed.
+		Timeout timeout = new Timeout(task, (deadline + tickNanos - 1) / tickNanos);
+		pending.incrementAndGet();
+		incoming.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Returns the number of timeouts that have not fired yet, including
+	 * cancelled ones the wheel has not reached.
+	 *
+	 * @return The pending timeout count.
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	/**
+	 * Stops the wheel. Pending tasks never fire.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+	}
+
+	/**
+	 * The wheel thread: waits for each tick, then fires the due timeouts in the
+	 * bucket under it.
+	 */
+	private void run() {
+		long tick = 0;
+		while (!closed) {
+			long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+			if (sleepNanos > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+				} catch (InterruptedException e) {
+					continue;
+				}
+			}
+			tick++;
+			transferIncoming(tick);
+			expire(buckets[(int) (tick & mask)]);
+		}
+	}
+
+	/**
+	 * Hashes newly scheduled timeouts into their buckets.
+	 *
+	 * @param tick The current tick.
+	 */
+	private void transferIncoming(long tick) {
+		Timeout timeout;
+		while ((timeout = incoming.poll()) != null) {
+			if (timeout.isCancelled()) {
+				pending.decrementAndGet();
+				continue;
+			}
+			// A deadline already passed goes into the current bucket.
+			long due = Math.max(timeout.deadlineTick, tick);
+			timeout.remainingRounds = (due - tick) / buckets.length;
+			buckets[(int) (due & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * Fires the due timeouts in a bucket, drops cancelled ones, and moves the
+	 * others one turn closer.
+	 *
+	 * @param bucket The bucket under the current tick.
+	 */
+	private void expire(ArrayDeque<Timeout> bucket) {
+		for (Iterator<Timeout> it = bucket.iterator(); it.hasNext();) {
+			Timeout timeout = it.next();
+			if (timeout.isCancelled()) {
+				it.remove();
+				pending.decrementAndGet();
+			} else if (timeout.remainingRounds <= 0) {
+				it.remove();
+				pending.decrementAndGet();
+				if (timeout.expire()) {
+					try {
+						timeout.task.run();
+					} catch (RuntimeException e) {
+						System.err.println("Timer task failed: " + e);
+					}
+				}
+			} else {
+				timeout.remainingRounds--;
+			}
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package edu.ntu.bto.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * An interval tree over closed {@code long} intervals, such as application
+ * windows in epoch days. It is a treap ordered by interval start, with random
+ * priorities keeping it balanced in expectation, where every node also records
+ * the latest end in its subtree. Finding the intervals that overlap a query
+ * interval then skips every subtree that ends too early or starts too late, so
+ * it takes O(log n + k) expected time for k results.
+ * <p>
+ * Values are compared by identity; the same value may be stored under
+ * several intervals. The tree is not thread-safe.
+ * </p>
+ *
+ * @param <T> The type of the values stored with the intervals.
+ * @author SC2002 Assignment Group
+ */
+public class IntervalTree<T> {
+	/**
+	 * One interval and its value.
+	 *
+	 * @param <T> The value type.
+	 */
+	private static final class Node<T> {
+		/** Start of the interval. */
+		private final long start;
+		/** End of the interval, inclusive. */
+		private final long end;
+		/** The value stored with the interval. */
+		private final T value;
+		/** Heap priority; parents have higher priorities than their children. */
+		private final int priority;
+		/** The latest end in this subtree. */
+		private long maxEnd;
+		/** Intervals starting no later than this one. */
+		private Node<T> left;
+		/** Intervals starting no earlier than this one. */
+		private Node<T> right;
+
+		/**
+		 * Creates a leaf.
+		 *
+		 * @param start    Start of the interval.
+		 * @param end      End of the interval.
+		 * @param value    The value.
+		 * @param priority The heap priority.
+		 */
+		Node(long start, long end, T value, int priority) {
+			this.start = start;
+			this.end = end;
+			this.value = value;
+			this.priority = priority;
+			this.maxEnd = end;
+		}
+
+		/**
+		 * Recomputes the latest end from this node and its children.
+		 */
+		void update() {
+			long max = end;
+			if (left != null && left.maxEnd > max) {
+				max = left.maxEnd;
+			}
+			if (right != null && right.maxEnd > max) {
+				max = right.maxEnd;
+			}
+			maxEnd = max;
+		}
+	}
+
+	/** Source of node priorities. */
+	private final SplittableRandom random = new SplittableRandom();
+	/** The root, or {@code null} if the tree is empty. */
+	private Node<T> root;
+	/** Number of intervals. */
+	private int size;
+
+	/**
+	 * Adds an interval.
+	 *
+	 * @param start Start of the interval.
+	 * @param end   End of the interval, inclusive.
+	 * @param value The value stored with it.
+	 * @throws IllegalArgumentException if {@code end} is before {@code start}.
+	 */
+	public void add(long start, long end, T value) {
+		if (end < start) {
+			throw new IllegalArgumentException("Interval ends before it starts: " + start + " > " + end);
+		}
+		root = insert(root, new Node<>(start, end, value, random.nextInt()));
+		size++;
+	}
+
+	/**
+	 * Removes an interval added with {@link #add(long, long, Object)}.
+	 *
+	 * @param start Start of the interval.
+	 * @param value The value stored with it.
+	 * @return {@code true} if it was found and removed.
+	 */
+	public boolean remove(long start, T value) {
+		int before = size;
+		root = delete(root, start, value);
+		return size < before;
+	}
+
+	/**
+	 * Returns the values of the intervals that overlap {@code [start, end]}.
+	 *
+	 * @param start Start of the query interval.
+	 * @param end   End of the query interval, inclusive.
+	 * @return The values, in order of interval start.
+	 */
+	public List<T> overlapping(long start, long end) {
+		List<T> result = new ArrayList<>();
+		collect(root, start, end, result);
+		return result;
+	}
+
+	/**
+	 * Returns whether any interval overlaps {@code [start, end]}.
+	 *
+	 * @param start Start of the query interval.
+	 * @param end   End of the query interval, inclusive.
+	 * @return {@code true} if one does.
+	 */
+	public boolean overlaps(long start, long end) {
+		Node<T> node = root;
+		while (node != null && node.maxEnd >= start) {
+			if (node.left != null && node.left.maxEnd >= start) {
+				// Something on the left ends late enough; it overlaps unless it starts too late,
+				// in which case nothing further right can overlap either.
+				node = node.left;
+			} else if (node.start <= end) {
+				if (node.end >= start) {
+					return true;
+				}
+				node = node.right;
+			} else {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of intervals.
+	 *
+	 * @return The interval count.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Inserts a node into a subtree.
+	 *
+	 * @param node The subtree, or {@code null}.
+	 * @param leaf The new node.
+	 * @return The new root of the subtree.
+	 */
+	private Node<T> insert(Node<T> node, Node<T> leaf) {
+		if (node == null) {
+			return leaf;
+		}
+		if (leaf.start < node.start) {
+			node.left = insert(node.left, leaf);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, leaf);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		node.update();
+		return node;
+	}
+
+	/**
+	 * Deletes the node of a value from a subtree. Intervals with the same start
+	 * can sit on either side after rotations, so both sides are searched then.
+	 *
+	 * @param node  The subtree, or {@code null}.
+	 * @param start Start of the interval.
+	 * @param value The value.
+	 * @return The new root of the subtree.
+	 */
+	private Node<T> delete(Node<T> node, long start, T value) {
+		if (node == null) {
+			return null;
+		}
+		if (start < node.start) {
+			node.left = delete(node.left, start, value);
+		} else if (start > node.start) {
+			node.right = delete(node.right, start, value);
+		} else if (node.value == value) {
+			size--;
+			return merge(node.left, node.right);
+		} else {
+			int before = size;
+			node.left = delete(node.left, start, value);
+			if (size == before) {
+				node.right = delete(node.right, start, value);
+			}
+		}
+		node.update();
+		return node;
+	}
+
+	/**
+	 * Joins two subtrees where every start on the left is no later than every
+	 * start on the right.
+	 *
+	 * @param a The left subtree, or {@code null}.
+	 * @param b The right subtree, or {@code null}.
+	 * @return The joined subtree.
+	 */
+	private Node<T> merge(Node<T> a, Node<T> b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			a.update();
+			return a;
+		}
+		b.left = merge(a, b.left);
+		b.update();
+		return b;
+	}
+
+	/**
+	 * Collects the values of a subtree's intervals that overlap a query.
+	 *
+	 * @param node   The subtree, or {@code null}.
+	 * @param start  Start of the query interval.
+	 * @param end    End of the query interval.
+	 * @param result Receives the values.
+	 */
+	private void collect(Node<T> node, long start, long end, List<T> result) {
+		if (node == null || node.maxEnd < start) {
+			return;
+		}
+		collect(node.left, start, end, result);
+		if (node.start > end) {
+			return;
+		}
+		if (node.end >= start) {
+			result.add(node.value);
+		}
+		collect(node.right, start, end, result);
+	}
+
+	/**
+	 * Rotates a subtree right, lifting its left child.
+	 *
+	 * @param node The subtree root.
+	 * @return The new root.
+	 */
+	private Node<T> rotateRight(Node<T> node) {
+		Node<T> top = node.left;
+		node.left = top.right;
+		top.right = node;
+		node.update();
+		top.update();
+		return top;
+	}
+
+	/**
+	 * Rotates a subtree left, lifting its right child.
+	 *
+	 * @param node The subtree root.
+	 * @return The new root.
+	 */
+	private Node<T> rotateLeft(Node<T> node) {
+		Node<T> top = node.right;
+		node.right = top.left;
+		top.left = node;
+		node.update();
+		top.update();
+		return top;
+	}
+}
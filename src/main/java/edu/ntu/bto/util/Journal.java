@@ -0,0 +1,752 @@
+package edu.ntu.bto.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of the mutations made through the controls,
+ * so that work done since the last snapshot survives a crash.
+ * <p>
+ * The journal is a directory of segment files named {@code journal-N.log}.
+ * Records are always appended to the newest segment; {@link #roll()} starts a
+ * new one, and once a snapshot covers every record of the older segments they
+ * are deleted with {@link #discardThrough(long)}.
+ * </p>
+ * <p>
+ * Each record is framed as a 4-byte payload length, a 4-byte CRC32 of the
+ * payload and the payload itself (log sequence number, record type and string
+ * fields). Records are written to the file as soon as they are appended, but
+ * {@code fsync} is done in batches by a background thread (group commit): a
+ * batch is forced once it has been open for {@code bto.journal.syncMillis}
+ * milliseconds (default 5) or has grown to {@code bto.journal.syncBytes} bytes
+ * (default 256 KiB), whichever comes first. {@link #append(Type, String...)}
+ * returns only once its record is durable. A caller writing many records, such
+ * as a bulk import or a ballot, writes each with {@link #write(Type, String...)},
+ * which does not wait, and then waits once with {@link #awaitDurable(long)} for
+ * the last, so the records share group commits instead of each waiting for
+ * its own.
+ * </p>
+ * <p>
+ * Callers bracket each in-memory mutation and its journal record with
+ * {@link #beginMutation()} and {@link #endMutation()}. A checkpoint runs inside
+ * {@link #checkpoint(Supplier)}, which waits for mutations in progress to finish
+ * and holds new ones back only while a new segment is started and the state is
+ * copied, so the copy matches the last LSN exactly. The copy should be cheap;
+ * encoding and writing it happen after writers are let go.
+ * </p>
+ * A segment is forced to disk before the next one is started, so after a crash
+ * only the newest segment can end in a torn record. On replay, a record in the
+ * newest segment that is truncated or fails its checksum marks the end of the
+ * journal; it and anything after it are discarded. The same damage in an older
+ * segment is corruption rather than a torn write, and the journal refuses to
+ * open instead of silently dropping the records that follow it.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class Journal implements Closeable {
+	/**
+	 * The kinds of mutation recorded in the journal. The fields each record
+	 * carries are listed with each type.
+	 */
+	public enum Type {
+		/** Applicant NRIC, project name, flat type. */
+		APPLY,
+		/** Applicant NRIC. */
+		WITHDRAW,
+		/**
+		 * Applicant NRIC, new application status and, for SUCCESSFUL, the time
+		 * its unit hold lapses in epoch milliseconds.
+		 */
+		APPLICATION_STATUS,
+		/** Officer NRIC, applicant NRIC, flat type. */
+		BOOK,
+		/** Officer NRIC, project name. */
+		REGISTER,
+		/** Officer NRIC, project name, new registration status. */
+		REGISTRATION_STATUS,
+		/** Enquiry ID, applicant NRIC, project name, question. */
+		ENQUIRY_SUBMIT,
+		/** Enquiry ID, response. */
+		ENQUIRY_REPLY,
+		/** Enquiry ID, new question. */
+		ENQUIRY_EDIT,
+		/** Enquiry ID. */
+		ENQUIRY_DELETE,
+		/**
+		 * Project name, neighborhood, flat type 1, units, price, flat type 2,
+		 * units, price, opening date, closing date, manager.
+		 */
+		PROJECT_CREATE,
+		/**
+		 * Current project name, then the new name, neighborhood, flat type 1,
+		 * total units, price, flat type 2, total units, price, opening date and
+		 * closing date.
+		 */
+		PROJECT_EDIT,
+		/** Project name. */
+		PROJECT_DELETE,
+		/** Project name, {@code true} or {@code false}. */
+		PROJECT_VISIBILITY,
+		/** Applicant NRIC, project name of the withdrawn application. */
+		WITHDRAWAL_ACK,
+		/** User NRIC, new password. */
+		PASSWORD
+	}
+
+	/**
+	 * A decoded journal record.
+	 */
+	public static class Record {
+		/** The log sequence number of the record. */
+		private final long lsn;
+		/** The mutation type. */
+		private final Type type;
+		/** The mutation's fields, see {@link Type}. */
+		private final String[] fields;
+
+		/**
+		 * Creates a record.
+		 *
+		 * @param lsn    The log sequence number.
+		 * @param type   The mutation type.
+		 * @param fields The mutation's fields.
+		 */
+		Record(long lsn, Type type, String[] fields) {
+			this.lsn = lsn;
+			this.type = type;
+			this.fields = fields;
+		}
+
+		/**
+		 * Returns the log sequence number of this record.
+		 *
+		 * @return The LSN.
+		 */
+		public long getLsn() {
+			return lsn;
+		}
+
+		/**
+		 * Returns the mutation type of this record.
+		 *
+		 * @return The {@link Type}.
+		 */
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * Returns one field of this record.
+		 *
+		 * @param index The field index, see {@link Type}.
+		 * @return The field value.
+		 */
+		public String get(int index) {
+			return fields[index];
+		}
+
+		/**
+		 * Returns the number of fields in this record.
+		 *
+		 * @return The field count.
+		 */
+		public int size() {
+			return fields.length;
+		}
+	}
+
+	/** Largest payload accepted when reading; anything bigger is corruption. */
+	private static final int MAX_RECORD = 1 << 20;
+
+	/** Segment file name prefix. */
+	private static final String SEGMENT_PREFIX = "journal-";
+	/** Segment file name suffix. */
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	/** The journal directory. */
+	private final Path dir;
+	/** Maximum time a batch stays open before it is forced, in nanoseconds. */
+	private final long syncNanos;
+	/** Batch size in bytes that triggers an immediate force. */
+	private final long syncBytes;
+
+	/**
+	 * Held shared by every mutation while it changes the in-memory state and
+	 * appends its record, and exclusively by a checkpoint while it captures the
+	 * state.
+	 */
+	private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+	/** Guards the segments, sequence numbers and batch state below. */
+	private final ReentrantLock lock = new ReentrantLock();
+	/** Signalled when a batch has data or is full. */
+	private final Condition batchReady = lock.newCondition();
+	/** Signalled when a batch has been forced to disk. */
+	private final Condition durable = lock.newCondition();
+	/** Last LSN of each segment, keyed by segment number. */
+	private final TreeMap<Long, Long> segments = new TreeMap<>();
+	/** Number of the segment records are appended to. */
+	private long current;
+	/** Channel of the current segment. */
+	private FileChannel channel;
+	/** LSN of the last record written to the file. */
+	private long writtenLsn;
+	/** LSN of the last record known to be on disk. */
+	private long syncedLsn;
+	/** Bytes written since the last force. */
+	private long pendingBytes;
+	/** Whether the journal has been closed. */
+	private boolean closed;
+	/** Error raised by the last force, reported to waiting writers. */
+	private IOException syncError;
+	/** Background thread performing group commits. */
+	private final Thread syncer;
+
+	/**
+	 * Opens a journal for appending. Any torn record at the end of the newest
+	 * segment is cut off, and numbering continues after the larger of the last
+	 * record in the journal and {@code minLsn}.
+	 *
+	 * @param dir    The journal directory; created if missing.
+	 * @param minLsn The LSN already covered elsewhere (e.g. by a snapshot).
+	 * @throws IOException if the directory or a segment cannot be opened, or a
+	 *                     segment other than the newest is damaged.
+	 */
+	public Journal(Path dir, long minLsn) throws IOException {
+		this.dir = dir;
+		this.syncNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("bto.journal.syncMillis", 5));
+		this.syncBytes = Long.getLong("bto.journal.syncBytes", 256 * 1024);
+		Files.createDirectories(dir);
+		long lastLsn = 0;
+		long end = 0;
+		List<Long> numbers = listSegments(dir);
+		for (int i = 0; i < numbers.size(); i++) {
+			long n = numbers.get(i);
+			long[] scanned = scan(segmentPath(dir, n), null);
+			checkIntact(segmentPath(dir, n), scanned[0], i == numbers.size() - 1);
+			end = scanned[0];
+			lastLsn = Math.max(lastLsn, scanned[1]);
+			segments.put(n, lastLsn);
+			current = n;
+		}
+		if (segments.isEmpty()) {
+			current = 1;
+			segments.put(current, minLsn);
+		}
+		channel = FileChannel.open(segmentPath(dir, current), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(end);
+		channel.position(end);
+		writtenLsn = syncedLsn = Math.max(lastLsn, minLsn);
+		syncer = new Thread(this::syncLoop, "bto-journal-sync");
+		syncer.setDaemon(true);
+		syncer.start();
+	}
+
+	/**
+	 * Reads every intact record of a journal directory in order, up to a torn
+	 * record at the end of the newest segment.
+	 *
+	 * @param dir      The journal directory; a missing directory has no records.
+	 * @param consumer Receives each record.
+	 * @return The LSN of the last intact record, or 0 if there are none.
+	 * @throws IOException if a segment cannot be read, or a segment other than
+	 *                     the newest is damaged; the records before the damage
+	 *                     have been passed to {@code consumer} by then.
+	 */
+	public static long replay(Path dir, Consumer<Record> consumer) throws IOException {
+		long lastLsn = 0;
+		List<Long> numbers = listSegments(dir);
+		for (int i = 0; i < numbers.size(); i++) {
+			Path segment = segmentPath(dir, numbers.get(i));
+			long[] scanned = scan(segment, consumer);
+			checkIntact(segment, scanned[0], i == numbers.size() - 1);
+			lastLsn = Math.max(lastLsn, scanned[1]);
+		}
+		return lastLsn;
+	}
+
+	/**
+	 * Checks that a segment holds nothing after its intact records, unless it is
+	 * the newest, whose tail may be a record torn by a crash.
+	 *
+	 * @param segment The segment file.
+	 * @param end     The byte offset just after its last intact record.
+	 * @param newest  Whether it is the newest segment.
+	 * @throws IOException if the segment cannot be read, or is an older segment
+	 *                     with damage after {@code end}.
+	 */
+	private static void checkIntact(Path segment, long end, boolean newest) throws IOException {
+		if (!newest && end != Files.size(segment)) {
+			throw new IOException("Journal segment " + segment + " is damaged at byte " + end
+					+ " and later segments follow it; repair it, or move the journal aside to start over from"
+					+ " the snapshot.");
+		}
+	}
+
+	/**
+	 * Lists the segment numbers present in a journal directory.
+	 *
+	 * @param dir The journal directory.
+	 * @return The segment numbers in ascending order; empty if the directory is
+	 *         missing.
+	 * @throws IOException if the directory cannot be listed.
+	 */
+	private static List<Long> listSegments(Path dir) throws IOException {
+		List<Long> numbers = new ArrayList<>();
+		if (!Files.isDirectory(dir)) {
+			return numbers;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path p : stream) {
+				String name = p.getFileName().toString();
+				try {
+					numbers.add(Long.parseLong(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment.
+				}
+			}
+		}
+		Collections.sort(numbers);
+		return numbers;
+	}
+
+	/**
+	 * Returns the path of a segment file.
+	 *
+	 * @param dir The journal directory.
+	 * @param n   The segment number.
+	 * @return The segment path.
+	 */
+	private static Path segmentPath(Path dir, long n) {
+		return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, n, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Walks the records of a segment file.
+	 *
+	 * @param file     The segment file.
+	 * @param consumer Receives each record, or {@code null} to only scan.
+	 * @return The byte offset just after the last intact record and its LSN.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static long[] scan(Path file, Consumer<Record> consumer) throws IOException {
+		long offset = 0;
+		long lastLsn = 0;
+		if (!Files.exists(file)) {
+			return new long[] { 0, 0 };
+		}
+		try (InputStream raw = Files.newInputStream(file);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+			CRC32 crc = new CRC32();
+			while (true) {
+				int len;
+				int sum;
+				byte[] payload;
+				try {
+					len = in.readInt();
+					sum = in.readInt();
+					if (len <= 0 || len > MAX_RECORD) {
+						break;
+					}
+					payload = new byte[len];
+					in.readFully(payload);
+				} catch (EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(payload);
+				if ((int) crc.getValue() != sum) {
+					break;
+				}
+				Record r = decode(payload);
+				if (r == null) {
+					break;
+				}
+				offset += 8 + len;
+				lastLsn = r.getLsn();
+				if (consumer != null) {
+					consumer.accept(r);
+				}
+			}
+		}
+		return new long[] { offset, lastLsn };
+	}
+
+	/**
+	 * Decodes a record payload.
+	 *
+	 * @param payload The payload bytes.
+	 * @return The record, or {@code null} if the payload is malformed.
+	 */
+	private static Record decode(byte[] payload) {
+		ByteBuffer in = ByteBuffer.wrap(payload);
+		try {
+			long lsn = in.getLong();
+			int typeIndex = in.get();
+			if (typeIndex < 0 || typeIndex >= Type.values().length) {
+				return null;
+			}
+			String[] fields = new String[in.get()];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = Snapshot.getString(in);
+			}
+			return new Record(lsn, Type.values()[typeIndex], fields);
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Appends a record and waits until it has been forced to disk as part of a
+	 * group commit.
+	 *
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields, see {@link Type}.
+	 * @return The LSN assigned to the record.
+	 * @throws UncheckedIOException  if the record cannot be written or forced.
+	 * @throws IllegalStateException if the journal is closed.
+	 */
+	public long append(Type type, String... fields) {
+		long lsn = write(type, fields);
+		awaitDurable(lsn);
+		return lsn;
+	}
+
+	/**
+	 * Appends a record without waiting for it to be forced to disk. The record is
+	 * durable once {@link #awaitDurable(long)} returns for its LSN or a later one.
+	 *
+	 * @param type   The mutation type.
+	 * @param fields The mutation's fields, see {@link Type}.
+	 * @return The LSN assigned to the record.
+	 * @throws UncheckedIOException  if the record cannot be written.
+	 * @throws IllegalStateException if the journal is closed.
+	 */
+	public long write(Type type, String... fields) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		CRC32 crc = new CRC32();
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Journal is closed");
+			}
+			long lsn = writtenLsn + 1;
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeLong(lsn);
+			out.writeByte(type.ordinal());
+			out.writeByte(fields.length);
+			for (String f : fields) {
+				Snapshot.putString(out, f);
+			}
+			ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+			int len = frame.remaining() - 8;
+			crc.update(frame.array(), 8, len);
+			frame.putInt(0, len).putInt(4, (int) crc.getValue());
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+			}
+			writtenLsn = lsn;
+			segments.put(current, lsn);
+			pendingBytes += frame.capacity();
+			batchReady.signal();
+			return lsn;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write journal " + dir, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until every record up to an LSN has been forced to disk. The wait is
+	 * made through {@link ForkJoinPool#managedBlock}, so a fork/join pool
+	 * running the caller can start another worker meanwhile.
+	 *
+	 * @param lsn The LSN to wait for; 0 or an LSN already durable returns at
+	 *            once.
+	 * @throws UncheckedIOException if the records could not be forced.
+	 */
+	public void awaitDurable(long lsn) {
+		try {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				@Override
+				public boolean block() {
+					lock.lock();
+					try {
+						while (syncedLsn < lsn) {
+							if (syncError != null) {
+								throw new UncheckedIOException("Unable to write journal " + dir, syncError);
+							}
+							durable.awaitUninterruptibly();
+						}
+						return true;
+					} finally {
+						lock.unlock();
+					}
+				}
+
+				@Override
+				public boolean isReleasable() {
+					lock.lock();
+					try {
+						if (syncError != null) {
+							return false; // let block() report it
+						}
+						return syncedLsn >= lsn;
+					} finally {
+						lock.unlock();
+					}
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Body of the group-commit thread: waits for a batch to open, lets it fill
+	 * until the time or size threshold is reached, then forces it to disk and
+	 * releases every writer in the batch.
+	 */
+	private void syncLoop() {
+		lock.lock();
+		try {
+			while (true) {
+				while (writtenLsn == syncedLsn && !closed) {
+					batchReady.awaitUninterruptibly();
+				}
+				if (writtenLsn == syncedLsn) {
+					return; // closed and nothing left to force
+				}
+				long remaining = syncNanos;
+				while (pendingBytes < syncBytes && remaining > 0 && !closed) {
+					try {
+						remaining = batchReady.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+				long target = writtenLsn;
+				FileChannel batch = channel;
+				pendingBytes = 0;
+				lock.unlock();
+				IOException error = null;
+				try {
+					batch.force(false);
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					lock.lock();
+				}
+				if (batch != channel) {
+					// Rolled while forcing; roll() already made the batch durable.
+					syncedLsn = Math.max(syncedLsn, target);
+				} else if (error != null) {
+					syncError = error;
+				} else {
+					syncedLsn = Math.max(syncedLsn, target);
+				}
+				durable.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the LSN of the last record written to the journal.
+	 *
+	 * @return The last assigned LSN.
+	 */
+	public long getLastLsn() {
+		lock.lock();
+		try {
+			return writtenLsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Marks the start of a mutation. The in-memory change and its
+	 * {@link #append(Type, String...)} must both happen before the matching
+	 * {@link #endMutation()}. Mutations may nest.
+	 */
+	public void beginMutation() {
+		gate.readLock().lock();
+	}
+
+	/**
+	 * Marks the end of a mutation started with {@link #beginMutation()}.
+	 */
+	public void endMutation() {
+		gate.readLock().unlock();
+	}
+
+	/**
+	 * Captures a consistent view of the state for a checkpoint. Waits for the
+	 * mutations in progress to finish, holds new ones back, starts a new segment
+	 * and runs {@code capture}; the records of every older segment are then
+	 * reflected in what was captured, up to {@link #getLastLsn()}.
+	 *
+	 * @param <T>     The type of the captured state.
+	 * @param capture Copies the state; must be quick and must not mutate it. Slow
+	 *                work such as encoding belongs after this method returns.
+	 * @return The captured state.
+	 * @throws IOException if the new segment cannot be started.
+	 */
+	public <T> T checkpoint(Supplier<T> capture) throws IOException {
+		gate.writeLock().lock();
+		try {
+			roll();
+			return capture.get();
+		} finally {
+			gate.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Forces the current segment to disk and starts a new, empty one. Does
+	 * nothing if the current segment is still empty.
+	 *
+	 * @throws IOException if the segments cannot be forced or created.
+	 */
+	public void roll() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Journal is closed");
+			}
+			if (channel.position() == 0) {
+				return;
+			}
+			channel.force(false);
+			FileChannel next = FileChannel.open(segmentPath(dir, current + 1), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			// Records in the old channel are now durable; the syncer forces the
+			// channel it picked up, which is harmless after the close.
+			syncedLsn = writtenLsn;
+			pendingBytes = 0;
+			durable.signalAll();
+			channel.close();
+			channel = next;
+			current++;
+			segments.put(current, writtenLsn);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes every segment whose records all have an LSN of at most
+	 * {@code lsn}. The current segment is only deleted once the journal is
+	 * closed.
+	 *
+	 * @param lsn The last LSN covered by a snapshot.
+	 * @return The number of segments deleted.
+	 * @throws IOException if a segment cannot be deleted.
+	 */
+	public int discardThrough(long lsn) throws IOException {
+		List<Long> covered = new ArrayList<>();
+		lock.lock();
+		try {
+			for (Map.Entry<Long, Long> e : segments.entrySet()) {
+				if (e.getValue() <= lsn && (closed || e.getKey() != current)) {
+					covered.add(e.getKey());
+				}
+			}
+			segments.keySet().removeAll(covered);
+		} finally {
+			lock.unlock();
+		}
+		for (long n : covered) {
+			Files.deleteIfExists(segmentPath(dir, n));
+		}
+		return covered.size();
+	}
+
+	/**
+	 * Returns the number of segment files the journal currently consists of.
+	 *
+	 * @return The segment count.
+	 */
+	public int getSegmentCount() {
+		lock.lock();
+		try {
+			return segments.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in the current segment.
+	 *
+	 * @return The current segment size.
+	 */
+	public long getCurrentSegmentBytes() {
+		lock.lock();
+		try {
+			return channel.isOpen() ? channel.position() : 0;
+		} catch (IOException e) {
+			return 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forces any pending records to disk and closes the journal. Later appends
+	 * fail with an {@link IllegalStateException}.
+	 *
+	 * @throws IOException if the final force or close fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			batchReady.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			syncer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.force(true);
+		channel.close();
+	}
+}
@@ -0,0 +1,313 @@
+package edu.ntu.bto.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Hash map from non-negative {@code long} keys to objects, using open
+ * addressing with linear probing over parallel primitive arrays. Keys are not
+ * boxed, so a map of a few hundred thousand entries costs two arrays rather
+ * than one node, one {@code Long} and one {@code String} per entry.
+ * <p>
+ * The map is safe for concurrent use. Lookups first run as optimistic reads on
+ * a {@link StampedLock} and only take the read lock if a write intervened;
+ * updates take the write lock. Removal shifts later entries of the probe run
+ * back, so no tombstones build up.
+ * </p>
+ *
+ * @param <V> The value type.
+ * @author SC2002 Assignment Group
+ */
+public class LongObjectHashMap<V> {
+	/** Marks an empty slot in {@link #keys}. */
+	private static final long EMPTY = -1;
+	/** Fill ratio above which the table is doubled. */
+	private static final float LOAD_FACTOR = 0.6f;
+
+	/** Guards the tables and size. */
+	private final StampedLock lock = new StampedLock();
+	/** Keys, or {@link #EMPTY}; the length is always a power of two. */
+	private long[] keys;
+	/** Values, parallel to {@link #keys}. */
+	private Object[] values;
+	/** Number of entries. */
+	private int size;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongObjectHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map sized for the given number of entries.
+	 *
+	 * @param expected The expected number of entries.
+	 */
+	public LongObjectHashMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+		keys = newKeys(capacity);
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Allocates an empty key table.
+	 *
+	 * @param capacity The table length.
+	 * @return A table filled with {@link #EMPTY}.
+	 */
+	private static long[] newKeys(int capacity) {
+		long[] k = new long[capacity];
+		Arrays.fill(k, EMPTY);
+		return k;
+	}
+
+	/**
+	 * Returns the home slot of a key.
+	 *
+	 * @param key  The key.
+	 * @param mask The table length minus one.
+	 * @return The slot index.
+	 */
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Finds a key in the given tables.
+	 *
+	 * @param k   The key table.
+	 * @param v   The value table.
+	 * @param key The key.
+	 * @return The value, or {@code null} if absent.
+	 */
+	private static Object find(long[] k, Object[] v, long key) {
+		int mask = k.length - 1;
+		int i = slot(key, mask);
+		// Bounded so that a torn optimistic read can never loop forever.
+		for (int n = 0; n < k.length; n++) {
+			long stored = k[i];
+			if (stored == key) {
+				return v[i];
+			}
+			if (stored == EMPTY) {
+				return null;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value for a key.
+	 *
+	 * @param key The key.
+	 * @return The value, or {@code null} if absent.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		if (key < 0) {
+			return null;
+		}
+		long stamp = lock.tryOptimisticRead();
+		long[] k = keys;
+		Object[] v = values;
+		if (k.length == v.length) {
+			Object found = find(k, v, key);
+			if (lock.validate(stamp)) {
+				return (V) found;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return (V) find(keys, values, key);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Checks whether a key is present.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key has a value.
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Associates a value with a key, replacing any previous value.
+	 *
+	 * @param key   The key; must not be negative.
+	 * @param value The value; must not be {@code null}.
+	 * @return The previous value, or {@code null} if there was none.
+	 */
+	public V put(long key, V value) {
+		return put(key, value, true);
+	}
+
+	/**
+	 * Associates a value with a key unless the key already has one.
+	 *
+	 * @param key   The key; must not be negative.
+	 * @param value The value; must not be {@code null}.
+	 * @return The existing value, or {@code null} if {@code value} was stored.
+	 */
+	public V putIfAbsent(long key, V value) {
+		return put(key, value, false);
+	}
+
+	/**
+	 * Stores a value.
+	 *
+	 * @param key     The key.
+	 * @param value   The value.
+	 * @param replace Whether an existing value is replaced.
+	 * @return The previous value, or {@code null} if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	private V put(long key, V value, boolean replace) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Negative key: " + key);
+		}
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+		long stamp = lock.writeLock();
+		try {
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while (keys[i] != EMPTY) {
+				if (keys[i] == key) {
+					V old = (V) values[i];
+					if (replace) {
+						values[i] = value;
+					}
+					return old;
+				}
+				i = (i + 1) & mask;
+			}
+			if (size + 1 > keys.length * LOAD_FACTOR) {
+				resize(keys.length << 1);
+				mask = keys.length - 1;
+				i = slot(key, mask);
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+			}
+			values[i] = value;
+			keys[i] = key;
+			size++;
+			return null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Rehashes every entry into tables of a new length. Called with the write
+	 * lock held; new tables are published only once filled.
+	 *
+	 * @param capacity The new table length, a power of two.
+	 */
+	private void resize(int capacity) {
+		long[] k = newKeys(capacity);
+		Object[] v = new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < keys.length; j++) {
+			if (keys[j] != EMPTY) {
+				int i = slot(keys[j], mask);
+				while (k[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				k[i] = keys[j];
+				v[i] = values[j];
+			}
+		}
+		keys = k;
+		values = v;
+	}
+
+	/**
+	 * Removes a key.
+	 *
+	 * @param key The key.
+	 * @return The removed value, or {@code null} if the key was absent.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		if (key < 0) {
+			return null;
+		}
+		long stamp = lock.writeLock();
+		try {
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while (keys[i] != key) {
+				if (keys[i] == EMPTY) {
+					return null;
+				}
+				i = (i + 1) & mask;
+			}
+			V old = (V) values[i];
+			// Shift back later entries of the run whose home slot is at or before the hole.
+			int hole = i;
+			int j = (i + 1) & mask;
+			while (keys[j] != EMPTY) {
+				int home = slot(keys[j], mask);
+				if (((j - home) & mask) >= ((j - hole) & mask)) {
+					keys[hole] = keys[j];
+					values[hole] = values[j];
+					hole = j;
+				}
+				j = (j + 1) & mask;
+			}
+			keys[hole] = EMPTY;
+			values[hole] = null;
+			size--;
+			return old;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return The entry count.
+	 */
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a copy of the values, in table order.
+	 *
+	 * @return The values.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		long stamp = lock.readLock();
+		try {
+			List<V> out = new ArrayList<>(size);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != EMPTY) {
+					out.add((V) values[i]);
+				}
+			}
+			return out;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+}
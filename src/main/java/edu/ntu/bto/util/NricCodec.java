@@ -0,0 +1,73 @@
+package edu.ntu.bto.util;
+
+/**
+ * Packs an NRIC into a single {@code long} so it can be used as a primitive map
+ * key. A valid NRIC matches {@code ^[STFG]\d{7}[A-Z]$}; the prefix letter, the
+ * seven digits and the check letter are combined into one number below
+ * 4 x 10^7 x 26, so distinct NRICs always get distinct codes. Letters are
+ * case-insensitive.
+ *
+ * @author SC2002 Assignment Group
+ */
+public final class NricCodec {
+	/** Returned by {@link #encode(String)} for strings that are not NRICs. */
+	public static final long INVALID = -1;
+	/** The valid prefix letters, in code order. */
+	private static final String PREFIXES = "STFG";
+	/** Number of distinct digit combinations. */
+	private static final long DIGITS = 10_000_000L;
+
+	/**
+	 * Not instantiable.
+	 */
+	private NricCodec() {
+	}
+
+	/**
+	 * Encodes an NRIC.
+	 *
+	 * @param nric The NRIC, in any case.
+	 * @return The code, or {@link #INVALID} if {@code nric} is {@code null} or not
+	 *         a well-formed NRIC.
+	 */
+	public static long encode(String nric) {
+		if (nric == null || nric.length() != 9) {
+			return INVALID;
+		}
+		int prefix = PREFIXES.indexOf(Character.toUpperCase(nric.charAt(0)));
+		if (prefix < 0) {
+			return INVALID;
+		}
+		long digits = 0;
+		for (int i = 1; i <= 7; i++) {
+			char c = nric.charAt(i);
+			if (c < '0' || c > '9') {
+				return INVALID;
+			}
+			digits = digits * 10 + (c - '0');
+		}
+		char check = Character.toUpperCase(nric.charAt(8));
+		if (check < 'A' || check > 'Z') {
+			return INVALID;
+		}
+		return (prefix * DIGITS + digits) * 26 + (check - 'A');
+	}
+
+	/**
+	 * Decodes a code produced by {@link #encode(String)}.
+	 *
+	 * @param code The code.
+	 * @return The NRIC in upper case.
+	 * @throws IllegalArgumentException if {@code code} is not a valid code.
+	 */
+	public static String decode(long code) {
+		if (code < 0 || code >= PREFIXES.length() * DIGITS * 26) {
+			throw new IllegalArgumentException("Not an NRIC code: " + code);
+		}
+		char check = (char) ('A' + code % 26);
+		long rest = code / 26;
+		long digits = rest % DIGITS;
+		char prefix = PREFIXES.charAt((int) (rest / DIGITS));
+		return prefix + String.format("%07d", digits) + check;
+	}
+}
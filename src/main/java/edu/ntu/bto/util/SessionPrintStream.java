@@ -0,0 +1,244 @@
+package edu.ntu.bto.util;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A {@link PrintStream} that forwards everything to the stream bound to the
+ * current thread, or to a fallback stream when none is bound. Installed as
+ * {@code System.out} in server mode so that the menus and controls, which print
+ * to {@code System.out}, write to the terminal of the session running on the
+ * calling thread. Each session has its own target stream, so a slow client only
+ * holds up its own session.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class SessionPrintStream extends PrintStream {
+	/** The stream of the session running on each thread. */
+	private static final ThreadLocal<PrintStream> TARGET = new ThreadLocal<>();
+
+	/** Stream used by threads without a session, normally the console. */
+	private final PrintStream fallback;
+
+	/**
+	 * Creates a routing stream.
+	 *
+	 * @param fallback The stream used by threads without a session.
+	 */
+	public SessionPrintStream(PrintStream fallback) {
+		super(fallback, true);
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Replaces {@code System.out} with a routing stream, unless one is already
+	 * installed.
+	 */
+	public static synchronized void install() {
+		if (!(System.out instanceof SessionPrintStream)) {
+			System.setOut(new SessionPrintStream(System.out));
+		}
+	}
+
+	/**
+	 * Binds the current thread's output to a session stream.
+	 *
+	 * @param out The session's stream.
+	 */
+	public static void bind(PrintStream out) {
+		TARGET.set(out);
+	}
+
+	/**
+	 * Unbinds the current thread, so its output goes to the fallback again.
+	 */
+	public static void unbind() {
+		TARGET.remove();
+	}
+
+	/**
+	 * Returns the stream the current thread's output goes to, so background work
+	 * started from a session can {@link #bind(PrintStream)} it and report back
+	 * to that session.
+	 *
+	 * @return The bound session stream, or {@code System.out} if none is bound.
+	 */
+	public static PrintStream current() {
+		PrintStream out = TARGET.get();
+		return out != null ? out : System.out;
+	}
+
+	/**
+	 * Returns the stream for the current thread.
+	 *
+	 * @return The bound session stream, or the fallback.
+	 */
+	private PrintStream target() {
+		PrintStream out = TARGET.get();
+		return out != null ? out : fallback;
+	}
+
+	@Override
+	public void write(int b) {
+		target().write(b);
+	}
+
+	@Override
+	public void write(byte[] buf, int off, int len) {
+		target().write(buf, off, len);
+	}
+
+	@Override
+	public void flush() {
+		target().flush();
+	}
+
+	/**
+	 * Does nothing; the session and console streams are closed by their owners.
+	 */
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public boolean checkError() {
+		return target().checkError();
+	}
+
+	@Override
+	public void print(boolean b) {
+		target().print(b);
+	}
+
+	@Override
+	public void print(char c) {
+		target().print(c);
+	}
+
+	@Override
+	public void print(int i) {
+		target().print(i);
+	}
+
+	@Override
+	public void print(long l) {
+		target().print(l);
+	}
+
+	@Override
+	public void print(float f) {
+		target().print(f);
+	}
+
+	@Override
+	public void print(double d) {
+		target().print(d);
+	}
+
+	@Override
+	public void print(char[] s) {
+		target().print(s);
+	}
+
+	@Override
+	public void print(String s) {
+		target().print(s);
+	}
+
+	@Override
+	public void print(Object obj) {
+		target().print(obj);
+	}
+
+	@Override
+	public void println() {
+		target().println();
+	}
+
+	@Override
+	public void println(boolean x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(char x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(int x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(long x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(float x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(double x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(char[] x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(String x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(Object x) {
+		target().println(x);
+	}
+
+	@Override
+	public PrintStream printf(String format, Object... args) {
+		target().printf(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream printf(Locale l, String format, Object... args) {
+		target().printf(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(String format, Object... args) {
+		target().format(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(Locale l, String format, Object... args) {
+		target().format(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq) {
+		target().append(csq);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq, int start, int end) {
+		target().append(csq, start, end);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(char c) {
+		target().append(c);
+		return this;
+	}
+}
@@ -0,0 +1,794 @@
+package edu.ntu.bto.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Enquiry;
+import edu.ntu.bto.model.HDBManager;
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.User;
+
+/**
+ * Compact, versioned binary image of the whole system state: users, projects,
+ * applications, officer registrations and enquiries.
+ * <p>
+ * The file starts with a fixed-size header (magic, format version, creation
+ * time, the last {@link Journal} LSN the snapshot includes and a table of
+ * section offsets) followed by one section per record
+ * type. Snapshots are written to a temporary file and atomically renamed, so a
+ * crash while saving never leaves a half-written snapshot behind. When read,
+ * each section is memory-mapped through a {@link MappedByteBuffer} and decoded
+ * straight from the mapping by its {@code read} method, without copying the
+ * file onto the heap first. Decoding is not deferred: the system reads every
+ * section at startup, because the controls index all of the state before the
+ * first session starts.
+ * </p>
+ * Strings are stored as a 4-byte length (-1 for {@code null}) followed by UTF-8
+ * bytes; cross references use the user's NRIC and the project name.
+ *
+ * @author SC2002 Assignment Group
+ */
+public class Snapshot implements Closeable {
+	/** File signature, "BTOS". */
+	private static final int MAGIC = 0x42544F53;
+	/** Current format version; files with another version are ignored. */
+	public static final int VERSION = 5;
+
+	/** Section holding users. */
+	private static final int USERS = 0;
+	/** Section holding projects. */
+	private static final int PROJECTS = 1;
+	/** Section holding applications. */
+	private static final int APPLICATIONS = 2;
+	/** Section holding officer registrations. */
+	private static final int REGISTRATIONS = 3;
+	/** Section holding enquiries. */
+	private static final int ENQUIRIES = 4;
+	/** Number of sections. */
+	private static final int SECTION_COUNT = 5;
+	/**
+	 * Header size: magic, version, created, journal LSN, section count, then
+	 * offset/length/records per section.
+	 */
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + SECTION_COUNT * (8 + 8 + 4);
+
+	/** User kind marker for applicants. */
+	private static final byte KIND_APPLICANT = 'A';
+	/** User kind marker for officers. */
+	private static final byte KIND_OFFICER = 'O';
+	/** User kind marker for managers. */
+	private static final byte KIND_MANAGER = 'M';
+
+	/** The open snapshot file. */
+	private final FileChannel channel;
+	/** The time the snapshot was written, in epoch milliseconds. */
+	private final long createdAt;
+	/** LSN of the last journal record reflected in the snapshot. */
+	private final long journalLsn;
+	/** File offset of each section. */
+	private final long[] offsets = new long[SECTION_COUNT];
+	/** Byte length of each section. */
+	private final long[] lengths = new long[SECTION_COUNT];
+	/** Record count of each section. */
+	private final int[] counts = new int[SECTION_COUNT];
+
+	/** Users decoded so far, keyed by NRIC; filled by {@link #readUsers()}. */
+	private Map<String, User> usersByNric;
+	/** Projects decoded so far, keyed by name; filled by {@link #readProjects()}. */
+	private Map<String, Project> projectsByName;
+
+	/**
+	 * Opens a snapshot file and validates its header. Each section is decoded
+	 * when its {@code read} method is called.
+	 *
+	 * @param file The snapshot file.
+	 * @throws IOException if the file cannot be read or is not a snapshot of the
+	 *                     current {@link #VERSION}.
+	 */
+	public Snapshot(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException(file + " is truncated");
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a snapshot file");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException(file + " has snapshot version " + version + ", expected " + VERSION);
+			}
+			createdAt = header.getLong();
+			journalLsn = header.getLong();
+			if (header.getInt() != SECTION_COUNT) {
+				throw new IOException(file + " has an unexpected section table");
+			}
+			for (int i = 0; i < SECTION_COUNT; i++) {
+				offsets[i] = header.getLong();
+				lengths[i] = header.getLong();
+				counts[i] = header.getInt();
+				if (offsets[i] < HEADER_SIZE || lengths[i] < 0 || offsets[i] + lengths[i] > size || counts[i] < 0) {
+					throw new IOException(file + " is truncated or has a damaged section table");
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the snapshot if it exists. A snapshot that exists but cannot be read
+	 * is an error rather than a reason to start over, since it holds state the
+	 * data files do not.
+	 *
+	 * @param file The snapshot file.
+	 * @return The opened snapshot, or {@code null} if there is no snapshot file.
+	 * @throws IOException if the file exists but cannot be read or is not a
+	 *                     snapshot of the current {@link #VERSION}.
+	 */
+	public static Snapshot openIfPresent(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		return new Snapshot(file);
+	}
+
+	/**
+	 * Returns the source files modified after the snapshot was written.
+	 *
+	 * @param file    The snapshot file.
+	 * @param sources The files the snapshot was first built from; missing ones
+	 *                are ignored.
+	 * @return The sources newer than the snapshot, in the order given.
+	 * @throws IOException if a modification time cannot be read.
+	 */
+	public static List<Path> newerSources(Path file, Collection<Path> sources) throws IOException {
+		long snapshotTime = Files.getLastModifiedTime(file).toMillis();
+		List<Path> newer = new ArrayList<>();
+		for (Path source : sources) {
+			if (Files.exists(source) && Files.getLastModifiedTime(source).toMillis() > snapshotTime) {
+				newer.add(source);
+			}
+		}
+		return newer;
+	}
+
+	/**
+	 * Returns the time the snapshot was written.
+	 *
+	 * @return The creation time in epoch milliseconds.
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Returns the LSN of the last journal record reflected in the snapshot.
+	 * Journal records up to and including this LSN must not be replayed on top of
+	 * it.
+	 *
+	 * @return The journal LSN covered by the snapshot.
+	 */
+	public long getJournalLsn() {
+		return journalLsn;
+	}
+
+	/**
+	 * Maps one section of the file.
+	 *
+	 * @param section The section index.
+	 * @return A read-only buffer over the section.
+	 * @throws IOException if the section cannot be mapped.
+	 */
+	private ByteBuffer map(int section) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offsets[section], lengths[section]);
+	}
+
+	/**
+	 * Decodes the users section.
+	 *
+	 * @return All users, in the order they were saved.
+	 * @throws IOException if the section cannot be read.
+	 */
+	public synchronized List<User> readUsers() throws IOException {
+		ByteBuffer in = map(USERS);
+		List<User> users = new ArrayList<>(counts[USERS]);
+		usersByNric = new HashMap<>(counts[USERS] * 2);
+		for (int i = 0; i < counts[USERS]; i++) {
+			byte kind = in.get();
+			String nric = getString(in);
+			int age = in.getInt();
+			String marital = getString(in);
+			String password = getString(in);
+			User user;
+			if (kind == KIND_MANAGER) {
+				user = new HDBManager(getString(in), nric, age, marital, password);
+			} else if (kind == KIND_OFFICER) {
+				user = new HDBOfficer(nric, age, marital, password);
+			} else {
+				user = new Applicant(nric, age, marital, password);
+			}
+			users.add(user);
+			usersByNric.putIfAbsent(nric, user);
+		}
+		return users;
+	}
+
+	/**
+	 * Decodes the projects section. Each flat type's booked units are restored
+	 * with its unbooked ones, so journal records replayed afterwards, such as a
+	 * project edit resizing the type, see its full total.
+	 *
+	 * @return All projects, in the order they were saved.
+	 * @throws IOException if the section cannot be read.
+	 */
+	public synchronized List<Project> readProjects() throws IOException {
+		ByteBuffer in = map(PROJECTS);
+		List<Project> projects = new ArrayList<>(counts[PROJECTS]);
+		projectsByName = new HashMap<>(counts[PROJECTS] * 2);
+		for (int i = 0; i < counts[PROJECTS]; i++) {
+			Project p = new Project(getString(in), getString(in), getString(in), in.getInt(), in.getDouble(),
+					getString(in), in.getInt(), in.getDouble(), getString(in), getString(in), getString(in),
+					in.getInt(), getString(in));
+			p.setVisible(in.get() != 0);
+			p.getInventoryType1().restoreBooked(in.getInt());
+			p.getInventoryType2().restoreBooked(in.getInt());
+			projects.add(p);
+			projectsByName.put(p.getProjectName(), p);
+		}
+		return projects;
+	}
+
+	/**
+	 * Decodes the applications section and links each application to its
+	 * applicant. {@link #readUsers()} and {@link #readProjects()} must be called
+	 * first.
+	 *
+	 * @return All applications, in the order they were saved.
+	 * @throws IOException if the section cannot be read.
+	 */
+	public synchronized List<Application> readApplications() throws IOException {
+		ByteBuffer in = map(APPLICATIONS);
+		List<Application> applications = new ArrayList<>(counts[APPLICATIONS]);
+		for (int i = 0; i < counts[APPLICATIONS]; i++) {
+			Applicant applicant = (Applicant) resolveUser(getString(in));
+			Project project = resolveProject(getString(in));
+			Application app = new Application(applicant, project, getString(in));
+			app.setStatus(Application.Status.values()[in.get()]);
+			app.setHoldUntil(in.getLong());
+			app.setWithdrawalPending(in.get() != 0);
+			applicant.setApplication(app);
+			applications.add(app);
+		}
+		return applications;
+	}
+
+	/**
+	 * Decodes the registrations section and links each registration to its
+	 * officer. {@link #readUsers()} and {@link #readProjects()} must be called
+	 * first.
+	 *
+	 * @return All registrations, in the order they were saved.
+	 * @throws IOException if the section cannot be read.
+	 */
+	public synchronized List<Registration> readRegistrations() throws IOException {
+		ByteBuffer in = map(REGISTRATIONS);
+		List<Registration> registrations = new ArrayList<>(counts[REGISTRATIONS]);
+		for (int i = 0; i < counts[REGISTRATIONS]; i++) {
+			HDBOfficer officer = (HDBOfficer) resolveUser(getString(in));
+			Registration reg = new Registration(officer, resolveProject(getString(in)));
+			reg.setStatus(Registration.Status.values()[in.get()]);
+			officer.getRegistrations().add(reg);
+			registrations.add(reg);
+		}
+		return registrations;
+	}
+
+	/**
+	 * Decodes the enquiries section. {@link #readUsers()} and
+	 * {@link #readProjects()} must be called first.
+	 *
+	 * @return All enquiries, in the order they were saved.
+	 * @throws IOException if the section cannot be read.
+	 */
+	public synchronized List<Enquiry> readEnquiries() throws IOException {
+		ByteBuffer in = map(ENQUIRIES);
+		List<Enquiry> enquiries = new ArrayList<>(counts[ENQUIRIES]);
+		for (int i = 0; i < counts[ENQUIRIES]; i++) {
+			String id = getString(in);
+			Applicant applicant = (Applicant) resolveUser(getString(in));
+			Enquiry e = new Enquiry(id, applicant, resolveProject(getString(in)), getString(in));
+			e.setResponse(getString(in));
+			enquiries.add(e);
+		}
+		return enquiries;
+	}
+
+	/**
+	 * Looks up a user decoded by {@link #readUsers()}.
+	 *
+	 * @param nric The NRIC of the user.
+	 * @return The user.
+	 * @throws IOException if the users have not been read or the NRIC is unknown.
+	 */
+	private User resolveUser(String nric) throws IOException {
+		User u = usersByNric == null ? null : usersByNric.get(nric);
+		if (u == null) {
+			throw new IOException("Snapshot references unknown user " + nric);
+		}
+		return u;
+	}
+
+	/**
+	 * Looks up a project decoded by {@link #readProjects()}.
+	 *
+	 * @param name The project name.
+	 * @return The project.
+	 * @throws IOException if the projects have not been read or the name is
+	 *                     unknown.
+	 */
+	private Project resolveProject(String name) throws IOException {
+		Project p = projectsByName == null ? null : projectsByName.get(name);
+		if (p == null) {
+			throw new IOException("Snapshot references unknown project " + name);
+		}
+		return p;
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 string.
+	 *
+	 * @param in The buffer to read from.
+	 * @return The string, or {@code null} if a null was written.
+	 */
+	static String getString(ByteBuffer in) {
+		int len = in.getInt();
+		if (len < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[len];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a length-prefixed UTF-8 string.
+	 *
+	 * @param out The stream to write to.
+	 * @param s   The string, possibly {@code null}.
+	 * @throws IOException if the write fails.
+	 */
+	static void putString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Encoded snapshot sections held in memory, ready to be written to a file.
+	 * Capturing the state and writing it are separate steps so that a checkpoint
+	 * only has to hold writers off while the state is encoded, not while it is
+	 * written to disk.
+	 */
+	public static final class Image {
+		/** The encoded bytes of each section. */
+		private final byte[][] sections;
+		/** Record count of each section. */
+		private final int[] counts;
+		/** LSN of the last journal record reflected in the image. */
+		private final long journalLsn;
+
+		/**
+		 * Creates an image.
+		 *
+		 * @param sections   The encoded bytes of each section.
+		 * @param counts     Record count of each section.
+		 * @param journalLsn LSN of the last journal record reflected in the image.
+		 */
+		private Image(byte[][] sections, int[] counts, long journalLsn) {
+			this.sections = sections;
+			this.counts = counts;
+			this.journalLsn = journalLsn;
+		}
+
+		/**
+		 * Returns the LSN of the last journal record reflected in the image.
+		 *
+		 * @return The journal LSN.
+		 */
+		public long getJournalLsn() {
+			return journalLsn;
+		}
+
+		/**
+		 * Returns the encoded size of the image, excluding the header.
+		 *
+		 * @return The size in bytes.
+		 */
+		public long getSize() {
+			long size = 0;
+			for (byte[] section : sections) {
+				size += section.length;
+			}
+			return size;
+		}
+
+		/**
+		 * Writes the image as a snapshot file. The data is written to a temporary
+		 * file next to {@code file}, forced to disk and then atomically moved into
+		 * place.
+		 *
+		 * @param file The snapshot file to create or replace.
+		 * @throws IOException if the snapshot cannot be written.
+		 */
+		public void writeTo(Path file) throws IOException {
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putLong(journalLsn)
+						.putInt(SECTION_COUNT);
+				long offset = HEADER_SIZE;
+				for (int i = 0; i < SECTION_COUNT; i++) {
+					header.putLong(offset).putLong(sections[i].length).putInt(counts[i]);
+					offset += sections[i].length;
+				}
+				header.flip();
+				writeFully(ch, header);
+				for (byte[] section : sections) {
+					writeFully(ch, ByteBuffer.wrap(section));
+				}
+				ch.force(true);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		/**
+		 * Writes all remaining bytes of a buffer at the channel's position.
+		 *
+		 * @param ch  The channel.
+		 * @param buf The bytes to write.
+		 * @throws IOException if the write fails.
+		 */
+		private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+		}
+	}
+
+	/**
+	 * A copy of the mutable parts of the state, taken while writers are held
+	 * back, that can be encoded into an {@link Image} after they are let go.
+	 * Model objects are referenced, not copied: their identity and immutable
+	 * fields (NRICs, ages, flat types, project {@link Project.Details}) cannot
+	 * change, and every field that can change is copied into an array here. The
+	 * copy is a few field reads per object, much cheaper than encoding.
+	 */
+	public static final class State {
+		/** The users. */
+		private final User[] users;
+		/** Each user's password. */
+		private final String[] passwords;
+		/** The projects. */
+		private final Project[] projects;
+		/** Each project's details. */
+		private final Project.Details[] details;
+		/** Each project's unbooked units of flat type 1. */
+		private final int[] unbooked1;
+		/** Each project's unbooked units of flat type 2. */
+		private final int[] unbooked2;
+		/** Each project's booked units of flat type 1. */
+		private final int[] booked1;
+		/** Each project's booked units of flat type 2. */
+		private final int[] booked2;
+		/** Each project's free officer slots. */
+		private final int[] officerSlots;
+		/** Each project's assigned officer. */
+		private final String[] officers;
+		/** Whether each project is visible. */
+		private final boolean[] visible;
+		/** The applications. */
+		private final Application[] applications;
+		/** Each application's status. */
+		private final Application.Status[] applicationStatus;
+		/** When each application's unit hold lapses. */
+		private final long[] holdUntil;
+		/** Whether each application's withdrawal awaits the manager. */
+		private final boolean[] withdrawalPending;
+		/** The officer registrations. */
+		private final Registration[] registrations;
+		/** Each registration's status. */
+		private final Registration.Status[] registrationStatus;
+		/** The enquiries. */
+		private final Enquiry[] enquiries;
+		/** Each enquiry's question. */
+		private final String[] questions;
+		/** Each enquiry's response. */
+		private final String[] responses;
+		/** LSN of the last journal record reflected in the state. */
+		private final long journalLsn;
+
+		/**
+		 * Copies the mutable parts of the state.
+		 *
+		 * @param users         All users.
+		 * @param projects      All projects.
+		 * @param applications  All applications.
+		 * @param registrations All officer registrations.
+		 * @param enquiries     All enquiries.
+		 * @param journalLsn    LSN of the last journal record reflected in the
+		 *                      state.
+		 */
+		private State(Collection<? extends User> users, Collection<Project> projects,
+				Collection<Application> applications, Collection<Registration> registrations,
+				Collection<Enquiry> enquiries, long journalLsn) {
+			this.users = users.toArray(new User[0]);
+			this.passwords = new String[this.users.length];
+			for (int i = 0; i < this.users.length; i++) {
+				passwords[i] = this.users[i].getPassword();
+			}
+			this.projects = projects.toArray(new Project[0]);
+			int n = this.projects.length;
+			this.details = new Project.Details[n];
+			this.unbooked1 = new int[n];
+			this.unbooked2 = new int[n];
+			this.booked1 = new int[n];
+			this.booked2 = new int[n];
+			this.officerSlots = new int[n];
+			this.officers = new String[n];
+			this.visible = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				Project p = this.projects[i];
+				details[i] = p.getDetails();
+				unbooked1[i] = p.getInventoryType1().getUnbooked();
+				unbooked2[i] = p.getInventoryType2().getUnbooked();
+				booked1[i] = p.getInventoryType1().getBooked();
+				booked2[i] = p.getInventoryType2().getBooked();
+				officerSlots[i] = p.getOfficerSlot();
+				officers[i] = p.getOfficer();
+				visible[i] = p.isVisible();
+			}
+			this.applications = applications.toArray(new Application[0]);
+			this.applicationStatus = new Application.Status[this.applications.length];
+			this.holdUntil = new long[this.applications.length];
+			this.withdrawalPending = new boolean[this.applications.length];
+			for (int i = 0; i < this.applications.length; i++) {
+				applicationStatus[i] = this.applications[i].getStatus();
+				holdUntil[i] = this.applications[i].getHoldUntil();
+				withdrawalPending[i] = this.applications[i].isWithdrawalPending();
+			}
+			this.registrations = registrations.toArray(new Registration[0]);
+			this.registrationStatus = new Registration.Status[this.registrations.length];
+			for (int i = 0; i < this.registrations.length; i++) {
+				registrationStatus[i] = this.registrations[i].getStatus();
+			}
+			this.enquiries = enquiries.toArray(new Enquiry[0]);
+			this.questions = new String[this.enquiries.length];
+			this.responses = new String[this.enquiries.length];
+			for (int i = 0; i < this.enquiries.length; i++) {
+				questions[i] = this.enquiries[i].getQuestion();
+				responses[i] = this.enquiries[i].getResponse();
+			}
+			this.journalLsn = journalLsn;
+		}
+
+		/**
+		 * Encodes the copied state into an in-memory {@link Image}. The live state
+		 * may change meanwhile; projects are named as they were when copied.
+		 *
+		 * @return The encoded image.
+		 */
+		public Image encode() {
+			byte[][] sections = new byte[SECTION_COUNT][];
+			int[] counts = new int[SECTION_COUNT];
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+			DataOutputStream out = new DataOutputStream(bytes);
+			Map<Project, String> names = new IdentityHashMap<>(projects.length * 2);
+			try {
+				for (int i = 0; i < users.length; i++) {
+					User u = users[i];
+					if (u instanceof HDBManager) {
+						out.writeByte(KIND_MANAGER);
+					} else if (u instanceof HDBOfficer) {
+						out.writeByte(KIND_OFFICER);
+					} else {
+						out.writeByte(KIND_APPLICANT);
+					}
+					putString(out, u.getNric());
+					out.writeInt(u.getAge());
+					putString(out, u.getMaritalStatus());
+					putString(out, passwords[i]);
+					if (u instanceof HDBManager) {
+						putString(out, ((HDBManager) u).getName());
+					}
+				}
+				counts[USERS] = users.length;
+				sections[USERS] = drain(bytes);
+
+				for (int i = 0; i < projects.length; i++) {
+					Project.Details d = details[i];
+					names.put(projects[i], d.getProjectName());
+					putString(out, d.getProjectName());
+					putString(out, d.getNeighborhood());
+					putString(out, d.getType1());
+					out.writeInt(unbooked1[i]);
+					out.writeDouble(d.getPriceType1());
+					putString(out, d.getType2());
+					out.writeInt(unbooked2[i]);
+					out.writeDouble(d.getPriceType2());
+					putString(out, d.getOpenDate());
+					putString(out, d.getCloseDate());
+					putString(out, d.getManager());
+					out.writeInt(officerSlots[i]);
+					putString(out, officers[i]);
+					out.writeByte(visible[i] ? 1 : 0);
+					out.writeInt(booked1[i]);
+					out.writeInt(booked2[i]);
+				}
+				counts[PROJECTS] = projects.length;
+				sections[PROJECTS] = drain(bytes);
+
+				for (int i = 0; i < applications.length; i++) {
+					Application a = applications[i];
+					putString(out, a.getApplicant().getNric());
+					putString(out, name(names, a.getProject()));
+					putString(out, a.getFlatType());
+					out.writeByte(applicationStatus[i].ordinal());
+					out.writeLong(holdUntil[i]);
+					out.writeByte(withdrawalPending[i] ? 1 : 0);
+				}
+				counts[APPLICATIONS] = applications.length;
+				sections[APPLICATIONS] = drain(bytes);
+
+				for (int i = 0; i < registrations.length; i++) {
+					Registration r = registrations[i];
+					putString(out, r.getOfficer().getNric());
+					putString(out, name(names, r.getProject()));
+					out.writeByte(registrationStatus[i].ordinal());
+				}
+				counts[REGISTRATIONS] = registrations.length;
+				sections[REGISTRATIONS] = drain(bytes);
+
+				for (int i = 0; i < enquiries.length; i++) {
+					Enquiry e = enquiries[i];
+					putString(out, e.getId());
+					putString(out, e.getApplicant().getNric());
+					putString(out, name(names, e.getProject()));
+					putString(out, questions[i]);
+					putString(out, responses[i]);
+				}
+				counts[ENQUIRIES] = enquiries.length;
+				sections[ENQUIRIES] = drain(bytes);
+			} catch (IOException e) {
+				// ByteArrayOutputStream never throws.
+				throw new UncheckedIOException(e);
+			}
+			return new Image(sections, counts, journalLsn);
+		}
+
+		/**
+		 * Returns the name a project had when the state was copied. A project
+		 * deleted before then can no longer be renamed, so its current name is
+		 * used.
+		 *
+		 * @param names   The copied names of the projects.
+		 * @param project The project.
+		 * @return The project's name.
+		 */
+		private static String name(Map<Project, String> names, Project project) {
+			String name = names.get(project);
+			return name != null ? name : project.getProjectName();
+		}
+	}
+
+	/**
+	 * Copies the mutable parts of the given state into a {@link State} that can
+	 * be encoded later. The caller must make sure the state does not change
+	 * while it is being copied.
+	 *
+	 * @param users         All users.
+	 * @param projects      All projects.
+	 * @param applications  All applications.
+	 * @param registrations All officer registrations.
+	 * @param enquiries     All enquiries.
+	 * @param journalLsn    LSN of the last journal record reflected in the state.
+	 * @return The copied state.
+	 */
+	public static State freeze(Collection<? extends User> users, Collection<Project> projects,
+			Collection<Application> applications, Collection<Registration> registrations,
+			Collection<Enquiry> enquiries, long journalLsn) {
+		return new State(users, projects, applications, registrations, enquiries, journalLsn);
+	}
+
+	/**
+	 * Encodes the given state into an in-memory {@link Image}; shorthand for
+	 * {@link #freeze} followed by {@link State#encode()}. The caller must make
+	 * sure the state does not change while it is being captured.
+	 *
+	 * @param users         All users.
+	 * @param projects      All projects.
+	 * @param applications  All applications.
+	 * @param registrations All officer registrations.
+	 * @param enquiries     All enquiries.
+	 * @param journalLsn    LSN of the last journal record reflected in the state.
+	 * @return The encoded image.
+	 */
+	public static Image capture(Collection<? extends User> users, Collection<Project> projects,
+			Collection<Application> applications, Collection<Registration> registrations,
+			Collection<Enquiry> enquiries, long journalLsn) {
+		return freeze(users, projects, applications, registrations, enquiries, journalLsn).encode();
+	}
+
+	/**
+	 * Returns the bytes written to a buffer so far and empties it for the next
+	 * section.
+	 *
+	 * @param bytes The buffer.
+	 * @return The buffered bytes.
+	 */
+	private static byte[] drain(ByteArrayOutputStream bytes) {
+		byte[] section = bytes.toByteArray();
+		bytes.reset();
+		return section;
+	}
+
+	/**
+	 * Writes a snapshot of the given state; shorthand for
+	 * {@link #capture(Collection, Collection, Collection, Collection, Collection, long)}
+	 * followed by {@link Image#writeTo(Path)}.
+	 *
+	 * @param file          The snapshot file to create or replace.
+	 * @param users         All users.
+	 * @param projects      All projects.
+	 * @param applications  All applications.
+	 * @param registrations All officer registrations.
+	 * @param enquiries     All enquiries.
+	 * @param journalLsn    LSN of the last journal record reflected in the state.
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	public static void write(Path file, Collection<? extends User> users, Collection<Project> projects,
+			Collection<Application> applications, Collection<Registration> registrations,
+			Collection<Enquiry> enquiries, long journalLsn) throws IOException {
+		capture(users, projects, applications, registrations, enquiries, journalLsn).writeTo(file);
+	}
+
+	/**
+	 * Closes the snapshot file. Buffers already returned remain valid until they
+	 * are garbage collected.
+	 *
+	 * @throws IOException if the file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,110 @@
+package edu.ntu.bto.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by many keys. Each key (an applicant, a project,
+ * an officer, ...) maps to one stripe by its hash, so updates to different keys
+ * rarely contend while updates to the same key are serialized, without one
+ * lock object per key.
+ * <p>
+ * {@link #lock(Object...)} takes the stripes of several keys at once, always in
+ * ascending stripe order, so two threads locking overlapping keys in different
+ * argument orders cannot deadlock.
+ * </p>
+ *
+ * @author SC2002 Assignment Group
+ */
+public class StripedLocks {
+	/**
+	 * The stripes held by one {@link StripedLocks#lock(Object...)} call; closing
+	 * it releases them.
+	 */
+	public static final class Guard implements AutoCloseable {
+		/** The locks held, in acquisition order. */
+		private final ReentrantLock[] held;
+
+		/**
+		 * Creates a guard over locks that are already held.
+		 *
+		 * @param held The held locks.
+		 */
+		private Guard(ReentrantLock[] held) {
+			this.held = held;
+		}
+
+		/**
+		 * Releases the locks in reverse acquisition order.
+		 */
+		@Override
+		public void close() {
+			for (int i = held.length - 1; i >= 0; i--) {
+				held[i].unlock();
+			}
+		}
+	}
+
+	/** The stripes; the length is a power of two. */
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * Creates a set of 64 stripes.
+	 */
+	public StripedLocks() {
+		this(64);
+	}
+
+	/**
+	 * Creates a set of stripes.
+	 *
+	 * @param count The minimum number of stripes; rounded up to a power of two.
+	 */
+	public StripedLocks(int count) {
+		int n = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+		stripes = new ReentrantLock[n];
+		for (int i = 0; i < n; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Returns the stripe index of a key.
+	 *
+	 * @param key The key.
+	 * @return The stripe index.
+	 */
+	private int indexOf(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return ((h * 0x9E3779B9) >>> 16) & (stripes.length - 1);
+	}
+
+	/**
+	 * Locks the stripes of the given keys. {@code null} keys are ignored, and keys
+	 * sharing a stripe lock it once.
+	 *
+	 * @param keys The keys to lock.
+	 * @return A guard that releases the stripes when closed.
+	 */
+	public Guard lock(Object... keys) {
+		int[] idx = new int[keys.length];
+		int n = 0;
+		for (Object key : keys) {
+			if (key != null) {
+				idx[n++] = indexOf(key);
+			}
+		}
+		Arrays.sort(idx, 0, n);
+		ReentrantLock[] held = new ReentrantLock[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == 0 || idx[i] != idx[i - 1]) {
+				held[count] = stripes[idx[i]];
+				held[count].lock();
+				count++;
+			}
+		}
+		return new Guard(count == n ? held : Arrays.copyOf(held, count));
+	}
+}
@@ -0,0 +1,64 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+
+/**
+ * Tests that applications of applicants whose NRIC is malformed are turned
+ * down, or left out of the NRIC index, without corrupting the other state.
+ *
+ * @author SC2002 Assignment Group
+ */
+class ApplicationControlTest {
+	@Test
+	void malformedNricIsTurnedDownWithoutChanges() {
+		try (ControlFixture fixture = new ControlFixture(1, 1)) {
+			fixture.silence();
+			Applicant bad = new Applicant("X123", 30, "Married");
+			assertFalse(fixture.applications.apply(bad, fixture.project, "3-Room"));
+			assertNull(bad.getApplication());
+			assertNotNull(fixture.applications.applyAll(List.of(new Application(bad, fixture.project, "3-Room")))
+					.get(0));
+			assertNull(bad.getApplication());
+			assertEquals(0, fixture.store.size());
+			assertEquals(0, fixture.store.count(Application.Status.PENDING));
+
+			Applicant good = fixture.applicants.get(0);
+			assertTrue(fixture.applications.apply(good, fixture.project, "3-Room"));
+			assertTrue(fixture.applications.getApplicationByNric(good.getNric()) == good.getApplication());
+		}
+	}
+
+	@Test
+	void loadedApplicationWithMalformedNricIsSkipped() {
+		try (ControlFixture fixture = new ControlFixture(2, 1)) {
+			Applicant bad = new Applicant("X123", 30, "Married");
+			Applicant good = fixture.applicants.get(0);
+			ApplicationStore store = new ApplicationStore();
+			for (Applicant a : List.of(bad, good)) {
+				Application app = new Application(a, fixture.project, "3-Room");
+				a.setApplication(app);
+				store.add(app);
+			}
+			ApplicationControl control = new ApplicationControl(store, null, fixture.locks, fixture.holds,
+					new EligibilityRules(Paths.get("target", "no-eligibility.properties")),
+					new PendingWork(new ArrayList<>(), store));
+			assertNull(control.getApplicationByNric("X123"));
+			assertTrue(control.getApplicationByNric(good.getNric()) == good.getApplication());
+			assertEquals(2, store.size());
+		}
+	}
+}
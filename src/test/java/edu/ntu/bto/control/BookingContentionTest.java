@@ -0,0 +1,126 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.UnitInventory;
+
+/**
+ * Measures booking throughput as the number of officer threads grows, while
+ * more successful applicants than units race for the last flats. Most of the
+ * applicants lost their unit hold before booking, so they compete for the
+ * available units through the inventory's compare-and-set. A monitor thread
+ * samples the inventory throughout and the test fails if the available count
+ * ever drops below zero or more units are booked than exist; afterwards
+ * exactly as many bookings must have succeeded as there are units. The
+ * throughput of each run is printed.
+ *
+ * @author SC2002 Assignment Group
+ */
+class BookingContentionTest {
+	/** 3-Room units in the project. */
+	private static final int UNITS = 4000;
+	/** Successful applicants that keep their hold until booking. */
+	private static final int HELD = 1000;
+	/** The flat type applied for. */
+	private static final String TYPE = "3-Room";
+
+	@ParameterizedTest(name = "{0} officer thread(s)")
+	@ValueSource(ints = { 1, 2, 4, 8 })
+	@Timeout(value = 120, unit = TimeUnit.SECONDS)
+	void officersNeverOversell(int threads) throws Exception {
+		try (ControlFixture fixture = new ControlFixture(UNITS, UNITS + HELD)) {
+			fixture.silence();
+			List<Applicant> applicants = fixture.applicants;
+			// Approve one applicant per unit, then let their holds go so the units
+			// are available again; the rest are approved afterwards and keep theirs.
+			List<Application> lapsed = submit(fixture, applicants.subList(0, UNITS));
+			assertEquals(UNITS, fixture.manager.approveApplications(lapsed));
+			lapsed.forEach(fixture.holds::release);
+			assertEquals(HELD, fixture.manager.approveApplications(submit(fixture, applicants.subList(UNITS,
+					UNITS + HELD))));
+			UnitInventory units = fixture.project.getInventory(TYPE);
+			assertEquals(UNITS - HELD, units.getAvailable());
+
+			List<Applicant> order = new ArrayList<>(applicants);
+			Collections.shuffle(order, new Random(2002));
+			AtomicInteger next = new AtomicInteger();
+			AtomicBoolean running = new AtomicBoolean(true);
+			AtomicInteger lowest = new AtomicInteger(Integer.MAX_VALUE);
+			AtomicInteger highest = new AtomicInteger();
+			Thread monitor = new Thread(() -> {
+				while (running.get()) {
+					lowest.accumulateAndGet(units.getAvailable(), Math::min);
+					highest.accumulateAndGet(units.getBooked(), Math::max);
+				}
+			}, "inventory-monitor");
+			monitor.start();
+
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<?>> officers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				officers.add(pool.submit(() -> {
+					start.await();
+					for (int i = next.getAndIncrement(); i < order.size(); i = next.getAndIncrement()) {
+						fixture.applications.bookFlat(fixture.officer, order.get(i), TYPE);
+					}
+					return null;
+				}));
+			}
+			long began = System.nanoTime();
+			start.countDown();
+			for (Future<?> officer : officers) {
+				officer.get();
+			}
+			long nanos = System.nanoTime() - began;
+			pool.shutdown();
+			running.set(false);
+			monitor.join();
+
+			assertTrue(lowest.get() >= 0, "available dropped to " + lowest.get());
+			assertTrue(highest.get() <= UNITS, highest.get() + " units booked of " + UNITS);
+			assertEquals(UNITS, units.getBooked(), units.toString());
+			assertEquals(0, units.getAvailable(), units.toString());
+			assertEquals(0, units.getHeld(), units.toString());
+			assertEquals(UNITS, fixture.store.count(Application.Status.BOOKED));
+			assertEquals(HELD, fixture.store.count(Application.Status.UNSUCCESSFUL));
+			fixture.report(String.format("Booking contention: %d officer thread(s), %d bookings in %.1f ms, %.0f/s",
+					threads, order.size(), nanos / 1e6, order.size() * 1e9 / nanos));
+		}
+	}
+
+	/**
+	 * Submits a 3-Room application for each applicant.
+	 *
+	 * @param fixture    The system.
+	 * @param applicants The applicants.
+	 * @return Their pending applications.
+	 */
+	private static List<Application> submit(ControlFixture fixture, List<Applicant> applicants) {
+		List<Application> apps = new ArrayList<>(applicants.size());
+		for (Applicant a : applicants) {
+			assertTrue(fixture.applications.apply(a, fixture.project, TYPE), a.getNric());
+			apps.add(a.getApplication());
+		}
+		return apps;
+	}
+}
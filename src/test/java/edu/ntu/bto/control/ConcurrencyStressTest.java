@@ -0,0 +1,151 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.UnitInventory;
+
+/**
+ * Drives the controls from many threads at once, each applying, having
+ * applications approved, booking, withdrawing and submitting enquiries for
+ * applicants picked at random from a shared pool, then checks that no update
+ * was lost: every accepted application and enquiry is stored, the status
+ * counts agree with the applications, and every unit of the project is
+ * accounted for exactly once.
+ *
+ * @author SC2002 Assignment Group
+ */
+class ConcurrencyStressTest {
+	/** Worker threads. */
+	private static final int THREADS = 8;
+	/** Operations per worker. */
+	private static final int OPERATIONS = 20_000;
+	/** Applicants shared by the workers. */
+	private static final int APPLICANTS = 200;
+	/** 3-Room units in the project, fewer than the applicants. */
+	private static final int UNITS = 50;
+	/** The flat type applied for. */
+	private static final String TYPE = "3-Room";
+
+	/** The system under test. */
+	private ControlFixture fixture;
+
+	@BeforeEach
+	void setUp() {
+		fixture = new ControlFixture(UNITS, APPLICANTS);
+		fixture.silence();
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixture.close();
+	}
+
+	@Test
+	@Timeout(value = 120, unit = TimeUnit.SECONDS)
+	void parallelSessionsLoseNoUpdates() throws Exception {
+		LongAdder applied = new LongAdder();
+		AtomicIntegerArray asked = new AtomicIntegerArray(APPLICANTS);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> workers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(2002 + t);
+			workers.add(pool.submit(() -> {
+				start.await();
+				for (int i = 0; i < OPERATIONS; i++) {
+					int n = random.nextInt(APPLICANTS);
+					Applicant a = fixture.applicants.get(n);
+					switch (random.nextInt(5)) {
+					case 0:
+						if (fixture.applications.apply(a, fixture.project, TYPE)) {
+							applied.increment();
+						}
+						break;
+					case 1:
+						Application app = a.getApplication();
+						if (app != null && app.getStatus() == Application.Status.PENDING) {
+							fixture.manager.decideApplications(List.of(app), Collections.emptyList());
+						}
+						break;
+					case 2:
+						fixture.applications.bookFlat(fixture.officer, a, TYPE);
+						break;
+					case 3:
+						fixture.applications.withdraw(a);
+						break;
+					default:
+						fixture.enquiries.submitEnquiry(a, fixture.project, "Question " + i);
+						asked.incrementAndGet(n);
+						break;
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		pool.shutdown();
+
+		// Every accepted application is stored, once.
+		assertEquals(applied.sum(), fixture.store.size());
+		long byStatus = 0;
+		for (Application.Status status : Application.Status.values()) {
+			byStatus += fixture.store.count(status);
+			assertEquals(fixture.store.count(status), fixture.store.count(fixture.project, TYPE, status),
+					status + " count");
+		}
+		assertEquals(fixture.store.size(), byStatus);
+
+		// Each applicant has at most one active application, their current one.
+		for (Applicant a : fixture.applicants) {
+			int active = 0;
+			for (Application app : fixture.store.getByApplicant(a)) {
+				if (app.getStatus() != Application.Status.UNSUCCESSFUL) {
+					active++;
+					assertTrue(app == a.getApplication(), a.getNric() + " has an active application besides the current one");
+				}
+			}
+			assertTrue(active <= 1, a.getNric() + " has " + active + " active applications");
+		}
+
+		// Every unit is available, held for a successful application or booked.
+		UnitInventory units = fixture.project.getInventory(TYPE);
+		assertTrue(units.getAvailable() >= 0, "available " + units.getAvailable());
+		assertEquals(UNITS, units.getAvailable() + units.getHeld() + units.getBooked(), units.toString());
+		assertEquals(UNITS, units.getTotal());
+		assertEquals(fixture.store.count(Application.Status.BOOKED), units.getBooked());
+		assertEquals(fixture.store.count(Application.Status.SUCCESSFUL), units.getHeld());
+		assertEquals(units.getHeld(), fixture.holds.getHoldCount());
+
+		// Every enquiry is stored and indexed under its applicant.
+		int questions = 0;
+		for (int n = 0; n < APPLICANTS; n++) {
+			questions += asked.get(n);
+			assertEquals(asked.get(n), fixture.enquiries.getEnquiriesByApplicant(fixture.applicants.get(n)).size());
+		}
+		assertEquals(questions, fixture.enquiries.getAllEnquiries().size());
+		fixture.report("Stress: " + applied.sum() + " applications, " + questions + " enquiries, " + units);
+	}
+}
@@ -0,0 +1,100 @@
+package edu.ntu.bto.control;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.util.StripedLocks;
+
+/**
+ * The controls of a system with one project and no journal, wired as
+ * {@code BTOManagementSystem} wires them, for tests that drive them from many
+ * threads. The controls print as they would to a session, so the fixture can
+ * silence {@link System#out} while they run.
+ *
+ * @author SC2002 Assignment Group
+ */
+final class ControlFixture implements AutoCloseable {
+	/** The only project, offering 3-Room flats. */
+	final Project project;
+	/** Married applicants aged 30, eligible for 3-Room flats. */
+	final List<Applicant> applicants = new ArrayList<>();
+	/** The officer making bookings. */
+	final HDBOfficer officer = new HDBOfficer("T0000001A", 40, "Married");
+	/** All applications. */
+	final ApplicationStore store = new ApplicationStore();
+	/** Locks shared by the controls. */
+	final StripedLocks locks = new StripedLocks();
+	/** Unit holds. */
+	final HoldControl holds = new HoldControl();
+	/** Applications, withdrawals and bookings. */
+	final ApplicationControl applications;
+	/** Approvals. */
+	final ManagerControl manager;
+	/** Enquiries. */
+	final EnquiryControl enquiries;
+	/** The standard output replaced by {@link #silence()}, or {@code null}. */
+	private PrintStream out;
+
+	/**
+	 * Creates the system.
+	 *
+	 * @param units      The number of 3-Room units in the project.
+	 * @param applicants The number of applicants.
+	 */
+	ControlFixture(int units, int applicants) {
+		project = new Project("Stress", "Yishun", "2-Room", 0, 100000, "3-Room", units, 200000, "2020-01-01",
+				"2099-12-31", "Manager");
+		for (int i = 0; i < applicants; i++) {
+			this.applicants.add(new Applicant(String.format("S%07dA", i), 30, "Married"));
+		}
+		List<Project> projects = new CopyOnWriteArrayList<>(List.of(project));
+		List<Registration> registrations = new CopyOnWriteArrayList<>();
+		// No rules file, so the default rules apply.
+		EligibilityRules rules = new EligibilityRules(Paths.get("target", "no-eligibility.properties"));
+		PendingWork pending = new PendingWork(registrations, store);
+		ProjectControl projectControl = new ProjectControl(projects, locks, rules, null);
+		this.applications = new ApplicationControl(store, null, locks, holds, rules, pending);
+		this.manager = new ManagerControl(projects, store, registrations, null, locks, holds, projectControl,
+				new WindowIndex(projects, registrations), new ReportEngine(store, projectControl));
+		this.enquiries = new EnquiryControl(new ConcurrentLinkedQueue<>(), null, locks);
+	}
+
+	/**
+	 * Discards standard output until the fixture is closed.
+	 */
+	void silence() {
+		out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	/**
+	 * Prints a line to the standard output, even while it is silenced.
+	 *
+	 * @param line The line.
+	 */
+	void report(String line) {
+		(out != null ? out : System.out).println(line);
+	}
+
+	/**
+	 * Restores standard output and stops the hold timer.
+	 */
+	@Override
+	public void close() {
+		if (out != null) {
+			System.setOut(out);
+			out = null;
+		}
+		holds.close();
+	}
+}
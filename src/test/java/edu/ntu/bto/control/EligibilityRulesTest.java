@@ -0,0 +1,66 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.ntu.bto.model.Applicant;
+
+/**
+ * Tests parsing and checking of the {@link EligibilityRules}.
+ *
+ * @author SC2002 Assignment Group
+ */
+class EligibilityRulesTest {
+	@Test
+	void agesAreCheckedAgainstEveryClause() throws IOException {
+		EligibilityRules.Compiled rules = parse("2-Room = Single:35, Married:21-40\n3-Room = Married:21\n");
+		assertTrue(rules.isEligible(new Applicant("S1234567A", 35, "Single"), "2-Room"));
+		assertFalse(rules.isEligible(new Applicant("S1234567A", 34, "Single"), "2-Room"));
+		assertTrue(rules.isEligible(new Applicant("S1234567A", 40, "married"), "2-ROOM"));
+		assertFalse(rules.isEligible(new Applicant("S1234567A", 41, "Married"), "2-Room"));
+		assertFalse(rules.isEligible(new Applicant("S1234567A", 50, "Single"), "3-Room"));
+		assertTrue(rules.isEligible(new Applicant("S1234567A", 120, "Married"), "3-Room"));
+		assertFalse(rules.isEligible(new Applicant("S1234567A", 30, "Widowed"), "3-Room"));
+		assertNull(rules.check(new Applicant("S1234567A", 21, "Married"), "3-Room"));
+		assertEquals("Only married applicants aged 21+ can apply for 3-Room.",
+				rules.check(new Applicant("S1234567A", 20, "Married"), "3-Room"));
+	}
+
+	@Test
+	void upperAgeBoundIsInclusiveUpToTheLimit() throws IOException {
+		EligibilityRules.Compiled rules = parse("2-Room = Single:0-150\n");
+		assertTrue(rules.isEligible(new Applicant("S1234567A", 150, "Single"), "2-Room"));
+		assertFalse(rules.isEligible(new Applicant("S1234567A", 151, "Single"), "2-Room"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "Single", "Single:", ":35", "Single:x", "Single:-1", "Single:40-35", "Single:151",
+			"Single:35-151", "Single:35-2000000000" })
+	void malformedClausesAreRejected(String clause) {
+		assertThrows(IllegalArgumentException.class, () -> parse("2-Room = " + clause + "\n"));
+	}
+
+	/**
+	 * Parses rules written as a properties file.
+	 *
+	 * @param text The rules.
+	 * @return The compiled rules.
+	 * @throws IOException never, the rules being read from a string.
+	 */
+	private static EligibilityRules.Compiled parse(String text) throws IOException {
+		Properties props = new Properties();
+		props.load(new StringReader(text));
+		return EligibilityRules.Compiled.parse(props, "test");
+	}
+}
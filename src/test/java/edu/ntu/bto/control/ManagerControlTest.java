@@ -0,0 +1,49 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ntu.bto.model.Project;
+
+/**
+ * Tests that editing a project never leaves applications naming a flat type
+ * the project no longer offers.
+ *
+ * @author SC2002 Assignment Group
+ */
+class ManagerControlTest {
+	@Test
+	void flatTypeWithApplicationsIsNotRenamed() {
+		try (ControlFixture fixture = new ControlFixture(2, 1)) {
+			fixture.silence();
+			Project project = fixture.project;
+			assertTrue(fixture.applications.apply(fixture.applicants.get(0), project, "3-Room"));
+
+			edit(fixture, "2-Room", "4-Room", 5);
+			assertEquals("3-Room", project.getType2());
+			assertEquals(2, project.getInventory("3-Room").getTotal());
+
+			// The 2-Room type has no applications, so it may be renamed.
+			edit(fixture, "Studio", "3-room", 5);
+			assertEquals("Studio", project.getType1());
+			assertEquals(5, project.getInventory("3-Room").getTotal());
+			assertEquals(1, fixture.store.getByProject(project).size());
+		}
+	}
+
+	/**
+	 * Edits the flat types and 3-Room units of the fixture's project.
+	 *
+	 * @param fixture The system.
+	 * @param type1   The new flat type 1 name.
+	 * @param type2   The new flat type 2 name.
+	 * @param units   The new number of units of flat type 2.
+	 */
+	private static void edit(ControlFixture fixture, String type1, String type2, int units) {
+		Project p = fixture.project;
+		fixture.manager.editProject(p, p.getProjectName(), p.getNeighborhood(), type1, 0, p.getPriceType1(), type2,
+				units, p.getPriceType2(), p.getOpenDate(), p.getCloseDate(), p.getManager());
+	}
+}
@@ -0,0 +1,111 @@
+package edu.ntu.bto.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+
+/**
+ * Tests that the {@link WindowIndex} follows projects as they are edited and
+ * deleted, for the manager and for the officers handling them.
+ *
+ * @author SC2002 Assignment Group
+ */
+class WindowIndexTest {
+	/** The officer handling Acacia Breeze. */
+	private final HDBOfficer officer = new HDBOfficer("T2109876H", 36, "Single");
+	/** A project of Jessica's, handled by the officer. */
+	private final Project acacia = project("Acacia Breeze", "2025-02-15", "2025-03-20");
+	/** Another project of Jessica's, later in the year. */
+	private final Project bishan = project("Bishan Vista", "2025-06-01", "2025-06-30");
+	/** The index under test. */
+	private final WindowIndex index = new WindowIndex(List.of(acacia, bishan), List.of(approved(acacia)));
+
+	@Test
+	void editMovesTheOfficerWindows() {
+		assertTrue(index.isOfficerBusy(officer, project("Other", "2025-03-01", "2025-03-05")));
+		edit(acacia, "2025-09-01", "2025-09-30");
+		assertFalse(index.isOfficerBusy(officer, project("Other", "2025-03-01", "2025-03-05")));
+		assertTrue(index.isOfficerBusy(officer, project("Other", "2025-09-10", "2025-09-12")));
+		assertEquals(List.of(acacia), index.getProjectsOpenOn(LocalDate.of(2025, 9, 15)));
+
+		index.removeOfficer(officer, acacia);
+		assertFalse(index.isOfficerBusy(officer, project("Other", "2025-09-10", "2025-09-12")));
+	}
+
+	@Test
+	void deleteRemovesTheOfficerWindows() {
+		index.removeProject(acacia);
+		assertFalse(index.isOfficerBusy(officer, project("Other", "2025-03-01", "2025-03-05")));
+		assertTrue(index.getProjectsOpenOn(LocalDate.of(2025, 3, 1)).isEmpty());
+		assertFalse(index.isManagerBusy("Jessica", day("2025-03-01"), day("2025-03-05")));
+	}
+
+	@Test
+	void editIntoAnotherProjectOfTheManagerIsRefused() {
+		assertNull(edit(acacia, "2025-06-15", "2025-07-15"));
+		assertEquals("2025-02-15", acacia.getOpenDate());
+		assertTrue(index.isOfficerBusy(officer, project("Other", "2025-03-01", "2025-03-05")));
+		assertEquals(List.of(acacia), index.getProjectsOpenOn(LocalDate.of(2025, 3, 1)));
+
+		// Its own window does not count against it.
+		assertTrue(edit(acacia, "2025-02-01", "2025-03-31") != null);
+	}
+
+	/**
+	 * Edits a project's dates through the index.
+	 *
+	 * @param p     The project.
+	 * @param open  The new opening date.
+	 * @param close The new closing date.
+	 * @return The new details, or {@code null} if the edit was refused.
+	 */
+	private Project.Details edit(Project p, String open, String close) {
+		return index.editProject(p, day(open), day(close), () -> p.edit(p.getProjectName(), p.getNeighborhood(),
+				p.getType1(), p.getUnitsType1(), p.getPriceType1(), p.getType2(), p.getUnitsType2(),
+				p.getPriceType2(), open, close));
+	}
+
+	/**
+	 * Returns an approved registration of the officer for a project.
+	 *
+	 * @param p The project.
+	 * @return The registration.
+	 */
+	private Registration approved(Project p) {
+		Registration reg = new Registration(officer, p);
+		reg.setStatus(Registration.Status.APPROVED);
+		return reg;
+	}
+
+	/**
+	 * Creates a project of Jessica's.
+	 *
+	 * @param name  The project name.
+	 * @param open  The opening date.
+	 * @param close The closing date.
+	 * @return The project.
+	 */
+	private static Project project(String name, String open, String close) {
+		return new Project(name, "Yishun", "2-Room", 2, 350000, "3-Room", 3, 450000, open, close, "Jessica");
+	}
+
+	/**
+	 * Converts a date to its epoch day.
+	 *
+	 * @param date The date, in ISO format.
+	 * @return The epoch day.
+	 */
+	private static long day(String date) {
+		return LocalDate.parse(date).toEpochDay();
+	}
+}
@@ -0,0 +1,54 @@
+package edu.ntu.bto.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.User;
+
+/**
+ * Tests how data files newer than the snapshot are merged into the restored
+ * state: they may add users and projects, but never replace saved ones.
+ *
+ * @author SC2002 Assignment Group
+ */
+class BTOManagementSystemTest {
+	@Test
+	void newerDataFilesOnlyAddMasterData() {
+		Applicant saved = new Applicant("S1234567A", 35, "Single", "changed");
+		Project savedProject = new Project("Acacia Breeze", "Yishun", "2-Room", 1, 350000, "3-Room", 3, 450000,
+				"2025-02-15", "2025-03-20", "Jessica");
+		Application app = new Application(saved, savedProject, "2-Room");
+		saved.setApplication(app);
+		List<User> users = new ArrayList<>(List.of(saved));
+		List<Project> projects = new ArrayList<>(List.of(savedProject));
+
+		List<User> imported = List.of(new Applicant("s1234567a", 35, "Single", "password"),
+				new Applicant("S7654321B", 40, "Married", "password"));
+		List<Project> importedProjects = List.of(
+				new Project("ACACIA BREEZE", "Tampines", "2-Room", 9, 1, "3-Room", 9, 1, "2025-01-01", "2025-01-31",
+						"Jessica"),
+				new Project("Bishan Vista", "Bishan", "2-Room", 5, 300000, "3-Room", 5, 400000, "2025-04-01",
+						"2025-04-30", "Jessica"));
+
+		assertArrayEquals(new int[] { 1, 1 }, BTOManagementSystem.mergeMasterData(users, projects, imported,
+				importedProjects));
+		assertEquals(2, users.size());
+		assertTrue(users.get(0) == saved);
+		assertTrue(saved.checkPassword("changed"));
+		assertTrue(saved.getApplication() == app);
+		assertEquals("S7654321B", users.get(1).getNric());
+		assertEquals(2, projects.size());
+		assertTrue(projects.get(0) == savedProject);
+		assertEquals("Yishun", savedProject.getNeighborhood());
+		assertEquals("Bishan Vista", projects.get(1).getProjectName());
+	}
+}
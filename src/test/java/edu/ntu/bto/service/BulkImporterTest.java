@@ -0,0 +1,22 @@
+package edu.ntu.bto.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that the {@link BulkImporter} only reads and writes files in the data
+ * directory.
+ *
+ * @author SC2002 Assignment Group
+ */
+class BulkImporterTest {
+	@ParameterizedTest
+	@ValueSource(strings = { "", "  ", "../ApplicantList.xlsx", "/tmp/apps.xlsx", "sub/apps.xlsx",
+			"..\\apps.xlsx" })
+	void pathsAreRejected(String fileName) {
+		// The name is checked before the system is used.
+		assertThrows(IllegalArgumentException.class, () -> new BulkImporter(null).importFile(fileName));
+	}
+}
@@ -0,0 +1,132 @@
+package edu.ntu.bto.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ntu.bto.control.HoldControl;
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.ApplicationStore;
+import edu.ntu.bto.model.Enquiry;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.UnitInventory;
+import edu.ntu.bto.model.User;
+import edu.ntu.bto.util.Journal;
+import edu.ntu.bto.util.Snapshot;
+
+/**
+ * Restores state the way {@link BTOManagementSystem} does, from a snapshot
+ * followed by the journal, and checks the state that comes out.
+ *
+ * @author SC2002 Assignment Group
+ */
+class RestoreTest {
+	@TempDir
+	Path dir;
+	/** The users restored by {@link #restore()}. */
+	private List<User> users;
+
+	@Test
+	void replayedEditKeepsBookedUnits() throws IOException {
+		saveWithOneBooking();
+		journal(Journal.Type.PROJECT_EDIT, "Acacia Breeze", "Acacia Breeze", "Yishun", "2-Room", "3", "350000.0",
+				"3-Room", "0", "450000.0", "2025-02-15", "2025-03-20");
+
+		UnitInventory units = restore().get(0).getInventoryType1();
+		assertEquals(3, units.getTotal(), units.toString());
+		assertEquals(2, units.getAvailable(), units.toString());
+		assertEquals(1, units.getBooked(), units.toString());
+	}
+
+	@Test
+	void replayedWithdrawalOfTheLastBookingFreesItsUnit() throws IOException {
+		saveWithOneBooking();
+		journal(Journal.Type.WITHDRAW, "S1234567A");
+
+		UnitInventory units = restore().get(0).getInventoryType1();
+		assertEquals(3, units.getTotal(), units.toString());
+		assertEquals(3, units.getAvailable(), units.toString());
+		assertEquals(0, units.getBooked(), units.toString());
+	}
+
+	@Test
+	void replayedPasswordChangeIsKept() throws IOException {
+		saveWithOneBooking();
+		journal(Journal.Type.PASSWORD, "S1234567A", "changed");
+
+		restore();
+		assertTrue(users.get(0).checkPassword("changed"));
+	}
+
+	/**
+	 * Saves a snapshot of a project with three 2-Room units, one of them booked.
+	 *
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	private void saveWithOneBooking() throws IOException {
+		Applicant applicant = new Applicant("S1234567A", 35, "Single", "password");
+		Project project = new Project("Acacia Breeze", "Yishun", "2-Room", 3, 350000, "3-Room", 0, 450000,
+				"2025-02-15", "2025-03-20", "Jessica");
+		Application app = new Application(applicant, project, "2-Room");
+		app.setStatus(Application.Status.BOOKED);
+		applicant.setApplication(app);
+		project.getInventoryType1().tryReserve();
+		Snapshot.write(dir.resolve("bto.snapshot"), List.of(applicant), List.of(project), List.of(app), List.of(),
+				List.of(), 0);
+	}
+
+	/**
+	 * Appends one record to the journal.
+	 *
+	 * @param type   The record type.
+	 * @param fields The record's fields.
+	 * @throws IOException if the journal cannot be written.
+	 */
+	private void journal(Journal.Type type, String... fields) throws IOException {
+		Journal journal = new Journal(dir.resolve("journal"), 0);
+		try {
+			journal.append(type, fields);
+		} finally {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Restores the snapshot, replays the journal onto it and places the unit
+	 * holds again.
+	 *
+	 * @return The restored projects.
+	 * @throws IOException if the snapshot or journal cannot be read.
+	 */
+	private List<Project> restore() throws IOException {
+		List<Project> projects;
+		ApplicationStore applications = new ApplicationStore();
+		List<Registration> registrations;
+		try (Snapshot snapshot = Snapshot.openIfPresent(dir.resolve("bto.snapshot"))) {
+			users = new ArrayList<>(snapshot.readUsers());
+			projects = new ArrayList<>(snapshot.readProjects());
+			applications.addAll(snapshot.readApplications());
+			registrations = new ArrayList<>(snapshot.readRegistrations());
+		}
+		JournalReplayer replayer = new JournalReplayer(users, projects, applications, registrations,
+				new ConcurrentLinkedQueue<Enquiry>(), 0);
+		Journal.replay(dir.resolve("journal"), replayer::apply);
+		HoldControl holds = new HoldControl();
+		try {
+			holds.restore(projects, applications);
+		} finally {
+			holds.close();
+		}
+		return projects;
+	}
+}
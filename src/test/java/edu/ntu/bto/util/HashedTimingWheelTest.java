@@ -0,0 +1,73 @@
+package edu.ntu.bto.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests that a {@link HashedTimingWheel} fires tasks no earlier than their
+ * delay, including delays of several turns of the ring, and never fires a
+ * cancelled one.
+ *
+ * @author SC2002 Assignment Group
+ */
+class HashedTimingWheelTest {
+	@Test
+	@Timeout(value = 10, unit = TimeUnit.SECONDS)
+	void firesAfterTheDelayEvenAcrossTurns() throws InterruptedException {
+		try (HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", 5, TimeUnit.MILLISECONDS, 8)) {
+			CountDownLatch fired = new CountDownLatch(2);
+			long began = System.nanoTime();
+			long[] at = new long[2];
+			HashedTimingWheel.Timeout soon = wheel.schedule(() -> {
+				at[0] = System.nanoTime();
+				fired.countDown();
+			}, 10, TimeUnit.MILLISECONDS);
+			// 30 ticks on a ring of 8 goes round more than three times.
+			HashedTimingWheel.Timeout late = wheel.schedule(() -> {
+				at[1] = System.nanoTime();
+				fired.countDown();
+			}, 150, TimeUnit.MILLISECONDS);
+			assertTrue(fired.await(5, TimeUnit.SECONDS));
+			assertTrue(soon.isExpired());
+			assertTrue(late.isExpired());
+			assertTrue(at[0] - began >= TimeUnit.MILLISECONDS.toNanos(10));
+			assertTrue(at[1] - began >= TimeUnit.MILLISECONDS.toNanos(150));
+			assertFalse(late.cancel());
+			assertEquals(0, wheel.getPending());
+		}
+	}
+
+	@Test
+	@Timeout(value = 10, unit = TimeUnit.SECONDS)
+	void cancelledTasksNeverFire() throws InterruptedException {
+		try (HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", 5, TimeUnit.MILLISECONDS, 8)) {
+			AtomicInteger runs = new AtomicInteger();
+			HashedTimingWheel.Timeout cancelled = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+			assertTrue(cancelled.cancel());
+			assertFalse(cancelled.cancel());
+			CountDownLatch marker = new CountDownLatch(1);
+			wheel.schedule(marker::countDown, 60, TimeUnit.MILLISECONDS);
+			assertTrue(marker.await(5, TimeUnit.SECONDS));
+			assertTrue(cancelled.isCancelled());
+			assertFalse(cancelled.isExpired());
+			assertEquals(0, runs.get());
+		}
+	}
+
+	@Test
+	void closedWheelRefusesTasks() {
+		HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", 5, TimeUnit.MILLISECONDS, 8);
+		wheel.close();
+		assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> {
+		}, 1, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,79 @@
+package edu.ntu.bto.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link IntervalTree} against a plain list of intervals searched by
+ * brute force.
+ *
+ * @author SC2002 Assignment Group
+ */
+class IntervalTreeTest {
+	@Test
+	void closedIntervalsTouchAtTheirEnds() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.add(10, 20, "a");
+		assertTrue(tree.overlaps(20, 30));
+		assertTrue(tree.overlaps(0, 10));
+		assertFalse(tree.overlaps(21, 30));
+		assertFalse(tree.overlaps(0, 9));
+		assertThrows(IllegalArgumentException.class, () -> tree.add(5, 4, "b"));
+	}
+
+	@Test
+	void removeFindsTheValueByIdentity() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		String a = new String("p");
+		String b = new String("p");
+		tree.add(10, 20, a);
+		tree.add(10, 30, b);
+		assertFalse(tree.remove(11, a));
+		assertTrue(tree.remove(10, b));
+		assertFalse(tree.remove(10, b));
+		assertEquals(1, tree.size());
+		assertTrue(tree.overlapping(25, 30).isEmpty());
+		assertTrue(tree.overlapping(0, 10).get(0) == a);
+	}
+
+	@Test
+	void matchesBruteForce() {
+		Random random = new Random(2002);
+		IntervalTree<long[]> tree = new IntervalTree<>();
+		List<long[]> intervals = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			if (!intervals.isEmpty() && random.nextInt(3) == 0) {
+				long[] gone = intervals.remove(random.nextInt(intervals.size()));
+				assertTrue(tree.remove(gone[0], gone));
+			} else {
+				long start = random.nextInt(1000);
+				long[] interval = { start, start + random.nextInt(50) };
+				intervals.add(interval);
+				tree.add(interval[0], interval[1], interval);
+			}
+			long from = random.nextInt(1050) - 25;
+			long to = from + random.nextInt(30);
+			int expected = 0;
+			for (long[] interval : intervals) {
+				if (interval[0] <= to && interval[1] >= from) {
+					expected++;
+				}
+			}
+			List<long[]> found = tree.overlapping(from, to);
+			assertEquals(expected, found.size(), "[" + from + ", " + to + "]");
+			for (int k = 1; k < found.size(); k++) {
+				assertTrue(found.get(k - 1)[0] <= found.get(k)[0]);
+			}
+			assertEquals(expected > 0, tree.overlaps(from, to), "[" + from + ", " + to + "]");
+			assertEquals(intervals.size(), tree.size());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package edu.ntu.bto.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the {@link Journal} replays what was appended, cuts off a record
+ * torn by a crash and refuses to lose records after damage in an older segment.
+ *
+ * @author SC2002 Assignment Group
+ */
+class JournalTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void appendedRecordsAreReplayedInOrder() throws IOException {
+		try (Journal journal = new Journal(dir, 10)) {
+			assertEquals(11, journal.append(Journal.Type.APPLY, "S1234567A", "Acacia Breeze", "2-Room"));
+			journal.roll();
+			long lsn = journal.write(Journal.Type.PASSWORD, "S1234567A", "");
+			journal.awaitDurable(lsn);
+			assertEquals(12, lsn);
+		}
+		List<Journal.Record> records = replay();
+		assertEquals(2, records.size());
+		assertEquals(Journal.Type.APPLY, records.get(0).getType());
+		assertArrayEquals(new String[] { "S1234567A", "Acacia Breeze", "2-Room" }, fields(records.get(0)));
+		assertEquals(12, records.get(1).getLsn());
+		assertEquals(Journal.Type.PASSWORD, records.get(1).getType());
+		assertArrayEquals(new String[] { "S1234567A", "" }, fields(records.get(1)));
+	}
+
+	@Test
+	void tornTailIsCutOffAndNumberingContinues() throws IOException {
+		try (Journal journal = new Journal(dir, 0)) {
+			journal.append(Journal.Type.WITHDRAW, "S1234567A");
+			journal.append(Journal.Type.WITHDRAW, "T7654321B");
+		}
+		Path segment = segments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		assertEquals(1, replay().size());
+
+		try (Journal journal = new Journal(dir, 0)) {
+			assertEquals(2, journal.append(Journal.Type.WITHDRAW, "S9876543C"));
+		}
+		List<Journal.Record> records = replay();
+		assertEquals(2, records.size());
+		assertEquals("S9876543C", records.get(1).get(0));
+	}
+
+	@Test
+	void damageInAnOlderSegmentIsRefused() throws IOException {
+		try (Journal journal = new Journal(dir, 0)) {
+			journal.append(Journal.Type.WITHDRAW, "S1234567A");
+			journal.append(Journal.Type.WITHDRAW, "T7654321B");
+			journal.roll();
+			journal.append(Journal.Type.WITHDRAW, "S9876543C");
+		}
+		Path older = segments().get(0);
+		byte[] bytes = Files.readAllBytes(older);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(older, bytes);
+
+		assertThrows(IOException.class, this::replay);
+		assertThrows(IOException.class, () -> new Journal(dir, 0).close());
+	}
+
+	/**
+	 * Replays the journal.
+	 *
+	 * @return The records, in order.
+	 * @throws IOException if the journal cannot be replayed.
+	 */
+	private List<Journal.Record> replay() throws IOException {
+		List<Journal.Record> records = new ArrayList<>();
+		Journal.replay(dir, records::add);
+		return records;
+	}
+
+	/**
+	 * Lists the segment files.
+	 *
+	 * @return The segments, oldest first.
+	 * @throws IOException if the directory cannot be listed.
+	 */
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.sorted().toList();
+		}
+	}
+
+	/**
+	 * Returns the fields of a record.
+	 *
+	 * @param r The record.
+	 * @return Its fields.
+	 */
+	private static String[] fields(Journal.Record r) {
+		String[] fields = new String[r.size()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = r.get(i);
+		}
+		return fields;
+	}
+}
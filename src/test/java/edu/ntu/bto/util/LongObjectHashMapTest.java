@@ -0,0 +1,70 @@
+package edu.ntu.bto.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the NRIC keys of {@link NricCodec} and the {@link LongObjectHashMap}
+ * they index, the latter against a {@link HashMap}.
+ *
+ * @author SC2002 Assignment Group
+ */
+class LongObjectHashMapTest {
+	@Test
+	void nricsRoundTripAndMalformedOnesAreInvalid() {
+		assertEquals("S1234567A", NricCodec.decode(NricCodec.encode("s1234567a")));
+		assertEquals("G0000000Z", NricCodec.decode(NricCodec.encode("G0000000Z")));
+		assertTrue(NricCodec.encode("S1234567A") != NricCodec.encode("T1234567A"));
+		for (String bad : new String[] { null, "", "S123456A", "X1234567A", "S12345678", "S123456AA",
+				"S1234567A " }) {
+			assertEquals(NricCodec.INVALID, NricCodec.encode(bad), bad);
+		}
+	}
+
+	@Test
+	void invalidKeysAreRejected() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		assertThrows(IllegalArgumentException.class, () -> map.put(NricCodec.INVALID, "x"));
+		assertThrows(NullPointerException.class, () -> map.put(1, null));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	void matchesHashMap() {
+		Random random = new Random(2002);
+		LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+		Map<Long, Long> expected = new HashMap<>();
+		for (int i = 0; i < 100_000; i++) {
+			long key = random.nextInt(5000);
+			switch (random.nextInt(4)) {
+			case 0:
+				assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+				break;
+			case 1:
+				assertEquals(expected.putIfAbsent(key, (long) i), map.putIfAbsent(key, (long) i));
+				break;
+			case 2:
+				assertEquals(expected.remove(key), map.remove(key));
+				break;
+			default:
+				assertEquals(expected.get(key), map.get(key));
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+				break;
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		assertEquals(expected.size(), map.values().size());
+		assertTrue(map.values().containsAll(expected.values()));
+		assertNull(map.get(5000));
+		assertFalse(map.containsKey(5000));
+	}
+}
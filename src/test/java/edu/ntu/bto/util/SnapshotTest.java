@@ -0,0 +1,122 @@
+package edu.ntu.bto.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.ntu.bto.model.Applicant;
+import edu.ntu.bto.model.Application;
+import edu.ntu.bto.model.Enquiry;
+import edu.ntu.bto.model.HDBManager;
+import edu.ntu.bto.model.HDBOfficer;
+import edu.ntu.bto.model.Project;
+import edu.ntu.bto.model.Registration;
+import edu.ntu.bto.model.User;
+
+/**
+ * Tests that a {@link Snapshot} gives back the state it was written from, and
+ * that a missing, damaged or outdated snapshot is told apart.
+ *
+ * @author SC2002 Assignment Group
+ */
+class SnapshotTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripKeepsTheWholeState() throws IOException {
+		Applicant applicant = new Applicant("S1234567A", 35, "Single", "password");
+		applicant.changePassword("changed");
+		HDBOfficer officer = new HDBOfficer("T2109876H", 36, "Single", "secret");
+		HDBManager manager = new HDBManager("Jessica", "S5678901G", 26, "Married", "password");
+		Project project = new Project("Acacia Breeze", "Yishun", "2-Room", 2, 350000, "3-Room", 3, 450000,
+				"2025-02-15", "2025-03-20", "Jessica", 3, "");
+		project.setVisible(false);
+		Application app = new Application(applicant, project, "2-Room");
+		app.setStatus(Application.Status.SUCCESSFUL);
+		app.setHoldUntil(1_700_000_000_000L);
+		app.setWithdrawalPending(true);
+		Registration reg = new Registration(officer, project);
+		reg.setStatus(Registration.Status.APPROVED);
+		Enquiry enquiry = new Enquiry("e1", applicant, project, "Is parking included?");
+		enquiry.setResponse("Yes.");
+		Path file = dir.resolve("bto.snapshot");
+		Snapshot.write(file, List.of(applicant, officer, manager), List.of(project), List.of(app), List.of(reg),
+				List.of(enquiry), 42);
+
+		try (Snapshot snapshot = Snapshot.openIfPresent(file)) {
+			assertEquals(42, snapshot.getJournalLsn());
+			List<User> users = snapshot.readUsers();
+			assertEquals(3, users.size());
+			assertTrue(users.get(0).checkPassword("changed"));
+			assertTrue(users.get(1) instanceof HDBOfficer);
+			assertEquals("Jessica", ((HDBManager) users.get(2)).getName());
+
+			Project p = snapshot.readProjects().get(0);
+			assertEquals("Acacia Breeze", p.getProjectName());
+			assertEquals(2, p.getUnitsType1());
+			assertEquals(3, p.getUnitsType2());
+			assertEquals(450000, p.getPriceType2());
+			assertFalse(p.isVisible());
+
+			Application a = snapshot.readApplications().get(0);
+			assertTrue(a.getApplicant() == users.get(0));
+			assertTrue(a.getProject() == p);
+			assertTrue(users.get(0) instanceof Applicant && ((Applicant) users.get(0)).getApplication() == a);
+			assertEquals(Application.Status.SUCCESSFUL, a.getStatus());
+			assertEquals(1_700_000_000_000L, a.getHoldUntil());
+			assertTrue(a.isWithdrawalPending());
+
+			Registration r = snapshot.readRegistrations().get(0);
+			assertTrue(r.getOfficer() == users.get(1));
+			assertEquals(Registration.Status.APPROVED, r.getStatus());
+
+			Enquiry e = snapshot.readEnquiries().get(0);
+			assertEquals("e1", e.getId());
+			assertEquals("Is parking included?", e.getQuestion());
+			assertEquals("Yes.", e.getResponse());
+		}
+	}
+
+	@Test
+	void missingSnapshotIsNotAnError() throws IOException {
+		assertNull(Snapshot.openIfPresent(dir.resolve("none.snapshot")));
+	}
+
+	@Test
+	void damagedSnapshotIsAnError() throws IOException {
+		Path file = dir.resolve("bto.snapshot");
+		Snapshot.write(file, List.of(new Applicant("S1234567A", 35, "Single")), List.of(), List.of(), List.of(),
+				List.of(), 0);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+		assertThrows(IOException.class, () -> Snapshot.openIfPresent(file).close());
+		Files.write(file, Arrays.copyOf(bytes, 20));
+		assertThrows(IOException.class, () -> Snapshot.openIfPresent(file).close());
+	}
+
+	@Test
+	void newerSourcesAreListed() throws IOException {
+		Path file = dir.resolve("bto.snapshot");
+		Snapshot.write(file, List.of(), List.of(), List.of(), List.of(), List.of(), 0);
+		Path older = Files.createFile(dir.resolve("older.xlsx"));
+		Path newer = Files.createFile(dir.resolve("newer.xlsx"));
+		FileTime written = Files.getLastModifiedTime(file);
+		Files.setLastModifiedTime(older, FileTime.fromMillis(written.toMillis() - 60_000));
+		Files.setLastModifiedTime(newer, FileTime.fromMillis(written.toMillis() + 60_000));
+		assertEquals(List.of(newer),
+				Snapshot.newerSources(file, List.of(older, newer, dir.resolve("missing.xlsx"))));
+	}
+}